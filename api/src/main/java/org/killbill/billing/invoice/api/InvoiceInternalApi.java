@@ -39,6 +39,17 @@ public interface InvoiceInternalApi {
 
     Collection<Invoice> getUnpaidInvoicesByAccountId(UUID accountId, LocalDate upToDate, InternalTenantContext context);
 
+    /**
+     * Same as {@link #getUnpaidInvoicesByAccountId(UUID, LocalDate, InternalTenantContext)}, when only the number of unpaid invoices,
+     * their total balance and the earliest one are needed: the invoices are not materialized.
+     *
+     * @param accountId the account id
+     * @param upToDate  only consider invoices with a target date up to that date
+     * @param context   the tenant context
+     * @return the unpaid invoices summary
+     */
+    UnpaidInvoicesSummary getUnpaidInvoicesSummaryByAccountId(UUID accountId, LocalDate upToDate, InternalTenantContext context);
+
     void recordPaymentAttemptInit(UUID invoiceId, BigDecimal amountOutstanding, Currency currency, Currency processedCurrency, UUID paymentId, UUID paymentAttemptId, String transactionExternalKey, DateTime paymentDate, InternalCallContext context) throws InvoiceApiException;
 
     void recordPaymentAttemptCompletion(UUID invoiceId, BigDecimal amountOutstanding, Currency currency, Currency processedCurrency, UUID paymentId, UUID paymentAttemptId, String transactionExternalKey, DateTime paymentDate, InvoicePaymentStatus status, InternalCallContext context) throws InvoiceApiException;
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2020-2026 Equinix, Inc
+ * Copyright 2014-2026 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.invoice.api;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+import javax.annotation.Nullable;
+
+import org.joda.time.LocalDate;
+
+public class UnpaidInvoicesSummary {
+
+    private final int numberOfUnpaidInvoices;
+    private final BigDecimal unpaidInvoicesBalance;
+    private final UUID earliestUnpaidInvoiceId;
+    private final LocalDate earliestUnpaidInvoiceDate;
+
+    public UnpaidInvoicesSummary(final int numberOfUnpaidInvoices,
+                                 final BigDecimal unpaidInvoicesBalance,
+                                 @Nullable final UUID earliestUnpaidInvoiceId,
+                                 @Nullable final LocalDate earliestUnpaidInvoiceDate) {
+        this.numberOfUnpaidInvoices = numberOfUnpaidInvoices;
+        this.unpaidInvoicesBalance = unpaidInvoicesBalance;
+        this.earliestUnpaidInvoiceId = earliestUnpaidInvoiceId;
+        this.earliestUnpaidInvoiceDate = earliestUnpaidInvoiceDate;
+    }
+
+    public int getNumberOfUnpaidInvoices() {
+        return numberOfUnpaidInvoices;
+    }
+
+    public BigDecimal getUnpaidInvoicesBalance() {
+        return unpaidInvoicesBalance;
+    }
+
+    public UUID getEarliestUnpaidInvoiceId() {
+        return earliestUnpaidInvoiceId;
+    }
+
+    public LocalDate getEarliestUnpaidInvoiceDate() {
+        return earliestUnpaidInvoiceDate;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("UnpaidInvoicesSummary{");
+        sb.append("numberOfUnpaidInvoices=").append(numberOfUnpaidInvoices);
+        sb.append(", unpaidInvoicesBalance=").append(unpaidInvoicesBalance);
+        sb.append(", earliestUnpaidInvoiceId=").append(earliestUnpaidInvoiceId);
+        sb.append(", earliestUnpaidInvoiceDate=").append(earliestUnpaidInvoiceDate);
+        sb.append('}');
+        return sb.toString();
+    }
+}
@@ -0,0 +1,32 @@
+/*
+ * Copyright 2020-2026 Equinix, Inc
+ * Copyright 2014-2026 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.usage;
+
+import java.util.List;
+
+import org.killbill.billing.usage.api.SubscriptionUsageRecord;
+import org.killbill.billing.usage.api.UsageApiException;
+import org.killbill.billing.util.callcontext.CallContext;
+
+public interface BulkUsageUserApi {
+
+    // Bulk version of UsageUserApi#recordRolledUpUsage: records can span several subscriptions and accounts (of the same tenant),
+    // and are either all recorded or none of them is (e.g. if one of the tracking ids was already used,
+    // or if usage is recorded past the effective end date of its subscription)
+    public void recordRolledUpUsage(List<SubscriptionUsageRecord> records, CallContext context) throws UsageApiException;
+}
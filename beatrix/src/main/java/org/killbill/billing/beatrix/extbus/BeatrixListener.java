@@ -70,11 +70,14 @@ import org.killbill.billing.util.callcontext.CallOrigin;
 import org.killbill.billing.util.callcontext.InternalCallContextFactory;
 import org.killbill.billing.util.callcontext.TenantContext;
 import org.killbill.billing.util.callcontext.UserType;
+import org.killbill.billing.util.config.definition.EventConfig;
 import org.killbill.bus.api.BusEvent;
 import org.killbill.bus.api.PersistentBus;
 import org.killbill.bus.api.PersistentBus.EventBusException;
 import org.killbill.commons.eventbus.AllowConcurrentEvents;
 import org.killbill.commons.eventbus.Subscribe;
+import org.killbill.commons.metrics.api.MetricRegistry;
+import org.skife.jdbi.v2.IDBI;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -90,14 +93,32 @@ public class BeatrixListener {
     // External bus: Do not use BusOptimizer
     private final PersistentBus externalBus;
     private final InternalCallContextFactory internalCallContextFactory;
+    // Null when external events are posted one at a time
+    private final ExternalBusEventBatcher externalBusEventBatcher;
 
     protected ObjectMapper objectMapper;
 
     @Inject
     public BeatrixListener(@Named(BusModule.EXTERNAL_BUS_NAMED) final PersistentBus externalBus,
-                           final InternalCallContextFactory internalCallContextFactory) {
+                           final InternalCallContextFactory internalCallContextFactory,
+                           final IDBI dbi,
+                           final EventConfig eventConfig,
+                           final MetricRegistry metricRegistry) {
+        this(externalBus,
+             internalCallContextFactory,
+             eventConfig.getExternalEventPostBatchSize() > 0 ?
+             new ExternalBusEventBatcher(externalBus, dbi, eventConfig.getExternalEventPostBatchSize(), eventConfig.getExternalEventPostBatchMaxWait().getMillis(), metricRegistry) :
+             null);
+    }
+
+    public BeatrixListener(final PersistentBus externalBus, final InternalCallContextFactory internalCallContextFactory) {
+        this(externalBus, internalCallContextFactory, null);
+    }
+
+    private BeatrixListener(final PersistentBus externalBus, final InternalCallContextFactory internalCallContextFactory, @Nullable final ExternalBusEventBatcher externalBusEventBatcher) {
         this.externalBus = externalBus;
         this.internalCallContextFactory = internalCallContextFactory;
+        this.externalBusEventBatcher = externalBusEventBatcher;
         this.objectMapper = new ObjectMapper();
         objectMapper.registerModule(new JodaModule());
         objectMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
@@ -112,7 +133,11 @@ public class BeatrixListener {
             final BusEvent externalEvent = computeExtBusEventEntryFromBusInternalEvent(event, internalContext);
             if (externalEvent != null) {
                 log.info("Sending extBusEvent='{}' from busEvent='{}'", externalEvent, event);
-                externalBus.post(externalEvent);
+                if (externalBusEventBatcher != null) {
+                    externalBusEventBatcher.post(externalEvent);
+                } else {
+                    externalBus.post(externalEvent);
+                }
             }
         } catch (final EventBusException e) {
             //
@@ -0,0 +1,204 @@
+/*
+ * Copyright 2020-2026 Equinix, Inc
+ * Copyright 2014-2026 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.killbill.billing.beatrix.extbus;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.killbill.bus.api.BusEvent;
+import org.killbill.bus.api.PersistentBus;
+import org.killbill.bus.api.PersistentBus.EventBusException;
+import org.killbill.commons.metrics.api.Histogram;
+import org.killbill.commons.metrics.api.MetricRegistry;
+import org.killbill.commons.metrics.api.Timer;
+import org.skife.jdbi.v2.IDBI;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Groups the external events posted concurrently by the bus threads and inserts them in a single transaction.
+ * <p/>
+ * The first bus thread becomes the batch leader: it waits (up to batchMaxWait) for other threads to join, and then
+ * posts the whole batch. Every bus thread still blocks until its own external event has been committed and gets the
+ * exception back if any, so that the internal event is only marked as processed once the external one is persisted.
+ * If the batch fails, its events are posted one at a time, so that a faulty event doesn't fail the others.
+ */
+public class ExternalBusEventBatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(ExternalBusEventBatcher.class);
+
+    private final PersistentBus externalBus;
+    private final IDBI dbi;
+    private final int batchSize;
+    private final long batchMaxWaitMillis;
+    private final Histogram batchSizes;
+    private final Timer postLag;
+
+    // Guarded by this
+    private final LinkedList<PendingEvent> pending = new LinkedList<>();
+    private boolean hasLeader = false;
+
+    public ExternalBusEventBatcher(final PersistentBus externalBus, final IDBI dbi, final int batchSize, final long batchMaxWaitMillis, final MetricRegistry metricRegistry) {
+        this.externalBus = externalBus;
+        this.dbi = dbi;
+        this.batchSize = batchSize;
+        this.batchMaxWaitMillis = batchMaxWaitMillis;
+        this.batchSizes = metricRegistry.histogram("killbill.beatrix.extBus.batch.size");
+        // Time between the translation of the internal event and the commit of the external one
+        this.postLag = metricRegistry.timer("killbill.beatrix.extBus.batch.lag");
+    }
+
+    public void post(final BusEvent event) throws EventBusException {
+        final PendingEvent pendingEvent = new PendingEvent(event);
+
+        boolean interrupted = false;
+        boolean isLeader;
+        synchronized (this) {
+            pending.add(pendingEvent);
+            isLeader = !hasLeader;
+            hasLeader = true;
+            if (pending.size() >= batchSize) {
+                notifyAll();
+            }
+            while (!isLeader && !pendingEvent.isDone) {
+                interrupted |= waitUninterruptibly(0);
+                // Leadership can be handed over to us by the previous leader
+                isLeader = pendingEvent.isLeader;
+            }
+        }
+
+        if (isLeader) {
+            // Our own event is always part of the batch we lead
+            interrupted |= postBatch();
+        }
+
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+
+        postLag.update(System.nanoTime() - pendingEvent.createdNanos, TimeUnit.NANOSECONDS);
+
+        if (pendingEvent.error instanceof EventBusException) {
+            throw (EventBusException) pendingEvent.error;
+        } else if (pendingEvent.error instanceof RuntimeException) {
+            throw (RuntimeException) pendingEvent.error;
+        } else if (pendingEvent.error instanceof Error) {
+            throw (Error) pendingEvent.error;
+        } else if (pendingEvent.error != null) {
+            throw new EventBusException("Failed to post event " + event, pendingEvent.error);
+        }
+    }
+
+    private boolean postBatch() {
+        boolean interrupted = false;
+        final List<PendingEvent> pendingEvents = new ArrayList<>(batchSize);
+        synchronized (this) {
+            // Give the other bus threads a chance to join the batch
+            final long deadline = System.currentTimeMillis() + batchMaxWaitMillis;
+            long remaining = batchMaxWaitMillis;
+            while (pending.size() < batchSize && remaining > 0) {
+                interrupted |= waitUninterruptibly(remaining);
+                remaining = deadline - System.currentTimeMillis();
+            }
+
+            while (!pending.isEmpty() && pendingEvents.size() < batchSize) {
+                pendingEvents.add(pending.removeFirst());
+            }
+        }
+
+        try {
+            insert(pendingEvents);
+        } finally {
+            synchronized (this) {
+                for (final PendingEvent pendingEvent : pendingEvents) {
+                    pendingEvent.isDone = true;
+                }
+                // Events which arrived in the meantime are posted by the next batch
+                if (pending.isEmpty()) {
+                    hasLeader = false;
+                } else {
+                    pending.getFirst().isLeader = true;
+                }
+                notifyAll();
+            }
+        }
+        return interrupted;
+    }
+
+    private void insert(final List<PendingEvent> pendingEvents) {
+        try {
+            dbi.inTransaction((handle, status) -> {
+                for (final PendingEvent pendingEvent : pendingEvents) {
+                    externalBus.postFromTransaction(pendingEvent.event, handle.getConnection());
+                }
+                return null;
+            });
+        } catch (final RuntimeException | Error e) {
+            if (pendingEvents.size() == 1) {
+                // Retried through its internal event
+                pendingEvents.get(0).error = e.getCause() instanceof EventBusException ? e.getCause() : e;
+            } else {
+                // The whole batch was rolled back: post the events one by one, so that only the faulty one fails (the
+                // others would otherwise be retried alongside it, and could end up exhausting their retries)
+                log.warn("Failed to post external events batch size='{}', posting them individually", pendingEvents.size(), e);
+                postIndividually(pendingEvents);
+            }
+        }
+
+        batchSizes.update(pendingEvents.size());
+        log.debug("Posted external events batch size='{}'", pendingEvents.size());
+    }
+
+    private void postIndividually(final List<PendingEvent> pendingEvents) {
+        for (final PendingEvent pendingEvent : pendingEvents) {
+            try {
+                externalBus.post(pendingEvent.event);
+            } catch (final EventBusException | RuntimeException | Error e) {
+                pendingEvent.error = e;
+            }
+        }
+    }
+
+    // The event must be posted (or handed over) regardless: the caller restores the interrupted flag once done
+    private boolean waitUninterruptibly(final long timeoutMillis) {
+        try {
+            wait(timeoutMillis);
+            return false;
+        } catch (final InterruptedException e) {
+            return true;
+        }
+    }
+
+    private static final class PendingEvent {
+
+        private final BusEvent event;
+        private final long createdNanos = System.nanoTime();
+
+        // Guarded by the ExternalBusEventBatcher monitor
+        private boolean isDone = false;
+        private boolean isLeader = false;
+        private Throwable error;
+
+        private PendingEvent(final BusEvent event) {
+            this.event = event;
+        }
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright 2020-2026 Equinix, Inc
+ * Copyright 2014-2026 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.killbill.billing.beatrix.extbus;
+
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.killbill.bus.api.BusEvent;
+import org.killbill.bus.api.PersistentBus;
+import org.killbill.bus.api.PersistentBus.EventBusException;
+import org.killbill.commons.concurrent.Executors;
+import org.killbill.commons.metrics.api.Histogram;
+import org.killbill.commons.metrics.api.MetricRegistry;
+import org.killbill.commons.metrics.api.Timer;
+import org.mockito.Mockito;
+import org.skife.jdbi.v2.Handle;
+import org.skife.jdbi.v2.IDBI;
+import org.skife.jdbi.v2.TransactionCallback;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class TestExternalBusEventBatcher {
+
+    @Test(groups = "fast")
+    public void testConcurrentEventsAreBatched() throws Exception {
+        final int nbEvents = 20;
+
+        final List<BusEvent> events = new ArrayList<>(nbEvents);
+        for (int i = 0; i < nbEvents; i++) {
+            events.add(Mockito.mock(BusEvent.class));
+        }
+        final BusEvent failingEvent = events.get(7);
+
+        // Events posted in the current transaction, only committed if the transaction succeeds
+        final ThreadLocal<List<BusEvent>> transactionEvents = new ThreadLocal<>();
+        final List<BusEvent> committedEvents = new ArrayList<>();
+        final List<Integer> transactionSizes = new ArrayList<>();
+        final List<BusEvent> individuallyPostedEvents = new ArrayList<>();
+
+        final PersistentBus externalBus = Mockito.mock(PersistentBus.class);
+        Mockito.doAnswer(invocation -> {
+            final BusEvent event = invocation.getArgument(0);
+            if (event == failingEvent) {
+                throw new EventBusException("Failed to post event");
+            }
+            transactionEvents.get().add(event);
+            return null;
+        }).when(externalBus).postFromTransaction(Mockito.any(), Mockito.any());
+        // Fallback when a batch fails
+        Mockito.doAnswer(invocation -> {
+            final BusEvent event = invocation.getArgument(0);
+            if (event == failingEvent) {
+                throw new EventBusException("Failed to post event");
+            }
+            synchronized (committedEvents) {
+                committedEvents.add(event);
+                individuallyPostedEvents.add(event);
+            }
+            return null;
+        }).when(externalBus).post(Mockito.any());
+
+        final Handle handle = Mockito.mock(Handle.class);
+        Mockito.when(handle.getConnection()).thenReturn(Mockito.mock(Connection.class));
+        final IDBI dbi = Mockito.mock(IDBI.class);
+        Mockito.when(dbi.inTransaction(Mockito.<TransactionCallback<Object>>any())).thenAnswer(invocation -> {
+            final TransactionCallback<Object> callback = invocation.getArgument(0);
+            transactionEvents.set(new ArrayList<>());
+            try {
+                final Object result = callback.inTransaction(handle, null);
+                synchronized (committedEvents) {
+                    committedEvents.addAll(transactionEvents.get());
+                    transactionSizes.add(transactionEvents.get().size());
+                }
+                return result;
+            } catch (final Exception e) {
+                throw new RuntimeException(e);
+            } finally {
+                transactionEvents.remove();
+            }
+        });
+
+        final MetricRegistry metricRegistry = Mockito.mock(MetricRegistry.class);
+        Mockito.when(metricRegistry.histogram(Mockito.anyString())).thenReturn(Mockito.mock(Histogram.class));
+        Mockito.when(metricRegistry.timer(Mockito.anyString())).thenReturn(Mockito.mock(Timer.class));
+
+        final ExternalBusEventBatcher batcher = new ExternalBusEventBatcher(externalBus, dbi, 5, 500, metricRegistry);
+        final List<BusEvent> failedEvents = new ArrayList<>();
+        final ExecutorService busThreads = Executors.newFixedThreadPool(nbEvents, "TestExternalBusEventBatcher");
+        try {
+            final List<Callable<Void>> tasks = new ArrayList<>(nbEvents);
+            for (final BusEvent event : events) {
+                tasks.add(() -> {
+                    batcher.post(event);
+                    return null;
+                });
+            }
+
+            final List<Future<Void>> futures = busThreads.invokeAll(tasks, 30, TimeUnit.SECONDS);
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    futures.get(i).get();
+                } catch (final ExecutionException e) {
+                    Assert.assertTrue(e.getCause() instanceof EventBusException, "Unexpected exception " + e.getCause());
+                    failedEvents.add(events.get(i));
+                }
+            }
+        } finally {
+            busThreads.shutdownNow();
+        }
+
+        // Only the faulty event fails, the other events of its (rolled back) batch are posted individually
+        Assert.assertEquals(failedEvents, List.of(failingEvent));
+        Assert.assertTrue(individuallyPostedEvents.size() < 5, "Unexpected fallback: " + individuallyPostedEvents);
+
+        // Every other event is committed exactly once
+        Assert.assertEquals(committedEvents.size(), nbEvents - 1);
+        for (final BusEvent event : events) {
+            Assert.assertEquals(committedEvents.contains(event), event != failingEvent);
+        }
+
+        Assert.assertTrue(transactionSizes.size() < nbEvents - 1 - individuallyPostedEvents.size(), "Events weren't batched: " + transactionSizes);
+        for (final Integer transactionSize : transactionSizes) {
+            Assert.assertTrue(transactionSize <= 5);
+        }
+    }
+}
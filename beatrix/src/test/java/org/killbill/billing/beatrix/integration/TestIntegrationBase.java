@@ -1360,6 +1360,26 @@ public class TestIntegrationBase extends BeatrixTestSuiteWithEmbeddedDB implemen
             this.maxRawUsagePreviousPeriod = maxRawUsagePreviousPeriod;
         }
 
+        @Override
+        public int getParallelItemGenerationThreshold() {
+            return defaultInvoiceConfig.getParallelItemGenerationThreshold();
+        }
+
+        @Override
+        public int getParallelItemGenerationThreshold(final InternalTenantContext tenantContext) {
+            return getParallelItemGenerationThreshold();
+        }
+
+        @Override
+        public int getParallelItemGenerationThreads() {
+            return defaultInvoiceConfig.getParallelItemGenerationThreads();
+        }
+
+        @Override
+        public boolean isAccountBalanceVerificationEnabled() {
+            return defaultInvoiceConfig.isAccountBalanceVerificationEnabled();
+        }
+
         @Override
         public int getMaxGlobalLockRetries() {
             return defaultInvoiceConfig.getMaxGlobalLockRetries();
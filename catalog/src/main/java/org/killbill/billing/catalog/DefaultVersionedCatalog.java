@@ -22,14 +22,15 @@ import java.io.Externalizable;
 import java.io.IOException;
 import java.io.ObjectInput;
 import java.io.ObjectOutput;
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
-import java.util.Comparator;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.xml.bind.annotation.XmlAccessType;
 import javax.xml.bind.annotation.XmlAccessorType;
@@ -38,6 +39,7 @@ import javax.xml.bind.annotation.XmlElementWrapper;
 import javax.xml.bind.annotation.XmlRootElement;
 
 import org.joda.time.DateTime;
+import org.killbill.billing.catalog.api.CatalogApiException;
 import org.killbill.billing.catalog.api.Plan;
 import org.killbill.billing.catalog.api.PlanPhase;
 import org.killbill.billing.catalog.api.StaticCatalog;
@@ -58,9 +60,12 @@ public class DefaultVersionedCatalog extends ValidatingConfig<DefaultVersionedCa
     @XmlElement(required = true)
     private String catalogName;
 
+    // Effective date index over versions, rebuilt whenever the list is modified (see VersionList)
+    private transient volatile VersionIndex versionIndex;
+
     // Required for JAXB deserialization
     public DefaultVersionedCatalog() {
-        this.versions = new ArrayList<StaticCatalog>();
+        this.versions = new VersionList();
     }
 
     @Override
@@ -85,38 +90,85 @@ public class DefaultVersionedCatalog extends ValidatingConfig<DefaultVersionedCa
     }
 
     private StaticCatalog versionForDate(final DateTime date) {
-        return versions.get(indexOfVersionForDate(date.toDate()));
+        final VersionIndex index = getVersionIndex();
+        return index.versions[index.indexOfVersionForDate(date.toDate())];
     }
 
-    private int indexOfVersionForDate(final Date date) {
-
-        for (int i = versions.size() - 1; i >= 0; i--) {
-            final StaticCatalog c = versions.get(i);
-            if (c.getEffectiveDate().getTime() <= date.getTime()) {
-                return i;
+    /**
+     * Find a plan by name, as defined by the version effective at the given date or, if the plan has been retired,
+     * by the most recent prior version still defining it.
+     *
+     * @param planName the plan name
+     * @param date     the lookup date
+     * @return the plan
+     * @throws CatalogApiException if no version effective at (or prior to) the date defines this plan
+     */
+    public Plan findPlan(final String planName, final Date date) throws CatalogApiException {
+        final VersionIndex index = getVersionIndex();
+        final int versionIdx = index.indexOfVersionForDate(date);
+        final Plan[] plans = index.getPlansForName(planName);
+        if (plans == null) {
+            // Not a plan defined in the XML (e.g. overridden plan)
+            return index.versions[versionIdx].findPlan(planName);
+        }
+        for (int i = versionIdx; i >= 0; i--) {
+            if (plans[i] != null) {
+                return plans[i];
             }
         }
-        // If the only version we have are after the input date, we return the first version
-        // This is not strictly correct from an api point of view, but there is no real good use case
-        // where the system would ask for the catalog for a date prior any catalog was uploaded and
-        // yet time manipulation could end of inn that state -- see https://github.com/killbill/killbill/issues/760
-        if (!versions.isEmpty()) {
-            return 0;
+        return index.versions[versionIdx].findPlan(planName);
+    }
+
+    /**
+     * Find a phase by name, with the same version resolution as {@link #findPlan(String, Date)}.
+     *
+     * @param phaseName the phase name
+     * @param date      the lookup date
+     * @return the phase
+     * @throws CatalogApiException if no version effective at (or prior to) the date defines this phase
+     */
+    public PlanPhase findPhase(final String phaseName, final Date date) throws CatalogApiException {
+        final VersionIndex index = getVersionIndex();
+        final int versionIdx = index.indexOfVersionForDate(date);
+        final PlanPhase[] phases = index.getPhasesForName(phaseName);
+        if (phases == null) {
+            return index.versions[versionIdx].findPhase(phaseName);
+        }
+        for (int i = versionIdx; i >= 0; i--) {
+            if (phases[i] != null) {
+                return phases[i];
+            }
         }
-        throw new IllegalStateException(String.format("No existing versions in the VersionedCatalog catalog for input date %s", date));
+        return index.versions[versionIdx].findPhase(phaseName);
     }
 
     public void add(final StandaloneCatalog e) {
         if (catalogName == null && e.getCatalogName() != null) {
             catalogName = e.getCatalogName();
         }
-        versions.add(e);
-        Collections.sort(versions, new Comparator<StaticCatalog>() {
-            @Override
-            public int compare(final StaticCatalog c1, final StaticCatalog c2) {
-                return c1.getEffectiveDate().compareTo(c2.getEffectiveDate());
+        // Versions are kept sorted by effective date: insert after any existing version with the same effective date
+        int low = 0;
+        int high = versions.size();
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (versions.get(mid).getEffectiveDate().compareTo(e.getEffectiveDate()) <= 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
             }
-        });
+        }
+        versions.add(low, e);
+    }
+
+    private VersionIndex getVersionIndex() {
+        final VersionIndex index = versionIndex;
+        final int modCount = ((VersionList) versions).getModCount();
+        if (index != null && index.modCount == modCount) {
+            return index;
+        }
+        final VersionIndex newIndex = new VersionIndex(versions, modCount);
+        versionIndex = newIndex;
+        return newIndex;
     }
 
     @Override
@@ -128,6 +180,8 @@ public class DefaultVersionedCatalog extends ValidatingConfig<DefaultVersionedCa
         //
         super.initialize(catalog);
         CatalogSafetyInitializer.initializeNonRequiredNullFieldsWithDefaultValue(this);
+        // Build the index once the catalog is loaded, rather than on the first lookup
+        getVersionIndex();
     }
 
     @Override
@@ -196,6 +250,7 @@ public class DefaultVersionedCatalog extends ValidatingConfig<DefaultVersionedCa
     public void readExternal(final ObjectInput in) throws IOException, ClassNotFoundException {
         this.catalogName = in.readBoolean() ? in.readUTF() : null;
         this.versions.addAll((Collection<? extends StandaloneCatalog>) in.readObject());
+        getVersionIndex();
     }
 
     @Override
@@ -205,7 +260,8 @@ public class DefaultVersionedCatalog extends ValidatingConfig<DefaultVersionedCa
             // Can be null for placeholder XML
             oo.writeUTF(catalogName);
         }
-        oo.writeObject(versions);
+        // Keep the serialized form independent of VersionList
+        oo.writeObject(new ArrayList<StaticCatalog>(versions));
     }
 
     @Override
@@ -232,4 +288,173 @@ public class DefaultVersionedCatalog extends ValidatingConfig<DefaultVersionedCa
         return result;
     }
 
+    // ArrayList exposing its modification count, so that the index can detect any change made through getVersions()
+    private static final class VersionList extends ArrayList<StaticCatalog> {
+
+        private static final long serialVersionUID = 4183751870417283113L;
+
+        @Override
+        public StaticCatalog set(final int index, final StaticCatalog element) {
+            // ArrayList#set doesn't count as a structural modification
+            modCount++;
+            return super.set(index, element);
+        }
+
+        @Override
+        public List<StaticCatalog> subList(final int fromIndex, final int toIndex) {
+            // ArrayList views write to the backing array directly, bypassing set() above: route the writes through this list instead
+            if (fromIndex < 0 || toIndex > size() || fromIndex > toIndex) {
+                throw new IndexOutOfBoundsException(String.format("fromIndex=%s, toIndex=%s, size=%s", fromIndex, toIndex, size()));
+            }
+            return new VersionSubList(this, fromIndex, toIndex);
+        }
+
+        private int getModCount() {
+            return modCount;
+        }
+    }
+
+    private static final class VersionSubList extends AbstractList<StaticCatalog> {
+
+        private final VersionList backingList;
+        private final int offset;
+        private int size;
+
+        private VersionSubList(final VersionList backingList, final int fromIndex, final int toIndex) {
+            this.backingList = backingList;
+            this.offset = fromIndex;
+            this.size = toIndex - fromIndex;
+        }
+
+        @Override
+        public StaticCatalog get(final int index) {
+            return backingList.get(offset + checkIndex(index, size));
+        }
+
+        @Override
+        public StaticCatalog set(final int index, final StaticCatalog element) {
+            return backingList.set(offset + checkIndex(index, size), element);
+        }
+
+        @Override
+        public void add(final int index, final StaticCatalog element) {
+            backingList.add(offset + checkIndex(index, size + 1), element);
+            size++;
+        }
+
+        @Override
+        public StaticCatalog remove(final int index) {
+            final StaticCatalog removed = backingList.remove(offset + checkIndex(index, size));
+            size--;
+            return removed;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        private static int checkIndex(final int index, final int length) {
+            if (index < 0 || index >= length) {
+                throw new IndexOutOfBoundsException(String.format("index=%s, size=%s", index, length));
+            }
+            return index;
+        }
+    }
+
+    private static final class VersionIndex {
+
+        private final int modCount;
+        private final StaticCatalog[] versions;
+        private final long[] effectiveDates;
+        // Per plan (resp. phase) name, the entry defined by each version (null if not defined by that version)
+        private final Map<String, Plan[]> plansByName = new ConcurrentHashMap<String, Plan[]>();
+        private final Map<String, PlanPhase[]> phasesByName = new ConcurrentHashMap<String, PlanPhase[]>();
+
+        private VersionIndex(final List<StaticCatalog> versions, final int modCount) {
+            this.modCount = modCount;
+            this.versions = versions.toArray(new StaticCatalog[0]);
+            this.effectiveDates = new long[this.versions.length];
+            for (int i = 0; i < this.versions.length; i++) {
+                effectiveDates[i] = this.versions[i].getEffectiveDate().getTime();
+            }
+        }
+
+        private int indexOfVersionForDate(final Date date) {
+            // Find the last version effective on or before the input date
+            final long time = date.getTime();
+            int low = 0;
+            int high = effectiveDates.length;
+            while (low < high) {
+                final int mid = (low + high) >>> 1;
+                if (effectiveDates[mid] <= time) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            if (low > 0) {
+                return low - 1;
+            }
+            // If the only version we have are after the input date, we return the first version
+            // This is not strictly correct from an api point of view, but there is no real good use case
+            // where the system would ask for the catalog for a date prior any catalog was uploaded and
+            // yet time manipulation could end of inn that state -- see https://github.com/killbill/killbill/issues/760
+            if (versions.length > 0) {
+                return 0;
+            }
+            throw new IllegalStateException(String.format("No existing versions in the VersionedCatalog catalog for input date %s", date));
+        }
+
+        // Returns null if no version defines this plan in its XML
+        private Plan[] getPlansForName(final String planName) {
+            if (planName == null) {
+                return null;
+            }
+            // computeIfAbsent doesn't store null results, so unknown names are never cached
+            return plansByName.computeIfAbsent(planName, name -> {
+                final Plan[] result = new Plan[versions.length];
+                boolean found = false;
+                for (int i = 0; i < versions.length; i++) {
+                    if (versions[i] instanceof StandaloneCatalog && ((StandaloneCatalog) versions[i]).getPlansMap() != null) {
+                        result[i] = ((StandaloneCatalog) versions[i]).getPlansMap().findByName(name);
+                        found = found || result[i] != null;
+                    }
+                }
+                return found ? result : null;
+            });
+        }
+
+        private PlanPhase[] getPhasesForName(final String phaseName) {
+            if (phaseName == null) {
+                return null;
+            }
+            return phasesByName.computeIfAbsent(phaseName, name -> {
+                final Plan[] plans;
+                try {
+                    plans = getPlansForName(DefaultPlanPhase.planName(name));
+                } catch (final CatalogApiException e) {
+                    // Invalid phase name, let the version report it
+                    return null;
+                }
+                if (plans == null) {
+                    return null;
+                }
+                final PlanPhase[] result = new PlanPhase[plans.length];
+                boolean found = false;
+                for (int i = 0; i < plans.length; i++) {
+                    if (plans[i] != null) {
+                        for (final PlanPhase phase : plans[i].getAllPhases()) {
+                            if (phase.getName().equals(name)) {
+                                result[i] = phase;
+                                found = true;
+                                break;
+                            }
+                        }
+                    }
+                }
+                return found ? result : null;
+            });
+        }
+    }
 }
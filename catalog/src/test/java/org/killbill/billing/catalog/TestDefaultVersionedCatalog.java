@@ -0,0 +1,204 @@
+/*
+ * Copyright 2020-2026 Equinix, Inc
+ * Copyright 2014-2026 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.killbill.billing.catalog;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.killbill.billing.ErrorCode;
+import org.killbill.billing.catalog.api.CatalogApiException;
+import org.killbill.billing.catalog.api.PhaseType;
+import org.killbill.billing.catalog.api.Plan;
+import org.killbill.billing.catalog.api.StaticCatalog;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class TestDefaultVersionedCatalog extends CatalogTestSuiteNoDB {
+
+    private static final Logger logger = LoggerFactory.getLogger(TestDefaultVersionedCatalog.class);
+
+    private static final DateTime START_DATE = new DateTime(2020, 1, 1, 0, 0, DateTimeZone.UTC);
+
+    private static final String BICYCLE_PLAN = "1-BicycleTrialEvergreen1USD";
+    private static final String PICKUP_PLAN = "3-PickupTrialEvergreen10USD";
+
+    @Test(groups = "fast")
+    public void testGetVersion() {
+        final List<StandaloneCatalog> catalogs = createVersions(10);
+
+        // Insertion order doesn't matter
+        final List<StandaloneCatalog> shuffled = new ArrayList<StandaloneCatalog>(catalogs);
+        Collections.shuffle(shuffled, new Random(42));
+        final DefaultVersionedCatalog versionedCatalog = new DefaultVersionedCatalog();
+        for (final StandaloneCatalog catalog : shuffled) {
+            versionedCatalog.add(catalog);
+        }
+        Assert.assertEquals(versionedCatalog.getVersions(), catalogs);
+
+        // Dates prior to the first version return the first version -- see #760
+        Assert.assertSame(versionedCatalog.getVersion(START_DATE.minusYears(1).toDate()), catalogs.get(0));
+        for (int i = 0; i < catalogs.size(); i++) {
+            final DateTime effectiveDate = effectiveDate(i);
+            Assert.assertSame(versionedCatalog.getVersion(effectiveDate.toDate()), catalogs.get(i));
+            Assert.assertSame(versionedCatalog.getVersion(effectiveDate.plusDays(1).toDate()), catalogs.get(i));
+            Assert.assertSame(versionedCatalog.getVersion(effectiveDate.minusMillis(1).toDate()), catalogs.get(Math.max(0, i - 1)));
+        }
+        Assert.assertSame(versionedCatalog.getCurrentVersion(), catalogs.get(catalogs.size() - 1));
+
+        // Changes made through getVersions() are picked up
+        versionedCatalog.getVersions().clear();
+        versionedCatalog.getVersions().add(catalogs.get(3));
+        Assert.assertSame(versionedCatalog.getVersion(START_DATE.toDate()), catalogs.get(3));
+        versionedCatalog.getVersions().set(0, catalogs.get(5));
+        Assert.assertSame(versionedCatalog.getVersion(START_DATE.toDate()), catalogs.get(5));
+    }
+
+    @Test(groups = "fast")
+    public void testChangesThroughSubListViews() {
+        final List<StandaloneCatalog> catalogs = createVersions(3);
+        final DefaultVersionedCatalog versionedCatalog = new DefaultVersionedCatalog();
+        for (final StandaloneCatalog catalog : catalogs) {
+            versionedCatalog.add(catalog);
+        }
+        Assert.assertSame(versionedCatalog.getVersion(effectiveDate(1).toDate()), catalogs.get(1));
+
+        // Same effective dates, different instances
+        final List<StandaloneCatalog> replacements = createVersions(3);
+        final List<StaticCatalog> view = versionedCatalog.getVersions().subList(1, 3);
+        view.set(0, replacements.get(1));
+        Assert.assertSame(versionedCatalog.getVersion(effectiveDate(1).toDate()), replacements.get(1));
+
+        view.remove(1);
+        Assert.assertEquals(view.size(), 1);
+        Assert.assertSame(versionedCatalog.getVersion(effectiveDate(2).toDate()), replacements.get(1));
+
+        view.add(replacements.get(2));
+        Assert.assertEquals(versionedCatalog.getVersions().size(), 3);
+        Assert.assertSame(versionedCatalog.getVersion(effectiveDate(2).toDate()), replacements.get(2));
+    }
+
+    @Test(groups = "fast")
+    public void testFindPlanAndPhaseForDate() throws CatalogApiException {
+        final List<StandaloneCatalog> catalogs = createVersions(3);
+        // Second version retires all plans but the bicycle one
+        catalogs.get(1).setPlans(List.of(catalogs.get(1).findPlan(BICYCLE_PLAN)));
+
+        final DefaultVersionedCatalog versionedCatalog = new DefaultVersionedCatalog();
+        for (final StandaloneCatalog catalog : catalogs) {
+            versionedCatalog.add(catalog);
+        }
+
+        final Date dateInSecondVersion = effectiveDate(1).plusDays(1).toDate();
+        Assert.assertSame(versionedCatalog.findPlan(BICYCLE_PLAN, dateInSecondVersion), catalogs.get(1).findPlan(BICYCLE_PLAN));
+        // Retired plan: resolved against the previous version
+        Assert.assertSame(versionedCatalog.findPlan(PICKUP_PLAN, dateInSecondVersion), catalogs.get(0).findPlan(PICKUP_PLAN));
+        Assert.assertSame(versionedCatalog.findPlan(PICKUP_PLAN, effectiveDate(2).toDate()), catalogs.get(2).findPlan(PICKUP_PLAN));
+
+        final String pickupTrialPhase = DefaultPlanPhase.phaseName(PICKUP_PLAN, PhaseType.TRIAL);
+        Assert.assertSame(versionedCatalog.findPhase(pickupTrialPhase, dateInSecondVersion), catalogs.get(0).findPhase(pickupTrialPhase));
+        Assert.assertSame(versionedCatalog.findPhase(pickupTrialPhase, effectiveDate(2).toDate()), catalogs.get(2).findPhase(pickupTrialPhase));
+
+        try {
+            versionedCatalog.findPlan("unknown-plan", dateInSecondVersion);
+            Assert.fail();
+        } catch (final CatalogApiException e) {
+            Assert.assertEquals(e.getCode(), ErrorCode.CAT_NO_SUCH_PLAN.getCode());
+        }
+        try {
+            versionedCatalog.findPhase(DefaultPlanPhase.phaseName(BICYCLE_PLAN, PhaseType.DISCOUNT), dateInSecondVersion);
+            Assert.fail();
+        } catch (final CatalogApiException e) {
+            Assert.assertEquals(e.getCode(), ErrorCode.CAT_NO_SUCH_PHASE.getCode());
+        }
+    }
+
+    @Test(groups = "fast", enabled = false, description = "Benchmark: date lookups against a 500-version catalog")
+    public void testLookupThroughput() throws CatalogApiException {
+        final int nbVersions = 500;
+        final int nbLookups = 1000000;
+
+        final List<StandaloneCatalog> catalogs = createVersions(nbVersions);
+        final DefaultVersionedCatalog versionedCatalog = new DefaultVersionedCatalog();
+        for (final StandaloneCatalog catalog : catalogs) {
+            versionedCatalog.add(catalog);
+        }
+        final Date[] dates = new Date[1024];
+        final Random random = new Random(42);
+        for (int i = 0; i < dates.length; i++) {
+            dates[i] = effectiveDate(random.nextInt(nbVersions)).plusHours(random.nextInt(48)).toDate();
+        }
+
+        long startNanos = System.nanoTime();
+        for (int i = 0; i < nbLookups; i++) {
+            linearVersionForDate(versionedCatalog.getVersions(), dates[i & 1023]);
+        }
+        logger.info("Linear getVersion: {} lookups/s", nbLookups * 1000L / Math.max(1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos)));
+
+        startNanos = System.nanoTime();
+        for (int i = 0; i < nbLookups; i++) {
+            versionedCatalog.getVersion(dates[i & 1023]);
+        }
+        logger.info("Indexed getVersion: {} lookups/s", nbLookups * 1000L / Math.max(1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos)));
+
+        final String phaseName = DefaultPlanPhase.phaseName(PICKUP_PLAN, PhaseType.EVERGREEN);
+        startNanos = System.nanoTime();
+        for (int i = 0; i < nbLookups; i++) {
+            linearVersionForDate(versionedCatalog.getVersions(), dates[i & 1023]).findPhase(phaseName);
+        }
+        logger.info("Linear findPhase: {} lookups/s", nbLookups * 1000L / Math.max(1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos)));
+
+        startNanos = System.nanoTime();
+        for (int i = 0; i < nbLookups; i++) {
+            versionedCatalog.findPhase(phaseName, dates[i & 1023]);
+        }
+        logger.info("Indexed findPhase: {} lookups/s", nbLookups * 1000L / Math.max(1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos)));
+    }
+
+    // Previous implementation, as a baseline
+    private static StaticCatalog linearVersionForDate(final List<StaticCatalog> versions, final Date date) {
+        for (int i = versions.size() - 1; i >= 0; i--) {
+            if (versions.get(i).getEffectiveDate().getTime() <= date.getTime()) {
+                return versions.get(i);
+            }
+        }
+        return versions.get(0);
+    }
+
+    private static List<StandaloneCatalog> createVersions(final int nbVersions) {
+        final List<StandaloneCatalog> catalogs = new ArrayList<StandaloneCatalog>(nbVersions);
+        for (int i = 0; i < nbVersions; i++) {
+            final MockCatalog catalog = new MockCatalog();
+            catalog.setEffectiveDate(effectiveDate(i).toDate());
+            catalogs.add(catalog);
+        }
+        return catalogs;
+    }
+
+    private static DateTime effectiveDate(final int versionIdx) {
+        return START_DATE.plusDays(2 * versionIdx);
+    }
+}
@@ -20,9 +20,10 @@ package org.killbill.billing.entitlement.api;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
+import java.util.IdentityHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.ListIterator;
@@ -33,6 +34,7 @@ import java.util.stream.Collectors;
 
 import javax.annotation.Nullable;
 
+import org.joda.time.DateTime;
 import org.killbill.billing.callcontext.InternalTenantContext;
 import org.killbill.billing.catalog.api.BillingPeriod;
 import org.killbill.billing.catalog.api.Plan;
@@ -79,32 +81,27 @@ public class BlockingStateOrdering extends EntitlementOrderingBase {
 
         final SupportForOlderVersionThan_0_17_X backwardCompatibleContext = new SupportForOlderVersionThan_0_17_X(inputAndOutputResult, blockingStates);
 
+        final EventTimeline timeline = new EventTimeline(allEntitlementUUIDs, inputAndOutputResult, backwardCompatibleContext);
         // Trust the incoming ordering here: blocking states were sorted using ProxyBlockingStateDao#sortedCopy
         for (final BlockingState currentBlockingState : blockingStates) {
-            final List<SubscriptionEvent> outputNewEvents = new ArrayList<SubscriptionEvent>();
-            final int index = insertFromBlockingEvent(allEntitlementUUIDs, currentBlockingState, inputAndOutputResult, backwardCompatibleContext, internalTenantContext, outputNewEvents);
-            insertAfterIndex(inputAndOutputResult, outputNewEvents, index);
+            insertFromBlockingEvent(allEntitlementUUIDs, currentBlockingState, timeline, internalTenantContext);
         }
+
+        inputAndOutputResult.clear();
+        timeline.addEventsTo(inputAndOutputResult);
         backwardCompatibleContext.addMissing_START_ENTITLEMENT(inputAndOutputResult, internalTenantContext);
     }
 
-    // Returns the index and the newEvents generated from the incoming blocking state event. Those new events will all be created for the same effectiveDate and should be ordered.
-    private int insertFromBlockingEvent(final Collection<UUID> allEntitlementUUIDs, final BlockingState currentBlockingState, final List<SubscriptionEvent> inputExistingEvents, final SupportForOlderVersionThan_0_17_X backwardCompatibleContext, final InternalTenantContext internalTenantContext, final Collection<SubscriptionEvent> outputNewEvents) {
-        // Keep the current state per entitlement
-        final Map<UUID, TargetState> targetStates = new HashMap<UUID, TargetState>();
-        for (final UUID cur : allEntitlementUUIDs) {
-            targetStates.put(cur, new TargetState());
-        }
-
+    // Inserts the new events generated from the incoming blocking state event. Those new events will all be created for the same effectiveDate and should be ordered.
+    private void insertFromBlockingEvent(final Collection<UUID> allEntitlementUUIDs, final BlockingState currentBlockingState, final EventTimeline timeline, final InternalTenantContext internalTenantContext) {
         //
-        // Find out where to insert next event, and calculate current state for each entitlement at the position where we stop.
+        // Find out where to insert next event. Events prior to the effective date are always skipped (the timeline keeps
+        // the state for each entitlement up to there), only the ones on that date need to be compared with the blocking state.
         //
-        int index = -1;
-        final Iterator<SubscriptionEvent> it = inputExistingEvents.iterator();
-        // Where we need to insert in that stream
-        DefaultSubscriptionEvent curInsertion = null;
-        while (it.hasNext()) {
-            final DefaultSubscriptionEvent cur = (DefaultSubscriptionEvent) it.next();
+        timeline.advanceTo(currentBlockingState.getEffectiveDate());
+        int index = timeline.getCursor() - 1;
+        while (index + 1 < timeline.size()) {
+            final DefaultSubscriptionEvent cur = timeline.get(index + 1);
             final int compEffectiveDate = currentBlockingState.getEffectiveDate().compareTo(cur.getEffectiveDateTime());
 
             final boolean shouldContinue;
@@ -126,36 +123,6 @@ public class BlockingStateOrdering extends EntitlementOrderingBase {
                 break;
             }
             index++;
-
-            final TargetState curTargetState = targetStates.get(cur.getEntitlementId());
-            switch (cur.getSubscriptionEventType()) {
-                case START_ENTITLEMENT:
-                    curTargetState.setEntitlementStarted();
-                    break;
-                case STOP_ENTITLEMENT:
-                    curTargetState.setEntitlementStopped();
-                    break;
-                case START_BILLING:
-                    // For older subscriptions we miss the START_ENTITLEMENT (the START_BILLING marks both start of billing and entitlement)
-                    if (backwardCompatibleContext.isOlderEntitlement(cur.getEntitlementId())) {
-                        curTargetState.setEntitlementStarted();
-                    }
-                    curTargetState.setBillingStarted();
-                    break;
-                case PAUSE_BILLING:
-                case PAUSE_ENTITLEMENT:
-                case RESUME_ENTITLEMENT:
-                case RESUME_BILLING:
-                case SERVICE_STATE_CHANGE:
-                    curTargetState.addEntitlementEvent(cur);
-                    break;
-                case STOP_BILLING:
-                    curTargetState.setBillingStopped();
-                    break;
-                default:
-                    break;
-            }
-            curInsertion = cur;
         }
 
         // Extract the list of targets based on the type of blocking state
@@ -164,17 +131,30 @@ public class BlockingStateOrdering extends EntitlementOrderingBase {
                                                 List.copyOf(allEntitlementUUIDs);
 
         // For each target compute the new events that should be inserted in the stream
+        final Map<UUID, List<EventNode>> pendingNodes = timeline.getPendingNodes(index);
+        final EventNode insertionNode = timeline.getFirstMultiplexedNode(index);
+        final Set<EventNode> nodesAfterInsertionNode = timeline.getNodesAfter(insertionNode, index);
+        final List<EventNode> newNodes = new ArrayList<EventNode>();
+        // Events inserted at the head of a non empty stream end up in reverse order (see EventTimeline#insertAfterIndex)
+        final boolean reverseOrder = index == -1 && timeline.size() > 0;
         for (final UUID targetEntitlementId : targetEntitlementIds) {
-            final SubscriptionEvent[] prevNext = findPrevNext(inputExistingEvents, targetEntitlementId, curInsertion);
-            final TargetState curTargetState = targetStates.get(targetEntitlementId);
+            final TargetState curTargetState = timeline.getTargetState(targetEntitlementId, pendingNodes);
+            final EventNode lastNode = timeline.getLastNode(targetEntitlementId, pendingNodes);
+            final SubscriptionEvent[] prevNext = timeline.findPrevNext(targetEntitlementId, lastNode, insertionNode, nodesAfterInsertionNode);
 
             final List<SubscriptionEventType> eventTypes = curTargetState.addStateAndReturnEventTypes(currentBlockingState);
+            EventNode previousNode = lastNode;
             for (final SubscriptionEventType t : eventTypes) {
-                outputNewEvents.add(toSubscriptionEvent(prevNext[0], prevNext[1], targetEntitlementId, currentBlockingState, t, internalTenantContext));
+                final EventNode newNode = new EventNode((DefaultSubscriptionEvent) toSubscriptionEvent(prevNext[0], prevNext[1], targetEntitlementId, currentBlockingState, t, internalTenantContext));
+                timeline.linkAfter(previousNode, newNode);
+                newNodes.add(newNode);
+                if (!reverseOrder) {
+                    previousNode = newNode;
+                }
             }
         }
 
-        return index;
+        timeline.insertAfterIndex(newNodes, index);
     }
 
     private int compareBlockingStateWithNextSubscriptionEvent(final BlockingState blockingState, final SubscriptionEvent next) {
@@ -242,41 +222,6 @@ public class BlockingStateOrdering extends EntitlementOrderingBase {
         }
     }
 
-    // Extract prev and next events in the stream events for that particular target subscription from the insertionEvent
-    private SubscriptionEvent[] findPrevNext(final List<SubscriptionEvent> events, final UUID targetEntitlementId, final SubscriptionEvent insertionEvent) {
-        // Find prev/next event for the same entitlement
-        final SubscriptionEvent[] result = new DefaultSubscriptionEvent[2];
-        if (insertionEvent == null) {
-            result[0] = null;
-            result[1] = !events.isEmpty() ? events.get(0) : null;
-            return result;
-        }
-
-        final Iterator<SubscriptionEvent> it = events.iterator();
-        DefaultSubscriptionEvent prev = null;
-        DefaultSubscriptionEvent next = null;
-        boolean foundCur = false;
-        while (it.hasNext()) {
-            final DefaultSubscriptionEvent tmp = (DefaultSubscriptionEvent) it.next();
-            if (tmp.getEntitlementId().equals(targetEntitlementId)) {
-                if (!foundCur) {
-                    prev = tmp;
-                } else {
-                    next = tmp;
-                    break;
-                }
-            }
-            // Check both the id and the event type because of multiplexing
-            if (tmp.getId().equals(insertionEvent.getId()) &&
-                tmp.getSubscriptionEventType().equals(insertionEvent.getSubscriptionEventType())) {
-                foundCur = true;
-            }
-        }
-        result[0] = prev;
-        result[1] = next;
-        return result;
-    }
-
     private SubscriptionEvent toSubscriptionEvent(@Nullable final SubscriptionEvent prev, @Nullable final SubscriptionEvent next,
                                                   final UUID entitlementId, final BlockingState in, final SubscriptionEventType eventType,
                                                   final InternalTenantContext internalTenantContext) {
@@ -372,19 +317,234 @@ public class BlockingStateOrdering extends EntitlementOrderingBase {
                                             internalTenantContext);
     }
 
-    private void insertAfterIndex(final LinkedList<SubscriptionEvent> original, final Collection<SubscriptionEvent> newEvents, final int index) {
-        final boolean firstPosition = (index == -1);
-        final boolean lastPosition = (index == original.size() - 1);
-        if (lastPosition || firstPosition) {
-            for (final SubscriptionEvent cur : newEvents) {
-                if (lastPosition) {
-                    original.addLast(cur);
-                } else {
-                    original.addFirst(cur);
+    private static void updateTargetState(final TargetState curTargetState, final SubscriptionEvent cur, final SupportForOlderVersionThan_0_17_X backwardCompatibleContext) {
+        switch (cur.getSubscriptionEventType()) {
+            case START_ENTITLEMENT:
+                curTargetState.setEntitlementStarted();
+                break;
+            case STOP_ENTITLEMENT:
+                curTargetState.setEntitlementStopped();
+                break;
+            case START_BILLING:
+                // For older subscriptions we miss the START_ENTITLEMENT (the START_BILLING marks both start of billing and entitlement)
+                if (backwardCompatibleContext.isOlderEntitlement(cur.getEntitlementId())) {
+                    curTargetState.setEntitlementStarted();
                 }
+                curTargetState.setBillingStarted();
+                break;
+            case PAUSE_BILLING:
+            case PAUSE_ENTITLEMENT:
+            case RESUME_ENTITLEMENT:
+            case RESUME_BILLING:
+            case SERVICE_STATE_CHANGE:
+                curTargetState.addEntitlementEvent(cur);
+                break;
+            case STOP_BILLING:
+                curTargetState.setBillingStopped();
+                break;
+            default:
+                break;
+        }
+    }
+
+    //
+    // Event in the timeline, also chained with the previous and next events of the same entitlement
+    //
+    private static final class EventNode {
+
+        private final DefaultSubscriptionEvent event;
+
+        private EventNode prevForEntitlement;
+        private EventNode nextForEntitlement;
+        // First event in the timeline with the same id and type (events are multiplexed across entitlements by blocking states)
+        private EventNode firstMultiplexedNode;
+
+        private EventNode(final DefaultSubscriptionEvent event) {
+            this.event = event;
+        }
+    }
+
+    //
+    // Ordered events across all entitlements, supporting positional insertion. Blocking states are processed by effective date,
+    // so the state of each entitlement is carried forward incrementally up to a cursor (all events before the cursor happen
+    // before the effective date of the current blocking state) instead of being recomputed from the head for each blocking state.
+    //
+    private static final class EventTimeline {
+
+        private final Collection<UUID> allEntitlementUUIDs;
+        private final SupportForOlderVersionThan_0_17_X backwardCompatibleContext;
+        private final List<EventNode> nodes;
+        private final Map<UUID, EventNode> firstNodes;
+        private final Map<UUID, TargetState> cursorStates;
+        private final Map<UUID, EventNode> cursorLastNodes;
+
+        private int cursor;
+        private DateTime cursorDate;
+
+        private EventTimeline(final Collection<UUID> allEntitlementUUIDs, final Collection<SubscriptionEvent> events, final SupportForOlderVersionThan_0_17_X backwardCompatibleContext) {
+            this.allEntitlementUUIDs = allEntitlementUUIDs;
+            this.backwardCompatibleContext = backwardCompatibleContext;
+            this.nodes = new ArrayList<EventNode>(events.size());
+            this.firstNodes = new HashMap<UUID, EventNode>();
+            this.cursorStates = new HashMap<UUID, TargetState>();
+            this.cursorLastNodes = new HashMap<UUID, EventNode>();
+
+            final Map<UUID, EventNode> lastNodes = new HashMap<UUID, EventNode>();
+            for (final SubscriptionEvent event : events) {
+                final EventNode node = new EventNode((DefaultSubscriptionEvent) event);
+                linkAfter(lastNodes.get(event.getEntitlementId()), node);
+                lastNodes.put(event.getEntitlementId(), node);
+                nodes.add(node);
+            }
+            setFirstMultiplexedNodes(nodes);
+            resetCursor();
+        }
+
+        private int size() {
+            return nodes.size();
+        }
+
+        private DefaultSubscriptionEvent get(final int index) {
+            return nodes.get(index).event;
+        }
+
+        private int getCursor() {
+            return cursor;
+        }
+
+        // Move the cursor past all events happening before that date
+        private void advanceTo(final DateTime effectiveDate) {
+            if (cursorDate != null && effectiveDate.compareTo(cursorDate) < 0) {
+                // Blocking states are expected to be sorted, but start over otherwise
+                resetCursor();
+            }
+            cursorDate = effectiveDate;
+
+            while (cursor < nodes.size() && effectiveDate.compareTo(nodes.get(cursor).event.getEffectiveDateTime()) > 0) {
+                final EventNode node = nodes.get(cursor);
+                updateTargetState(cursorStates.get(node.event.getEntitlementId()), node.event, backwardCompatibleContext);
+                cursorLastNodes.put(node.event.getEntitlementId(), node);
+                cursor++;
+            }
+        }
+
+        private void resetCursor() {
+            cursor = 0;
+            cursorDate = null;
+            cursorLastNodes.clear();
+            for (final UUID cur : allEntitlementUUIDs) {
+                cursorStates.put(cur, new TargetState());
+            }
+        }
+
+        // Events between the cursor and the index (included), per entitlement
+        private Map<UUID, List<EventNode>> getPendingNodes(final int index) {
+            final Map<UUID, List<EventNode>> result = new HashMap<UUID, List<EventNode>>();
+            for (int i = cursor; i <= index; i++) {
+                final EventNode node = nodes.get(i);
+                result.computeIfAbsent(node.event.getEntitlementId(), k -> new ArrayList<EventNode>()).add(node);
+            }
+            return result;
+        }
+
+        // State of that entitlement at the index the pending nodes were computed for
+        private TargetState getTargetState(final UUID entitlementId, final Map<UUID, List<EventNode>> pendingNodes) {
+            final TargetState result = new TargetState(cursorStates.get(entitlementId));
+            for (final EventNode node : pendingNodes.getOrDefault(entitlementId, Collections.emptyList())) {
+                updateTargetState(result, node.event, backwardCompatibleContext);
+            }
+            return result;
+        }
+
+        // Last event of that entitlement up to the index the pending nodes were computed for
+        private EventNode getLastNode(final UUID entitlementId, final Map<UUID, List<EventNode>> pendingNodes) {
+            final List<EventNode> pendingNodesForEntitlement = pendingNodes.get(entitlementId);
+            if (pendingNodesForEntitlement != null) {
+                return pendingNodesForEntitlement.get(pendingNodesForEntitlement.size() - 1);
+            } else {
+                return cursorLastNodes.get(entitlementId);
+            }
+        }
+
+        // Events are never moved once inserted, so the first of the multiplexed events (same id and type) is known upfront
+        private void setFirstMultiplexedNodes(final Iterable<EventNode> orderedNodes) {
+            final Map<UUID, Map<SubscriptionEventType, EventNode>> firstMultiplexedNodes = new HashMap<UUID, Map<SubscriptionEventType, EventNode>>();
+            for (final EventNode node : orderedNodes) {
+                node.firstMultiplexedNode = firstMultiplexedNodes.computeIfAbsent(node.event.getId(), k -> new EnumMap<SubscriptionEventType, EventNode>(SubscriptionEventType.class))
+                                                                 .computeIfAbsent(node.event.getSubscriptionEventType(), k -> node);
+            }
+        }
+
+        private EventNode getFirstMultiplexedNode(final int index) {
+            return index == -1 ? null : nodes.get(index).firstMultiplexedNode;
+        }
+
+        // Events located after the insertion node, up to the index (included). Multiplexed events are not necessarily contiguous.
+        private Set<EventNode> getNodesAfter(@Nullable final EventNode insertionNode, final int index) {
+            final Set<EventNode> result = Collections.newSetFromMap(new IdentityHashMap<EventNode, Boolean>());
+            if (insertionNode == null) {
+                return result;
+            }
+            for (int i = index; nodes.get(i) != insertionNode; i--) {
+                result.add(nodes.get(i));
+            }
+            return result;
+        }
+
+        // Extract prev and next events in the stream events for that particular target subscription from the insertion event
+        private SubscriptionEvent[] findPrevNext(final UUID targetEntitlementId, @Nullable final EventNode lastNode, @Nullable final EventNode insertionNode, final Set<EventNode> nodesAfterInsertionNode) {
+            final SubscriptionEvent[] result = new DefaultSubscriptionEvent[2];
+            if (insertionNode == null) {
+                result[0] = null;
+                result[1] = !nodes.isEmpty() ? nodes.get(0).event : null;
+                return result;
+            }
+
+            // The prev event is looked up from the first of the multiplexed events
+            EventNode prev = lastNode;
+            while (prev != null && nodesAfterInsertionNode.contains(prev)) {
+                prev = prev.prevForEntitlement;
+            }
+            final EventNode next = prev != null ? prev.nextForEntitlement : firstNodes.get(targetEntitlementId);
+            result[0] = prev != null ? prev.event : null;
+            result[1] = next != null ? next.event : null;
+            return result;
+        }
+
+        private void linkAfter(@Nullable final EventNode previousNode, final EventNode newNode) {
+            final EventNode nextNode;
+            if (previousNode == null) {
+                nextNode = firstNodes.get(newNode.event.getEntitlementId());
+                firstNodes.put(newNode.event.getEntitlementId(), newNode);
+            } else {
+                nextNode = previousNode.nextForEntitlement;
+                previousNode.nextForEntitlement = newNode;
+            }
+            newNode.prevForEntitlement = previousNode;
+            newNode.nextForEntitlement = nextNode;
+            if (nextNode != null) {
+                nextNode.prevForEntitlement = newNode;
+            }
+        }
+
+        // New events always go after the cursor, so the state kept up to the cursor remains valid
+        private void insertAfterIndex(final List<EventNode> newNodes, final int index) {
+            if (index == -1 && !nodes.isEmpty()) {
+                // Historical behavior: new events were added one by one at the head of the stream
+                final List<EventNode> reversedNewNodes = new ArrayList<EventNode>(newNodes);
+                Collections.reverse(reversedNewNodes);
+                setFirstMultiplexedNodes(reversedNewNodes);
+                nodes.addAll(0, reversedNewNodes);
+            } else {
+                setFirstMultiplexedNodes(newNodes);
+                nodes.addAll(index + 1, newNodes);
+            }
+        }
+
+        private void addEventsTo(final Collection<SubscriptionEvent> result) {
+            for (final EventNode node : nodes) {
+                result.add(node.event);
             }
-        } else {
-            original.addAll(index + 1, newEvents);
         }
     }
 
@@ -408,6 +568,14 @@ public class BlockingStateOrdering extends EntitlementOrderingBase {
             this.perServiceBlockingState = new HashMap<String, BlockingState>();
         }
 
+        public TargetState(final TargetState other) {
+            this.isEntitlementStarted = other.isEntitlementStarted;
+            this.isEntitlementStopped = other.isEntitlementStopped;
+            this.isBillingStarted = other.isBillingStarted;
+            this.isBillingStopped = other.isBillingStopped;
+            this.perServiceBlockingState = new HashMap<String, BlockingState>(other.perServiceBlockingState);
+        }
+
         public void setEntitlementStarted() {
             isEntitlementStarted = true;
         }
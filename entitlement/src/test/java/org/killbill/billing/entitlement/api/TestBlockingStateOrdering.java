@@ -21,6 +21,7 @@ import java.util.Collection;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 import org.joda.time.DateTime;
 import org.killbill.billing.entitlement.DefaultEntitlementService;
@@ -29,12 +30,16 @@ import org.killbill.billing.junction.DefaultBlockingState;
 import org.killbill.billing.platform.api.KillbillService.KILLBILL_SERVICES;
 import org.killbill.billing.subscription.api.user.SubscriptionBaseTransition;
 import org.mockito.Mockito;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
 // invocationCount > 1 to verify flakiness
 public class TestBlockingStateOrdering extends EntitlementTestSuiteNoDB {
 
+    private static final Logger logger = LoggerFactory.getLogger(TestBlockingStateOrdering.class);
+
     private long globalOrdering = 0;
 
     @Test(groups = "fast", invocationCount = 10)
@@ -333,6 +338,158 @@ public class TestBlockingStateOrdering extends EntitlementTestSuiteNoDB {
         Assert.assertEquals(allEvents.get(7).getSubscriptionEventType(), SubscriptionEventType.START_BILLING);
     }
 
+    @Test(groups = "fast")
+    public void testSameEffectiveDateAcrossEntitlements() throws Exception {
+        final DateTime now = clock.getUTCNow();
+        final UUID subscriptionId1 = new UUID(0, 1);
+        final UUID subscriptionId2 = new UUID(0, 2);
+        final UUID accountId = UUID.randomUUID();
+
+        final Collection<BlockingState> blockingStates = new LinkedList<BlockingState>();
+        blockingStates.add(createBlockingState(subscriptionId1, BlockingStateType.SUBSCRIPTION, DefaultEntitlementApi.ENT_STATE_START, KILLBILL_SERVICES.ENTITLEMENT_SERVICE.getServiceName(), false, false, now));
+        blockingStates.add(createBlockingState(subscriptionId2, BlockingStateType.SUBSCRIPTION, DefaultEntitlementApi.ENT_STATE_START, KILLBILL_SERVICES.ENTITLEMENT_SERVICE.getServiceName(), false, false, now));
+        // Paused and resumed on the date of the subscription events
+        blockingStates.add(createBlockingState(accountId, BlockingStateType.ACCOUNT, "PAUSED", "svc1", true, true, now.plusDays(10)));
+        blockingStates.add(createBlockingState(accountId, BlockingStateType.ACCOUNT, "RESUMED", "svc1", false, false, now.plusDays(10)));
+
+        final LinkedList<SubscriptionEvent> allEvents = new LinkedList<SubscriptionEvent>();
+        allEvents.add(createEvent(subscriptionId1, SubscriptionEventType.START_BILLING, now));
+        allEvents.add(createEvent(subscriptionId2, SubscriptionEventType.START_BILLING, now));
+        allEvents.add(createEvent(subscriptionId1, SubscriptionEventType.PHASE, now.plusDays(10)));
+        allEvents.add(createEvent(subscriptionId2, SubscriptionEventType.CHANGE, now.plusDays(10)));
+
+        computeEvents(allEvents, blockingStates);
+
+        Assert.assertEquals(allEvents.size(), 14);
+        assertEvent(allEvents.get(0), subscriptionId2, SubscriptionEventType.START_ENTITLEMENT, KILLBILL_SERVICES.ENTITLEMENT_SERVICE.getServiceName());
+        assertEvent(allEvents.get(1), subscriptionId1, SubscriptionEventType.START_ENTITLEMENT, KILLBILL_SERVICES.ENTITLEMENT_SERVICE.getServiceName());
+        assertEvent(allEvents.get(2), subscriptionId1, SubscriptionEventType.START_BILLING, EntitlementOrderingBase.BILLING_SERVICE_NAME);
+        assertEvent(allEvents.get(3), subscriptionId2, SubscriptionEventType.START_BILLING, EntitlementOrderingBase.BILLING_SERVICE_NAME);
+        // Blocking events come after the subscription events of the same date, in the order of the blocking states
+        assertEvent(allEvents.get(4), subscriptionId1, SubscriptionEventType.PHASE, EntitlementOrderingBase.ENT_BILLING_SERVICE_NAME);
+        assertEvent(allEvents.get(5), subscriptionId2, SubscriptionEventType.CHANGE, EntitlementOrderingBase.ENT_BILLING_SERVICE_NAME);
+        assertEvent(allEvents.get(6), subscriptionId1, SubscriptionEventType.PAUSE_ENTITLEMENT, "svc1");
+        assertEvent(allEvents.get(7), subscriptionId1, SubscriptionEventType.PAUSE_BILLING, "svc1");
+        assertEvent(allEvents.get(8), subscriptionId2, SubscriptionEventType.PAUSE_ENTITLEMENT, "svc1");
+        assertEvent(allEvents.get(9), subscriptionId2, SubscriptionEventType.PAUSE_BILLING, "svc1");
+        assertEvent(allEvents.get(10), subscriptionId1, SubscriptionEventType.RESUME_ENTITLEMENT, "svc1");
+        assertEvent(allEvents.get(11), subscriptionId1, SubscriptionEventType.RESUME_BILLING, "svc1");
+        assertEvent(allEvents.get(12), subscriptionId2, SubscriptionEventType.RESUME_ENTITLEMENT, "svc1");
+        assertEvent(allEvents.get(13), subscriptionId2, SubscriptionEventType.RESUME_BILLING, "svc1");
+    }
+
+    @Test(groups = "fast")
+    public void testServiceStateChanges() throws Exception {
+        final DateTime now = clock.getUTCNow();
+        final UUID subscriptionId1 = UUID.randomUUID();
+        final UUID accountId = UUID.randomUUID();
+
+        final Collection<BlockingState> blockingStates = new LinkedList<BlockingState>();
+        blockingStates.add(createBlockingState(subscriptionId1, BlockingStateType.SUBSCRIPTION, DefaultEntitlementApi.ENT_STATE_START, KILLBILL_SERVICES.ENTITLEMENT_SERVICE.getServiceName(), false, false, now));
+        // Non blocking states from two services on the same date
+        blockingStates.add(createBlockingState(subscriptionId1, BlockingStateType.SUBSCRIPTION, "WARNING", "svc1", false, false, now.plusDays(5)));
+        blockingStates.add(createBlockingState(accountId, BlockingStateType.ACCOUNT, "NOTICE", "svc2", false, false, now.plusDays(5)));
+        // On the date of a phase: a state change for svc1 and billing blocked at the bundle level by svc2
+        blockingStates.add(createBlockingState(subscriptionId1, BlockingStateType.SUBSCRIPTION, "CLEARED", "svc1", false, false, now.plusDays(8)));
+        blockingStates.add(createBlockingState(UUID.randomUUID(), BlockingStateType.SUBSCRIPTION_BUNDLE, "BLOCKED", "svc2", false, true, now.plusDays(8)));
+
+        final LinkedList<SubscriptionEvent> allEvents = new LinkedList<SubscriptionEvent>();
+        allEvents.add(createEvent(subscriptionId1, SubscriptionEventType.START_BILLING, now));
+        allEvents.add(createEvent(subscriptionId1, SubscriptionEventType.PHASE, now.plusDays(8)));
+
+        computeEvents(allEvents, blockingStates);
+
+        Assert.assertEquals(allEvents.size(), 7);
+        assertEvent(allEvents.get(0), subscriptionId1, SubscriptionEventType.START_ENTITLEMENT, KILLBILL_SERVICES.ENTITLEMENT_SERVICE.getServiceName());
+        assertEvent(allEvents.get(1), subscriptionId1, SubscriptionEventType.START_BILLING, EntitlementOrderingBase.BILLING_SERVICE_NAME);
+        assertEvent(allEvents.get(2), subscriptionId1, SubscriptionEventType.SERVICE_STATE_CHANGE, "svc1");
+        Assert.assertEquals(allEvents.get(2).getServiceStateName(), "WARNING");
+        assertEvent(allEvents.get(3), subscriptionId1, SubscriptionEventType.SERVICE_STATE_CHANGE, "svc2");
+        Assert.assertEquals(allEvents.get(3).getServiceStateName(), "NOTICE");
+        assertEvent(allEvents.get(4), subscriptionId1, SubscriptionEventType.PHASE, EntitlementOrderingBase.ENT_BILLING_SERVICE_NAME);
+        assertEvent(allEvents.get(5), subscriptionId1, SubscriptionEventType.SERVICE_STATE_CHANGE, "svc1");
+        Assert.assertEquals(allEvents.get(5).getServiceStateName(), "CLEARED");
+        assertEvent(allEvents.get(6), subscriptionId1, SubscriptionEventType.PAUSE_BILLING, "svc2");
+        Assert.assertEquals(allEvents.get(6).getServiceStateName(), "BLOCKED");
+    }
+
+    @Test(groups = "fast")
+    public void testPendingBlockingStates() throws Exception {
+        final DateTime now = clock.getUTCNow();
+        final UUID subscriptionId1 = new UUID(0, 1);
+        // Future start
+        final UUID subscriptionId2 = new UUID(0, 2);
+        final UUID accountId = UUID.randomUUID();
+
+        final Collection<BlockingState> blockingStates = new LinkedList<BlockingState>();
+        blockingStates.add(createBlockingState(subscriptionId1, BlockingStateType.SUBSCRIPTION, DefaultEntitlementApi.ENT_STATE_START, KILLBILL_SERVICES.ENTITLEMENT_SERVICE.getServiceName(), false, false, now));
+        blockingStates.add(createBlockingState(accountId, BlockingStateType.ACCOUNT, "PAUSED", "svc1", true, true, now.plusDays(10)));
+        blockingStates.add(createBlockingState(subscriptionId2, BlockingStateType.SUBSCRIPTION, DefaultEntitlementApi.ENT_STATE_START, KILLBILL_SERVICES.ENTITLEMENT_SERVICE.getServiceName(), false, false, now.plusDays(20)));
+        blockingStates.add(createBlockingState(accountId, BlockingStateType.ACCOUNT, "RESUMED", "svc1", false, false, now.plusDays(25)));
+        // Future cancellation, with billing stopped later (end of term)
+        blockingStates.add(createBlockingState(subscriptionId1, BlockingStateType.SUBSCRIPTION, DefaultEntitlementApi.ENT_STATE_CANCELLED, KILLBILL_SERVICES.ENTITLEMENT_SERVICE.getServiceName(), true, true, now.plusDays(30)));
+        // Between the cancellation and the end of billing
+        blockingStates.add(createBlockingState(accountId, BlockingStateType.ACCOUNT, "PAUSED", "svc1", true, true, now.plusDays(35)));
+
+        final LinkedList<SubscriptionEvent> allEvents = new LinkedList<SubscriptionEvent>();
+        allEvents.add(createEvent(subscriptionId1, SubscriptionEventType.START_BILLING, now));
+        allEvents.add(createEvent(subscriptionId2, SubscriptionEventType.START_BILLING, now.plusDays(20)));
+        allEvents.add(createEvent(subscriptionId1, SubscriptionEventType.STOP_BILLING, now.plusDays(40)));
+
+        computeEvents(allEvents, blockingStates);
+
+        Assert.assertEquals(allEvents.size(), 16);
+        assertEvent(allEvents.get(0), subscriptionId1, SubscriptionEventType.START_ENTITLEMENT, KILLBILL_SERVICES.ENTITLEMENT_SERVICE.getServiceName());
+        assertEvent(allEvents.get(1), subscriptionId1, SubscriptionEventType.START_BILLING, EntitlementOrderingBase.BILLING_SERVICE_NAME);
+        assertEvent(allEvents.get(2), subscriptionId1, SubscriptionEventType.PAUSE_ENTITLEMENT, "svc1");
+        assertEvent(allEvents.get(3), subscriptionId1, SubscriptionEventType.PAUSE_BILLING, "svc1");
+        // Not started yet: the pause is only recorded as a state change
+        assertEvent(allEvents.get(4), subscriptionId2, SubscriptionEventType.SERVICE_STATE_CHANGE, "svc1");
+        assertEvent(allEvents.get(5), subscriptionId2, SubscriptionEventType.START_ENTITLEMENT, KILLBILL_SERVICES.ENTITLEMENT_SERVICE.getServiceName());
+        assertEvent(allEvents.get(6), subscriptionId2, SubscriptionEventType.START_BILLING, EntitlementOrderingBase.BILLING_SERVICE_NAME);
+        assertEvent(allEvents.get(7), subscriptionId1, SubscriptionEventType.RESUME_ENTITLEMENT, "svc1");
+        assertEvent(allEvents.get(8), subscriptionId1, SubscriptionEventType.RESUME_BILLING, "svc1");
+        assertEvent(allEvents.get(9), subscriptionId2, SubscriptionEventType.RESUME_ENTITLEMENT, "svc1");
+        assertEvent(allEvents.get(10), subscriptionId2, SubscriptionEventType.RESUME_BILLING, "svc1");
+        assertEvent(allEvents.get(11), subscriptionId1, SubscriptionEventType.STOP_ENTITLEMENT, KILLBILL_SERVICES.ENTITLEMENT_SERVICE.getServiceName());
+        // Entitlement already stopped: only billing is paused
+        assertEvent(allEvents.get(12), subscriptionId1, SubscriptionEventType.PAUSE_BILLING, "svc1");
+        assertEvent(allEvents.get(13), subscriptionId2, SubscriptionEventType.PAUSE_ENTITLEMENT, "svc1");
+        assertEvent(allEvents.get(14), subscriptionId2, SubscriptionEventType.PAUSE_BILLING, "svc1");
+        assertEvent(allEvents.get(15), subscriptionId1, SubscriptionEventType.STOP_BILLING, EntitlementOrderingBase.BILLING_SERVICE_NAME);
+    }
+
+    @Test(groups = "fast", enabled = false, description = "Benchmark: account timeline with 1000 entitlements and account level pause/resume cycles")
+    public void testComputeEventsOnLargeAccount() throws Exception {
+        final int nbEntitlements = 1000;
+        final int nbPauseResumeCycles = 12;
+        final DateTime now = clock.getUTCNow();
+
+        final Collection<BlockingState> blockingStates = new LinkedList<BlockingState>();
+        final LinkedList<SubscriptionEvent> allEvents = new LinkedList<SubscriptionEvent>();
+        for (int i = 0; i < nbEntitlements; i++) {
+            final UUID subscriptionId = UUID.randomUUID();
+            blockingStates.add(createBlockingState(subscriptionId, BlockingStateType.SUBSCRIPTION, DefaultEntitlementApi.ENT_STATE_START, KILLBILL_SERVICES.ENTITLEMENT_SERVICE.getServiceName(), false, false, now));
+            allEvents.add(createEvent(subscriptionId, SubscriptionEventType.START_BILLING, now));
+        }
+        for (final SubscriptionEvent startBilling : new LinkedList<SubscriptionEvent>(allEvents)) {
+            allEvents.add(createEvent(startBilling.getEntitlementId(), SubscriptionEventType.PHASE, now.plusDays(30)));
+        }
+        final UUID accountId = UUID.randomUUID();
+        for (int i = 0; i < nbPauseResumeCycles; i++) {
+            blockingStates.add(createBlockingState(accountId, BlockingStateType.ACCOUNT, "PAUSED", "svc1", true, true, now.plusMonths(i + 1).plusDays(5)));
+            blockingStates.add(createBlockingState(accountId, BlockingStateType.ACCOUNT, "RESUMED", "svc1", false, false, now.plusMonths(i + 1).plusDays(10)));
+        }
+
+        final long startNanos = System.nanoTime();
+        computeEvents(allEvents, blockingStates);
+        logger.info("computeEvents: {} entitlements, {} blocking states, {} events in {} ms",
+                    nbEntitlements, blockingStates.size(), allEvents.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+
+        // START_ENTITLEMENT, START_BILLING, PHASE and PAUSE/RESUME for both entitlement and billing for each cycle
+        Assert.assertEquals(allEvents.size(), nbEntitlements * (3 + 4 * nbPauseResumeCycles));
+    }
+
     private BlockingState createBlockingState(final UUID blockedId,
                                               final BlockingStateType blockingStateType,
                                               final String stateName,
@@ -354,6 +511,12 @@ public class TestBlockingStateOrdering extends EntitlementTestSuiteNoDB {
                                         globalOrdering++);
     }
 
+    private void assertEvent(final SubscriptionEvent event, final UUID entitlementId, final SubscriptionEventType subscriptionEventType, final String serviceName) {
+        Assert.assertEquals(event.getEntitlementId(), entitlementId);
+        Assert.assertEquals(event.getSubscriptionEventType(), subscriptionEventType);
+        Assert.assertEquals(event.getServiceName(), serviceName);
+    }
+
     // Re-use SubscriptionEventOrdering method, as it's the input of BlockingStateOrdering
     private SubscriptionEvent createEvent(final UUID subscriptionId, final SubscriptionEventType type, final DateTime effectiveDate) {
         final SubscriptionBaseTransition subscriptionBaseTransition = Mockito.mock(SubscriptionBaseTransition.class);
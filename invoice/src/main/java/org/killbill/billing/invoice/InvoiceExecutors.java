@@ -0,0 +1,70 @@
+/*
+ * Copyright 2020-2026 Equinix, Inc
+ * Copyright 2014-2026 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.invoice;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Inject;
+
+import org.killbill.billing.util.config.definition.InvoiceConfig;
+
+// Executors of the invoice module, created and shut down by the invoice service lifecycle
+public class InvoiceExecutors {
+
+    private static final long TIMEOUT_EXECUTOR_SEC = 3L;
+
+    private static final String ITEM_GENERATION_THREAD_PREFIX = "invoice-item-generator-";
+
+    private final InvoiceConfig invoiceConfig;
+
+    private volatile ExecutorService parallelItemGenerationExecutorService;
+
+    @Inject
+    public InvoiceExecutors(final InvoiceConfig invoiceConfig) {
+        this.invoiceConfig = invoiceConfig;
+    }
+
+    public void initialize() {
+        this.parallelItemGenerationExecutorService = createParallelItemGenerationExecutorService();
+    }
+
+    public void stop() throws InterruptedException {
+        parallelItemGenerationExecutorService.shutdownNow();
+        parallelItemGenerationExecutorService.awaitTermination(TIMEOUT_EXECUTOR_SEC, TimeUnit.SECONDS);
+        parallelItemGenerationExecutorService = null;
+    }
+
+    // See InvoiceConfig#getParallelItemGenerationThreshold
+    public ExecutorService getParallelItemGenerationExecutorService() {
+        return parallelItemGenerationExecutorService;
+    }
+
+    private ExecutorService createParallelItemGenerationExecutorService() {
+        return new ForkJoinPool(Math.max(1, invoiceConfig.getParallelItemGenerationThreads()),
+                                pool -> {
+                                    final ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                                    thread.setName(ITEM_GENERATION_THREAD_PREFIX + thread.getPoolIndex());
+                                    return thread;
+                                },
+                                null,
+                                false);
+    }
+}
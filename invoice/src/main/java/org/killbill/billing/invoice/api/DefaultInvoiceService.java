@@ -23,6 +23,7 @@ import javax.inject.Inject;
 import org.killbill.billing.invoice.notification.ParentInvoiceCommitmentNotifier;
 import org.killbill.billing.util.optimizer.BusOptimizer;
 import org.killbill.bus.api.PersistentBus;
+import org.killbill.billing.invoice.InvoiceExecutors;
 import org.killbill.billing.invoice.InvoiceListener;
 import org.killbill.billing.invoice.InvoiceTagHandler;
 import org.killbill.billing.invoice.notification.NextBillingDateNotifier;
@@ -38,15 +39,18 @@ public class DefaultInvoiceService implements InvoiceService {
     private final InvoiceTagHandler tagHandler;
     private final BusOptimizer eventBus;
     private final ParentInvoiceCommitmentNotifier parentInvoiceNotifier;
+    private final InvoiceExecutors invoiceExecutors;
 
     @Inject
     public DefaultInvoiceService(final InvoiceListener invoiceListener, final InvoiceTagHandler tagHandler, final BusOptimizer eventBus,
-                                 final NextBillingDateNotifier dateNotifier, final ParentInvoiceCommitmentNotifier parentInvoiceNotifier) {
+                                 final NextBillingDateNotifier dateNotifier, final ParentInvoiceCommitmentNotifier parentInvoiceNotifier,
+                                 final InvoiceExecutors invoiceExecutors) {
         this.invoiceListener = invoiceListener;
         this.tagHandler = tagHandler;
         this.eventBus = eventBus;
         this.dateNotifier = dateNotifier;
         this.parentInvoiceNotifier = parentInvoiceNotifier;
+        this.invoiceExecutors = invoiceExecutors;
     }
 
     @Override
@@ -67,6 +71,7 @@ public class DefaultInvoiceService implements InvoiceService {
         } catch (PersistentBus.EventBusException e) {
             throw new RuntimeException("Failed to register bus handlers", e);
         }
+        invoiceExecutors.initialize();
         dateNotifier.initialize();
         parentInvoiceNotifier.initialize();
     }
@@ -87,5 +92,11 @@ public class DefaultInvoiceService implements InvoiceService {
         }
         dateNotifier.stop();
         parentInvoiceNotifier.stop();
+        try {
+            invoiceExecutors.stop();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while stopping the invoice executors", e);
+        }
     }
 }
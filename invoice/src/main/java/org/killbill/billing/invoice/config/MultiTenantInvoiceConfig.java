@@ -175,6 +175,30 @@ public class MultiTenantInvoiceConfig extends MultiTenantLockAwareConfigBase imp
         return staticConfig.isEmailNotificationsEnabled();
     }
 
+    @Override
+    public int getParallelItemGenerationThreshold() {
+        return staticConfig.getParallelItemGenerationThreshold();
+    }
+
+    @Override
+    public int getParallelItemGenerationThreshold(final InternalTenantContext tenantContext) {
+        final String result = getStringTenantConfig("getParallelItemGenerationThreshold", tenantContext);
+        if (result != null) {
+            return Integer.parseInt(result);
+        }
+        return getParallelItemGenerationThreshold();
+    }
+
+    @Override
+    public int getParallelItemGenerationThreads() {
+        return staticConfig.getParallelItemGenerationThreads();
+    }
+
+    @Override
+    public boolean isAccountBalanceVerificationEnabled() {
+        return staticConfig.isAccountBalanceVerificationEnabled();
+    }
+
     @Override
     public int getMaxGlobalLockRetries() {
         return staticConfig.getMaxGlobalLockRetries();
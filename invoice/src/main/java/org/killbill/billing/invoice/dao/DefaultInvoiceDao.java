@@ -63,6 +63,7 @@ import org.killbill.billing.invoice.api.InvoiceItemType;
 import org.killbill.billing.invoice.api.InvoicePaymentStatus;
 import org.killbill.billing.invoice.api.InvoicePaymentType;
 import org.killbill.billing.invoice.api.InvoiceStatus;
+import org.killbill.billing.invoice.api.UnpaidInvoicesSummary;
 import org.killbill.billing.invoice.api.user.DefaultInvoiceAdjustmentEvent;
 import org.killbill.billing.invoice.api.user.DefaultInvoiceCreationEvent;
 import org.killbill.billing.invoice.dao.serialization.BillingEventSerializer;
@@ -637,30 +638,19 @@ public class DefaultInvoiceDao extends EntityDaoBase<InvoiceModelDao, Invoice, I
         final List<Tag> invoicesTags = getInvoicesTags(context);
 
         return transactionalSqlDao.execute(true, entitySqlDaoWrapperFactory -> {
-            BigDecimal cba = BigDecimal.ZERO;
+            final BigDecimal accountBalance = invoiceDaoHelper.getAccountBalanceFromTransaction(invoicesTags, entitySqlDaoWrapperFactory, context);
+            if (!invoiceConfig.isAccountBalanceVerificationEnabled()) {
+                return accountBalance;
+            }
 
-            BigDecimal accountBalance = BigDecimal.ZERO;
+            // Troubleshooting mode: recompute the balance from the full invoices on every read (this is the cost the aggregation avoids).
+            // There is no stored balance and no background reconciliation, so differences are only logged here.
             final List<InvoiceModelDao> invoices = invoiceDaoHelper.getAllInvoicesByAccountFromTransaction(false, true, invoicesTags, entitySqlDaoWrapperFactory, context);
-            for (final InvoiceModelDao cur : invoices) {
-
-                // Skip DRAFT OR VOID invoices
-                if (cur.getStatus().equals(InvoiceStatus.DRAFT) || cur.getStatus().equals(InvoiceStatus.VOID)) {
-                    continue;
-                }
-
-                final boolean hasZeroParentBalance =
-                        cur.getParentInvoice() != null &&
-                        (cur.getParentInvoice().isWrittenOff() ||
-                         cur.getParentInvoice().getStatus() == InvoiceStatus.DRAFT ||
-                         cur.getParentInvoice().getStatus() == InvoiceStatus.VOID ||
-                         InvoiceModelDaoHelper.getRawBalanceForRegularInvoice(cur.getParentInvoice()).compareTo(BigDecimal.ZERO) == 0);
-
-                    // invoices that are WRITTEN_OFF or paid children invoices are excluded from balance computation but the cba summation needs to be included
-                    final BigDecimal invoiceBalance = cur.isWrittenOff() || hasZeroParentBalance ? BigDecimal.ZERO : InvoiceModelDaoHelper.getRawBalanceForRegularInvoice(cur);
-                    accountBalance = accountBalance.add(invoiceBalance);
-                    cba = cba.add(InvoiceModelDaoHelper.getCBAAmount(cur));
-                }
-                return accountBalance.subtract(cba);
+            final BigDecimal expectedAccountBalance = InvoiceDaoHelper.getAccountBalance(invoices);
+            if (expectedAccountBalance.compareTo(accountBalance) != 0) {
+                log.warn("Account balance mismatch for accountId='{}': aggregated balance='{}', recomputed balance='{}'", accountId, accountBalance, expectedAccountBalance);
+            }
+            return expectedAccountBalance;
         });
     }
 
@@ -676,6 +666,13 @@ public class DefaultInvoiceDao extends EntityDaoBase<InvoiceModelDao, Invoice, I
         return transactionalSqlDao.execute(true, entityWrapperFactory -> invoiceDaoHelper.getUnpaidInvoicesByAccountFromTransaction(accountId, invoicesTags, entityWrapperFactory, startDate, upToDate, context));
     }
 
+    @Override
+    public UnpaidInvoicesSummary getUnpaidInvoicesSummaryByAccountId(final UUID accountId, @Nullable final LocalDate upToDate, final InternalTenantContext context) {
+        final List<Tag> invoicesTags = getInvoicesTags(context);
+
+        return transactionalSqlDao.execute(true, entityWrapperFactory -> invoiceDaoHelper.getUnpaidInvoicesSummaryFromTransaction(invoicesTags, upToDate, entityWrapperFactory, context));
+    }
+
     @Override
     public UUID getInvoiceIdByPaymentId(final UUID paymentId, final InternalTenantContext context) {
         return transactionalSqlDao.execute(true, entitySqlDaoWrapperFactory -> entitySqlDaoWrapperFactory.become(InvoiceSqlDao.class).getInvoiceIdByPaymentId(paymentId.toString(), context));
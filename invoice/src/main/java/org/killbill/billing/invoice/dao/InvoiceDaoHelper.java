@@ -46,8 +46,11 @@ import org.killbill.billing.catalog.api.Currency;
 import org.killbill.billing.invoice.api.InvoiceApiException;
 import org.killbill.billing.invoice.api.InvoiceItemType;
 import org.killbill.billing.invoice.api.InvoiceStatus;
+import org.killbill.billing.invoice.api.UnpaidInvoicesSummary;
+import org.killbill.billing.invoice.model.DefaultInvoice;
 import org.killbill.commons.utils.Preconditions;
 import org.killbill.billing.util.callcontext.InternalCallContextFactory;
+import org.killbill.billing.util.callcontext.TenantContext;
 import org.killbill.commons.utils.collect.Iterables;
 import org.killbill.billing.util.dao.CounterMappings;
 import org.killbill.billing.util.entity.dao.EntitySqlDaoWrapperFactory;
@@ -286,6 +289,163 @@ public class InvoiceDaoHelper {
         return invoices;
     }
 
+    // PERF: Compute the account balance from the item and payment amounts aggregated per invoice (faster than re-constructing all invoices)
+    public BigDecimal getAccountBalanceFromTransaction(final List<Tag> invoicesTags,
+                                                       final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory,
+                                                       final InternalTenantContext context) {
+        final AggregatedInvoices aggregatedInvoices = getAggregatedInvoicesFromTransaction(invoicesTags, entitySqlDaoWrapperFactory, context);
+
+        BigDecimal accountBalance = getAccountBalance(aggregatedInvoices.childInvoices);
+        for (final InvoiceModelDao invoice : aggregatedInvoices.regularInvoices) {
+            final List<InvoiceItemModelDao> invoiceItemAmounts = aggregatedInvoices.getInvoiceItemAmounts(invoice);
+            // invoices that are WRITTEN_OFF are excluded from balance computation but the cba summation needs to be included
+            final BigDecimal invoiceBalance = invoice.isWrittenOff() ? BigDecimal.ZERO : InvoiceModelDaoHelper.getRawBalanceForRegularInvoice(invoice, invoiceItemAmounts, aggregatedInvoices.getInvoicePaymentAmounts(invoice));
+            accountBalance = accountBalance.add(invoiceBalance)
+                                           .subtract(InvoiceModelDaoHelper.getCBAAmount(invoice, invoiceItemAmounts));
+        }
+        return accountBalance;
+    }
+
+    // PERF: Same as getUnpaidInvoicesByAccountFromTransaction, when only the number of unpaid invoices, their balance and the earliest one are needed
+    public UnpaidInvoicesSummary getUnpaidInvoicesSummaryFromTransaction(final List<Tag> invoicesTags,
+                                                                        @Nullable final LocalDate upToDate,
+                                                                        final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory,
+                                                                        final InternalTenantContext context) {
+        final AggregatedInvoices aggregatedInvoices = getAggregatedInvoicesFromTransaction(invoicesTags, entitySqlDaoWrapperFactory, context);
+
+        int numberOfUnpaidInvoices = 0;
+        BigDecimal unpaidInvoicesBalance = BigDecimal.ZERO;
+        InvoiceModelDao earliestUnpaidInvoice = null;
+        for (final InvoiceModelDao invoice : getUnpaidInvoicesByAccountFromTransaction(aggregatedInvoices.childInvoices, null, upToDate)) {
+            numberOfUnpaidInvoices++;
+            unpaidInvoicesBalance = unpaidInvoicesBalance.add(new DefaultInvoice(invoice).getBalance());
+            earliestUnpaidInvoice = getEarliestInvoice(earliestUnpaidInvoice, invoice);
+        }
+        for (final InvoiceModelDao invoice : aggregatedInvoices.regularInvoices) {
+            if (!InvoiceStatus.COMMITTED.equals(invoice.getStatus()) ||
+                invoice.isWrittenOff() ||
+                (upToDate != null && invoice.getTargetDate() != null && invoice.getTargetDate().compareTo(upToDate) > 0)) {
+                continue;
+            }
+
+            final BigDecimal balance = InvoiceModelDaoHelper.getRawBalanceForRegularInvoice(invoice, aggregatedInvoices.getInvoiceItemAmounts(invoice), aggregatedInvoices.getInvoicePaymentAmounts(invoice));
+            if (balance.compareTo(BigDecimal.ZERO) > 0) {
+                numberOfUnpaidInvoices++;
+                unpaidInvoicesBalance = unpaidInvoicesBalance.add(balance);
+                earliestUnpaidInvoice = getEarliestInvoice(earliestUnpaidInvoice, invoice);
+            }
+        }
+
+        return new UnpaidInvoicesSummary(numberOfUnpaidInvoices,
+                                         unpaidInvoicesBalance,
+                                         earliestUnpaidInvoice != null ? earliestUnpaidInvoice.getId() : null,
+                                         earliestUnpaidInvoice != null ? earliestUnpaidInvoice.getInvoiceDate() : null);
+    }
+
+    private static InvoiceModelDao getEarliestInvoice(@Nullable final InvoiceModelDao earliestInvoice, final InvoiceModelDao invoice) {
+        return earliestInvoice == null || invoice.getInvoiceDate().compareTo(earliestInvoice.getInvoiceDate()) < 0 ? invoice : earliestInvoice;
+    }
+
+    // Retrieve the invoices (excluding DRAFT and VOID ones) with their item and payment amounts aggregated per type
+    private AggregatedInvoices getAggregatedInvoicesFromTransaction(final List<Tag> invoicesTags,
+                                                                    final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory,
+                                                                    final InternalTenantContext context) {
+        final AggregatedInvoices aggregatedInvoices = new AggregatedInvoices();
+
+        final List<InvoiceModelDao> invoices = entitySqlDaoWrapperFactory.become(InvoiceSqlDao.class).getByAccountRecordId(context).stream()
+                                                                         .filter(invoice -> !InvoiceStatus.DRAFT.equals(invoice.getStatus()) && !InvoiceStatus.VOID.equals(invoice.getStatus()))
+                                                                         .collect(Collectors.toUnmodifiableList());
+        if (invoices.isEmpty()) {
+            return aggregatedInvoices;
+        }
+        setInvoicesWrittenOff(invoices, invoicesTags);
+
+        // The balance of child invoices depends on their parent invoice: these are fully populated
+        final Collection<String> nonParentInvoiceIds = invoices.stream()
+                                                               .filter(invoice -> !invoice.isParentInvoice())
+                                                               .map(invoice -> invoice.getId().toString())
+                                                               .collect(Collectors.toUnmodifiableList());
+        final Set<UUID> childInvoiceIds = new HashSet<UUID>();
+        if (!nonParentInvoiceIds.isEmpty()) {
+            final InvoiceParentChildrenSqlDao invoiceParentChildrenSqlDao = entitySqlDaoWrapperFactory.become(InvoiceParentChildrenSqlDao.class);
+            for (final InvoiceParentChildModelDao mapping : invoiceParentChildrenSqlDao.getParentChildMappingsByChildInvoiceIds(nonParentInvoiceIds, context)) {
+                childInvoiceIds.add(mapping.getChildInvoiceId());
+            }
+        }
+
+        for (final InvoiceModelDao invoice : invoices) {
+            if (childInvoiceIds.contains(invoice.getId())) {
+                aggregatedInvoices.childInvoices.add(invoice);
+            } else {
+                aggregatedInvoices.regularInvoices.add(invoice);
+            }
+        }
+
+        if (!aggregatedInvoices.childInvoices.isEmpty()) {
+            populateChildren(aggregatedInvoices.childInvoices, invoicesTags, false, entitySqlDaoWrapperFactory, context);
+        }
+
+        if (!aggregatedInvoices.regularInvoices.isEmpty()) {
+            for (final InvoiceItemModelDao invoiceItemAmount : entitySqlDaoWrapperFactory.become(InvoiceItemSqlDao.class).getInvoiceItemAmountsByType(context)) {
+                aggregatedInvoices.invoiceItemAmountsPerInvoiceId.computeIfAbsent(invoiceItemAmount.getInvoiceId(), k -> new LinkedList<InvoiceItemModelDao>()).add(invoiceItemAmount);
+            }
+            for (final InvoicePaymentModelDao invoicePaymentAmount : entitySqlDaoWrapperFactory.become(InvoicePaymentSqlDao.class).getSuccessfulInvoicePaymentAmountsByType(context)) {
+                aggregatedInvoices.invoicePaymentAmountsPerInvoiceId.computeIfAbsent(invoicePaymentAmount.getInvoiceId(), k -> new LinkedList<InvoicePaymentModelDao>()).add(invoicePaymentAmount);
+            }
+        }
+
+        return aggregatedInvoices;
+    }
+
+    private static final class AggregatedInvoices {
+
+        // Fully populated
+        private final List<InvoiceModelDao> childInvoices = new LinkedList<InvoiceModelDao>();
+        // Only the invoice rows, see invoiceItemAmountsPerInvoiceId and invoicePaymentAmountsPerInvoiceId
+        private final List<InvoiceModelDao> regularInvoices = new LinkedList<InvoiceModelDao>();
+        private final Map<UUID, List<InvoiceItemModelDao>> invoiceItemAmountsPerInvoiceId = new HashMap<UUID, List<InvoiceItemModelDao>>();
+        private final Map<UUID, List<InvoicePaymentModelDao>> invoicePaymentAmountsPerInvoiceId = new HashMap<UUID, List<InvoicePaymentModelDao>>();
+
+        private List<InvoiceItemModelDao> getInvoiceItemAmounts(final InvoiceModelDao invoice) {
+            return invoiceItemAmountsPerInvoiceId.getOrDefault(invoice.getId(), Collections.emptyList());
+        }
+
+        private List<InvoicePaymentModelDao> getInvoicePaymentAmounts(final InvoiceModelDao invoice) {
+            return invoicePaymentAmountsPerInvoiceId.getOrDefault(invoice.getId(), Collections.emptyList());
+        }
+    }
+
+    /**
+     * Compute the account balance from fully populated invoices (see {@link #populateChildren(Iterable, List, boolean, EntitySqlDaoWrapperFactory, InternalTenantContext)}).
+     *
+     * @param invoices the account invoices
+     * @return the sum of the invoice balances minus the account CBA
+     */
+    public static BigDecimal getAccountBalance(final Iterable<InvoiceModelDao> invoices) {
+        BigDecimal cba = BigDecimal.ZERO;
+        BigDecimal accountBalance = BigDecimal.ZERO;
+        for (final InvoiceModelDao cur : invoices) {
+
+            // Skip DRAFT OR VOID invoices
+            if (cur.getStatus().equals(InvoiceStatus.DRAFT) || cur.getStatus().equals(InvoiceStatus.VOID)) {
+                continue;
+            }
+
+            final boolean hasZeroParentBalance =
+                    cur.getParentInvoice() != null &&
+                    (cur.getParentInvoice().isWrittenOff() ||
+                     cur.getParentInvoice().getStatus() == InvoiceStatus.DRAFT ||
+                     cur.getParentInvoice().getStatus() == InvoiceStatus.VOID ||
+                     InvoiceModelDaoHelper.getRawBalanceForRegularInvoice(cur.getParentInvoice()).compareTo(BigDecimal.ZERO) == 0);
+
+            // invoices that are WRITTEN_OFF or paid children invoices are excluded from balance computation but the cba summation needs to be included
+            final BigDecimal invoiceBalance = cur.isWrittenOff() || hasZeroParentBalance ? BigDecimal.ZERO : InvoiceModelDaoHelper.getRawBalanceForRegularInvoice(cur);
+            accountBalance = accountBalance.add(invoiceBalance);
+            cba = cba.add(InvoiceModelDaoHelper.getCBAAmount(cur));
+        }
+        return accountBalance.subtract(cba);
+    }
+
     public BigDecimal getRemainingAmountPaidFromTransaction(final UUID invoicePaymentId, final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory, final InternalTenantContext context) {
         final BigDecimal amount = entitySqlDaoWrapperFactory.become(InvoicePaymentSqlDao.class).getRemainingAmountPaid(invoicePaymentId.toString(), context);
         return amount == null ? BigDecimal.ZERO : amount;
@@ -504,9 +664,16 @@ public class InvoiceDaoHelper {
         }
 
         // DAO: populate the parent invoices in bulk
+        final TenantContext tenantContext = internalCallContextFactory.createTenantContext(childContext);
+        final Map<UUID, Long> parentAccountRecordIds = internalCallContextFactory.getRecordIdsFromObjects(parentInvoicesGroupedByParentAccountId.keySet(), ObjectType.ACCOUNT, tenantContext);
         for (final Entry<UUID, List<InvoiceModelDao>> entry : parentInvoicesGroupedByParentAccountId.entrySet()) {
             final List<InvoiceModelDao> parentInvoicesForOneParentAccountId = entry.getValue();
-            final Long parentAccountRecordId = internalCallContextFactory.getRecordIdFromObject(entry.getKey(), ObjectType.ACCOUNT, internalCallContextFactory.createTenantContext(childContext));
+            Long parentAccountRecordId = parentAccountRecordIds.get(entry.getKey());
+            if (parentAccountRecordId == null) {
+                // Not resolved by the batch lookup, try again on its own (and give up if the parent account really can't be found)
+                parentAccountRecordId = internalCallContextFactory.getRecordIdFromObject(entry.getKey(), ObjectType.ACCOUNT, tenantContext);
+                Preconditions.checkState(parentAccountRecordId != null, String.format("Unable to retrieve the record id of parent account %s", entry.getKey()));
+            }
             final InternalTenantContext parentContext = internalCallContextFactory.createInternalTenantContext(childContext.getTenantRecordId(), parentAccountRecordId);
             // Note the misnomer here, populateChildren simply populates the content of these invoices (unrelated to HA)
             populateChildren(parentInvoicesForOneParentAccountId, invoicesTags, false, entitySqlDaoWrapperFactory, parentContext);
@@ -69,6 +69,10 @@ public interface InvoiceItemSqlDao extends EntitySqlDao<InvoiceItemModelDao, Inv
     BigDecimal getAccountCBA(@SmartBindBean final InternalTenantContext context);
 
 
+    // Only the invoice_id, type and amount (sum for that type) fields are populated
+    @SqlQuery
+    List<InvoiceItemModelDao> getInvoiceItemAmountsByType(@SmartBindBean final InternalTenantContext context);
+
     @SqlQuery
     List<InvoiceItemModelDao> getConsumedCBAItems(@SmartBindBean final InternalTenantContext context);
 
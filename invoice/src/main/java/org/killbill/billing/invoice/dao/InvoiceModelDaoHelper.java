@@ -20,11 +20,15 @@ import java.math.BigDecimal;
 import java.util.List;
 import java.util.stream.Collectors;
 
+import org.killbill.billing.catalog.api.Currency;
 import org.killbill.billing.invoice.api.InvoiceItem;
+import org.killbill.billing.invoice.api.InvoiceItemType;
 import org.killbill.billing.invoice.api.InvoicePayment;
+import org.killbill.billing.invoice.api.InvoicePaymentType;
 import org.killbill.billing.invoice.calculator.InvoiceCalculatorUtils;
 import org.killbill.billing.invoice.model.DefaultInvoicePayment;
 import org.killbill.billing.invoice.model.InvoiceItemFactory;
+import org.killbill.billing.util.currency.KillBillMoney;
 
 public class InvoiceModelDaoHelper {
 
@@ -45,6 +49,52 @@ public class InvoiceModelDaoHelper {
         return InvoiceCalculatorUtils.computeRawInvoiceBalance(invoiceModelDao.getCurrency(), invoiceItems, invoicePayments);
     }
 
+    /**
+     * Same as {@link #getRawBalanceForRegularInvoice(InvoiceModelDao)}, but computed from the invoice item and (successful) invoice payment
+     * amounts aggregated per type, see {@link InvoiceItemSqlDao#getInvoiceItemAmountsByType} and {@link InvoicePaymentSqlDao#getSuccessfulInvoicePaymentAmountsByType}.
+     */
+    public static BigDecimal getRawBalanceForRegularInvoice(final InvoiceModelDao invoiceModelDao,
+                                                            final Iterable<InvoiceItemModelDao> invoiceItemAmountsByType,
+                                                            final Iterable<InvoicePaymentModelDao> invoicePaymentAmountsByType) {
+        if (invoiceModelDao.isMigrated()) {
+            return BigDecimal.ZERO;
+        }
+
+        // CREDIT_ADJ items are always part of the charged amount (either as an invoice adjustment or as the credit of a credit invoice)
+        BigDecimal amountCharged = BigDecimal.ZERO;
+        for (final InvoiceItemModelDao invoiceItemAmount : invoiceItemAmountsByType) {
+            if (invoiceItemAmount.getType() != InvoiceItemType.CBA_ADJ) {
+                amountCharged = amountCharged.add(invoiceItemAmount.getAmount());
+            }
+        }
+
+        BigDecimal amountPaid = BigDecimal.ZERO;
+        BigDecimal amountRefunded = BigDecimal.ZERO;
+        for (final InvoicePaymentModelDao invoicePaymentAmount : invoicePaymentAmountsByType) {
+            if (InvoicePaymentType.ATTEMPT.equals(invoicePaymentAmount.getType())) {
+                amountPaid = amountPaid.add(invoicePaymentAmount.getAmount());
+            } else {
+                amountRefunded = amountRefunded.add(invoicePaymentAmount.getAmount());
+            }
+        }
+
+        final Currency currency = invoiceModelDao.getCurrency();
+        final BigDecimal invoiceBalance = KillBillMoney.of(amountCharged, currency)
+                                                       .add(getCBAAmount(invoiceModelDao, invoiceItemAmountsByType))
+                                                       .subtract(KillBillMoney.of(amountPaid, currency).add(KillBillMoney.of(amountRefunded, currency)));
+        return KillBillMoney.of(invoiceBalance, currency);
+    }
+
+    public static BigDecimal getCBAAmount(final InvoiceModelDao invoiceModelDao, final Iterable<InvoiceItemModelDao> invoiceItemAmountsByType) {
+        BigDecimal amountCredited = BigDecimal.ZERO;
+        for (final InvoiceItemModelDao invoiceItemAmount : invoiceItemAmountsByType) {
+            if (invoiceItemAmount.getType() == InvoiceItemType.CBA_ADJ) {
+                amountCredited = amountCredited.add(invoiceItemAmount.getAmount());
+            }
+        }
+        return KillBillMoney.of(amountCredited, invoiceModelDao.getCurrency());
+    }
+
     public static BigDecimal getCBAAmount(final InvoiceModelDao invoiceModelDao) {
         final Iterable<InvoiceItem> invoiceItems = mapInvoiceItemModelDaoToInvoiceItem(invoiceModelDao.getInvoiceItems());
         return InvoiceCalculatorUtils.computeInvoiceAmountCredited(invoiceModelDao.getCurrency(), invoiceItems);
@@ -64,6 +64,10 @@ public interface InvoicePaymentSqlDao extends EntitySqlDao<InvoicePaymentModelDa
     BigDecimal getRemainingAmountPaid(@Bind("invoicePaymentId") final String invoicePaymentId,
                                       @SmartBindBean final InternalTenantContext context);
 
+    // Only the invoice_id, type and amount (sum for that type) fields are populated
+    @SqlQuery
+    List<InvoicePaymentModelDao> getSuccessfulInvoicePaymentAmountsByType(@SmartBindBean final InternalTenantContext context);
+
     @SqlQuery
     UUID getAccountIdFromInvoicePaymentId(@Bind("invoicePaymentId") final String invoicePaymentId,
                                           @SmartBindBean final InternalTenantContext context);
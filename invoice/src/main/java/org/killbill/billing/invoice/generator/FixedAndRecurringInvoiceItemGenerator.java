@@ -28,6 +28,9 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 import javax.annotation.Nullable;
 import javax.inject.Inject;
@@ -45,6 +48,7 @@ import org.killbill.billing.catalog.api.CatalogApiException;
 import org.killbill.billing.catalog.api.Currency;
 import org.killbill.billing.catalog.api.PhaseType;
 import org.killbill.billing.catalog.api.Plan;
+import org.killbill.billing.invoice.InvoiceExecutors;
 import org.killbill.billing.invoice.api.DryRunInfo;
 import org.killbill.billing.invoice.api.Invoice;
 import org.killbill.billing.invoice.api.InvoiceApiException;
@@ -82,10 +86,12 @@ public class FixedAndRecurringInvoiceItemGenerator extends InvoiceItemGenerator
     private static final Logger log = LoggerFactory.getLogger(FixedAndRecurringInvoiceItemGenerator.class);
 
     private final InvoiceConfig config;
+    private final InvoiceExecutors invoiceExecutors;
 
     @Inject
-    public FixedAndRecurringInvoiceItemGenerator(final InvoiceConfig config, final Clock clock) {
+    public FixedAndRecurringInvoiceItemGenerator(final InvoiceConfig config, final InvoiceExecutors invoiceExecutors, final Clock clock) {
         this.config = config;
+        this.invoiceExecutors = invoiceExecutors;
     }
 
     public InvoiceGeneratorResult generateItems(final ImmutableAccountData account, final UUID invoiceId, final BillingEventSet eventSet,
@@ -117,14 +123,23 @@ public class FixedAndRecurringInvoiceItemGenerator extends InvoiceItemGenerator
 
         // Generate list of proposed invoice items based on billing events from junction-- proposed items are ALL items since beginning of time
         final List<InvoiceItem> proposedItems = new ArrayList<>();
-        processRecurringBillingEvents(invoiceId, account.getId(), eventSet, targetDate, targetCurrency, proposedItems, perSubscriptionFutureNotificationDate, internalCallContext);
-        processFixedBillingEvents(invoiceId, account.getId(), eventSet, targetDate, targetCurrency, proposedItems, internalCallContext);
+        final boolean isParallel = isParallelItemGeneration(eventSet, internalCallContext);
+        if (isParallel) {
+            processBillingEventsInParallel(invoiceId, account.getId(), eventSet, targetDate, targetCurrency, proposedItems, perSubscriptionFutureNotificationDate, internalCallContext);
+        } else {
+            processRecurringBillingEvents(invoiceId, account.getId(), eventSet, eventSet.getSubscriptionIdsWithAutoInvoiceOff(), targetDate, targetCurrency, proposedItems, perSubscriptionFutureNotificationDate, internalCallContext);
+            processFixedBillingEvents(invoiceId, account.getId(), eventSet, targetDate, targetCurrency, proposedItems, internalCallContext);
+        }
 
 
         existingInvoices.filterProposedItems(proposedItems, eventSet, internalCallContext);
 
         try {
-            accountItemTree.mergeWithProposedItems(proposedItems);
+            if (isParallel) {
+                accountItemTree.mergeWithProposedItems(proposedItems, invoiceExecutors.getParallelItemGenerationExecutorService());
+            } else {
+                accountItemTree.mergeWithProposedItems(proposedItems);
+            }
         } catch (final IllegalStateException e) {
             // Proposed items have already been logged
             throw new InvoiceApiException(e, ErrorCode.UNEXPECTED_ERROR, String.format("ILLEGAL INVOICING STATE accountItemTree=%s", accountItemTree.toString()));
@@ -136,24 +151,120 @@ public class FixedAndRecurringInvoiceItemGenerator extends InvoiceItemGenerator
         return new InvoiceGeneratorResult(resultingItems, Collections.emptySet());
     }
 
-    private void processRecurringBillingEvents(final UUID invoiceId, final UUID accountId, final BillingEventSet events,
+    @VisibleForTesting
+    boolean isParallelItemGeneration(final BillingEventSet events, final InternalCallContext internalCallContext) {
+        final int threshold = config.getParallelItemGenerationThreshold(internalCallContext);
+        if (threshold <= 0) {
+            return false;
+        }
+
+        // Events are ordered by subscription first
+        int nbSubscriptions = 0;
+        UUID prevSubscriptionId = null;
+        for (final BillingEvent event : events) {
+            if (!event.getSubscriptionId().equals(prevSubscriptionId)) {
+                prevSubscriptionId = event.getSubscriptionId();
+                nbSubscriptions++;
+                if (nbSubscriptions >= threshold) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    // Subscriptions are independent from each other: each one is processed on its own and the results are concatenated in
+    // the order of the events, so that the proposed items are the same as in the sequential case
+    private void processBillingEventsInParallel(final UUID invoiceId, final UUID accountId, final BillingEventSet events,
+                                                final LocalDate targetDate, final Currency currency, final List<InvoiceItem> proposedItems,
+                                                final Map<UUID, SubscriptionFutureNotificationDates> perSubscriptionFutureNotificationDate,
+                                                final InternalCallContext internalCallContext) throws InvoiceApiException {
+        final Collection<UUID> subscriptionIdsWithAutoInvoiceOff = events.getSubscriptionIdsWithAutoInvoiceOff();
+
+        final List<Callable<SubscriptionProposedItems>> tasks = new ArrayList<>();
+        for (final List<BillingEvent> subscriptionEvents : partitionBySubscription(events)) {
+            final UUID subscriptionId = subscriptionEvents.get(0).getSubscriptionId();
+            final SubscriptionFutureNotificationDates futureNotificationDates = perSubscriptionFutureNotificationDate.get(subscriptionId);
+            tasks.add(() -> {
+                final SubscriptionProposedItems result = new SubscriptionProposedItems(subscriptionId, futureNotificationDates);
+                processRecurringBillingEvents(invoiceId, accountId, subscriptionEvents, subscriptionIdsWithAutoInvoiceOff, targetDate, currency, result.recurringItems, result.futureNotificationDates, internalCallContext);
+                processFixedBillingEvents(invoiceId, accountId, subscriptionEvents, targetDate, currency, result.fixedItems, internalCallContext);
+                return result;
+            });
+        }
+
+        final List<SubscriptionProposedItems> results = new ArrayList<>(tasks.size());
+        try {
+            for (final Future<SubscriptionProposedItems> future : invoiceExecutors.getParallelItemGenerationExecutorService().invokeAll(tasks)) {
+                results.add(future.get());
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InvoiceApiException(e, ErrorCode.UNEXPECTED_ERROR, "Interrupted while generating fixed and recurring items");
+        } catch (final ExecutionException e) {
+            if (e.getCause() instanceof InvoiceApiException) {
+                throw (InvoiceApiException) e.getCause();
+            } else if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new InvoiceApiException(e.getCause(), ErrorCode.UNEXPECTED_ERROR, "Failed to generate fixed and recurring items");
+        }
+
+        // Same ordering as processRecurringBillingEvents followed by processFixedBillingEvents
+        for (final SubscriptionProposedItems result : results) {
+            proposedItems.addAll(result.recurringItems);
+            perSubscriptionFutureNotificationDate.putAll(result.futureNotificationDates);
+        }
+        for (final SubscriptionProposedItems result : results) {
+            proposedItems.addAll(result.fixedItems);
+        }
+    }
+
+    private static List<List<BillingEvent>> partitionBySubscription(final BillingEventSet events) {
+        final List<List<BillingEvent>> result = new ArrayList<>();
+        List<BillingEvent> subscriptionEvents = null;
+        for (final BillingEvent event : events) {
+            if (subscriptionEvents == null || !subscriptionEvents.get(0).getSubscriptionId().equals(event.getSubscriptionId())) {
+                subscriptionEvents = new ArrayList<>();
+                result.add(subscriptionEvents);
+            }
+            subscriptionEvents.add(event);
+        }
+        return result;
+    }
+
+    private static final class SubscriptionProposedItems {
+
+        private final List<InvoiceItem> recurringItems = new ArrayList<>();
+        private final List<InvoiceItem> fixedItems = new ArrayList<>();
+        // Only contains the entry for that subscription
+        private final Map<UUID, SubscriptionFutureNotificationDates> futureNotificationDates = new HashMap<>();
+
+        private SubscriptionProposedItems(final UUID subscriptionId, @Nullable final SubscriptionFutureNotificationDates existingFutureNotificationDates) {
+            if (existingFutureNotificationDates != null) {
+                futureNotificationDates.put(subscriptionId, existingFutureNotificationDates);
+            }
+        }
+    }
+
+    private void processRecurringBillingEvents(final UUID invoiceId, final UUID accountId, final Iterable<BillingEvent> events,
+                                               final Collection<UUID> subscriptionIdsWithAutoInvoiceOff,
                                                final LocalDate targetDate, final Currency currency, final List<InvoiceItem> proposedItems,
                                                final Map<UUID, SubscriptionFutureNotificationDates> perSubscriptionFutureNotificationDate,
                                                final InternalCallContext internalCallContext) throws InvoiceApiException {
-        if (events.isEmpty()) {
+        final Iterator<BillingEvent> eventIt = events.iterator();
+        if (!eventIt.hasNext()) {
             return;
         }
 
         // Pretty-print the generated invoice items from the junction events
         final InvoiceItemGeneratorLogger invoiceItemGeneratorLogger = new InvoiceItemGeneratorLogger(invoiceId, accountId, "recurring", log);
 
-        final Iterator<BillingEvent> eventIt = events.iterator();
         BillingEvent nextEvent = eventIt.next();
         while (eventIt.hasNext()) {
             final BillingEvent thisEvent = nextEvent;
             nextEvent = eventIt.next();
-            if (!events.getSubscriptionIdsWithAutoInvoiceOff().
-                    contains(thisEvent.getSubscriptionId())) { // don't consider events for subscriptions that have auto_invoice_off
+            if (!subscriptionIdsWithAutoInvoiceOff.contains(thisEvent.getSubscriptionId())) { // don't consider events for subscriptions that have auto_invoice_off
                 final BillingEvent adjustedNextEvent = (thisEvent.getSubscriptionId().equals(nextEvent.getSubscriptionId())) ? nextEvent : null;
                 final List<InvoiceItem> newProposedItems = processRecurringEvent(invoiceId, accountId, thisEvent, adjustedNextEvent, targetDate, currency, invoiceItemGeneratorLogger, perSubscriptionFutureNotificationDate, internalCallContext);
                 proposedItems.addAll(newProposedItems);
@@ -167,9 +278,10 @@ public class FixedAndRecurringInvoiceItemGenerator extends InvoiceItemGenerator
     }
 
     @VisibleForTesting
-    void processFixedBillingEvents(final UUID invoiceId, final UUID accountId, final BillingEventSet events, final LocalDate targetDate,
+    void processFixedBillingEvents(final UUID invoiceId, final UUID accountId, final Iterable<BillingEvent> events, final LocalDate targetDate,
                                    final Currency currency, final List<InvoiceItem> proposedItems, final InternalCallContext internalCallContext) throws InvoiceApiException {
-        if (events.isEmpty()) {
+        final Iterator<BillingEvent> eventIt = events.iterator();
+        if (!eventIt.hasNext()) {
             return;
         }
 
@@ -178,7 +290,6 @@ public class FixedAndRecurringInvoiceItemGenerator extends InvoiceItemGenerator
         // Pretty-print the generated invoice items from the junction events
         final InvoiceItemGeneratorLogger invoiceItemGeneratorLogger = new InvoiceItemGeneratorLogger(invoiceId, accountId, "fixed", log);
 
-        final Iterator<BillingEvent> eventIt = events.iterator();
         BillingEvent currentEvent = eventIt.next();
 
         do {
@@ -233,6 +233,10 @@ public class InvoiceWithMetadata {
                    Objects.equals(recordDate, that.recordDate);
         }
 
+        public SimilarRecordKey getSimilarRecordKey() {
+            return new SimilarRecordKey(this);
+        }
+
         @Override
         public boolean equals(final Object o) {
             if (this == o) {
@@ -253,6 +257,32 @@ public class InvoiceWithMetadata {
         public int hashCode() {
             return Objects.hash(trackingId, invoiceId, subscriptionId, unitType, recordDate);
         }
+
+        // Hash key matching the isSimilarRecord semantics (i.e. ignoring the invoiceId)
+        public static final class SimilarRecordKey {
+
+            private final TrackingRecordId record;
+
+            private SimilarRecordKey(final TrackingRecordId record) {
+                this.record = record;
+            }
+
+            @Override
+            public boolean equals(final Object o) {
+                if (this == o) {
+                    return true;
+                }
+                if (!(o instanceof SimilarRecordKey)) {
+                    return false;
+                }
+                return record.isSimilarRecord(((SimilarRecordKey) o).record);
+            }
+
+            @Override
+            public int hashCode() {
+                return Objects.hash(record.trackingId, record.subscriptionId, record.unitType, record.recordDate);
+            }
+        }
     }
 
     public static class SubscriptionFutureNotificationDates {
@@ -21,16 +21,20 @@ package org.killbill.billing.invoice.tree;
 
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.LinkedList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import org.killbill.billing.invoice.api.InvoiceItem;
 import org.killbill.billing.invoice.api.InvoiceItemType;
 import org.killbill.commons.utils.Preconditions;
-import org.killbill.commons.utils.collect.Iterables;
 
 /**
  * Tree of invoice items for a given account.
@@ -52,7 +56,8 @@ public class AccountItemTree {
     private final UUID accountId;
     private final UUID targetInvoiceId;
     private final Map<UUID, SubscriptionItemTree> subscriptionItemTree;
-    private final List<InvoiceItem> allExistingItems;
+    // Only used to retrieve the original item for linked items
+    private final Map<UUID, InvoiceItem> allExistingItems;
     private final List<InvoiceItem> pendingItemAdj;
 
     private boolean isBuilt;
@@ -64,8 +69,8 @@ public class AccountItemTree {
         this.targetInvoiceId = targetInvoiceId;
         this.subscriptionItemTree = new HashMap<UUID, SubscriptionItemTree>();
         this.isBuilt = false;
-        this.allExistingItems = new LinkedList<InvoiceItem>();
-        this.pendingItemAdj = new LinkedList<InvoiceItem>();
+        this.allExistingItems = new HashMap<UUID, InvoiceItem>();
+        this.pendingItemAdj = new ArrayList<InvoiceItem>();
         this.prorationFixedDays = prorationFixedDays;
     }
 
@@ -75,16 +80,20 @@ public class AccountItemTree {
     public void build() {
         Preconditions.checkState(!isBuilt);
 
+        addPendingItemAdjustments();
+        for (final SubscriptionItemTree tree : subscriptionItemTree.values()) {
+            tree.build();
+        }
+        isBuilt = true;
+    }
+
+    private void addPendingItemAdjustments() {
         if (!pendingItemAdj.isEmpty()) {
             for (final InvoiceItem item : pendingItemAdj) {
                 addExistingItem(item, true);
             }
             pendingItemAdj.clear();
         }
-        for (final SubscriptionItemTree tree : subscriptionItemTree.values()) {
-            tree.build();
-        }
-        isBuilt = true;
     }
 
     /**
@@ -99,8 +108,7 @@ public class AccountItemTree {
     private void addExistingItem(final InvoiceItem existingItem, final boolean failOnMissingSubscription) {
         Preconditions.checkState(!isBuilt);
 
-        // Only used to retrieve the original item for linked items
-        allExistingItems.add(existingItem);
+        allExistingItems.putIfAbsent(existingItem.getId(), existingItem);
 
         if (existingItem.getInvoiceItemType() == InvoiceItemType.ITEM_ADJ) {
             final InvoiceItem linkedInvoiceItem = getLinkedInvoiceItem(existingItem, allExistingItems);
@@ -155,6 +163,63 @@ public class AccountItemTree {
         }
     }
 
+    /**
+     * Same as {@link #mergeWithProposedItems(List)}, except that each subscription tree is built, merged and rebuilt
+     * on the specified executor. Subscription trees don't share any state, so the outcome is the same as the sequential merge.
+     *
+     * @param proposedItems list of proposed item that should be merged with current existing view
+     * @param executor      executor used to process the subscription trees
+     */
+    public void mergeWithProposedItems(final List<InvoiceItem> proposedItems, final ExecutorService executor) {
+        Preconditions.checkState(!isBuilt);
+
+        addPendingItemAdjustments();
+        isBuilt = true;
+
+        // Trees created below only contain proposed items, they don't need to be built and flattened first
+        final Set<UUID> existingSubscriptionIds = new HashSet<UUID>(subscriptionItemTree.keySet());
+        final Map<UUID, List<InvoiceItem>> proposedItemsPerSubscription = new HashMap<UUID, List<InvoiceItem>>();
+        for (final InvoiceItem item : proposedItems) {
+            final UUID subscriptionId = getSubscriptionId(item, null);
+            if (!subscriptionItemTree.containsKey(subscriptionId)) {
+                subscriptionItemTree.put(subscriptionId, new SubscriptionItemTree(subscriptionId, targetInvoiceId, prorationFixedDays));
+            }
+            proposedItemsPerSubscription.computeIfAbsent(subscriptionId, k -> new ArrayList<InvoiceItem>()).add(item);
+        }
+
+        final List<Callable<Void>> tasks = new ArrayList<Callable<Void>>(subscriptionItemTree.size());
+        for (final Entry<UUID, SubscriptionItemTree> entry : subscriptionItemTree.entrySet()) {
+            final SubscriptionItemTree tree = entry.getValue();
+            final boolean isExistingTree = existingSubscriptionIds.contains(entry.getKey());
+            final List<InvoiceItem> subscriptionProposedItems = proposedItemsPerSubscription.getOrDefault(entry.getKey(), List.of());
+            tasks.add(() -> {
+                if (isExistingTree) {
+                    tree.build();
+                    tree.flatten(true);
+                }
+                for (final InvoiceItem item : subscriptionProposedItems) {
+                    tree.mergeProposedItem(item);
+                }
+                tree.buildForMerge();
+                return null;
+            });
+        }
+
+        try {
+            for (final Future<Void> future : executor.invokeAll(tasks)) {
+                future.get();
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while merging proposed items", e);
+        } catch (final ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
     /**
      * @return the resulting list of items that should be written to disk
      */
@@ -173,7 +238,7 @@ public class AccountItemTree {
         return accountId;
     }
 
-    private UUID getSubscriptionId(final InvoiceItem item, final List<InvoiceItem> allItems) {
+    private UUID getSubscriptionId(final InvoiceItem item, final Map<UUID, InvoiceItem> allItems) {
         if (item.getInvoiceItemType() == InvoiceItemType.RECURRING ||
             item.getInvoiceItemType() == InvoiceItemType.FIXED) {
             return item.getSubscriptionId();
@@ -183,10 +248,8 @@ public class AccountItemTree {
         }
     }
 
-    private InvoiceItem getLinkedInvoiceItem(final InvoiceItem item, final Iterable<InvoiceItem> allItems) {
-        return Iterables.toStream(allItems)
-                .filter(input -> input.getId().equals(item.getLinkedItemId()))
-                .findFirst().orElse(null);
+    private InvoiceItem getLinkedInvoiceItem(final InvoiceItem item, final Map<UUID, InvoiceItem> allItems) {
+        return item.getLinkedItemId() != null ? allItems.get(item.getLinkedItemId()) : null;
     }
 
     @Override
@@ -18,14 +18,12 @@
 
 package org.killbill.billing.invoice.tree;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
 import java.util.UUID;
-import java.util.function.Predicate;
-import java.util.stream.Collectors;
 
 import javax.annotation.Nullable;
 
@@ -33,7 +31,6 @@ import org.joda.time.LocalDate;
 import org.killbill.billing.invoice.api.InvoiceItem;
 import org.killbill.billing.invoice.tree.Item.ItemAction;
 import org.killbill.commons.utils.Preconditions;
-import org.killbill.commons.utils.collect.Iterables;
 
 /**
  * Keeps track of all the items existing on a specified ItemsNodeInterval
@@ -42,7 +39,8 @@ public class ItemsInterval {
 
     // Parent (enclosing) interval
     private final ItemsNodeInterval interval;
-    private final LinkedList<Item> items;
+    // Nodes rarely hold more than a couple of items
+    private final List<Item> items;
 
     private int prorationFixedDays;
 
@@ -52,7 +50,7 @@ public class ItemsInterval {
 
     public ItemsInterval(final ItemsNodeInterval interval, final Item initialItem, final int prorationFixedDays) {
         this.interval = interval;
-        this.items = new LinkedList<>();
+        this.items = new ArrayList<>(2);
         this.prorationFixedDays = prorationFixedDays;
         if (initialItem != null) {
             items.add(initialItem);
@@ -64,25 +62,40 @@ public class ItemsInterval {
     }
 
     public Iterable<Item> get_ADD_items() {
-        return findItems(input -> input.getAction() == ItemAction.ADD);
+        return findItems(ItemAction.ADD);
     }
 
     public Iterable<Item> get_CANCEL_items() {
-        return findItems(input -> input.getAction() == ItemAction.CANCEL);
+        return findItems(ItemAction.CANCEL);
     }
 
     public Item getCancellingItemIfExists(final UUID targetId) {
-        return findItem(input -> input.getAction() == ItemAction.CANCEL && input.getLinkedId().equals(targetId));
+        for (final Item item : items) {
+            if (item.getAction() == ItemAction.CANCEL && item.getLinkedId().equals(targetId)) {
+                return item;
+            }
+        }
+        return null;
     }
 
     public Item getCancelledItemIfExists(final UUID linkedId) {
-        return findItem(input -> input.getAction() == ItemAction.ADD && input.getId().equals(linkedId));
+        for (final Item item : items) {
+            if (item.getAction() == ItemAction.ADD && item.getId().equals(linkedId)) {
+                return item;
+            }
+        }
+        return null;
     }
 
     public Item findItem(final UUID targetId) {
-        final Collection<Item> matchingItems = findItems(input -> input.getId().equals(targetId));
-        Preconditions.checkState(matchingItems.size() < 2, "Too many items matching id='%s' among items='%s'", targetId, items);
-        return matchingItems.size() == 1 ? matchingItems.iterator().next() : null;
+        Item result = null;
+        for (final Item item : items) {
+            if (item.getId().equals(targetId)) {
+                Preconditions.checkState(result == null, "Too many items matching id='%s' among items='%s'", targetId, items);
+                result = item;
+            }
+        }
+        return result;
     }
 
     public void add(final Item item) {
@@ -151,7 +164,7 @@ public class ItemsInterval {
     }
 
     private Item getResulting_CANCEL_ItemNoChecks() {
-        return findItem(input -> input.getAction() == ItemAction.CANCEL);
+        return findItem(ItemAction.CANCEL);
     }
 
     private Item getResulting_ADD_Item() {
@@ -163,15 +176,14 @@ public class ItemsInterval {
         //
         Preconditions.checkState(items.size() <= 2, "Double billing detected: %s", items);
 
-        final Iterable<Item> addItems = get_ADD_items();
-        Preconditions.checkState(Iterables.size(addItems) <= 1, "Double billing detected: %s", items);
+        Preconditions.checkState(countItems(ItemAction.ADD) <= 1, "Double billing detected: %s", items);
 
-        Item item = findItem(input -> input.getAction() == ItemAction.ADD);
+        Item item = findItem(ItemAction.ADD);
 
         // Double billing sanity check across nodes
         if (item != null) {
             final Set<UUID> addItemsCancelled = new HashSet<>();
-            final Item cancelItem = findItem(input -> input.getAction() == ItemAction.CANCEL);
+            final Item cancelItem = findItem(ItemAction.CANCEL);
             if (cancelItem != null) {
                 Preconditions.checkState(cancelItem.getLinkedId() != null, "Invalid CANCEL item=%s", cancelItem);
                 if (cancelItem.getLinkedId().equals(item.getId())) {
@@ -217,12 +229,34 @@ public class ItemsInterval {
         parentItemsInterval.checkDoubleBilling(addItemsCancelled, addItemsToBeCancelled);
     }
 
-    private Item findItem(final Predicate<? super Item> filter) {
-        return items.stream().filter(filter).findFirst().orElse(null);
+    // Plain loops: these are called for every node, many times per invoice run
+    private Item findItem(final ItemAction action) {
+        for (final Item item : items) {
+            if (item.getAction() == action) {
+                return item;
+            }
+        }
+        return null;
+    }
+
+    private int countItems(final ItemAction action) {
+        int result = 0;
+        for (final Item item : items) {
+            if (item.getAction() == action) {
+                result++;
+            }
+        }
+        return result;
     }
 
-    private List<Item> findItems(final Predicate<? super Item> filter) {
-        return items.stream().filter(filter).collect(Collectors.toUnmodifiableList());
+    private List<Item> findItems(final ItemAction action) {
+        final List<Item> result = new ArrayList<>(items.size());
+        for (final Item item : items) {
+            if (item.getAction() == action) {
+                result.add(item);
+            }
+        }
+        return result;
     }
 
     @Override
@@ -22,15 +22,14 @@ package org.killbill.billing.invoice.tree;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Comparator;
 import java.util.HashMap;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.PriorityQueue;
 import java.util.UUID;
-import java.util.concurrent.atomic.AtomicReference;
 
 import org.joda.time.LocalDate;
 import org.killbill.billing.invoice.api.InvoiceItem;
@@ -47,6 +46,32 @@ import com.fasterxml.jackson.core.JsonGenerator;
  */
 public class ItemsNodeInterval extends NodeInterval {
 
+    // Stateless, shared across all insertions of existing items
+    private static final AddNodeCallback ADD_EXISTING_ITEM_CALLBACK = new AddNodeCallback() {
+        @Override
+        public boolean onExistingNode(final NodeInterval existingNode, final ItemsNodeInterval updatedNewNode) {
+
+            final Item item = updatedNewNode.getItems().get(0);
+            final ItemsInterval existingOrNewNodeItems = ((ItemsNodeInterval) existingNode).getItemsInterval();
+            existingOrNewNodeItems.add(item);
+            // There is no new node added but instead we just populated the list of items for the already existing node
+            return false;
+        }
+
+        @Override
+        public boolean shouldInsertNode(final NodeInterval insertionNode, final ItemsNodeInterval updatedNewNode) {
+            // Always want to insert node in the tree when we find the right place.
+            return true;
+        }
+    };
+
+    private static final Comparator<Item> SPLIT_ITEMS_COMPARATOR = new Comparator<Item>() {
+        @Override
+        public int compare(final Item o1, final Item o2) {
+            return o1.getStartDate().compareTo(o2.getEndDate());
+        }
+    };
+
     private final ItemsInterval items;
 
     private int prorationFixedDays;
@@ -104,24 +129,7 @@ public class ItemsNodeInterval extends NodeInterval {
     public void addExistingItem(final ItemsNodeInterval newNode) {
         Preconditions.checkState(newNode.getItems().size() == 1, "Invalid node=%s", newNode);
 
-        addNode(newNode,
-                new AddNodeCallback() {
-                    @Override
-                    public boolean onExistingNode(final NodeInterval existingNode, final ItemsNodeInterval updatedNewNode) {
-
-                        final Item item = updatedNewNode.getItems().get(0);
-                        final ItemsInterval existingOrNewNodeItems = ((ItemsNodeInterval) existingNode).getItemsInterval();
-                        existingOrNewNodeItems.add(item);
-                        // There is no new node added but instead we just populated the list of items for the already existing node
-                        return false;
-                    }
-
-                    @Override
-                    public boolean shouldInsertNode(final NodeInterval insertionNode, final ItemsNodeInterval updatedNewNode) {
-                        // Always want to insert node in the tree when we find the right place.
-                        return true;
-                    }
-                });
+        addNode(newNode, ADD_EXISTING_ITEM_CALLBACK);
     }
 
     /**
@@ -161,7 +169,7 @@ public class ItemsNodeInterval extends NodeInterval {
     public List<ItemsNodeInterval> addProposedItem(final ItemsNodeInterval newNode) {
         Preconditions.checkState(newNode.getItems().size() == 1, "Invalid node=%s", newNode);
 
-        final List<ItemsNodeInterval> newNodes = new LinkedList<>();
+        final List<ItemsNodeInterval> newNodes = new ArrayList<>(1);
 
         addNode(newNode, new AddNodeCallback() {
             @Override
@@ -287,7 +295,7 @@ public class ItemsNodeInterval extends NodeInterval {
     }
 
     private void build(final Collection<Item> output, final UUID targetInvoiceId, final boolean mergeMode) {
-        final List<Item> tmpOutput = new LinkedList<Item>(output);
+        final List<Item> tmpOutput = new ArrayList<Item>(output);
         output.clear();
         build(new BuildNodeCallback() {
             @Override
@@ -311,12 +319,7 @@ public class ItemsNodeInterval extends NodeInterval {
         for (final Item i : tmpOutput) {
             PriorityQueue<Item> l = joinMap.get(i.getId());
             if (l == null) {
-                l = new PriorityQueue<>(new Comparator<Item>() {
-                    @Override
-                    public int compare(final Item o1, final Item o2) {
-                        return o1.getStartDate().compareTo(o2.getEndDate());
-                    }
-                });
+                l = new PriorityQueue<>(SPLIT_ITEMS_COMPARATOR);
                 joinMap.put(i.getId(), l);
             }
             l.add(i);
@@ -347,6 +350,10 @@ public class ItemsNodeInterval extends NodeInterval {
     private void validateTree() {
         final NodeInterval root = this;
         walkTree(new WalkCallback() {
+
+            // Number of ADD items per id in the whole tree, computed the first time it's needed
+            private Map<UUID, Integer> addItemsCount = null;
+
             @Override
             public void onCurrentNode(final int depth, final NodeInterval curNode, final NodeInterval parent) {
 
@@ -358,45 +365,23 @@ public class ItemsNodeInterval extends NodeInterval {
                 for (final Item curCancelItem : curNodeItems.get_CANCEL_items()) {
                     // Sanity: cancelled items should only be in the same node or parents
                     if (curNode.getLeftChild() != null) {
-                        curNode.getLeftChild()
-                               .walkTree(new WalkCallback() {
-                                   @Override
-                                   public void onCurrentNode(final int depth, final NodeInterval curNode, final NodeInterval parent) {
-                                       final ItemsInterval curChildItems = ((ItemsNodeInterval) curNode).getItemsInterval();
-                                       final Item cancelledItem = curChildItems.getCancelledItemIfExists(curCancelItem.getLinkedId());
-                                       Preconditions.checkState(cancelledItem == null, "Invalid cancelledItem=%s for cancelItem=%s", cancelledItem, curCancelItem);
-                                   }
-                               });
+                        final Item cancelledItem = findCancelledItem(curNode.getLeftChild(), curCancelItem.getLinkedId());
+                        Preconditions.checkState(cancelledItem == null, "Invalid cancelledItem=%s for cancelItem=%s", cancelledItem, curCancelItem);
                     }
 
                     // Sanity: make sure the CANCEL item points to an ADD item
-                    final NodeInterval nodeIntervalForCancelledItem = root.findNode(new SearchCallback() {
-                        @Override
-                        public boolean isMatch(final NodeInterval curNode) {
-                            final ItemsInterval curChildItems = ((ItemsNodeInterval) curNode).getItemsInterval();
-                            final Item cancelledItem = curChildItems.getCancelledItemIfExists(curCancelItem.getLinkedId());
-                            return cancelledItem != null;
-                        }
-                    });
-                    Preconditions.checkState(nodeIntervalForCancelledItem != null, "Missing cancelledItem for cancelItem=%s", curCancelItem);
+                    if (addItemsCount == null) {
+                        addItemsCount = new HashMap<>();
+                        countAddItems(root, addItemsCount);
+                    }
+                    Preconditions.checkState(addItemsCount.getOrDefault(curCancelItem.getLinkedId(), 0) > 0, "Missing cancelledItem for cancelItem=%s", curCancelItem);
                 }
 
                 for (final Item curAddItem : curNodeItems.get_ADD_items()) {
                     // Sanity: verify the item hasn't been repaired too much
                     if (curNode.getLeftChild() != null) {
-                        final AtomicReference<BigDecimal> totalRepaired = new AtomicReference<BigDecimal>(BigDecimal.ZERO);
-                        curNode.getLeftChild()
-                               .walkTree(new WalkCallback() {
-                                   @Override
-                                   public void onCurrentNode(final int depth, final NodeInterval curNode, final NodeInterval parent) {
-                                       final ItemsInterval curChildItems = ((ItemsNodeInterval) curNode).getItemsInterval();
-                                       final Item cancelledItem = curChildItems.getCancellingItemIfExists(curAddItem.getId());
-                                       if (cancelledItem != null && curAddItem.getId().equals(cancelledItem.getLinkedId())) {
-                                           totalRepaired.set(totalRepaired.get().add(cancelledItem.getAmount()));
-                                       }
-                                   }
-                               });
-                        Preconditions.checkState(curAddItem.getNetAmount().compareTo(totalRepaired.get()) >= 0, "Item %s overly repaired", curAddItem);
+                        final BigDecimal totalRepaired = getRepairedAmount(curNode.getLeftChild(), curAddItem.getId(), BigDecimal.ZERO);
+                        Preconditions.checkState(curAddItem.getNetAmount().compareTo(totalRepaired) >= 0, "Item %s overly repaired", curAddItem);
                     }
 
                     // Old behavior compatibility for full item adjustment (Temp code should go away as move in time)
@@ -408,6 +393,9 @@ public class ItemsNodeInterval extends NodeInterval {
                             final ItemsInterval leftChildItems = ((ItemsNodeInterval) leftChild).getItemsInterval();
                             if (leftChildItems.getItems().size() == 1 && leftChildItems.getItems().get(0).getAction() == ItemAction.ADD) {
                                 curNodeItems.remove(curAddItem);
+                                if (addItemsCount != null) {
+                                    addItemsCount.merge(curAddItem.getId(), -1, Integer::sum);
+                                }
                             }
                         }
                     }
@@ -416,6 +404,50 @@ public class ItemsNodeInterval extends NodeInterval {
         });
     }
 
+    // Same traversal as walkTree: the node itself and its descendants
+    private static Item findCancelledItem(final NodeInterval node, final UUID linkedId) {
+        final Item cancelledItem = ((ItemsNodeInterval) node).getItemsInterval().getCancelledItemIfExists(linkedId);
+        if (cancelledItem != null) {
+            return cancelledItem;
+        }
+        NodeInterval curChild = node.getLeftChild();
+        while (curChild != null) {
+            final Item result = findCancelledItem(curChild, linkedId);
+            if (result != null) {
+                return result;
+            }
+            curChild = curChild.getRightSibling();
+        }
+        return null;
+    }
+
+    private static BigDecimal getRepairedAmount(final NodeInterval node, final UUID addItemId, final BigDecimal repairedAmount) {
+        BigDecimal result = repairedAmount;
+        final Item cancellingItem = ((ItemsNodeInterval) node).getItemsInterval().getCancellingItemIfExists(addItemId);
+        if (cancellingItem != null && addItemId.equals(cancellingItem.getLinkedId())) {
+            result = result.add(cancellingItem.getAmount());
+        }
+        NodeInterval curChild = node.getLeftChild();
+        while (curChild != null) {
+            result = getRepairedAmount(curChild, addItemId, result);
+            curChild = curChild.getRightSibling();
+        }
+        return result;
+    }
+
+    private static void countAddItems(final NodeInterval node, final Map<UUID, Integer> addItemsCount) {
+        for (final Item item : ((ItemsNodeInterval) node).getItems()) {
+            if (item.getAction() == ItemAction.ADD) {
+                addItemsCount.merge(item.getId(), 1, Integer::sum);
+            }
+        }
+        NodeInterval curChild = node.getLeftChild();
+        while (curChild != null) {
+            countAddItems(curChild, addItemsCount);
+            curChild = curChild.getRightSibling();
+        }
+    }
+
     @VisibleForTesting
     public void jsonSerializeTree(final ObjectMapper mapper, final OutputStream output) throws IOException {
         final JsonGenerator generator = mapper.getFactory().createGenerator(output);
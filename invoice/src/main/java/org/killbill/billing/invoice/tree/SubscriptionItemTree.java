@@ -20,12 +20,11 @@
 package org.killbill.billing.invoice.tree;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
-import java.util.LinkedList;
 import java.util.List;
-import java.util.Objects;
 import java.util.UUID;
-import java.util.stream.Collectors;
 
 import org.joda.time.LocalDate;
 import org.killbill.billing.invoice.api.InvoiceItem;
@@ -38,10 +37,10 @@ import org.killbill.commons.utils.annotation.VisibleForTesting;
  */
 public class SubscriptionItemTree {
 
-    private final List<Item> items = new LinkedList<>();
-    private final List<InvoiceItem> existingIgnoredItems = new LinkedList<>();
-    private final List<InvoiceItem> remainingIgnoredItems = new LinkedList<>();
-    private final List<InvoiceItem> pendingItemAdj = new LinkedList<>();
+    private final List<Item> items = new ArrayList<>();
+    private final List<InvoiceItem> existingIgnoredItems = new ArrayList<>();
+    private final List<InvoiceItem> remainingIgnoredItems = new ArrayList<>();
+    private final List<InvoiceItem> pendingItemAdj = new ArrayList<>();
 
     private final UUID targetInvoiceId;
     private final UUID subscriptionId;
@@ -208,10 +207,16 @@ public class SubscriptionItemTree {
      * @return a flat view of the items in the tree.
      */
     public List<InvoiceItem> getView() {
-        final List<InvoiceItem> tmp = new LinkedList<>(remainingIgnoredItems);
-        items.stream().filter(Objects::nonNull).forEach(item -> tmp.add(item.toInvoiceItem()));
+        final List<InvoiceItem> tmp = new ArrayList<>(remainingIgnoredItems.size() + items.size());
+        tmp.addAll(remainingIgnoredItems);
+        for (final Item item : items) {
+            if (item != null) {
+                tmp.add(item.toInvoiceItem());
+            }
+        }
+        tmp.sort(INVOICE_ITEM_COMPARATOR);
 
-        final List<InvoiceItem> result = tmp.stream().sorted(INVOICE_ITEM_COMPARATOR).collect(Collectors.toUnmodifiableList());
+        final List<InvoiceItem> result = Collections.unmodifiableList(tmp);
         checkItemsListState(result);
         return result;
     }
@@ -52,6 +52,7 @@ import org.killbill.billing.invoice.api.InvoiceItem;
 import org.killbill.billing.invoice.api.InvoiceItemType;
 import org.killbill.billing.invoice.generator.BillingIntervalDetail;
 import org.killbill.billing.invoice.generator.InvoiceWithMetadata.TrackingRecordId;
+import org.killbill.billing.invoice.generator.InvoiceWithMetadata.TrackingRecordId.SimilarRecordKey;
 import org.killbill.billing.invoice.model.UsageInvoiceItem;
 import org.killbill.billing.invoice.usage.details.UsageInArrearAggregate;
 import org.killbill.billing.junction.BillingEvent;
@@ -291,11 +292,7 @@ public abstract class ContiguousIntervalUsageInArrear {
 
         final Set<TrackingRecordId> allTrackingIds = allUsageWithTracking.getTrackingIds();
 
-        final Set<TrackingRecordId> existingTrackingIds = extractTrackingIds(allExistingTrackingIds);
-
-        final Set<TrackingRecordId> newTrackingIds = allTrackingIds.stream()
-                .filter(allRecord -> existingTrackingIds.stream().noneMatch(existingRecord -> existingRecord.isSimilarRecord(allRecord)))
-                .collect(Collectors.toUnmodifiableSet());
+        final Set<TrackingRecordId> newTrackingIds = computeNewTrackingIds(allTrackingIds, allExistingTrackingIds, getSubscriptionId());
 
         // Each RolledUpUsage 'ru' is for a specific time period and across all units
         for (final RolledUpUsageWithMetadata ru : allUsage) {
@@ -553,11 +550,21 @@ public abstract class ContiguousIntervalUsageInArrear {
         }
     }
 
-    private Set<TrackingRecordId> extractTrackingIds(final Set<TrackingRecordId> input) {
-        return input.stream()
-                .filter(trackingRecordId -> trackingRecordId.getSubscriptionId().equals(getSubscriptionId()))
-                .collect(Collectors.toUnmodifiableSet());
+    // Tracking ids not already attached to an existing invoice (for this subscription), see TrackingRecordId#isSimilarRecord
+    @VisibleForTesting
+    static Set<TrackingRecordId> computeNewTrackingIds(final Set<TrackingRecordId> allTrackingIds,
+                                                       final Set<TrackingRecordId> allExistingTrackingIds,
+                                                       final UUID subscriptionId) {
+        final Set<SimilarRecordKey> existingTrackingIds = new HashSet<>();
+        for (final TrackingRecordId trackingRecordId : allExistingTrackingIds) {
+            if (trackingRecordId.getSubscriptionId().equals(subscriptionId)) {
+                existingTrackingIds.add(trackingRecordId.getSimilarRecordKey());
+            }
+        }
 
+        return allTrackingIds.stream()
+                             .filter(allRecord -> !existingTrackingIds.contains(allRecord.getSimilarRecordKey()))
+                             .collect(Collectors.toUnmodifiableSet());
     }
 
     /**
@@ -34,6 +34,7 @@ import javax.annotation.Nullable;
 import org.joda.time.DateTime;
 import org.joda.time.LocalDate;
 import org.killbill.billing.ErrorCode;
+import org.killbill.billing.ObjectType;
 import org.killbill.billing.account.api.Account;
 import org.killbill.billing.callcontext.InternalCallContext;
 import org.killbill.billing.catalog.DefaultPrice;
@@ -60,6 +61,7 @@ import org.killbill.billing.invoice.api.InvoicePayment;
 import org.killbill.billing.invoice.api.InvoicePaymentStatus;
 import org.killbill.billing.invoice.api.InvoicePaymentType;
 import org.killbill.billing.invoice.api.InvoiceStatus;
+import org.killbill.billing.invoice.api.UnpaidInvoicesSummary;
 import org.killbill.billing.invoice.generator.InvoiceWithMetadata;
 import org.killbill.billing.invoice.model.CreditAdjInvoiceItem;
 import org.killbill.billing.invoice.model.CreditBalanceAdjInvoiceItem;
@@ -80,6 +82,7 @@ import org.killbill.billing.util.UUIDs;
 import org.killbill.billing.util.currency.KillBillMoney;
 import org.killbill.billing.util.entity.Pagination;
 import org.killbill.billing.util.entity.dao.SqlOperator;
+import org.killbill.billing.util.tag.ControlTagType;
 import org.killbill.clock.ClockMock;
 import org.killbill.commons.utils.collect.Iterables;
 import org.mockito.Mockito;
@@ -1420,6 +1423,124 @@ public class TestInvoiceDao extends InvoiceTestSuiteWithEmbeddedDB {
         assertEquals(invoices.size(), 1);
     }
 
+    @Test(groups = "slow")
+    public void testGetUnpaidInvoicesSummaryByAccountId() throws Exception {
+        final UUID accountId = account.getId();
+        final UUID bundleId = UUID.randomUUID();
+
+        verifyUnpaidInvoicesSummary(accountId, null, 0);
+
+        // Partially paid invoice (the pending payment isn't taken into account)
+        final Invoice invoice1 = new DefaultInvoice(accountId, new LocalDate(2011, 2, 1), new LocalDate(2011, 2, 1), Currency.USD);
+        invoiceUtil.createInvoice(invoice1, context);
+        invoiceUtil.createInvoiceItem(new RecurringInvoiceItem(invoice1.getId(), accountId, bundleId, UUID.randomUUID(), "test product", "test plan", "test phase A", null, new LocalDate(2011, 2, 1), new LocalDate(2011, 3, 1),
+                                                               new BigDecimal("17.0"), new BigDecimal("17.0"), Currency.USD), context);
+        invoiceUtil.createInvoiceItem(new RecurringInvoiceItem(invoice1.getId(), accountId, bundleId, UUID.randomUUID(), "test product", "test plan", "test phase B", null, new LocalDate(2011, 2, 1), new LocalDate(2011, 3, 1),
+                                                               new BigDecimal("42.0"), new BigDecimal("42.0"), Currency.USD), context);
+        invoiceUtil.createPayment(new DefaultInvoicePayment(InvoicePaymentType.ATTEMPT, UUID.randomUUID(), invoice1.getId(), new DateTime(), new BigDecimal("20.0"), Currency.USD, Currency.USD, null, InvoicePaymentStatus.SUCCESS), context);
+        invoiceUtil.createPayment(new DefaultInvoicePayment(InvoicePaymentType.ATTEMPT, UUID.randomUUID(), invoice1.getId(), new DateTime(), new BigDecimal("30.0"), Currency.USD, Currency.USD, null, InvoicePaymentStatus.PENDING), context);
+
+        // Fully paid invoice
+        final Invoice invoice2 = new DefaultInvoice(accountId, new LocalDate(2011, 1, 15), new LocalDate(2011, 3, 1), Currency.USD);
+        invoiceUtil.createInvoice(invoice2, context);
+        invoiceUtil.createInvoiceItem(new RecurringInvoiceItem(invoice2.getId(), accountId, bundleId, UUID.randomUUID(), "test product", "test plan", "test phase C", null, new LocalDate(2011, 3, 1), new LocalDate(2011, 4, 1),
+                                                               new BigDecimal("21.0"), new BigDecimal("21.0"), Currency.USD), context);
+        invoiceUtil.createPayment(new DefaultInvoicePayment(InvoicePaymentType.ATTEMPT, UUID.randomUUID(), invoice2.getId(), new DateTime(), new BigDecimal("21.0"), Currency.USD, Currency.USD, null, InvoicePaymentStatus.SUCCESS), context);
+
+        // Adjusted invoice
+        final Invoice invoice3 = new DefaultInvoice(accountId, new LocalDate(2011, 1, 10), new LocalDate(2011, 4, 1), Currency.USD);
+        invoiceUtil.createInvoice(invoice3, context);
+        final InvoiceItem externalCharge = new ExternalChargeInvoiceItem(invoice3.getId(), accountId, bundleId, "description", new LocalDate(2011, 4, 1), new LocalDate(2011, 4, 1), new BigDecimal("10.0"), Currency.USD, null);
+        invoiceUtil.createInvoiceItem(externalCharge, context);
+        invoiceUtil.createInvoiceItem(new ItemAdjInvoiceItem(externalCharge, new LocalDate(2011, 4, 1), new BigDecimal("-4.5"), Currency.USD), context);
+
+        // DRAFT invoice
+        final InvoiceModelDao draftInvoice = new InvoiceModelDao(accountId, new LocalDate(2011, 1, 1), new LocalDate(2011, 1, 1), Currency.USD, false, InvoiceStatus.DRAFT);
+        draftInvoice.addInvoiceItem(new InvoiceItemModelDao(new ExternalChargeInvoiceItem(draftInvoice.getId(), accountId, bundleId, "description", new LocalDate(2011, 1, 1), new LocalDate(2011, 1, 1), new BigDecimal("15.0"), Currency.USD, null)));
+        invoiceDao.createInvoices(List.of(draftInvoice), null, Collections.emptySet(), null, null, true, context);
+
+        verifyUnpaidInvoicesSummary(accountId, new LocalDate(2011, 1, 1), 0);
+        verifyUnpaidInvoicesSummary(accountId, new LocalDate(2011, 2, 15), 1);
+        verifyUnpaidInvoicesSummary(accountId, new LocalDate(2011, 3, 15), 1);
+        verifyUnpaidInvoicesSummary(accountId, null, 2);
+
+        final UnpaidInvoicesSummary unpaidInvoicesSummary = invoiceDao.getUnpaidInvoicesSummaryByAccountId(accountId, null, context);
+        assertEquals(unpaidInvoicesSummary.getUnpaidInvoicesBalance().compareTo(new BigDecimal("44.50")), 0);
+        assertEquals(unpaidInvoicesSummary.getEarliestUnpaidInvoiceId(), invoice3.getId());
+        assertEquals(unpaidInvoicesSummary.getEarliestUnpaidInvoiceDate(), new LocalDate(2011, 1, 10));
+
+        // WRITTEN_OFF invoice
+        final Invoice invoice4 = new DefaultInvoice(accountId, new LocalDate(2011, 1, 5), new LocalDate(2011, 5, 1), Currency.USD);
+        invoiceUtil.createInvoice(invoice4, context);
+        invoiceUtil.createInvoiceItem(new ExternalChargeInvoiceItem(invoice4.getId(), accountId, bundleId, "description", new LocalDate(2011, 5, 1), new LocalDate(2011, 5, 1), new BigDecimal("8.0"), Currency.USD, null), context);
+        verifyUnpaidInvoicesSummary(accountId, null, 3);
+        tagUserApi.addTag(invoice4.getId(), ObjectType.INVOICE, ControlTagType.WRITTEN_OFF.getId(), callContext);
+        verifyUnpaidInvoicesSummary(accountId, null, 2);
+
+        // Paid invoice, partially refunded then charged back
+        final Invoice invoice5 = new DefaultInvoice(accountId, new LocalDate(2011, 5, 1), new LocalDate(2011, 5, 1), Currency.USD);
+        invoiceUtil.createInvoice(invoice5, context);
+        invoiceUtil.createInvoiceItem(new RecurringInvoiceItem(invoice5.getId(), accountId, bundleId, UUID.randomUUID(), "test product", "test plan", "test phase D", null, new LocalDate(2011, 5, 1), new LocalDate(2011, 6, 1),
+                                                               new BigDecimal("30.0"), new BigDecimal("30.0"), Currency.USD), context);
+        final UUID paymentId = UUID.randomUUID();
+        invoiceUtil.createPayment(new DefaultInvoicePayment(InvoicePaymentType.ATTEMPT, paymentId, invoice5.getId(), new DateTime(), new BigDecimal("30.0"), Currency.USD, Currency.USD, null, InvoicePaymentStatus.SUCCESS), context);
+        verifyUnpaidInvoicesSummary(accountId, null, 2);
+        invoiceDao.createRefund(paymentId, UUID.randomUUID(), new BigDecimal("10.0"), false, Collections.emptyMap(), UUID.randomUUID().toString(), InvoicePaymentStatus.SUCCESS, context);
+        verifyUnpaidInvoicesSummary(accountId, null, 3);
+        invoiceDao.postChargeback(paymentId, UUID.randomUUID(), UUID.randomUUID().toString(), new BigDecimal("5.0"), Currency.USD, context);
+        verifyUnpaidInvoicesSummary(accountId, null, 3);
+
+        // Migrated invoice
+        final Invoice migratedInvoice = new DefaultInvoice(UUIDs.randomUUID(), accountId, null, new LocalDate(2011, 1, 1), new LocalDate(2011, 6, 1), Currency.USD, true, InvoiceStatus.COMMITTED);
+        invoiceUtil.createInvoice(migratedInvoice, context);
+        invoiceUtil.createInvoiceItem(new RecurringInvoiceItem(migratedInvoice.getId(), accountId, bundleId, UUID.randomUUID(), "test product", "test plan", "test phase E", null, new LocalDate(2011, 6, 1), new LocalDate(2011, 7, 1),
+                                                               new BigDecimal("50.0"), new BigDecimal("50.0"), Currency.USD), context);
+        verifyUnpaidInvoicesSummary(accountId, null, 3);
+
+        // Account credit (CBA), consumed by the earliest unpaid invoices
+        createCredit(accountId, new LocalDate(2011, 6, 1), new BigDecimal("20.0"), false);
+        assertEquals(invoiceDao.getAccountCBA(accountId, context).compareTo(BigDecimal.ZERO), 0);
+        verifyUnpaidInvoicesSummary(accountId, null, 2);
+
+        // Child invoice, whose parent invoice is unpaid then paid
+        final Account parentAccount = invoiceUtil.createAccount(callContext);
+        final InternalCallContext parentContext = internalCallContextFactory.createInternalCallContext(parentAccount.getId(), callContext);
+        final Invoice childInvoice = new DefaultInvoice(accountId, new LocalDate(2011, 7, 1), new LocalDate(2011, 7, 1), Currency.USD);
+        invoiceUtil.createInvoice(childInvoice, context);
+        invoiceUtil.createInvoiceItem(new ExternalChargeInvoiceItem(childInvoice.getId(), accountId, bundleId, "description", new LocalDate(2011, 7, 1), new LocalDate(2011, 7, 1), new BigDecimal("25.0"), Currency.USD, null), context);
+        final InvoiceModelDao parentInvoice = new InvoiceModelDao(parentAccount.getId(), new LocalDate(2011, 7, 1), Currency.USD, InvoiceStatus.COMMITTED, true);
+        parentInvoice.addInvoiceItem(new InvoiceItemModelDao(new ParentInvoiceItem(UUID.randomUUID(), new DateTime(), parentInvoice.getId(), parentAccount.getId(), accountId, new BigDecimal("25.0"), Currency.USD, "")));
+        invoiceDao.createInvoices(List.of(parentInvoice), null, Collections.emptySet(), null, null, true, parentContext);
+        invoiceDao.createParentChildInvoiceRelation(new InvoiceParentChildModelDao(parentInvoice.getId(), childInvoice.getId(), accountId), context);
+        verifyUnpaidInvoicesSummary(accountId, null, 3);
+        invoiceUtil.createPayment(new DefaultInvoicePayment(InvoicePaymentType.ATTEMPT, UUID.randomUUID(), parentInvoice.getId(), new DateTime(), new BigDecimal("25.0"), Currency.USD, Currency.USD, null, InvoicePaymentStatus.SUCCESS), parentContext);
+        verifyUnpaidInvoicesSummary(accountId, null, 2);
+
+        verifyUnpaidInvoicesSummary(accountId, new LocalDate(2011, 4, 15), 1);
+        verifyUnpaidInvoicesSummary(accountId, new LocalDate(2011, 7, 15), 2);
+    }
+
+    // Verify the summary matches the one computed from the unpaid invoices
+    private void verifyUnpaidInvoicesSummary(final UUID accountId, @Nullable final LocalDate upToDate, final int expectedNumberOfUnpaidInvoices) {
+        final List<InvoiceModelDao> unpaidInvoices = invoiceDao.getUnpaidInvoicesByAccountId(accountId, null, upToDate, context);
+        assertEquals(unpaidInvoices.size(), expectedNumberOfUnpaidInvoices);
+
+        BigDecimal expectedBalance = BigDecimal.ZERO;
+        InvoiceModelDao expectedEarliestInvoice = null;
+        for (final InvoiceModelDao unpaidInvoice : unpaidInvoices) {
+            expectedBalance = expectedBalance.add(new DefaultInvoice(unpaidInvoice).getBalance());
+            if (expectedEarliestInvoice == null || unpaidInvoice.getInvoiceDate().compareTo(expectedEarliestInvoice.getInvoiceDate()) < 0) {
+                expectedEarliestInvoice = unpaidInvoice;
+            }
+        }
+
+        final UnpaidInvoicesSummary unpaidInvoicesSummary = invoiceDao.getUnpaidInvoicesSummaryByAccountId(accountId, upToDate, context);
+        assertEquals(unpaidInvoicesSummary.getNumberOfUnpaidInvoices(), expectedNumberOfUnpaidInvoices);
+        assertEquals(unpaidInvoicesSummary.getUnpaidInvoicesBalance().compareTo(expectedBalance), 0);
+        assertEquals(unpaidInvoicesSummary.getEarliestUnpaidInvoiceId(), expectedEarliestInvoice != null ? expectedEarliestInvoice.getId() : null);
+        assertEquals(unpaidInvoicesSummary.getEarliestUnpaidInvoiceDate(), expectedEarliestInvoice != null ? expectedEarliestInvoice.getInvoiceDate() : null);
+    }
+
     /*
      *
      * this test verifies that immediate changes give the correct results
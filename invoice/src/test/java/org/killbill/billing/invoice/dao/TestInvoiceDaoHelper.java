@@ -43,12 +43,14 @@ import org.killbill.billing.invoice.model.DefaultInvoicePayment;
 import org.killbill.billing.invoice.model.ParentInvoiceItem;
 import org.killbill.billing.invoice.model.RecurringInvoiceItem;
 import org.killbill.billing.util.cache.CacheControllerDispatcher;
+import org.killbill.billing.util.callcontext.InternalCallContextFactory;
 import org.killbill.billing.util.entity.dao.EntitySqlDaoTransactionWrapper;
 import org.killbill.billing.util.entity.dao.EntitySqlDaoTransactionalJdbiWrapper;
 import org.killbill.billing.util.entity.dao.EntitySqlDaoWrapperFactory;
 import org.killbill.billing.util.tag.ControlTagType;
 import org.killbill.billing.util.tag.DefaultControlTag;
 import org.killbill.billing.util.tag.Tag;
+import org.mockito.Mockito;
 import org.testng.Assert;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
@@ -186,7 +188,59 @@ public class TestInvoiceDaoHelper extends InvoiceTestSuiteWithEmbeddedDB {
 
     @Test(groups = "slow")
     public void testPopulateChildrenWithParent() throws Exception {
+        final UUID childInvoiceId = createChildInvoiceWithParent();
 
+        ////
+
+        final List<Tag> tags = Collections.emptyList();
+        final InvoiceModelDao invoice1 = getRawInvoice(childInvoiceId, internalAccountContext);
+        populateChildrenByInvoiceId(invoice1, tags);
+
+        final InvoiceModelDao invoice2 = getRawInvoice(childInvoiceId, internalAccountContext);
+        populateChildrenByAccountRecordId(invoice2, tags);
+
+        Assert.assertEquals(invoice1, invoice2);
+    }
+
+    @Test(groups = "slow")
+    public void testPopulateChildrenWithParentMissingFromBatchLookup() throws Exception {
+        final UUID childInvoiceId = createChildInvoiceWithParent();
+
+        final List<Tag> tags = Collections.emptyList();
+        final InvoiceModelDao invoice1 = getRawInvoice(childInvoiceId, internalAccountContext);
+        populateChildrenByInvoiceId(invoice1, tags);
+
+        // The parent account record id isn't returned by the batch lookup: it is looked up on its own
+        final InternalCallContextFactory spiedInternalCallContextFactory = Mockito.spy(internalCallContextFactory);
+        Mockito.doReturn(Collections.emptyMap()).when(spiedInternalCallContextFactory).getRecordIdsFromObjects(Mockito.any(), Mockito.eq(ObjectType.ACCOUNT), Mockito.any());
+        final InvoiceModelDao invoice2 = getRawInvoice(childInvoiceId, internalAccountContext);
+        populateChildrenByAccountRecordId(new InvoiceDaoHelper(spiedInternalCallContextFactory), invoice2, tags);
+
+        Assert.assertEquals(invoice1, invoice2);
+        Assert.assertEquals(invoice2.getParentInvoice().getInvoiceItems().size(), 1);
+    }
+
+    @Test(groups = "slow")
+    public void testPopulateChildrenWithUnknownParentAccount() throws Exception {
+        final UUID childInvoiceId = createChildInvoiceWithParent();
+
+        final InternalCallContextFactory spiedInternalCallContextFactory = Mockito.spy(internalCallContextFactory);
+        Mockito.doReturn(Collections.emptyMap()).when(spiedInternalCallContextFactory).getRecordIdsFromObjects(Mockito.any(), Mockito.eq(ObjectType.ACCOUNT), Mockito.any());
+        Mockito.doReturn(null).when(spiedInternalCallContextFactory).getRecordIdFromObject(Mockito.any(), Mockito.eq(ObjectType.ACCOUNT), Mockito.any());
+        final InvoiceModelDao invoice = getRawInvoice(childInvoiceId, internalAccountContext);
+        try {
+            populateChildrenByAccountRecordId(new InvoiceDaoHelper(spiedInternalCallContextFactory), invoice, Collections.emptyList());
+            Assert.fail("Parent invoice populated without a parent account record id");
+        } catch (final RuntimeException e) {
+            Throwable cause = e;
+            while (cause.getCause() != null && !(cause instanceof IllegalStateException)) {
+                cause = cause.getCause();
+            }
+            Assert.assertTrue(cause instanceof IllegalStateException, "Unexpected exception " + e);
+        }
+    }
+
+    private UUID createChildInvoiceWithParent() throws Exception {
         final Account parentAccount = invoiceUtil.createAccount(callContext);
 
         final UUID childAccountId = account.getId();
@@ -209,17 +263,7 @@ public class TestInvoiceDaoHelper extends InvoiceTestSuiteWithEmbeddedDB {
 
         InvoiceParentChildModelDao invoiceRelation = new InvoiceParentChildModelDao(parentInvoice.getId(), childInvoice.getId(), childAccountId);
         invoiceDao.createParentChildInvoiceRelation(invoiceRelation, internalAccountContext);
-
-        ////
-
-        final List<Tag> tags = Collections.emptyList();
-        final InvoiceModelDao invoice1 = getRawInvoice(childInvoice.getId(), internalAccountContext);
-        populateChildrenByInvoiceId(invoice1, tags);
-
-        final InvoiceModelDao invoice2 = getRawInvoice(childInvoice.getId(), internalAccountContext);
-        populateChildrenByAccountRecordId(invoice2, tags);
-
-        Assert.assertEquals(invoice1, invoice2);
+        return childInvoice.getId();
     }
 
     private InvoiceModelDao getRawInvoice(final UUID invoiceId, final InternalTenantContext context) {
@@ -228,10 +272,14 @@ public class TestInvoiceDaoHelper extends InvoiceTestSuiteWithEmbeddedDB {
     }
 
     private void populateChildrenByAccountRecordId(final InvoiceModelDao invoice, final List<Tag> tags) {
+        populateChildrenByAccountRecordId(invoiceDaoHelper, invoice, tags);
+    }
+
+    private void populateChildrenByAccountRecordId(final InvoiceDaoHelper helper, final InvoiceModelDao invoice, final List<Tag> tags) {
         transactionalSqlDao.execute(true, new EntitySqlDaoTransactionWrapper<Void>() {
             @Override
             public Void inTransaction(final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory) throws Exception {
-                invoiceDaoHelper.populateChildren(List.of(invoice), tags, false, entitySqlDaoWrapperFactory, internalAccountContext);
+                helper.populateChildren(List.of(invoice), tags, false, entitySqlDaoWrapperFactory, internalAccountContext);
                 return null;
             }
         });
@@ -211,4 +211,45 @@ public class TestInvoiceItemSqlDao extends InvoiceTestSuiteWithEmbeddedDB {
         Assert.assertEquals(cbasConsumed.get(1).getAmount().compareTo(cbaInv1Item2.getAmount()), 0);
         Assert.assertEquals(cbasConsumed.get(2).getAmount().compareTo(cbaInv1Item1.getAmount()), 0);
     }
+
+    @Test(groups = "slow")
+    public void testInvoiceItemAmountsByType() {
+        final InvoiceSqlDao invoiceSqlDao = dbi.onDemand(InvoiceSqlDao.class);
+        final InvoiceItemSqlDao invoiceItemSqlDao = dbi.onDemand(InvoiceItemSqlDao.class);
+
+        final UUID accountId = UUID.randomUUID();
+
+        final InvoiceModelDao invoice1 = new InvoiceModelDao(accountId, new LocalDate(), new LocalDate(), Currency.USD, false, InvoiceStatus.COMMITTED);
+        invoiceSqlDao.create(invoice1, internalCallContext);
+        final InvoiceItemModelDao recurring1 = new InvoiceItemModelDao(UUID.randomUUID(), null, InvoiceItemType.RECURRING, invoice1.getId(), accountId, null, null, null, "description",
+                                                                       null, null, null, null, null, new LocalDate(), null, BigDecimal.TEN, null, Currency.USD, null);
+        invoiceItemSqlDao.create(recurring1, internalCallContext);
+        invoiceItemSqlDao.create(new InvoiceItemModelDao(UUID.randomUUID(), null, InvoiceItemType.RECURRING, invoice1.getId(), accountId, null, null, null, "description",
+                                                         null, null, null, null, null, new LocalDate(), null, new BigDecimal("2.50"), null, Currency.USD, null), internalCallContext);
+        invoiceItemSqlDao.create(new InvoiceItemModelDao(UUID.randomUUID(), null, InvoiceItemType.ITEM_ADJ, invoice1.getId(), accountId, null, null, null, "description",
+                                                         null, null, null, null, null, new LocalDate(), null, new BigDecimal("-1.25"), null, Currency.USD, recurring1.getId()), internalCallContext);
+
+        final InvoiceModelDao invoice2 = new InvoiceModelDao(accountId, new LocalDate(), new LocalDate(), Currency.USD, false, InvoiceStatus.COMMITTED);
+        invoiceSqlDao.create(invoice2, internalCallContext);
+        invoiceItemSqlDao.create(new InvoiceItemModelDao(UUID.randomUUID(), null, InvoiceItemType.CBA_ADJ, invoice2.getId(), accountId, null, null, null, "description",
+                                                         null, null, null, null, null, new LocalDate(), null, new BigDecimal("-4.43"), null, Currency.USD, null), internalCallContext);
+        invoiceItemSqlDao.create(new InvoiceItemModelDao(UUID.randomUUID(), null, InvoiceItemType.CBA_ADJ, invoice2.getId(), accountId, null, null, null, "description",
+                                                         null, null, null, null, null, new LocalDate(), null, new BigDecimal("-1.57"), null, Currency.USD, null), internalCallContext);
+
+        final List<InvoiceItemModelDao> amountsByType = invoiceItemSqlDao.getInvoiceItemAmountsByType(internalCallContext);
+        Assert.assertEquals(amountsByType.size(), 3);
+        for (final InvoiceItemModelDao amountByType : amountsByType) {
+            if (amountByType.getType() == InvoiceItemType.RECURRING) {
+                Assert.assertEquals(amountByType.getInvoiceId(), invoice1.getId());
+                Assert.assertEquals(amountByType.getAmount().compareTo(new BigDecimal("12.50")), 0);
+            } else if (amountByType.getType() == InvoiceItemType.ITEM_ADJ) {
+                Assert.assertEquals(amountByType.getInvoiceId(), invoice1.getId());
+                Assert.assertEquals(amountByType.getAmount().compareTo(new BigDecimal("-1.25")), 0);
+            } else {
+                Assert.assertEquals(amountByType.getType(), InvoiceItemType.CBA_ADJ);
+                Assert.assertEquals(amountByType.getInvoiceId(), invoice2.getId());
+                Assert.assertEquals(amountByType.getAmount().compareTo(new BigDecimal("-6.00")), 0);
+            }
+        }
+    }
 }
@@ -43,6 +43,7 @@ import org.killbill.billing.catalog.api.Currency;
 import org.killbill.billing.catalog.api.PhaseType;
 import org.killbill.billing.catalog.api.Plan;
 import org.killbill.billing.catalog.api.PlanPhase;
+import org.killbill.billing.invoice.InvoiceExecutors;
 import org.killbill.billing.invoice.InvoiceTestSuiteNoDB;
 import org.killbill.billing.invoice.MockBillingEventSet;
 import org.killbill.billing.invoice.api.Invoice;
@@ -64,6 +65,7 @@ import org.killbill.billing.subscription.api.SubscriptionBase;
 import org.killbill.billing.subscription.api.SubscriptionBaseTransitionType;
 import org.killbill.billing.subscription.api.user.SubscriptionBillingEvent;
 import org.killbill.billing.util.UUIDs;
+import org.killbill.billing.util.config.definition.InvoiceConfig;
 import org.killbill.commons.utils.collect.MultiValueHashMap;
 import org.killbill.commons.utils.collect.MultiValueMap;
 import org.mockito.Mockito;
@@ -1992,6 +1994,83 @@ public class TestFixedAndRecurringInvoiceItemGenerator extends InvoiceTestSuiteN
         assertNull(notifications.getNextRecurringDate());
     }
 
+    @Test(groups = "fast")
+    public void testParallelItemGeneration() throws Exception {
+        final LocalDate startDate = new LocalDate("2020-01-01");
+        final LocalDate targetDate = startDate.plusMonths(4);
+        final Plan plan = new MockPlan("my-plan");
+        final PlanPhase trialPhase = new MockPlanPhase(null, new MockInternationalPrice(new DefaultPrice(BigDecimal.TEN, Currency.USD)), BillingPeriod.NO_BILLING_PERIOD, PhaseType.TRIAL);
+
+        final BillingEventSet events = new MockBillingEventSet();
+        final List<Invoice> existingInvoices = new LinkedList<Invoice>();
+        for (int i = 0; i < 20; i++) {
+            final SubscriptionBase sub = invoiceUtil.createSubscription();
+            final BigDecimal recurringPrice = BigDecimal.TEN.multiply(new BigDecimal(i + 1));
+            final PlanPhase evergreenPhase = new MockPlanPhase(new MockInternationalPrice(new DefaultPrice(recurringPrice, Currency.USD)), null, BillingPeriod.MONTHLY, PhaseType.EVERGREEN);
+            final LocalDate phaseDate = startDate.plusDays(30 + i);
+            events.add(invoiceUtil.createMockBillingEvent(account, sub, startDate.toDateTimeAtStartOfDay(), plan, trialPhase,
+                                                          BigDecimal.TEN, null, Currency.USD, BillingPeriod.NO_BILLING_PERIOD, 1,
+                                                          BillingMode.IN_ADVANCE, "Billing Event Desc", 1L, SubscriptionBaseTransitionType.CREATE));
+            events.add(invoiceUtil.createMockBillingEvent(account, sub, phaseDate.toDateTimeAtStartOfDay(), plan, evergreenPhase,
+                                                          null, recurringPrice, Currency.USD, BillingPeriod.MONTHLY, 1,
+                                                          BillingMode.IN_ADVANCE, "Billing Event Desc", 2L, SubscriptionBaseTransitionType.PHASE));
+            if (i % 2 == 0) {
+                events.add(invoiceUtil.createMockBillingEvent(account, sub, startDate.plusMonths(3).plusDays(i).toDateTimeAtStartOfDay(), plan, evergreenPhase,
+                                                              null, null, Currency.USD, BillingPeriod.NO_BILLING_PERIOD, 1,
+                                                              BillingMode.IN_ADVANCE, "Billing Event Desc", 3L, SubscriptionBaseTransitionType.CANCEL));
+            }
+            if (i % 3 == 0) {
+                // Existing (incorrect) item to be repaired
+                final Invoice invoice = new DefaultInvoice(account.getId(), clock.getUTCToday(), phaseDate, account.getCurrency());
+                invoice.addInvoiceItem(new RecurringInvoiceItem(UUID.randomUUID(), phaseDate.toDateTimeAtStartOfDay(), invoice.getId(), account.getId(), sub.getBundleId(), sub.getId(),
+                                                                null, plan.getName(), evergreenPhase.getName(), null, phaseDate, phaseDate.plusMonths(1),
+                                                                BigDecimal.ONE, BigDecimal.ONE, account.getCurrency()));
+                existingInvoices.add(invoice);
+            }
+        }
+
+        final InvoiceConfig parallelInvoiceConfig = Mockito.spy(invoiceConfig);
+        Mockito.doReturn(2).when(parallelInvoiceConfig).getParallelItemGenerationThreshold(Mockito.any());
+        final InvoiceExecutors invoiceExecutors = new InvoiceExecutors(parallelInvoiceConfig);
+        final FixedAndRecurringInvoiceItemGenerator parallelGenerator = new FixedAndRecurringInvoiceItemGenerator(parallelInvoiceConfig, invoiceExecutors, clock);
+        assertFalse(fixedAndRecurringInvoiceItemGenerator.isParallelItemGeneration(events, internalCallContext));
+        assertTrue(parallelGenerator.isParallelItemGeneration(events, internalCallContext));
+
+        final UUID invoiceId = UUID.randomUUID();
+        final Map<UUID, SubscriptionFutureNotificationDates> sequentialNotificationDates = new HashMap<>();
+        final List<InvoiceItem> sequentialItems = fixedAndRecurringInvoiceItemGenerator.generateItems(account, invoiceId, events, new AccountInvoices(null, null, existingInvoices),
+                                                                                                      targetDate, account.getCurrency(), sequentialNotificationDates,
+                                                                                                      null, Collections.emptyList(), internalCallContext).getItems();
+        final Map<UUID, SubscriptionFutureNotificationDates> parallelNotificationDates = new HashMap<>();
+        final List<InvoiceItem> parallelItems;
+        invoiceExecutors.initialize();
+        try {
+            parallelItems = parallelGenerator.generateItems(account, invoiceId, events, new AccountInvoices(null, null, existingInvoices),
+                                                            targetDate, account.getCurrency(), parallelNotificationDates,
+                                                            null, Collections.emptyList(), internalCallContext).getItems();
+        } finally {
+            invoiceExecutors.stop();
+        }
+
+        assertTrue(sequentialItems.size() > 20);
+        assertEquals(parallelItems.size(), sequentialItems.size());
+        for (int i = 0; i < sequentialItems.size(); i++) {
+            final InvoiceItem expected = sequentialItems.get(i);
+            final InvoiceItem actual = parallelItems.get(i);
+            assertEquals(actual.getInvoiceItemType(), expected.getInvoiceItemType());
+            assertEquals(actual.getSubscriptionId(), expected.getSubscriptionId());
+            assertEquals(actual.getStartDate(), expected.getStartDate());
+            assertEquals(actual.getEndDate(), expected.getEndDate());
+            assertEquals(actual.getAmount().compareTo(expected.getAmount()), 0);
+            assertEquals(actual.getLinkedItemId(), expected.getLinkedItemId());
+        }
+
+        assertEquals(parallelNotificationDates.keySet(), sequentialNotificationDates.keySet());
+        for (final UUID subscriptionId : sequentialNotificationDates.keySet()) {
+            assertEquals(parallelNotificationDates.get(subscriptionId).getNextRecurringDate(), sequentialNotificationDates.get(subscriptionId).getNextRecurringDate());
+        }
+    }
+
     private BillingEvent createDefaultBillingEvent(final LocalDate eventDate, final BigDecimal fixedAmount, final BigDecimal recurringPrice, final SubscriptionBaseTransitionType eventType, final int billCycleDay, final long ordering, final BillingMode billingMode) {
         final MockInternationalPrice price = new MockInternationalPrice(new DefaultPrice(recurringPrice, account.getCurrency()));
         final MockPlan plan = new MockPlan("my-plan");
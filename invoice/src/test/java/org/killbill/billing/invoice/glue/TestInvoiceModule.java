@@ -21,6 +21,7 @@ package org.killbill.billing.invoice.glue;
 import java.util.Objects;
 
 import org.killbill.billing.catalog.glue.CatalogModule;
+import org.killbill.billing.entitlement.EntitlementInternalApi;
 import org.killbill.billing.invoice.TestInvoiceHelper;
 import org.killbill.billing.invoice.optimizer.InvoiceOptimizer;
 import org.killbill.billing.invoice.optimizer.InvoiceOptimizerExp;
@@ -53,6 +54,7 @@ public class TestInvoiceModule extends DefaultInvoiceModule {
     private void installExternalApis() {
         bind(SubscriptionBaseInternalApi.class).toInstance(Mockito.mock(SubscriptionBaseInternalApi.class));
         bind(BillingInternalApi.class).toInstance(Mockito.mock(BillingInternalApi.class));
+        bind(EntitlementInternalApi.class).toInstance(Mockito.mock(EntitlementInternalApi.class));
     }
 
     protected void installInvoiceOptimizer() {
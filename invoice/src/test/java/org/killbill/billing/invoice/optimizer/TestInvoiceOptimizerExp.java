@@ -21,6 +21,7 @@ import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 import org.joda.time.LocalDate;
 import org.killbill.billing.account.api.Account;
@@ -46,6 +47,8 @@ import org.killbill.billing.junction.plumbing.billing.DefaultBillingEventSet;
 import org.killbill.billing.subscription.api.SubscriptionBase;
 import org.killbill.billing.subscription.api.SubscriptionBaseTransitionType;
 import org.killbill.billing.subscription.api.user.SubscriptionBaseApiException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.testng.Assert;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
@@ -55,6 +58,8 @@ import static org.killbill.billing.invoice.TestInvoiceHelper.ZERO;
 
 public class TestInvoiceOptimizerExp extends InvoiceTestSuiteNoDB {
 
+    private static final Logger logger = LoggerFactory.getLogger(TestInvoiceOptimizerExp.class);
+
     final String productName = "Foo";
     final String planName = "foo-monthly";
     final String phaseName = "foo-monthly-recurring";
@@ -478,6 +483,98 @@ public class TestInvoiceOptimizerExp extends InvoiceTestSuiteNoDB {
     }
 
 
+    @Test(groups = "fast")
+    public void testMultipleSubscriptionsP1M() throws SubscriptionBaseApiException {
+
+        final LocalDate startDate = new LocalDate(2021, 2, 1);
+        final LocalDate targetDate = new LocalDate(2021, 6, 1);
+
+        final SubscriptionBase inArrearSubscription = invoiceUtil.createSubscription();
+        final SubscriptionBase inAdvanceSubscription = invoiceUtil.createSubscription();
+        final String inAdvancePlanName = "bar-monthly";
+        final String inAdvancePhaseName = "bar-monthly-recurring";
+
+        // Proposed: invoice from 2021-2-1 -> 2021-6-1 for both subscriptions
+        final List<InvoiceItem> proposedItems = new ArrayList<InvoiceItem>();
+        final Invoice proposed = createInvoice(targetDate);
+        for (LocalDate cur = startDate; cur.compareTo(targetDate) < 0; cur = cur.plusMonths(1)) {
+            proposedItems.add(createItem(proposed.getId(), inArrearSubscription, planName, phaseName, cur, cur.plusMonths(1)));
+            proposedItems.add(createItem(proposed.getId(), inAdvanceSubscription, inAdvancePlanName, inAdvancePhaseName, cur, cur.plusMonths(1)));
+        }
+
+        // P1M
+        final LocalDate cutoffDate = targetDate.minusMonths(1);
+        // Existing (filtered) 2021-4-1 -> 2021-5-1 for the in-arrear subscription only
+        final List<Invoice> existing = new ArrayList<Invoice>();
+        final Invoice invoice = createInvoice(cutoffDate);
+        invoice.addInvoiceItem(createItem(invoice.getId(), inArrearSubscription, planName, phaseName, new LocalDate(2021, 4, 1), new LocalDate(2021, 5, 1)));
+        existing.add(invoice);
+
+        final DefaultBillingEventSet billingEvents = new DefaultBillingEventSet(false, false, false);
+        billingEvents.add(createBillingEvent(inArrearSubscription, planName, startDate, BillingMode.IN_ARREAR, SubscriptionBaseTransitionType.CREATE));
+        billingEvents.add(createBillingEvent(inAdvanceSubscription, inAdvancePlanName, startDate, BillingMode.IN_ADVANCE, SubscriptionBaseTransitionType.CREATE));
+
+        final AccountInvoicesExp test = new AccountInvoicesExp(cutoffDate, null, existing);
+        test.filterProposedItems(proposedItems, billingEvents, internalCallContext);
+        Assert.assertEquals(proposedItems.size(), 3);
+        // Latest existing (P1M) for the in-arrear subscription
+        Assert.assertEquals(proposedItems.get(0).getSubscriptionId(), inArrearSubscription.getId());
+        Assert.assertEquals(proposedItems.get(0).getStartDate(), new LocalDate(2021, 4, 1));
+        // New proposed items
+        Assert.assertEquals(proposedItems.get(1).getSubscriptionId(), inArrearSubscription.getId());
+        Assert.assertEquals(proposedItems.get(1).getStartDate(), new LocalDate(2021, 5, 1));
+        Assert.assertEquals(proposedItems.get(2).getSubscriptionId(), inAdvanceSubscription.getId());
+        Assert.assertEquals(proposedItems.get(2).getStartDate(), new LocalDate(2021, 5, 1));
+    }
+
+    // Synthetic large account: many subscriptions with several years of history and a short maxInvoiceLimit
+    @Test(groups = "fast", enabled = false, description = "Benchmark: filterProposedItems on a large account")
+    public void testFilterProposedItemsLargeAccount() throws SubscriptionBaseApiException {
+        final int nbSubscriptions = 1000;
+        final int nbMonths = 36;
+        final int nbIterations = 10;
+
+        final LocalDate startDate = new LocalDate(2018, 1, 1);
+        final LocalDate targetDate = startDate.plusMonths(nbMonths);
+        final LocalDate cutoffDate = targetDate.minusMonths(1);
+
+        final List<SubscriptionBase> subscriptions = new ArrayList<SubscriptionBase>();
+        final DefaultBillingEventSet billingEvents = new DefaultBillingEventSet(false, false, false);
+        for (int i = 0; i < nbSubscriptions; i++) {
+            final SubscriptionBase sub = invoiceUtil.createSubscription();
+            subscriptions.add(sub);
+            // Each subscription has its own plan so that the plan cache does not short-circuit the billing event lookup
+            billingEvents.add(createBillingEvent(sub, planName + "-" + i, startDate, i % 2 == 0 ? BillingMode.IN_ADVANCE : BillingMode.IN_ARREAR, SubscriptionBaseTransitionType.CREATE));
+        }
+
+        final List<Invoice> existing = new ArrayList<Invoice>();
+        final Invoice invoice = createInvoice(cutoffDate);
+        for (int i = 0; i < nbSubscriptions; i++) {
+            invoice.addInvoiceItem(createItem(invoice.getId(), subscriptions.get(i), planName + "-" + i, phaseName + "-" + i, cutoffDate.minusMonths(1), cutoffDate));
+        }
+        existing.add(invoice);
+        final AccountInvoicesExp test = new AccountInvoicesExp(cutoffDate, null, existing);
+
+        final Invoice proposed = createInvoice(targetDate);
+        final List<InvoiceItem> allProposedItems = new ArrayList<InvoiceItem>();
+        for (int i = 0; i < nbSubscriptions; i++) {
+            for (LocalDate cur = startDate; cur.compareTo(targetDate) < 0; cur = cur.plusMonths(1)) {
+                allProposedItems.add(createItem(proposed.getId(), subscriptions.get(i), planName + "-" + i, phaseName + "-" + i, cur, cur.plusMonths(1)));
+            }
+        }
+
+        long totalNanos = 0;
+        for (int n = 0; n < nbIterations; n++) {
+            final List<InvoiceItem> proposedItems = new ArrayList<InvoiceItem>(allProposedItems);
+            final long ini = System.nanoTime();
+            test.filterProposedItems(proposedItems, billingEvents, internalCallContext);
+            totalNanos += System.nanoTime() - ini;
+            // Each subscription keeps the new period and the one matching its existing item
+            Assert.assertEquals(proposedItems.size(), 2 * nbSubscriptions);
+        }
+        logger.info("filterProposedItems: subscriptions={}, proposedItems={}, avg={}ms", nbSubscriptions, allProposedItems.size(), TimeUnit.NANOSECONDS.toMillis(totalNanos / nbIterations));
+    }
+
     private InvoiceItem createItem(final UUID invoiceId, final BigDecimal amount, final BigDecimal rate, final LocalDate startDate, final LocalDate endDate) {
         final RecurringInvoiceItem item = new RecurringInvoiceItem(invoiceId, account.getId(), subscription.getBundleId(), subscription.getId(), productName, planName, phaseName, null, startDate, endDate,
                                                                    amount, rate, Currency.USD);
@@ -485,6 +582,11 @@ public class TestInvoiceOptimizerExp extends InvoiceTestSuiteNoDB {
         return item;
     }
 
+    private InvoiceItem createItem(final UUID invoiceId, final SubscriptionBase sub, final String itemPlanName, final String itemPhaseName, final LocalDate startDate, final LocalDate endDate) {
+        return new RecurringInvoiceItem(invoiceId, account.getId(), sub.getBundleId(), sub.getId(), productName, itemPlanName, itemPhaseName, null, startDate, endDate,
+                                        BigDecimal.TEN, BigDecimal.TEN, Currency.USD);
+    }
+
     private Invoice createInvoice(final LocalDate targetDate, final InvoiceItem...items) {
         Invoice invoice = new DefaultInvoice(account.getId(), targetDate, targetDate, account.getCurrency());
         for (InvoiceItem ii : items) {
@@ -495,14 +597,18 @@ public class TestInvoiceOptimizerExp extends InvoiceTestSuiteNoDB {
 
 
     private BillingEvent createBillingEvent(final LocalDate eventDate, final BillingMode billingMode, final SubscriptionBaseTransitionType transitionType) {
-        final Plan plan = new MockPlan(planName).setRecurringBillingMode(billingMode);
+        return createBillingEvent(subscription, planName, eventDate, billingMode, transitionType);
+    }
+
+    private BillingEvent createBillingEvent(final SubscriptionBase sub, final String eventPlanName, final LocalDate eventDate, final BillingMode billingMode, final SubscriptionBaseTransitionType transitionType) {
+        final Plan plan = new MockPlan(eventPlanName).setRecurringBillingMode(billingMode);
 
         final MockInternationalPrice zeroPrice = new MockInternationalPrice(new DefaultPrice(ZERO, Currency.USD));
         final MockInternationalPrice recurringPrice = new MockInternationalPrice(new DefaultPrice(ONE, Currency.USD));
 
         final PlanPhase phase = new MockPlanPhase(recurringPrice, zeroPrice, BillingPeriod.MONTHLY, PhaseType.EVERGREEN);
 
-        final BillingEvent event1 = invoiceUtil.createMockBillingEvent(account, subscription, eventDate.toDateTimeAtStartOfDay(),
+        final BillingEvent event1 = invoiceUtil.createMockBillingEvent(account, sub, eventDate.toDateTimeAtStartOfDay(),
                                                                        plan, phase,
                                                                        ZERO, BigDecimal.TEN, Currency.USD, BillingPeriod.MONTHLY, 1,
                                                                        BillingMode.IN_ARREAR, "Test Event 1", 1L,
@@ -22,6 +22,7 @@ package org.killbill.billing.invoice.tree;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
@@ -37,6 +38,8 @@ import org.killbill.billing.invoice.model.ItemAdjInvoiceItem;
 import org.killbill.billing.invoice.model.RecurringInvoiceItem;
 import org.killbill.billing.invoice.model.RepairAdjInvoiceItem;
 import org.killbill.billing.util.jackson.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
@@ -46,6 +49,8 @@ import static org.testng.Assert.fail;
 
 public class TestSubscriptionItemTree extends InvoiceTestSuiteNoDB {
 
+    private static final Logger logger = LoggerFactory.getLogger(TestSubscriptionItemTree.class);
+
     private final UUID invoiceId = UUID.randomUUID();
     private final UUID accountId = UUID.randomUUID();
     private final UUID subscriptionId = UUID.randomUUID();
@@ -1376,6 +1381,51 @@ public class TestSubscriptionItemTree extends InvoiceTestSuiteNoDB {
         verifyResult(tree.getView(), expectedResult);
     }
 
+    @Test(groups = "fast", enabled = false, description = "Benchmark: merge proposed items for an account with many subscriptions and item adjustments")
+    public void testMergeOnLargeAccount() {
+        final int nbSubscriptions = 500;
+        final int nbMonths = 36;
+        final LocalDate startDate = new LocalDate(2016, 1, 1);
+        final BigDecimal monthlyRate = new BigDecimal("30.00");
+
+        final List<InvoiceItem> existingItems = new ArrayList<>();
+        final List<InvoiceItem> proposedItems = new ArrayList<>();
+        for (int i = 0; i < nbSubscriptions; i++) {
+            final UUID subId = UUID.randomUUID();
+            for (int j = 0; j < nbMonths; j++) {
+                final LocalDate periodStart = startDate.plusMonths(j);
+                final InvoiceItem existing = new RecurringInvoiceItem(invoiceId, accountId, bundleId, subId, productName, planName, phaseName, null, periodStart, periodStart.plusMonths(1), monthlyRate, monthlyRate, currency);
+                existingItems.add(existing);
+                if (j % 6 == 0) {
+                    existingItems.add(new ItemAdjInvoiceItem(existing, periodStart, BigDecimal.ONE.negate(), currency));
+                }
+                if (j < nbMonths - 1) {
+                    proposedItems.add(new RecurringInvoiceItem(invoiceId, accountId, bundleId, subId, productName, planName, phaseName, null, periodStart, periodStart.plusMonths(1), monthlyRate, monthlyRate, currency));
+                } else {
+                    // Plan change in the middle of the last period
+                    final LocalDate changeDate = periodStart.plusDays(15);
+                    proposedItems.add(new RecurringInvoiceItem(invoiceId, accountId, bundleId, subId, productName, planName, phaseName, null, periodStart, changeDate, new BigDecimal("15.00"), monthlyRate, currency));
+                    proposedItems.add(new RecurringInvoiceItem(invoiceId, accountId, bundleId, subId, productName, "other-plan", phaseName, null, changeDate, periodStart.plusMonths(1), new BigDecimal("20.00"), new BigDecimal("40.00"), currency));
+                }
+            }
+        }
+
+        for (int run = 0; run < 5; run++) {
+            final long startNanos = System.nanoTime();
+            final AccountItemTree tree = new AccountItemTree(accountId, invoiceId, invoiceConfig.getProrationFixedDays());
+            for (final InvoiceItem existingItem : existingItems) {
+                tree.addExistingItem(existingItem);
+            }
+            tree.mergeWithProposedItems(proposedItems);
+            final List<InvoiceItem> result = tree.getResultingItemList();
+            final long durationMs = (System.nanoTime() - startNanos) / 1000000;
+
+            // One new item and one repair per subscription
+            assertEquals(result.size(), 2 * nbSubscriptions);
+            logger.info("Merged {} existing and {} proposed items in {} ms", existingItems.size(), proposedItems.size(), durationMs);
+        }
+    }
+
     private void printTree(final SubscriptionItemTree tree) {
         System.out.println(TreePrinter.print(tree.getRoot()));
     }
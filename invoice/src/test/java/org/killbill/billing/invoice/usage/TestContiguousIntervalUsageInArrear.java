@@ -19,7 +19,13 @@ package org.killbill.billing.invoice.usage;
 
 import java.math.BigDecimal;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 import org.joda.time.DateTime;
 import org.joda.time.DateTimeZone;
@@ -30,14 +36,18 @@ import org.killbill.billing.catalog.DefaultUsage;
 import org.killbill.billing.catalog.api.BillingPeriod;
 import org.killbill.billing.catalog.api.TierBlockPolicy;
 import org.killbill.billing.catalog.api.Usage;
+import org.killbill.billing.invoice.generator.InvoiceWithMetadata.TrackingRecordId;
 import org.killbill.billing.junction.BillingEvent;
 import org.killbill.billing.subscription.api.SubscriptionBaseTransitionType;
-
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
 public class TestContiguousIntervalUsageInArrear extends TestUsageInArrearBase {
 
+    private static final Logger logger = LoggerFactory.getLogger(TestContiguousIntervalUsageInArrear.class);
+
     @Test(groups = "fast")
     public void testVerifyTransitionTimes() throws Exception {
         final DefaultTieredBlock block = createDefaultTieredBlock("unit", 100, 1000, BigDecimal.ONE);
@@ -110,4 +120,78 @@ public class TestContiguousIntervalUsageInArrear extends TestUsageInArrearBase {
         Assert.assertEquals(transitionTimes.get(0), billingEvent1.getEffectiveDate());
         Assert.assertEquals(transitionTimes.get(1), billingEvent2.getEffectiveDate());
     }
+
+    @Test(groups = "fast")
+    public void testComputeNewTrackingIds() {
+        final UUID subscriptionId = UUID.randomUUID();
+        final UUID otherSubscriptionId = UUID.randomUUID();
+        final UUID invoiceId = UUID.randomUUID();
+        final UUID existingInvoiceId = UUID.randomUUID();
+        final LocalDate recordDate = new LocalDate(2019, 3, 10);
+
+        final TrackingRecordId alreadyBilled = new TrackingRecordId("t1", invoiceId, subscriptionId, "unit", recordDate);
+        final TrackingRecordId otherUnitType = new TrackingRecordId("t1", invoiceId, subscriptionId, "other-unit", recordDate);
+        final TrackingRecordId otherDate = new TrackingRecordId("t1", invoiceId, subscriptionId, "unit", recordDate.plusDays(1));
+        final TrackingRecordId otherTrackingId = new TrackingRecordId("t2", invoiceId, subscriptionId, "unit", recordDate);
+        final Set<TrackingRecordId> allTrackingIds = Set.of(alreadyBilled, otherUnitType, otherDate, otherTrackingId);
+
+        // Similar records are matched regardless of the invoice they are attached to, but only for this subscription
+        final Set<TrackingRecordId> existingTrackingIds = Set.of(new TrackingRecordId("t1", existingInvoiceId, subscriptionId, "unit", recordDate),
+                                                                 new TrackingRecordId("t2", existingInvoiceId, otherSubscriptionId, "unit", recordDate));
+
+        final Set<TrackingRecordId> newTrackingIds = ContiguousIntervalUsageInArrear.computeNewTrackingIds(allTrackingIds, existingTrackingIds, subscriptionId);
+        Assert.assertEquals(newTrackingIds, Set.of(otherUnitType, otherDate, otherTrackingId));
+        Assert.assertEquals(newTrackingIds, computeNewTrackingIdsWithoutIndex(allTrackingIds, existingTrackingIds, subscriptionId));
+
+        // Randomized comparison against the reference implementation
+        final Random random = new Random(42);
+        final Set<TrackingRecordId> randomTrackingIds = createTrackingIds(2000, subscriptionId, invoiceId, random);
+        final Set<TrackingRecordId> randomExistingTrackingIds = createTrackingIds(2000, subscriptionId, existingInvoiceId, random);
+        Assert.assertEquals(ContiguousIntervalUsageInArrear.computeNewTrackingIds(randomTrackingIds, randomExistingTrackingIds, subscriptionId),
+                            computeNewTrackingIdsWithoutIndex(randomTrackingIds, randomExistingTrackingIds, subscriptionId));
+    }
+
+    @Test(groups = "fast", enabled = false, description = "Benchmark: tracking ids dedup with 10^5 and 10^6 records")
+    public void testComputeNewTrackingIdsThroughput() {
+        final UUID subscriptionId = UUID.randomUUID();
+        final Random random = new Random(42);
+        for (final int nbRecords : new int[]{10000, 100000, 1000000}) {
+            final Set<TrackingRecordId> allTrackingIds = createTrackingIds(nbRecords, subscriptionId, UUID.randomUUID(), random);
+            final Set<TrackingRecordId> existingTrackingIds = createTrackingIds(nbRecords, subscriptionId, UUID.randomUUID(), random);
+
+            long startNanos = System.nanoTime();
+            final int nbNew = ContiguousIntervalUsageInArrear.computeNewTrackingIds(allTrackingIds, existingTrackingIds, subscriptionId).size();
+            logger.info("Indexed dedup of {} records: {} ms ({} new)", nbRecords, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos), nbNew);
+
+            // The quadratic version is only practical for the smallest size
+            if (nbRecords <= 10000) {
+                startNanos = System.nanoTime();
+                computeNewTrackingIdsWithoutIndex(allTrackingIds, existingTrackingIds, subscriptionId);
+                logger.info("Quadratic dedup of {} records: {} ms", nbRecords, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+            }
+        }
+    }
+
+    // Previous implementation, as a reference
+    private static Set<TrackingRecordId> computeNewTrackingIdsWithoutIndex(final Set<TrackingRecordId> allTrackingIds,
+                                                                          final Set<TrackingRecordId> allExistingTrackingIds,
+                                                                          final UUID subscriptionId) {
+        final Set<TrackingRecordId> existingTrackingIds = allExistingTrackingIds.stream()
+                                                                                .filter(trackingRecordId -> trackingRecordId.getSubscriptionId().equals(subscriptionId))
+                                                                                .collect(Collectors.toUnmodifiableSet());
+        return allTrackingIds.stream()
+                             .filter(allRecord -> existingTrackingIds.stream().noneMatch(existingRecord -> existingRecord.isSimilarRecord(allRecord)))
+                             .collect(Collectors.toUnmodifiableSet());
+    }
+
+    // Tracking ids are drawn from a pool twice as large as the number of records, so that about half of them overlap
+    private static Set<TrackingRecordId> createTrackingIds(final int nbRecords, final UUID subscriptionId, final UUID invoiceId, final Random random) {
+        final LocalDate startDate = new LocalDate(2019, 1, 1);
+        final Set<TrackingRecordId> result = new HashSet<>();
+        while (result.size() < nbRecords) {
+            final int trackingIdx = random.nextInt(2 * nbRecords);
+            result.add(new TrackingRecordId("tracking-" + trackingIdx, invoiceId, subscriptionId, "unit-" + (trackingIdx % 3), startDate.plusDays(trackingIdx % 28)));
+        }
+        return result;
+    }
 }
@@ -31,10 +31,6 @@ import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Future;
-import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.stream.Collectors;
 
@@ -52,6 +48,8 @@ import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
 import javax.ws.rs.core.UriInfo;
@@ -101,6 +99,7 @@ import org.killbill.billing.jaxrs.json.PaymentTransactionJson;
 import org.killbill.billing.jaxrs.json.TagJson;
 import org.killbill.billing.jaxrs.util.Context;
 import org.killbill.billing.jaxrs.util.JaxrsUriBuilder;
+import org.killbill.billing.jaxrs.util.ParallelReads;
 import org.killbill.billing.overdue.api.OverdueApi;
 import org.killbill.billing.overdue.api.OverdueApiException;
 import org.killbill.billing.overdue.api.OverdueState;
@@ -220,12 +219,13 @@ public class AccountResource extends JaxRsResourceBase {
     @ApiResponses(value = {})
     public Response getAccounts(@QueryParam(QUERY_SEARCH_OFFSET) @DefaultValue("0") final Long offset,
                                 @QueryParam(QUERY_SEARCH_LIMIT) @DefaultValue("100") final Long limit,
+                                @QueryParam(QUERY_PAGINATION_CURSOR) final String cursor,
                                 @QueryParam(QUERY_ACCOUNT_WITH_BALANCE) @DefaultValue("false") final Boolean accountWithBalance,
                                 @QueryParam(QUERY_ACCOUNT_WITH_BALANCE_AND_CBA) @DefaultValue("false") final Boolean accountWithBalanceAndCBA,
                                 @QueryParam(QUERY_AUDIT) @DefaultValue("NONE") final AuditMode auditMode,
                                 @javax.ws.rs.core.Context final HttpServletRequest request) throws AccountApiException {
         final TenantContext tenantContext = context.createTenantContextNoAccountId(request);
-        final Pagination<Account> accounts = accountUserApi.getAccounts(offset, limit, tenantContext);
+        final Pagination<Account> accounts = accountUserApi.getAccounts(getOffsetOrCursor(offset, cursor), limit, tenantContext);
         final URI nextPageUri = uriBuilder.nextPage(AccountResource.class,
                                                     "getAccounts",
                                                     accounts.getNextOffset(),
@@ -514,10 +514,11 @@ public class AccountResource extends JaxRsResourceBase {
     @ApiOperation(value = "Retrieve account timeline", response = AccountTimelineJson.class)
     @ApiResponses(value = {@ApiResponse(code = 400, message = "Invalid account id supplied"),
                            @ApiResponse(code = 404, message = "Account not found")})
-    public Response getAccountTimeline(@PathParam("accountId") final UUID accountId,
-                                       @QueryParam(QUERY_PARALLEL) @DefaultValue("false") final Boolean parallel,
-                                       @QueryParam(QUERY_AUDIT) @DefaultValue("NONE") final AuditMode auditMode,
-                                       @javax.ws.rs.core.Context final HttpServletRequest request) throws AccountApiException, PaymentApiException, SubscriptionApiException, InvoiceApiException, CatalogApiException {
+    public void getAccountTimeline(@PathParam("accountId") final UUID accountId,
+                                   @QueryParam(QUERY_PARALLEL) @DefaultValue("false") final Boolean parallel,
+                                   @QueryParam(QUERY_AUDIT) @DefaultValue("NONE") final AuditMode auditMode,
+                                   @javax.ws.rs.core.Context final HttpServletRequest request,
+                                   @Suspended final AsyncResponse asyncResponse) throws AccountApiException, PaymentApiException, SubscriptionApiException, InvoiceApiException, CatalogApiException {
 
         final TenantContext tenantContext = context.createTenantContextWithAccountId(accountId, request);
 
@@ -554,69 +555,38 @@ public class AccountResource extends JaxRsResourceBase {
             }
         };
 
-        final AccountTimelineJson json;
-
-        List<Invoice> invoices = null;
-        List<SubscriptionBundle> bundles = null;
-        List<InvoicePayment> invoicePayments = null;
-        List<Payment> payments = null;
-        AccountAuditLogs accountAuditLogs = null;
-
         if (parallel) {
-            final ExecutorService executor = jaxrsExecutors.getJaxrsExecutorService();
-            final Future<List<SubscriptionBundle>> futureBundlesCallable = executor.submit(bundlesCallable);
-            final Future<List<Invoice>> futureInvoicesCallable = executor.submit(invoicesCallable);
-            final Future<List<InvoicePayment>> futureInvoicePaymentsCallable = executor.submit(invoicePaymentsCallable);
-            final Future<List<Payment>> futurePaymentsCallable = executor.submit(paymentsCallable);
-            final Future<AccountAuditLogs> futureAuditsCallable = executor.submit(auditsCallable);
-            final List<Future> toBeCancelled = List.of(futureBundlesCallable, futureInvoicesCallable, futureInvoicePaymentsCallable, futurePaymentsCallable, futureAuditsCallable);
-            final int timeoutMsec = 100;
-
-            final long ini = System.currentTimeMillis();
-            do {
-                bundles = (bundles == null) ? waitOnFutureAndHandleTimeout("bundles", futureBundlesCallable, timeoutMsec, toBeCancelled) : bundles;
-                invoices = (invoices == null) ? waitOnFutureAndHandleTimeout("invoices", futureInvoicesCallable, timeoutMsec, toBeCancelled) : invoices;
-                invoicePayments = (invoicePayments == null) ? waitOnFutureAndHandleTimeout("invoicePayments", futureInvoicePaymentsCallable, timeoutMsec, toBeCancelled) : invoicePayments;
-                payments = (payments == null) ? waitOnFutureAndHandleTimeout("payments", futurePaymentsCallable, timeoutMsec, toBeCancelled) : payments;
-                accountAuditLogs = (accountAuditLogs == null) ? waitOnFutureAndHandleTimeout("accountAuditLogs", futureAuditsCallable, timeoutMsec, toBeCancelled) : accountAuditLogs;
-            } while ((System.currentTimeMillis() - ini < jaxrsConfig.getJaxrsTimeout().getMillis()) &&
-                     (bundles == null || invoices == null || invoicePayments == null || payments == null || accountAuditLogs == null));
-
-            if (bundles == null || invoices == null || invoicePayments == null || payments == null || accountAuditLogs == null) {
-                Response.status(Status.SERVICE_UNAVAILABLE).build();
-            }
+            final ParallelReads reads = new ParallelReads(jaxrsExecutors.getJaxrsExecutorService(), jaxrsConfig.getJaxrsTimeout().getMillis());
+            final ParallelReads.Read<List<SubscriptionBundle>> bundlesRead = reads.submit("bundles", bundlesCallable);
+            final ParallelReads.Read<List<Invoice>> invoicesRead = reads.submit("invoices", invoicesCallable);
+            final ParallelReads.Read<List<InvoicePayment>> invoicePaymentsRead = reads.submit("invoicePayments", invoicePaymentsCallable);
+            final ParallelReads.Read<List<Payment>> paymentsRead = reads.submit("payments", paymentsCallable);
+            final ParallelReads.Read<AccountAuditLogs> auditsRead = reads.submit("accountAuditLogs", auditsCallable);
+            // Don't hold the request thread while the reads are in flight: the response is resumed once they complete
+            reads.whenAll().whenComplete((ignored, failure) -> {
+                if (failure instanceof TimeoutException) {
+                    asyncResponse.resume(Response.status(Status.SERVICE_UNAVAILABLE).build());
+                } else if (failure != null) {
+                    // Mapped like any exception thrown by the resource
+                    asyncResponse.resume(failure);
+                } else {
+                    try {
+                        final AccountTimelineJson json = new AccountTimelineJson(account, invoicesRead.get(), paymentsRead.get(), invoicePaymentsRead.get(), bundlesRead.get(), auditsRead.get());
+                        asyncResponse.resume(Response.status(Status.OK).entity(json).build());
+                    } catch (final CatalogApiException e) {
+                        asyncResponse.resume(e);
+                    }
+                }
+            });
         } else {
-            invoices = runCallable("invoices", invoicesCallable);
-            payments = runCallable("payments", paymentsCallable);
-            bundles = runCallable("bundles", bundlesCallable);
-            accountAuditLogs = runCallable("accountAuditLogs", auditsCallable);
-            invoicePayments = runCallable("invoicePayments", invoicePaymentsCallable);
-        }
-
-        json = new AccountTimelineJson(account, invoices, payments, invoicePayments, bundles, accountAuditLogs);
-        return Response.status(Status.OK).entity(json).build();
-    }
-
-    private <T> T waitOnFutureAndHandleTimeout(final String logSuffix, final Future<T> future, final long timeoutMsec, final Iterable<Future> toBeCancelled) throws PaymentApiException, AccountApiException, InvoiceApiException, SubscriptionApiException {
-        try {
-            return waitOnFutureAndHandleTimeout(future, timeoutMsec);
-        } catch (final InterruptedException e) {
-            log.warn("InterruptedException while retrieving {}", logSuffix, e);
-            handleCallableException(e, toBeCancelled);
-        } catch (final ExecutionException e) {
-            log.warn("ExecutionException while retrieving {}", logSuffix, e);
-            handleCallableException(e.getCause(), toBeCancelled);
-        }
-
-        // Never reached
-        return null;
-    }
-
-    private <T> T waitOnFutureAndHandleTimeout(final Future<T> future, final long timeoutMsec) throws ExecutionException, InterruptedException {
-        try {
-            return future.get(timeoutMsec, TimeUnit.MILLISECONDS);
-        } catch (final TimeoutException e) {
-            return null;
+            final List<Invoice> invoices = runCallable("invoices", invoicesCallable);
+            final List<Payment> payments = runCallable("payments", paymentsCallable);
+            final List<SubscriptionBundle> bundles = runCallable("bundles", bundlesCallable);
+            final AccountAuditLogs accountAuditLogs = runCallable("accountAuditLogs", auditsCallable);
+            final List<InvoicePayment> invoicePayments = runCallable("invoicePayments", invoicePaymentsCallable);
+
+            final AccountTimelineJson json = new AccountTimelineJson(account, invoices, payments, invoicePayments, bundles, accountAuditLogs);
+            asyncResponse.resume(Response.status(Status.OK).entity(json).build());
         }
     }
 
@@ -632,13 +602,6 @@ public class AccountResource extends JaxRsResourceBase {
         return null;
     }
 
-    private void handleCallableException(final Throwable causeOrException, final Iterable<Future> toBeCancelled) throws AccountApiException, SubscriptionApiException, PaymentApiException, InvoiceApiException {
-        for (final Future f : toBeCancelled) {
-            f.cancel(true);
-        }
-        handleCallableException(causeOrException);
-    }
-
     private void handleCallableException(final Throwable causeOrException) throws AccountApiException, SubscriptionApiException, PaymentApiException, InvoiceApiException {
         if (causeOrException instanceof AccountApiException) {
             throw (AccountApiException) causeOrException;
@@ -192,10 +192,11 @@ public class BundleResource extends JaxRsResourceBase {
     @ApiResponses(value = {})
     public Response getBundles(@QueryParam(QUERY_SEARCH_OFFSET) @DefaultValue("0") final Long offset,
                                @QueryParam(QUERY_SEARCH_LIMIT) @DefaultValue("100") final Long limit,
+                               @QueryParam(QUERY_PAGINATION_CURSOR) final String cursor,
                                @QueryParam(QUERY_AUDIT) @DefaultValue("NONE") final AuditMode auditMode,
                                @javax.ws.rs.core.Context final HttpServletRequest request) throws SubscriptionApiException {
         final TenantContext tenantContext = context.createTenantContextNoAccountId(request);
-        final Pagination<SubscriptionBundle> bundles = subscriptionApi.getSubscriptionBundles(offset, limit, tenantContext);
+        final Pagination<SubscriptionBundle> bundles = subscriptionApi.getSubscriptionBundles(getOffsetOrCursor(offset, cursor), limit, tenantContext);
         final URI nextPageUri = uriBuilder.nextPage(BundleResource.class,
                                                     "getBundles",
                                                     bundles.getNextOffset(),
@@ -94,10 +94,11 @@ public class CustomFieldResource extends JaxRsResourceBase {
     @ApiResponses(value = {})
     public Response getCustomFields(@QueryParam(QUERY_SEARCH_OFFSET) @DefaultValue("0") final Long offset,
                                     @QueryParam(QUERY_SEARCH_LIMIT) @DefaultValue("100") final Long limit,
+                                    @QueryParam(QUERY_PAGINATION_CURSOR) final String cursor,
                                     @QueryParam(QUERY_AUDIT) @DefaultValue("NONE") final AuditMode auditMode,
                                     @javax.ws.rs.core.Context final HttpServletRequest request) throws CustomFieldApiException {
         final TenantContext tenantContext = context.createTenantContextNoAccountId(request);
-        final Pagination<CustomField> customFields = customFieldUserApi.getCustomFields(offset, limit, tenantContext);
+        final Pagination<CustomField> customFields = customFieldUserApi.getCustomFields(getOffsetOrCursor(offset, cursor), limit, tenantContext);
         final URI nextPageUri = uriBuilder.nextPage(CustomFieldResource.class,
                                                     "getCustomFields",
                                                     customFields.getNextOffset(),
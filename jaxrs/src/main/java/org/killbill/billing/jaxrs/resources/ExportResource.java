@@ -21,17 +21,22 @@ package org.killbill.billing.jaxrs.resources;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.util.UUID;
+import java.util.zip.GZIPOutputStream;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
 import javax.servlet.http.HttpServletRequest;
+import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
 import javax.ws.rs.HeaderParam;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
 import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.ResponseBuilder;
 import javax.ws.rs.core.StreamingOutput;
 
 import org.killbill.billing.account.api.AccountUserApi;
@@ -59,6 +64,8 @@ import static javax.ws.rs.core.MediaType.APPLICATION_OCTET_STREAM;
 @Api(value = JaxrsResource.EXPORT_PATH, description = "Export endpoints", tags="Export")
 public class ExportResource extends JaxRsResourceBase {
 
+    private static final int GZIP_BUFFER_SIZE = 64 * 1024;
+
     private final ExportUserApi exportUserApi;
 
     @Inject
@@ -84,18 +91,32 @@ public class ExportResource extends JaxRsResourceBase {
     @ApiResponses(value = {@ApiResponse(code = 200, message = "Success"),
                            @ApiResponse(code = 400, message = "Invalid account id supplied"),
                            @ApiResponse(code = 404, message = "Account not found")})
-    public StreamingOutput exportDataForAccount(@PathParam("accountId") final UUID accountId,
-                                                @HeaderParam(HDR_CREATED_BY) final String createdBy,
-                                                @HeaderParam(HDR_REASON) final String reason,
-                                                @HeaderParam(HDR_COMMENT) final String comment,
-                                                @javax.ws.rs.core.Context final HttpServletRequest request) {
+    public Response exportDataForAccount(@PathParam("accountId") final UUID accountId,
+                                         @QueryParam(QUERY_EXPORT_GZIP) @DefaultValue("false") final Boolean gzip,
+                                         @HeaderParam(HDR_CREATED_BY) final String createdBy,
+                                         @HeaderParam(HDR_REASON) final String reason,
+                                         @HeaderParam(HDR_COMMENT) final String comment,
+                                         @javax.ws.rs.core.Context final HttpServletRequest request) {
         final CallContext callContext = context.createCallContextWithAccountId(accountId, createdBy, reason, comment, request);
-        return new StreamingOutput() {
+        final StreamingOutput streamingOutput = new StreamingOutput() {
             @Override
             public void write(final OutputStream output) throws IOException, WebApplicationException {
                 // CSV by default for now
-                exportUserApi.exportDataAsCSVForAccount(accountId, output, callContext);
+                if (gzip) {
+                    // Don't close it, the container owns the underlying stream
+                    final GZIPOutputStream gzipOutput = new GZIPOutputStream(output, GZIP_BUFFER_SIZE);
+                    exportUserApi.exportDataAsCSVForAccount(accountId, gzipOutput, callContext);
+                    gzipOutput.finish();
+                } else {
+                    exportUserApi.exportDataAsCSVForAccount(accountId, output, callContext);
+                }
             }
         };
+
+        final ResponseBuilder responseBuilder = Response.ok(streamingOutput);
+        if (gzip) {
+            responseBuilder.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return responseBuilder.build();
     }
 }
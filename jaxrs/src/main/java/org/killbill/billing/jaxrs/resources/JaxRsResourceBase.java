@@ -105,6 +105,7 @@ import org.killbill.billing.util.customfield.CustomField;
 import org.killbill.billing.util.customfield.StringCustomField;
 import org.killbill.billing.util.entity.Entity;
 import org.killbill.billing.util.entity.Pagination;
+import org.killbill.billing.util.entity.PaginationCursor;
 import org.killbill.billing.util.jackson.ObjectMapper;
 import org.killbill.billing.util.tag.Tag;
 import org.killbill.billing.util.tag.TagDefinition;
@@ -319,6 +320,17 @@ public abstract class JaxRsResourceBase implements JaxrsResource {
         return Response.status(Status.NO_CONTENT).build();
     }
 
+    // Keyset pagination is opt-in: when the cursor query parameter is set (empty for the first page), the offset must be left unset
+    protected Long getOffsetOrCursor(final Long offset, @Nullable final String cursor) {
+        // Negative offsets are reserved for cursors (see PaginationCursor)
+        Preconditions.checkArgument(offset != null && offset >= 0, "Invalid offset %s", offset);
+        if (cursor == null) {
+            return offset;
+        }
+        Preconditions.checkArgument(offset == 0, "The offset and the cursor cannot be specified together");
+        return PaginationCursor.decode(cursor);
+    }
+
     protected <E extends Entity, J extends JsonBase> Response buildStreamingPaginationResponse(final Pagination<E> entities,
                                                                                                final Function<E, J> toJson,
                                                                                                final URI nextPageUri) {
@@ -350,8 +362,9 @@ public abstract class JaxRsResourceBase implements JaxrsResource {
 
         return Response.status(Status.OK)
                        .entity(json)
-                       .header(HDR_PAGINATION_CURRENT_OFFSET, entities.getCurrentOffset())
-                       .header(HDR_PAGINATION_NEXT_OFFSET, entities.getNextOffset())
+                       // Offsets are meaningless for keyset pagination (see HDR_PAGINATION_NEXT_PAGE_URI instead)
+                       .header(HDR_PAGINATION_CURRENT_OFFSET, PaginationCursor.isCursor(entities.getCurrentOffset()) ? null : entities.getCurrentOffset())
+                       .header(HDR_PAGINATION_NEXT_OFFSET, PaginationCursor.isCursor(entities.getCurrentOffset()) ? null : entities.getNextOffset())
                        .header(HDR_PAGINATION_TOTAL_NB_RECORDS, entities.getTotalNbRecords())
                        .header(HDR_PAGINATION_MAX_NB_RECORDS, entities.getMaxNbRecords())
                        .header(HDR_PAGINATION_NEXT_PAGE_URI, nextPageUri)
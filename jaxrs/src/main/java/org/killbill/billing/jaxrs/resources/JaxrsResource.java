@@ -85,6 +85,7 @@ public interface JaxrsResource {
     String QUERY_ENTITLEMENT_POLICY = "entitlementPolicy";
     String QUERY_SEARCH_OFFSET = "offset";
     String QUERY_SEARCH_LIMIT = "limit";
+    String QUERY_PAGINATION_CURSOR = "cursor";
     String QUERY_ENTITLEMENT_EFFECTIVE_FROM_DT = "effectiveFromDate";
     String QUERY_FORCE_NEW_BCD_WITH_PAST_EFFECTIVE_DATE = "forceNewBcdWithPastEffectiveDate";
 
@@ -157,6 +158,8 @@ public interface JaxrsResource {
 
     String QUERY_NOTIFICATION_CALLBACK = "cb";
 
+    String QUERY_EXPORT_GZIP = "gzip";
+
     String PAGINATION = "pagination";
 
     String ADMIN = "admin";
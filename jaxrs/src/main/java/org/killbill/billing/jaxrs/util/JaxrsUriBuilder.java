@@ -34,6 +34,7 @@ import javax.ws.rs.core.UriInfo;
 import org.killbill.billing.jaxrs.resources.JaxRsResourceBase;
 import org.killbill.billing.jaxrs.resources.JaxrsResource;
 import org.killbill.billing.util.config.definition.JaxrsConfig;
+import org.killbill.billing.util.entity.PaginationCursor;
 
 public class JaxrsUriBuilder {
 
@@ -128,8 +129,14 @@ public class JaxrsUriBuilder {
             return null;
         }
 
-        final UriBuilder uriBuilder = getUriBuilder(theClass, getMethodName).queryParam(JaxRsResourceBase.QUERY_SEARCH_OFFSET, nextOffset)
-                                                                            .queryParam(JaxRsResourceBase.QUERY_SEARCH_LIMIT, limit);
+        final UriBuilder uriBuilder = getUriBuilder(theClass, getMethodName);
+        if (PaginationCursor.isCursor(nextOffset)) {
+            // Keyset pagination: the cursor is exposed as an opaque token
+            uriBuilder.queryParam(JaxRsResourceBase.QUERY_PAGINATION_CURSOR, PaginationCursor.encode(nextOffset));
+        } else {
+            uriBuilder.queryParam(JaxRsResourceBase.QUERY_SEARCH_OFFSET, nextOffset);
+        }
+        uriBuilder.queryParam(JaxRsResourceBase.QUERY_SEARCH_LIMIT, limit);
         for (final Entry<String, String> entry : queryParams.entrySet()) {
             uriBuilder.queryParam(entry.getKey(), entry.getValue());
         }
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2020-2026 Equinix, Inc
+ * Copyright 2014-2026 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.jaxrs.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Fan-out of independent reads backing a composite view (e.g. the account timeline), joined under a single deadline.
+ * <p>
+ * The join doesn't block the caller: {@link #whenAll()} completes from the read threads (or when the deadline passes),
+ * so that a suspended request can be resumed from there. The first failure, or the deadline, cancels (and interrupts)
+ * all reads still in flight.
+ */
+public class ParallelReads {
+
+    private static final Logger log = LoggerFactory.getLogger(ParallelReads.class);
+
+    private final ExecutorService executor;
+    private final long deadlineNanos;
+    private final List<Read<?>> reads = new ArrayList<Read<?>>();
+    // Completed exceptionally as soon as one read fails
+    private final CompletableFuture<Void> firstFailure = new CompletableFuture<Void>();
+
+    public ParallelReads(final ExecutorService executor, final long timeoutMillis) {
+        this.executor = executor;
+        this.deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+    }
+
+    public <T> Read<T> submit(final String name, final Callable<T> callable) {
+        final Read<T> read = new Read<T>(name);
+        read.task = executor.submit(() -> {
+            try {
+                read.result.complete(callable.call());
+            } catch (final Throwable e) {
+                read.result.completeExceptionally(e);
+                firstFailure.completeExceptionally(e);
+            }
+        });
+        reads.add(read);
+        return read;
+    }
+
+    /**
+     * Join all reads submitted so far.
+     *
+     * @return a future completed once all reads have completed, or completed exceptionally with the exception of the
+     * first failed read, or with a {@link TimeoutException} if the deadline passed before all reads completed
+     */
+    public CompletableFuture<Void> whenAll() {
+        final CompletableFuture<?>[] results = new CompletableFuture<?>[reads.size()];
+        for (int i = 0; i < reads.size(); i++) {
+            results[i] = reads.get(i).result;
+        }
+
+        final CompletableFuture<Void> whenAll = new CompletableFuture<Void>();
+        CompletableFuture.anyOf(CompletableFuture.allOf(results), firstFailure)
+                         .orTimeout(Math.max(0, deadlineNanos - System.nanoTime()), TimeUnit.NANOSECONDS)
+                         .whenComplete((ignored, failure) -> {
+                             if (failure == null) {
+                                 whenAll.complete(null);
+                                 return;
+                             }
+
+                             final Throwable cause = failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+                             if (cause instanceof TimeoutException) {
+                                 final String pending = getNames(false);
+                                 cancelAll();
+                                 log.warn("Timed out waiting for reads {}", pending);
+                                 whenAll.completeExceptionally(new TimeoutException(String.format("Timed out waiting for reads %s", pending)));
+                             } else {
+                                 final String failed = getNames(true);
+                                 final String pending = getNames(false);
+                                 cancelAll();
+                                 log.warn("Reads {} failed, cancelling reads {}", failed, pending, cause);
+                                 whenAll.completeExceptionally(cause);
+                             }
+                         });
+        return whenAll;
+    }
+
+    private void cancelAll() {
+        for (final Read<?> read : reads) {
+            read.task.cancel(true);
+        }
+    }
+
+    private String getNames(final boolean failed) {
+        return reads.stream()
+                    .filter(read -> failed ? read.result.isCompletedExceptionally() : !read.result.isDone())
+                    .map(read -> read.name)
+                    .collect(Collectors.toList())
+                    .toString();
+    }
+
+    public static final class Read<T> {
+
+        private final String name;
+        private final CompletableFuture<T> result = new CompletableFuture<T>();
+        private Future<?> task;
+
+        private Read(final String name) {
+            this.name = name;
+        }
+
+        /**
+         * @return the result of the read, only valid once {@link ParallelReads#whenAll()} has completed normally
+         */
+        public T get() {
+            return result.join();
+        }
+    }
+}
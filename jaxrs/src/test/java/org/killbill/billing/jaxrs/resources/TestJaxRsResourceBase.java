@@ -30,6 +30,7 @@ import org.killbill.billing.util.api.CustomFieldApiException;
 import org.killbill.billing.util.api.CustomFieldUserApi;
 import org.killbill.commons.utils.collect.Iterables;
 import org.killbill.billing.util.customfield.CustomField;
+import org.killbill.billing.util.entity.PaginationCursor;
 import org.mockito.Mockito;
 import org.testng.Assert;
 import org.testng.annotations.BeforeMethod;
@@ -167,4 +168,27 @@ public class TestJaxRsResourceBase extends JaxrsTestSuiteNoDB {
 
         Mockito.verify(customFieldUserApi, Mockito.times(1)).removeCustomFields(Mockito.anyList(), Mockito.any());
     }
+
+    @Test(groups = "fast")
+    public void testGetOffsetOrCursor() {
+        final JaxRsResourceBase base = createJaxRsResourceBase();
+
+        Assert.assertEquals(base.getOffsetOrCursor(10L, null), (Long) 10L);
+        Assert.assertEquals(base.getOffsetOrCursor(0L, ""), PaginationCursor.FIRST_PAGE);
+        final String token = PaginationCursor.encode(PaginationCursor.fromRecordId(42L));
+        Assert.assertEquals(base.getOffsetOrCursor(0L, token), PaginationCursor.fromRecordId(42L));
+
+        // Negative offsets are reserved for cursors
+        try {
+            base.getOffsetOrCursor(-1L, null);
+            Assert.fail();
+        } catch (final IllegalArgumentException ignored) {
+        }
+
+        try {
+            base.getOffsetOrCursor(10L, token);
+            Assert.fail();
+        } catch (final IllegalArgumentException ignored) {
+        }
+    }
 }
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2020-2026 Equinix, Inc
+ * Copyright 2014-2026 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.jaxrs.util;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.killbill.billing.jaxrs.JaxrsTestSuiteNoDB;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class TestParallelReads extends JaxrsTestSuiteNoDB {
+
+    private ExecutorService executor;
+
+    @BeforeMethod(groups = "fast")
+    public void beforeMethod() throws Exception {
+        if (hasFailed()) {
+            return;
+        }
+        executor = Executors.newFixedThreadPool(3);
+    }
+
+    @AfterMethod(groups = "fast")
+    public void afterMethod() throws Exception {
+        executor.shutdownNow();
+    }
+
+    @Test(groups = "fast")
+    public void testAllReadsComplete() throws Exception {
+        final ParallelReads reads = new ParallelReads(executor, 10000);
+        final ParallelReads.Read<String> first = reads.submit("first", () -> "a");
+        final ParallelReads.Read<Integer> second = reads.submit("second", () -> {
+            Thread.sleep(50);
+            return 1;
+        });
+        reads.whenAll().get(10, TimeUnit.SECONDS);
+
+        Assert.assertEquals(first.get(), "a");
+        Assert.assertEquals(second.get(), (Integer) 1);
+    }
+
+    @Test(groups = "fast")
+    public void testFailureCancelsOtherReads() throws Exception {
+        final CountDownLatch interrupted = new CountDownLatch(1);
+        final ParallelReads reads = new ParallelReads(executor, 10000);
+        reads.submit("slow", () -> {
+            try {
+                Thread.sleep(60000);
+            } catch (final InterruptedException e) {
+                interrupted.countDown();
+                throw e;
+            }
+            return null;
+        });
+        reads.submit("failing", () -> {
+            throw new IllegalStateException("boom");
+        });
+
+        final long startNanos = System.nanoTime();
+        try {
+            reads.whenAll().get();
+            Assert.fail();
+        } catch (final ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof IllegalStateException);
+            Assert.assertEquals(e.getCause().getMessage(), "boom");
+        }
+        // Fail fast, without waiting for the slow read or the deadline
+        Assert.assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos) < 5000);
+        Assert.assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test(groups = "fast")
+    public void testTimeoutReportsPendingReads() throws Exception {
+        final CountDownLatch interrupted = new CountDownLatch(1);
+        final ParallelReads reads = new ParallelReads(executor, 200);
+        reads.submit("fast", () -> "a");
+        reads.submit("slow", () -> {
+            try {
+                Thread.sleep(60000);
+            } catch (final InterruptedException e) {
+                interrupted.countDown();
+                throw e;
+            }
+            return null;
+        });
+
+        // The join itself doesn't block
+        final CompletableFuture<Void> whenAll = reads.whenAll();
+        Assert.assertFalse(whenAll.isDone());
+        try {
+            whenAll.get();
+            Assert.fail();
+        } catch (final ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof TimeoutException);
+            Assert.assertEquals(e.getCause().getMessage(), "Timed out waiting for reads [slow]");
+        }
+        Assert.assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+    }
+}
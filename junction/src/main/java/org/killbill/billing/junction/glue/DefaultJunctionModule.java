@@ -20,6 +20,7 @@ package org.killbill.billing.junction.glue;
 
 import org.killbill.billing.glue.JunctionModule;
 import org.killbill.billing.junction.BillingInternalApi;
+import org.killbill.billing.junction.plumbing.billing.BillingEventsMemo;
 import org.killbill.billing.junction.plumbing.billing.BlockingCalculator;
 import org.killbill.billing.junction.plumbing.billing.DefaultInternalBillingApi;
 import org.killbill.billing.platform.api.KillbillConfigSource;
@@ -35,6 +36,7 @@ public class DefaultJunctionModule extends KillBillModule implements JunctionMod
     protected void configure() {
         installBillingApi();
         installBlockingCalculator();
+        installBillingEventsMemo();
     }
 
     @Override
@@ -46,4 +48,8 @@ public class DefaultJunctionModule extends KillBillModule implements JunctionMod
         bind(BlockingCalculator.class).asEagerSingleton();
     }
 
+    public void installBillingEventsMemo() {
+        bind(BillingEventsMemo.class).asEagerSingleton();
+    }
+
 }
@@ -0,0 +1,224 @@
+/*
+ * Copyright 2020-2026 Equinix, Inc
+ * Copyright 2014-2026 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.killbill.billing.junction.plumbing.billing;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.annotation.Nullable;
+import javax.inject.Inject;
+
+import org.killbill.billing.callcontext.InternalTenantContext;
+import org.killbill.billing.catalog.api.Currency;
+import org.killbill.billing.catalog.api.VersionedCatalog;
+import org.killbill.billing.entitlement.api.BlockingState;
+import org.killbill.billing.junction.BillingEvent;
+import org.killbill.billing.subscription.api.SubscriptionBase;
+import org.killbill.billing.subscription.api.user.SubscriptionBaseTransition;
+import org.killbill.billing.util.config.definition.CacheConfig;
+import org.killbill.commons.utils.annotation.VisibleForTesting;
+
+/**
+ * Per-account, per-subscription memoization of the billing events computed by {@link DefaultInternalBillingApi}
+ * and of the blocking adjustments computed by {@link BlockingCalculator}.
+ * <p>
+ * Nothing is ever invalidated explicitly: each entry is stored along with a fingerprint of its inputs (subscription transitions,
+ * BCD inputs, catalog, blocking states) and it is only reused if the fingerprint computed from the freshly loaded data matches.
+ * Subscriptions whose events or blocking states changed since the last run are therefore simply recomputed.
+ */
+public class BillingEventsMemo {
+
+    private final boolean enabled;
+    private final Map<Long, AccountBillingEventsMemo> perAccountMemo;
+
+    @Inject
+    public BillingEventsMemo(final CacheConfig cacheConfig) {
+        this(cacheConfig.isBillingEventsMemoizationEnabled(), cacheConfig.getBillingEventsMemoizationMaxAccounts());
+    }
+
+    @VisibleForTesting
+    public BillingEventsMemo(final boolean enabled, final int maxAccounts) {
+        this.enabled = enabled;
+        this.perAccountMemo = new LinkedHashMap<Long, AccountBillingEventsMemo>(16, 0.75f, true) {
+
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<Long, AccountBillingEventsMemo> eldest) {
+                return size() > maxAccounts;
+            }
+        };
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return the memo for the account in the context, or null if memoization is disabled. The memo is reset if the catalog changed.
+     */
+    @Nullable
+    public AccountBillingEventsMemo getAccountMemo(final VersionedCatalog catalog, final InternalTenantContext context) {
+        if (!enabled || context.getAccountRecordId() == null) {
+            return null;
+        }
+
+        synchronized (perAccountMemo) {
+            AccountBillingEventsMemo accountMemo = perAccountMemo.get(context.getAccountRecordId());
+            // The catalog is compared by identity: catalogs are cached per tenant and a new instance is built on any change
+            if (accountMemo == null || accountMemo.catalog != catalog) {
+                accountMemo = new AccountBillingEventsMemo(catalog);
+                perAccountMemo.put(context.getAccountRecordId(), accountMemo);
+            }
+            return accountMemo;
+        }
+    }
+
+    public static class AccountBillingEventsMemo {
+
+        private final VersionedCatalog catalog;
+        private final Map<UUID, SubscriptionEntry> perSubscriptionEntries = new ConcurrentHashMap<UUID, SubscriptionEntry>();
+
+        private AccountBillingEventsMemo(final VersionedCatalog catalog) {
+            this.catalog = catalog;
+        }
+
+        /**
+         * @return the memoized billing events (before blocking) for this subscription, or null if absent or stale.
+         * An empty list means the subscription was skipped (no valid CREATE transition).
+         */
+        @Nullable
+        public List<BillingEvent> getBillingEvents(final UUID subscriptionId, final List<Object> fingerprint) {
+            final SubscriptionEntry entry = perSubscriptionEntries.get(subscriptionId);
+            return entry != null && entry.billingEventsFingerprint.equals(fingerprint) ? entry.billingEvents : null;
+        }
+
+        public void putBillingEvents(final UUID subscriptionId, final List<Object> fingerprint, final List<BillingEvent> billingEvents) {
+            perSubscriptionEntries.put(subscriptionId, new SubscriptionEntry(fingerprint, List.copyOf(billingEvents)));
+        }
+
+        @Nullable
+        public BlockingAdjustments getBlockingAdjustments(final UUID subscriptionId, final Collection<BillingEvent> subscriptionBillingEvents, final List<Object> blockingStatesFingerprint) {
+            final SubscriptionEntry entry = perSubscriptionEntries.get(subscriptionId);
+            if (entry == null || entry.blockingAdjustments == null) {
+                return null;
+            }
+            final BlockingAdjustments adjustments = entry.blockingAdjustments;
+            return adjustments.blockingStatesFingerprint.equals(blockingStatesFingerprint) &&
+                   adjustments.billingEvents.equals(new ArrayList<BillingEvent>(subscriptionBillingEvents)) ? adjustments : null;
+        }
+
+        public void putBlockingAdjustments(final UUID subscriptionId,
+                                           final Collection<BillingEvent> subscriptionBillingEvents,
+                                           final List<Object> blockingStatesFingerprint,
+                                           final Collection<BillingEvent> eventsToAdd,
+                                           final Collection<BillingEvent> eventsToRemove) {
+            final SubscriptionEntry entry = perSubscriptionEntries.get(subscriptionId);
+            if (entry == null) {
+                // Billing events weren't memoized (e.g. dryRun), nothing to attach the adjustments to
+                return;
+            }
+            entry.blockingAdjustments = new BlockingAdjustments(List.copyOf(subscriptionBillingEvents), blockingStatesFingerprint, List.copyOf(eventsToAdd), List.copyOf(eventsToRemove));
+        }
+    }
+
+    public static class BlockingAdjustments {
+
+        private final List<BillingEvent> billingEvents;
+        private final List<Object> blockingStatesFingerprint;
+        private final List<BillingEvent> eventsToAdd;
+        private final List<BillingEvent> eventsToRemove;
+
+        private BlockingAdjustments(final List<BillingEvent> billingEvents, final List<Object> blockingStatesFingerprint, final List<BillingEvent> eventsToAdd, final List<BillingEvent> eventsToRemove) {
+            this.billingEvents = billingEvents;
+            this.blockingStatesFingerprint = blockingStatesFingerprint;
+            this.eventsToAdd = eventsToAdd;
+            this.eventsToRemove = eventsToRemove;
+        }
+
+        public List<BillingEvent> getEventsToAdd() {
+            return eventsToAdd;
+        }
+
+        public List<BillingEvent> getEventsToRemove() {
+            return eventsToRemove;
+        }
+    }
+
+    private static class SubscriptionEntry {
+
+        private final List<Object> billingEventsFingerprint;
+        private final List<BillingEvent> billingEvents;
+        private volatile BlockingAdjustments blockingAdjustments;
+
+        private SubscriptionEntry(final List<Object> billingEventsFingerprint, final List<BillingEvent> billingEvents) {
+            this.billingEventsFingerprint = billingEventsFingerprint;
+            this.billingEvents = billingEvents;
+        }
+    }
+
+    //
+    // Fingerprints: plain lists of the inputs, compared with equals
+    //
+
+    public static List<Object> subscriptionFingerprint(final SubscriptionBase subscription,
+                                                       @Nullable final SubscriptionBase baseSubscription,
+                                                       final int currentAccountBCD,
+                                                       final Currency currency) {
+        final List<Object> result = new ArrayList<Object>();
+        result.add(currentAccountBCD);
+        result.add(currency);
+        addTransitions(result, subscription);
+        // BUNDLE aligned subscriptions derive their BCD from the base subscription
+        if (baseSubscription != null && !baseSubscription.getId().equals(subscription.getId())) {
+            result.add(baseSubscription.getId());
+            addTransitions(result, baseSubscription);
+        }
+        return result;
+    }
+
+    private static void addTransitions(final List<Object> result, final SubscriptionBase subscription) {
+        for (final SubscriptionBaseTransition transition : subscription.getAllTransitions(false)) {
+            result.add(transition.getNextEventId());
+            result.add(transition.getTransitionType());
+            result.add(transition.getEffectiveTransitionTime());
+            result.add(transition.getNextPlan() == null ? null : transition.getNextPlan().getName());
+            result.add(transition.getNextPhase() == null ? null : transition.getNextPhase().getName());
+            result.add(transition.getNextBillingCycleDayLocal());
+            result.add(transition.getNextQuantity());
+        }
+    }
+
+    public static List<Object> blockingStatesFingerprint(final Iterable<BlockingState> blockingStates) {
+        final List<Object> result = new ArrayList<Object>();
+        for (final BlockingState blockingState : blockingStates) {
+            result.add(blockingState.getId());
+            result.add(blockingState.getBlockedId());
+            result.add(blockingState.getService());
+            result.add(blockingState.isBlockBilling());
+            result.add(blockingState.getEffectiveDate());
+        }
+        return result;
+    }
+}
@@ -51,6 +51,8 @@ import org.killbill.billing.entitlement.api.BlockingState;
 import org.killbill.billing.entitlement.api.BlockingStateType;
 import org.killbill.billing.junction.BillingEvent;
 import org.killbill.billing.junction.BlockingInternalApi;
+import org.killbill.billing.junction.plumbing.billing.BillingEventsMemo.AccountBillingEventsMemo;
+import org.killbill.billing.junction.plumbing.billing.BillingEventsMemo.BlockingAdjustments;
 import org.killbill.billing.subscription.api.SubscriptionBase;
 import org.killbill.billing.subscription.api.SubscriptionBaseTransitionType;
 import org.killbill.commons.utils.Preconditions;
@@ -85,6 +87,21 @@ public class BlockingCalculator {
                                         final VersionedCatalog catalog,
                                         @Nullable final LocalDate cutoffDt,
                                         final InternalTenantContext context) throws CatalogApiException {
+        return insertBlockingEvents(billingEvents, skippedSubscriptions, subscriptionsForAccount, catalog, cutoffDt, null, context);
+    }
+
+    /**
+     * Same as above, but reuses the blocking adjustments memoized for subscriptions whose billing events and blocking states didn't change.
+     *
+     * @param memo an optional memo for the account
+     */
+    public boolean insertBlockingEvents(final SortedSet<BillingEvent> billingEvents,
+                                        final Set<UUID> skippedSubscriptions,
+                                        final Map<UUID, List<SubscriptionBase>> subscriptionsForAccount,
+                                        final VersionedCatalog catalog,
+                                        @Nullable final LocalDate cutoffDt,
+                                        @Nullable final AccountBillingEventsMemo memo,
+                                        final InternalTenantContext context) throws CatalogApiException {
         if (billingEvents.size() <= 0) {
             return false;
         }
@@ -132,15 +149,27 @@ public class BlockingCalculator {
 
                 final List<BlockingState> subscriptionBlockingEvents = perSubscriptionBlockingEvents.get(subscription.getId()) != null ? perSubscriptionBlockingEvents.get(subscription.getId()) : Collections.emptyList();
                 final List<BlockingState> aggregateSubscriptionBlockingEvents = getAggregateBlockingEventsPerSubscription(subscription.getEndDate(), subscriptionBlockingEvents, bundleBlockingEvents, accountBlockingEvents);
-                final List<DisabledDuration> accountBlockingDurations = createBlockingDurations(aggregateSubscriptionBlockingEvents);
-
                 final SortedSet<BillingEvent> subscriptionBillingEvents = perSubscriptionBillingEvents.getOrDefault(subscription.getId(), Collections.emptySortedSet());
 
+                final List<Object> blockingStatesFingerprint = memo != null ? BillingEventsMemo.blockingStatesFingerprint(aggregateSubscriptionBlockingEvents) : null;
+                final BlockingAdjustments memoizedAdjustments = memo != null ? memo.getBlockingAdjustments(subscription.getId(), subscriptionBillingEvents, blockingStatesFingerprint) : null;
+                if (memoizedAdjustments != null) {
+                    billingEventsToAdd.addAll(memoizedAdjustments.getEventsToAdd());
+                    billingEventsToRemove.addAll(memoizedAdjustments.getEventsToRemove());
+                    continue;
+                }
+
+                final List<DisabledDuration> accountBlockingDurations = createBlockingDurations(aggregateSubscriptionBlockingEvents);
+
                 final SortedSet<BillingEvent> newEvents = createNewEvents(accountBlockingDurations, subscriptionBillingEvents, context);
                 billingEventsToAdd.addAll(newEvents);
 
                 final SortedSet<BillingEvent> removedEvents = eventsToRemove(accountBlockingDurations, subscriptionBillingEvents);
                 billingEventsToRemove.addAll(removedEvents);
+
+                if (memo != null) {
+                    memo.putBlockingAdjustments(subscription.getId(), subscriptionBillingEvents, blockingStatesFingerprint, newEvents, removedEvents);
+                }
             }
         }
 
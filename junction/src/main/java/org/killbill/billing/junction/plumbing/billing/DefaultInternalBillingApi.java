@@ -19,6 +19,7 @@
 package org.killbill.billing.junction.plumbing.billing;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -49,6 +50,7 @@ import org.killbill.billing.invoice.api.DryRunArguments;
 import org.killbill.billing.junction.BillingEvent;
 import org.killbill.billing.junction.BillingEventSet;
 import org.killbill.billing.junction.BillingInternalApi;
+import org.killbill.billing.junction.plumbing.billing.BillingEventsMemo.AccountBillingEventsMemo;
 import org.killbill.billing.subscription.api.SubscriptionBase;
 import org.killbill.billing.subscription.api.SubscriptionBaseInternalApi;
 import org.killbill.billing.subscription.api.SubscriptionBaseTransitionType;
@@ -75,18 +77,21 @@ public class DefaultInternalBillingApi implements BillingInternalApi {
     private final CatalogInternalApi catalogInternalApi;
     private final BlockingCalculator blockCalculator;
     private final TagInternalApi tagApi;
+    private final BillingEventsMemo billingEventsMemo;
 
     @Inject
     public DefaultInternalBillingApi(final AccountInternalApi accountApi,
                                      final SubscriptionBaseInternalApi subscriptionApi,
                                      final BlockingCalculator blockCalculator,
                                      final CatalogInternalApi catalogInternalApi,
-                                     final TagInternalApi tagApi) {
+                                     final TagInternalApi tagApi,
+                                     final BillingEventsMemo billingEventsMemo) {
         this.accountApi = accountApi;
         this.subscriptionApi = subscriptionApi;
         this.catalogInternalApi = catalogInternalApi;
         this.blockCalculator = blockCalculator;
         this.tagApi = tagApi;
+        this.billingEventsMemo = billingEventsMemo;
     }
 
     @Override
@@ -110,9 +115,12 @@ public class DefaultInternalBillingApi implements BillingInternalApi {
         final Map<UUID, List<SubscriptionBase>> subscriptionsForAccount = subscriptionApi.getSubscriptionsForAccount(fullCatalog, cutoffDt, context);
         long subsAfterTs = System.nanoTime();
 
+        // Dry-run computations are never memoized (nor do they use memoized values, since the subscriptions are made up)
+        final AccountBillingEventsMemo memo = dryRunArguments == null ? billingEventsMemo.getAccountMemo(fullCatalog, context) : null;
+
         final ImmutableAccountData account = accountApi.getImmutableAccountDataById(accountId, context);
         result = new DefaultBillingEventSet(found_AUTO_INVOICING_OFF, found_INVOICING_DRAFT, found_INVOICING_REUSE_DRAFT);
-        addBillingEventsForBundles(account, dryRunArguments, context, result, skippedSubscriptions, subscriptionsForAccount, fullCatalog, tagsForAccount);
+        addBillingEventsForBundles(account, dryRunArguments, context, result, skippedSubscriptions, subscriptionsForAccount, fullCatalog, tagsForAccount, memo);
         if (result.isEmpty()) {
             log.info("No billing event for accountId='{}'", accountId);
             return result;
@@ -123,7 +131,7 @@ public class DefaultInternalBillingApi implements BillingInternalApi {
         eventsToString(logStringBuilder, result);
 
         final long bsIniTs = System.nanoTime();
-        final boolean afterBlocking = blockCalculator.insertBlockingEvents(result, skippedSubscriptions, subscriptionsForAccount, fullCatalog, cutoffDt, context);
+        final boolean afterBlocking = blockCalculator.insertBlockingEvents(result, skippedSubscriptions, subscriptionsForAccount, fullCatalog, cutoffDt, memo, context);
         final long bsAfterTs = System.nanoTime();
         if (afterBlocking) {
             logStringBuilder.append("\nBilling Events After Blocking");
@@ -160,7 +168,8 @@ public class DefaultInternalBillingApi implements BillingInternalApi {
                                             final Set<UUID> skipSubscriptionsSet,
                                             final Map<UUID, List<SubscriptionBase>> subscriptionsForAccount,
                                             final VersionedCatalog catalog,
-                                            final List<Tag> tagsForAccount) throws AccountApiException, CatalogApiException, SubscriptionBaseApiException {
+                                            final List<Tag> tagsForAccount,
+                                            @Nullable final AccountBillingEventsMemo memo) throws AccountApiException, CatalogApiException, SubscriptionBaseApiException {
         final int currentAccountBCD = accountApi.getBCD(context);
         addBillingEventsForBundles(account,
                                    dryRunArguments,
@@ -170,7 +179,8 @@ public class DefaultInternalBillingApi implements BillingInternalApi {
                                    subscriptionsForAccount,
                                    catalog,
                                    tagsForAccount,
-                                   currentAccountBCD);
+                                   currentAccountBCD,
+                                   memo);
     }
 
     private void addBillingEventsForBundles(final ImmutableAccountData account,
@@ -181,7 +191,8 @@ public class DefaultInternalBillingApi implements BillingInternalApi {
                                             final Map<UUID, List<SubscriptionBase>> subscriptionsForAccount,
                                             final VersionedCatalog catalog,
                                             final List<Tag> tagsForAccount,
-                                            final int currentAccountBCD) throws AccountApiException, CatalogApiException, SubscriptionBaseApiException {
+                                            final int currentAccountBCD,
+                                            @Nullable final AccountBillingEventsMemo memo) throws AccountApiException, CatalogApiException, SubscriptionBaseApiException {
         // In dryRun mode, when we care about invoice generated for new BASE subscription, no such bundle exists yet; we still
         // want to tap into subscriptionBase logic, so we make up a bundleId
         if (dryRunArguments != null &&
@@ -189,7 +200,7 @@ public class DefaultInternalBillingApi implements BillingInternalApi {
             dryRunArguments.getBundleId() == null) {
             final UUID fakeBundleId = UUIDs.randomUUID();
             final List<SubscriptionBase> subscriptions = subscriptionApi.getSubscriptionsForBundle(fakeBundleId, dryRunArguments, context);
-            addBillingEventsForSubscription(account, subscriptions, null, currentAccountBCD, context, result, skipSubscriptionsSet, catalog);
+            addBillingEventsForSubscription(account, subscriptions, null, currentAccountBCD, context, result, skipSubscriptionsSet, catalog, null);
         }
 
         for (final UUID bundleId : subscriptionsForAccount.keySet()) {
@@ -214,7 +225,7 @@ public class DefaultInternalBillingApi implements BillingInternalApi {
                 }
             } else { // billing is not off
                 final SubscriptionBase baseSubscription = subscriptions != null && !subscriptions.isEmpty() ? subscriptions.get(0) : null;
-                addBillingEventsForSubscription(account, subscriptions, baseSubscription, currentAccountBCD, context, result, skipSubscriptionsSet, catalog);
+                addBillingEventsForSubscription(account, subscriptions, baseSubscription, currentAccountBCD, context, result, skipSubscriptionsSet, catalog, memo);
             }
         }
 
@@ -228,7 +239,7 @@ public class DefaultInternalBillingApi implements BillingInternalApi {
             // Because we now have computed the real BCD, we need to re-compute the BillingEvents BCD for ACCOUNT alignments (see BillCycleDayCalculator#calculateBcdForAlignment).
             // The code could maybe be optimized (no need to re-run the full function?), but since it's run once per account, it's probably not worth it.
             result.clear();
-            addBillingEventsForBundles(account, dryRunArguments, context, result, skipSubscriptionsSet, subscriptionsForAccount, catalog, tagsForAccount, accountBCDCandidate);
+            addBillingEventsForBundles(account, dryRunArguments, context, result, skipSubscriptionsSet, subscriptionsForAccount, catalog, tagsForAccount, accountBCDCandidate, memo);
 
             final boolean dryRunMode = dryRunArguments != null;
             if (!dryRunMode) {
@@ -280,7 +291,8 @@ public class DefaultInternalBillingApi implements BillingInternalApi {
                                                  final InternalCallContext context,
                                                  final DefaultBillingEventSet result,
                                                  final Set<UUID> skipSubscriptionsSet,
-                                                 final VersionedCatalog catalog) throws SubscriptionBaseApiException, CatalogApiException {
+                                                 final VersionedCatalog catalog,
+                                                 @Nullable final AccountBillingEventsMemo memo) throws SubscriptionBaseApiException, CatalogApiException {
         if (subscriptions == null) {
             return;
         }
@@ -288,41 +300,65 @@ public class DefaultInternalBillingApi implements BillingInternalApi {
         final Map<UUID, Integer> bcdCache = new HashMap<>();
 
         for (final SubscriptionBase subscription : subscriptions) {
-            // TODO Can we batch those ?
-            final List<SubscriptionBillingEvent> billingTransitions = subscriptionApi.getSubscriptionBillingEvents(catalog, subscription, context);
-            if (billingTransitions.isEmpty() ||
-                (billingTransitions.get(0).getType() != SubscriptionBaseTransitionType.CREATE &&
-                 billingTransitions.get(0).getType() != SubscriptionBaseTransitionType.TRANSFER)) {
+            final List<Object> fingerprint = memo != null ? BillingEventsMemo.subscriptionFingerprint(subscription, baseSubscription, currentAccountBCD, account.getCurrency()) : null;
+            List<BillingEvent> subscriptionBillingEvents = memo != null ? memo.getBillingEvents(subscription.getId(), fingerprint) : null;
+            if (subscriptionBillingEvents == null) {
+                subscriptionBillingEvents = computeBillingEventsForSubscription(account, subscription, baseSubscription, currentAccountBCD, bcdCache, context, catalog);
+                if (memo != null) {
+                    memo.putBillingEvents(subscription.getId(), fingerprint, subscriptionBillingEvents);
+                }
+            }
+
+            if (subscriptionBillingEvents.isEmpty()) {
                 log.warn("Skipping billing events for subscription " + subscription.getId() + ": Does not start with a valid CREATE transition");
                 skipSubscriptionsSet.add(subscription.getId());
                 return;
             }
+            result.addAll(subscriptionBillingEvents);
+        }
+    }
 
-            Integer overridenBCD = null;
-            int bcdLocal = 0;
-            BillingAlignment alignment = null;
-            for (final SubscriptionBillingEvent transition : billingTransitions) {
-
-                if (transition.getType() != SubscriptionBaseTransitionType.CANCEL && transition.getType() != SubscriptionBaseTransitionType.EXPIRED) { 
-                    final PlanPhaseSpecifier spec = new PlanPhaseSpecifier(transition.getPlan().getName(), transition.getPlanPhase().getPhaseType());
-                    alignment = subscription.getBillingAlignment(spec, transition.getEffectiveDate(), catalog);
-
-                    //
-                    // A BCD_CHANGE transition defines a new billCycleDayLocal for the subscription and this overrides whatever computation
-                    // occurs below (which is based on billing alignment policy). Also multiple of those BCD_CHANGE transitions could occur,
-                    // to define different intervals with different billing cycle days.
-                    //
-                    overridenBCD = transition.getBcdLocal() != null ? transition.getBcdLocal() : overridenBCD;
-                    bcdLocal = overridenBCD != null ?
-                               overridenBCD :
-                               calculateBcdForTransition(alignment, bcdCache, baseSubscription, subscription, currentAccountBCD, context);
+    // Returns an empty list if the subscription doesn't start with a valid CREATE transition
+    private List<BillingEvent> computeBillingEventsForSubscription(final ImmutableAccountData account,
+                                                                   final SubscriptionBase subscription,
+                                                                   final SubscriptionBase baseSubscription,
+                                                                   final int currentAccountBCD,
+                                                                   final Map<UUID, Integer> bcdCache,
+                                                                   final InternalCallContext context,
+                                                                   final VersionedCatalog catalog) throws SubscriptionBaseApiException, CatalogApiException {
+        // TODO Can we batch those ?
+        final List<SubscriptionBillingEvent> billingTransitions = subscriptionApi.getSubscriptionBillingEvents(catalog, subscription, context);
+        if (billingTransitions.isEmpty() ||
+            (billingTransitions.get(0).getType() != SubscriptionBaseTransitionType.CREATE &&
+             billingTransitions.get(0).getType() != SubscriptionBaseTransitionType.TRANSFER)) {
+            return Collections.emptyList();
+        }
 
-                }
+        final List<BillingEvent> result = new ArrayList<>(billingTransitions.size());
+        Integer overridenBCD = null;
+        int bcdLocal = 0;
+        BillingAlignment alignment = null;
+        for (final SubscriptionBillingEvent transition : billingTransitions) {
+
+            if (transition.getType() != SubscriptionBaseTransitionType.CANCEL && transition.getType() != SubscriptionBaseTransitionType.EXPIRED) { 
+                final PlanPhaseSpecifier spec = new PlanPhaseSpecifier(transition.getPlan().getName(), transition.getPlanPhase().getPhaseType());
+                alignment = subscription.getBillingAlignment(spec, transition.getEffectiveDate(), catalog);
+
+                //
+                // A BCD_CHANGE transition defines a new billCycleDayLocal for the subscription and this overrides whatever computation
+                // occurs below (which is based on billing alignment policy). Also multiple of those BCD_CHANGE transitions could occur,
+                // to define different intervals with different billing cycle days.
+                //
+                overridenBCD = transition.getBcdLocal() != null ? transition.getBcdLocal() : overridenBCD;
+                bcdLocal = overridenBCD != null ?
+                           overridenBCD :
+                           calculateBcdForTransition(alignment, bcdCache, baseSubscription, subscription, currentAccountBCD, context);
 
-                final BillingEvent event = new DefaultBillingEvent(transition, subscription, bcdLocal, alignment, account.getCurrency());
-                result.add(event);
             }
+
+            result.add(new DefaultBillingEvent(transition, subscription, bcdLocal, alignment, account.getCurrency()));
         }
+        return result;
     }
 
     private int calculateBcdForTransition(final BillingAlignment realBillingAlignment, final Map<UUID, Integer> bcdCache, final SubscriptionBase baseSubscription, final SubscriptionBase subscription, final int accountBillCycleDayLocal, final InternalTenantContext internalTenantContext) {
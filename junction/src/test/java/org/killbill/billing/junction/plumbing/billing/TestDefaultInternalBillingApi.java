@@ -18,18 +18,24 @@
 
 package org.killbill.billing.junction.plumbing.billing;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.UUID;
 
+import javax.inject.Inject;
+
 import org.joda.time.DateTime;
 import org.joda.time.LocalDate;
 import org.joda.time.Period;
 import org.joda.time.ReadablePeriod;
 import org.joda.time.Seconds;
 import org.killbill.billing.account.api.Account;
+import org.killbill.billing.account.api.AccountInternalApi;
 import org.killbill.billing.api.TestApiListener.NextEvent;
 import org.killbill.billing.catalog.api.BillingPeriod;
+import org.killbill.billing.catalog.api.CatalogInternalApi;
 import org.killbill.billing.catalog.api.PlanPhaseSpecifier;
 import org.killbill.billing.catalog.api.PriceListSet;
 import org.killbill.billing.entitlement.api.BaseEntitlementWithAddOnsSpecifier;
@@ -45,11 +51,21 @@ import org.killbill.billing.junction.JunctionTestSuiteWithEmbeddedDB;
 import org.killbill.billing.platform.api.KillbillService.KILLBILL_SERVICES;
 import org.killbill.billing.subscription.api.SubscriptionBase;
 import org.killbill.billing.subscription.api.SubscriptionBaseTransitionType;
+import org.killbill.billing.tag.TagInternalApi;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
 public class TestDefaultInternalBillingApi extends JunctionTestSuiteWithEmbeddedDB {
 
+    @Inject
+    protected AccountInternalApi accountInternalApi;
+    @Inject
+    protected BlockingCalculator blockingCalculator;
+    @Inject
+    protected CatalogInternalApi catalogInternalApi;
+    @Inject
+    protected TagInternalApi tagInternalApi;
+
     @Test(groups = "slow")
     public void testRecurringInArrear() throws Exception {
         final LocalDate initialDate = new LocalDate(2013, 8, 7);
@@ -489,4 +505,101 @@ public class TestDefaultInternalBillingApi extends JunctionTestSuiteWithEmbedded
             Assert.assertEquals(events.get(1).getEffectiveDate(), block1Date);
         }
     }
+
+    @Test(groups = "slow", description = "Verify memoized billing events match the full recomputation")
+    public void testMemoizedBillingEvents() throws Exception {
+        final LocalDate initialDate = new LocalDate(2013, 8, 7);
+        clock.setDay(initialDate);
+
+        final Account account = createAccount(getAccountData(7));
+
+        testListener.pushExpectedEvents(NextEvent.CREATE, NextEvent.BLOCK, NextEvent.CREATE, NextEvent.BLOCK);
+        final UUID entitlementId1 = entitlementApi.createBaseEntitlement(account.getId(), new DefaultEntitlementSpecifier(new PlanPhaseSpecifier("Shotgun", BillingPeriod.MONTHLY, PriceListSet.DEFAULT_PRICELIST_NAME, null)), UUID.randomUUID().toString(), null, null, false, true, Collections.emptyList(), callContext);
+        final UUID entitlementId2 = entitlementApi.createBaseEntitlement(account.getId(), new DefaultEntitlementSpecifier(new PlanPhaseSpecifier("Pistol", BillingPeriod.MONTHLY, PriceListSet.DEFAULT_PRICELIST_NAME, null)), UUID.randomUUID().toString(), null, null, false, true, Collections.emptyList(), callContext);
+        assertListenerStatus();
+
+        final DefaultInternalBillingApi memoizedBillingApi = new DefaultInternalBillingApi(accountInternalApi, subscriptionInternalApi, blockingCalculator, catalogInternalApi, tagInternalApi, new BillingEventsMemo(true, 10));
+
+        final List<BillingEvent> initialEvents = checkMemoizedBillingEvents(memoizedBillingApi, account);
+        Assert.assertEquals(initialEvents.size(), 4);
+
+        // Nothing changed: the memoized instances are returned
+        final List<BillingEvent> sameEvents = checkMemoizedBillingEvents(memoizedBillingApi, account);
+        for (int i = 0; i < initialEvents.size(); i++) {
+            Assert.assertSame(sameEvents.get(i), initialEvents.get(i));
+        }
+
+        // Block billing for the first bundle only
+        final Entitlement entitlement1 = entitlementApi.getEntitlementForId(entitlementId1, false, callContext);
+        clock.addDays(5);
+        testListener.pushExpectedEvents(NextEvent.BLOCK);
+        blockingInternalApi.setBlockingState(new DefaultBlockingState(entitlement1.getBundleId(),
+                                                                      BlockingStateType.SUBSCRIPTION_BUNDLE,
+                                                                      DefaultEntitlementApi.ENT_STATE_BLOCKED,
+                                                                      KILLBILL_SERVICES.ENTITLEMENT_SERVICE.getServiceName(),
+                                                                      true,
+                                                                      true,
+                                                                      true,
+                                                                      clock.getUTCNow()),
+                                             internalCallContext);
+        assertListenerStatus();
+
+        final List<BillingEvent> eventsAfterBlocking = checkMemoizedBillingEvents(memoizedBillingApi, account);
+        Assert.assertTrue(eventsAfterBlocking.stream().anyMatch(event -> event.getTransitionType() == SubscriptionBaseTransitionType.START_BILLING_DISABLED));
+        // The second subscription wasn't recomputed
+        for (final BillingEvent event : eventsAfterBlocking) {
+            if (event.getSubscriptionId().equals(entitlementId2)) {
+                Assert.assertTrue(initialEvents.stream().anyMatch(initialEvent -> initialEvent == event));
+            }
+        }
+
+        clock.addDays(3);
+        testListener.pushExpectedEvents(NextEvent.BLOCK);
+        blockingInternalApi.setBlockingState(new DefaultBlockingState(entitlement1.getBundleId(),
+                                                                      BlockingStateType.SUBSCRIPTION_BUNDLE,
+                                                                      DefaultEntitlementApi.ENT_STATE_CLEAR,
+                                                                      KILLBILL_SERVICES.ENTITLEMENT_SERVICE.getServiceName(),
+                                                                      false,
+                                                                      false,
+                                                                      false,
+                                                                      clock.getUTCNow()),
+                                             internalCallContext);
+        assertListenerStatus();
+        Assert.assertTrue(checkMemoizedBillingEvents(memoizedBillingApi, account).stream().anyMatch(event -> event.getTransitionType() == SubscriptionBaseTransitionType.END_BILLING_DISABLED));
+
+        // Change the plan of the second subscription
+        final SubscriptionBase subscription2 = subscriptionInternalApi.getSubscriptionFromId(entitlementId2, false, internalCallContext);
+        testListener.pushExpectedEvents(NextEvent.CHANGE);
+        subscription2.changePlan(new DefaultEntitlementSpecifier(new PlanPhaseSpecifier("Shotgun", BillingPeriod.MONTHLY, PriceListSet.DEFAULT_PRICELIST_NAME, null)), callContext);
+        assertListenerStatus();
+        Assert.assertTrue(checkMemoizedBillingEvents(memoizedBillingApi, account).stream().anyMatch(event -> event.getSubscriptionId().equals(entitlementId2) &&
+                                                                                                             event.getTransitionType() == SubscriptionBaseTransitionType.CHANGE));
+    }
+
+    private List<BillingEvent> checkMemoizedBillingEvents(final DefaultInternalBillingApi memoizedBillingApi, final Account account) throws Exception {
+        final List<BillingEvent> memoizedEvents = List.copyOf(memoizedBillingApi.getBillingEventsForAccountAndUpdateAccountBCD(account.getId(), null, null, internalCallContext));
+        final List<BillingEvent> expectedEvents = List.copyOf(billingInternalApi.getBillingEventsForAccountAndUpdateAccountBCD(account.getId(), null, null, internalCallContext));
+        Assert.assertEquals(toComparableEvents(memoizedEvents), toComparableEvents(expectedEvents));
+        return memoizedEvents;
+    }
+
+    // The total ordering of the blocking events is generated on the fly, so it is ignored
+    private static List<String> toComparableEvents(final Collection<BillingEvent> events) {
+        final List<String> result = new ArrayList<String>();
+        for (final BillingEvent event : events) {
+            result.add(String.format("%s|%s|%s|%s|%s|%s|%s|%s|%s|%s|%s",
+                                     event.getSubscriptionId(),
+                                     event.getEffectiveDate(),
+                                     event.getTransitionType(),
+                                     event.getPlan().getName(),
+                                     event.getPlanPhase().getName(),
+                                     event.getBillingPeriod(),
+                                     event.getBillCycleDayLocal(),
+                                     event.getFixedPrice(),
+                                     event.getRecurringPrice(),
+                                     event.getQuantity(),
+                                     event.getCurrency()));
+        }
+        return result;
+    }
 }
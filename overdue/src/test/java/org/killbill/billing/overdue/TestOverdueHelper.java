@@ -37,6 +37,7 @@ import org.killbill.billing.invoice.api.Invoice;
 import org.killbill.billing.invoice.api.InvoiceInternalApi;
 import org.killbill.billing.invoice.api.InvoiceItem;
 import org.killbill.billing.invoice.api.InvoiceStatus;
+import org.killbill.billing.invoice.api.UnpaidInvoicesSummary;
 import org.killbill.billing.junction.BlockingInternalApi;
 import org.killbill.billing.overdue.api.OverdueState;
 import org.killbill.billing.overdue.glue.TestOverdueModule.ApplicatorBlockingApi;
@@ -145,6 +146,8 @@ public class TestOverdueHelper {
         final List<Invoice> invoices = new ArrayList<Invoice>();
         invoices.add(invoice);
         Mockito.when(invoiceInternalApi.getUnpaidInvoicesByAccountId(Mockito.<UUID>any(), Mockito.<LocalDate>any(), Mockito.<InternalTenantContext>any())).thenReturn(invoices);
+        final UnpaidInvoicesSummary unpaidInvoicesSummary = new UnpaidInvoicesSummary(invoices.size(), invoice.getBalance(), invoice.getId(), invoice.getInvoiceDate());
+        Mockito.when(invoiceInternalApi.getUnpaidInvoicesSummaryByAccountId(Mockito.<UUID>any(), Mockito.<LocalDate>any(), Mockito.<InternalTenantContext>any())).thenReturn(unpaidInvoicesSummary);
 
         final Tag tag = Mockito.mock(Tag.class);
         Mockito.when(tag.getObjectId()).thenReturn(accountId);
@@ -132,8 +132,10 @@ public class DefaultPaymentGatewayApi extends DefaultApiBase implements PaymentG
         }
 
         final List<String> controlPluginNames = paymentOptions.getPaymentControlPluginNames();
+        // The payment plugin is only known once the control plugins have run: the shared plugin executor is used
         return dispatchWithExceptionHandling(account,
                                              JOINER.join(controlPluginNames),
+                                             null,
                                              new Callable<PluginDispatcherReturnType<T>>() {
                                                  @Override
                                                  public PluginDispatcherReturnType<T> call() throws Exception {
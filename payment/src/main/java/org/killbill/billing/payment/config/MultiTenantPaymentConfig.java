@@ -166,6 +166,21 @@ public class MultiTenantPaymentConfig extends MultiTenantLockAwareConfigBase imp
         return staticConfig.getPaymentPluginThreadNb();
     }
 
+    @Override
+    public PluginDispatchMode getPaymentPluginDispatchMode() {
+        return staticConfig.getPaymentPluginDispatchMode();
+    }
+
+    @Override
+    public int getPaymentPluginBulkheadThreadNb() {
+        return staticConfig.getPaymentPluginBulkheadThreadNb();
+    }
+
+    @Override
+    public int getPaymentPluginBulkheadQueueSize() {
+        return staticConfig.getPaymentPluginBulkheadQueueSize();
+    }
+
     @Override
     public int getMaxGlobalLockRetries() {
         return staticConfig.getMaxGlobalLockRetries();
@@ -17,18 +17,33 @@
 
 package org.killbill.billing.payment.core;
 
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+import javax.annotation.Nullable;
 import javax.inject.Inject;
 
 import org.killbill.billing.util.config.definition.PaymentConfig;
+import org.killbill.billing.util.config.definition.PaymentConfig.PluginDispatchMode;
 import org.killbill.commons.concurrent.Executors;
 import org.killbill.commons.concurrent.WithProfilingThreadPoolExecutor;
+import org.killbill.commons.metrics.api.MetricRegistry;
 
 public class PaymentExecutors {
 
@@ -39,18 +54,28 @@ public class PaymentExecutors {
     private static final String PLUGIN_THREAD_PREFIX = "Plugin-th-";
     private static final String PAYMENT_PLUGIN_TH_GROUP_NAME = "pay-plugin-grp";
 
+    private static final String UNKNOWN_PLUGIN_NAME = "unknown";
+    private static final String METRIC_PREFIX = "killbill.payment.plugin.";
+
     public static final String JANITOR_EXECUTOR_NAMED = "JanitorExecutor";
     public static final String PLUGIN_EXECUTOR_NAMED = "PluginExecutor";
 
     private final PaymentConfig paymentConfig;
+    private final MetricRegistry metricRegistry;
+
+    // BULKHEAD mode only: one executor per plugin name
+    private final ConcurrentMap<String, ThreadPoolExecutor> bulkheadExecutorServices = new ConcurrentHashMap<String, ThreadPoolExecutor>();
+    private final ConcurrentMap<String, PluginExecutorStatistics> pluginStatistics = new ConcurrentHashMap<String, PluginExecutorStatistics>();
+    // Tasks submitted which haven't started yet, so that the ones dropped on shutdown are accounted for
+    private final Set<PluginTask<?>> pendingTasks = ConcurrentHashMap.newKeySet();
 
     private volatile ThreadPoolExecutor pluginExecutorService;
     private volatile ScheduledExecutorService janitorExecutorService;
 
     @Inject
-    public PaymentExecutors(PaymentConfig paymentConfig) {
+    public PaymentExecutors(final PaymentConfig paymentConfig, final MetricRegistry metricRegistry) {
         this.paymentConfig = paymentConfig;
-
+        this.metricRegistry = metricRegistry;
     }
 
     public void initialize() {
@@ -63,10 +88,22 @@ public class PaymentExecutors {
     public void stop() throws InterruptedException {
         pluginExecutorService.shutdownNow();
         janitorExecutorService.shutdownNow();
+        for (final ThreadPoolExecutor bulkheadExecutorService : bulkheadExecutorServices.values()) {
+            bulkheadExecutorService.shutdownNow();
+        }
+        // shutdownNow drops the queued tasks, they will never run
+        for (final PluginTask<?> pendingTask : pendingTasks) {
+            pendingTask.drop();
+        }
 
         pluginExecutorService.awaitTermination(TIMEOUT_EXECUTOR_SEC, TimeUnit.SECONDS);
         pluginExecutorService = null;
 
+        for (final ThreadPoolExecutor bulkheadExecutorService : bulkheadExecutorServices.values()) {
+            bulkheadExecutorService.awaitTermination(TIMEOUT_EXECUTOR_SEC, TimeUnit.SECONDS);
+        }
+        bulkheadExecutorServices.clear();
+
         janitorExecutorService.awaitTermination(TIMEOUT_EXECUTOR_SEC, TimeUnit.SECONDS);
         janitorExecutorService = null;
     }
@@ -75,30 +112,158 @@ public class PaymentExecutors {
         return pluginExecutorService;
     }
 
+    /**
+     * Submit a plugin call, either to the shared plugin executor or to the payment plugin own executor (BULKHEAD mode).
+     *
+     * @param paymentPluginName name of the payment plugin the task ends up calling, null if unknown (the shared plugin executor is used then)
+     * @throws RejectedExecutionException if the plugin executor is full (BULKHEAD mode)
+     */
+    public <T> Future<T> submitPluginTask(@Nullable final String paymentPluginName, final Callable<T> task) {
+        final PluginExecutorStatistics statistics = getPluginStatistics(paymentPluginName == null ? UNKNOWN_PLUGIN_NAME : paymentPluginName);
+        final ExecutorService executorService = paymentConfig.getPaymentPluginDispatchMode() == PluginDispatchMode.BULKHEAD && paymentPluginName != null ?
+                                                bulkheadExecutorServices.computeIfAbsent(paymentPluginName, this::createBulkheadExecutorService) :
+                                                pluginExecutorService;
+
+        final PluginTask<T> pluginTask = new PluginTask<T>(task, statistics);
+        statistics.recordQueued();
+        pendingTasks.add(pluginTask);
+        try {
+            return new PluginFuture<T>(executorService.submit(pluginTask), pluginTask);
+        } catch (final RejectedExecutionException e) {
+            if (pluginTask.claim()) {
+                statistics.recordRejected();
+            }
+            throw e;
+        }
+    }
+
+    public PluginExecutorStatistics getPluginStatistics(final String pluginName) {
+        return pluginStatistics.computeIfAbsent(pluginName, name -> {
+            final PluginExecutorStatistics statistics = new PluginExecutorStatistics(name);
+            metricRegistry.gauge(METRIC_PREFIX + name + ".active", statistics::getActive);
+            metricRegistry.gauge(METRIC_PREFIX + name + ".queued", statistics::getQueued);
+            metricRegistry.gauge(METRIC_PREFIX + name + ".rejected", statistics::getRejected);
+            return statistics;
+        });
+    }
+
     public ScheduledExecutorService getJanitorExecutorService() {
         return janitorExecutorService;
     }
 
     private ThreadPoolExecutor createPluginExecutorService() {
         final int minThreadNb = DEFAULT_MIN_PLUGIN_THREADS < paymentConfig.getPaymentPluginThreadNb() ? DEFAULT_MIN_PLUGIN_THREADS : paymentConfig.getPaymentPluginThreadNb();
+        return createPluginExecutorService(minThreadNb, paymentConfig.getPaymentPluginThreadNb(), new LinkedBlockingQueue<Runnable>(), PLUGIN_THREAD_PREFIX);
+    }
+
+    // Core size == max size, as the pool only grows past its core size once the (bounded) queue is full, at which point we want to reject
+    private ThreadPoolExecutor createBulkheadExecutorService(final String pluginName) {
+        final int threadNb = Math.max(1, paymentConfig.getPaymentPluginBulkheadThreadNb());
+        final ThreadPoolExecutor executor = createPluginExecutorService(threadNb,
+                                                                        threadNb,
+                                                                        new ArrayBlockingQueue<Runnable>(Math.max(1, paymentConfig.getPaymentPluginBulkheadQueueSize())),
+                                                                        PLUGIN_THREAD_PREFIX + pluginName + "-");
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    private ThreadPoolExecutor createPluginExecutorService(final int minThreadNb, final int maxThreadNb, final BlockingQueue<Runnable> queue, final String threadPrefix) {
         return new WithProfilingThreadPoolExecutor(minThreadNb,
-                                                   paymentConfig.getPaymentPluginThreadNb(),
+                                                   maxThreadNb,
                                                    10,
                                                    TimeUnit.MINUTES,
-                                                   new LinkedBlockingQueue<Runnable>(),
+                                                   queue,
                                                    new ThreadFactory() {
 
                                                        @Override
                                                        public Thread newThread(final Runnable r) {
                                                            final Thread th = new Thread(new ThreadGroup(PAYMENT_PLUGIN_TH_GROUP_NAME), r);
-                                                           th.setName(PLUGIN_THREAD_PREFIX + th.getId());
+                                                           th.setName(threadPrefix + th.getId());
                                                            return th;
                                                        }
                                                    });
-
     }
 
     private ScheduledExecutorService createJanitorExecutorService() {
         return Executors.newSingleThreadScheduledExecutor("PaymentJanitor");
     }
+
+    // The queued counter is decremented exactly once per task: when it starts, or when it is rejected, cancelled or dropped before
+    private final class PluginTask<T> implements Callable<T> {
+
+        private final Callable<T> task;
+        private final PluginExecutorStatistics statistics;
+        private final AtomicBoolean isClaimed = new AtomicBoolean(false);
+
+        private PluginTask(final Callable<T> task, final PluginExecutorStatistics statistics) {
+            this.task = task;
+            this.statistics = statistics;
+        }
+
+        @Override
+        public T call() throws Exception {
+            if (!claim()) {
+                throw new CancellationException("Plugin task was cancelled");
+            }
+
+            statistics.recordStarted();
+            try {
+                return task.call();
+            } finally {
+                statistics.recordCompleted();
+            }
+        }
+
+        private void drop() {
+            if (claim()) {
+                statistics.recordDropped();
+            }
+        }
+
+        private boolean claim() {
+            pendingTasks.remove(this);
+            return isClaimed.compareAndSet(false, true);
+        }
+    }
+
+    private static final class PluginFuture<T> implements Future<T> {
+
+        private final Future<T> delegate;
+        private final PluginTask<T> pluginTask;
+
+        private PluginFuture(final Future<T> delegate, final PluginTask<T> pluginTask) {
+            this.delegate = delegate;
+            this.pluginTask = pluginTask;
+        }
+
+        @Override
+        public boolean cancel(final boolean mayInterruptIfRunning) {
+            final boolean cancelled = delegate.cancel(mayInterruptIfRunning);
+            if (cancelled) {
+                // No-op if the task has already started
+                pluginTask.drop();
+            }
+            return cancelled;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return delegate.isCancelled();
+        }
+
+        @Override
+        public boolean isDone() {
+            return delegate.isDone();
+        }
+
+        @Override
+        public T get() throws InterruptedException, ExecutionException {
+            return delegate.get();
+        }
+
+        @Override
+        public T get(final long timeout, final TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+            return delegate.get(timeout, unit);
+        }
+    }
 }
@@ -193,8 +193,10 @@ public class PaymentMethodProcessor extends ProcessorBase {
                                                   final PluginDispatcher<T> pluginDispatcher,
                                                   final WithPaymentMethodControlCallback<T> callback) throws PaymentApiException {
 
+        // The payment plugin call is dispatched (to its own executor, in BULKHEAD mode) from within this task
         return dispatchWithExceptionHandling(account,
                                              JOINER.join(paymentControlPluginNames),
+                                             null,
                                              new Callable<PluginDispatcherReturnType<T>>() {
                                                  @Override
                                                  public PluginDispatcherReturnType<T> call() throws Exception {
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2020-2026 Equinix, Inc
+ * Copyright 2014-2026 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.payment.core;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// Counters maintained by PaymentExecutors, one instance per plugin name
+public class PluginExecutorStatistics {
+
+    private final String pluginName;
+
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final LongAdder rejected = new LongAdder();
+
+    public PluginExecutorStatistics(final String pluginName) {
+        this.pluginName = pluginName;
+    }
+
+    public String getPluginName() {
+        return pluginName;
+    }
+
+    void recordQueued() {
+        queued.incrementAndGet();
+    }
+
+    void recordRejected() {
+        queued.decrementAndGet();
+        rejected.increment();
+    }
+
+    // Cancelled, or dropped on shutdown, before it got a chance to run
+    void recordDropped() {
+        queued.decrementAndGet();
+    }
+
+    void recordStarted() {
+        queued.decrementAndGet();
+        active.incrementAndGet();
+    }
+
+    void recordCompleted() {
+        active.decrementAndGet();
+    }
+
+    // Number of calls currently running in the plugin
+    public int getActive() {
+        return active.get();
+    }
+
+    // Number of calls waiting for a thread
+    public int getQueued() {
+        return queued.get();
+    }
+
+    // Number of calls rejected because the plugin executor was full (BULKHEAD mode only)
+    public long getRejected() {
+        return rejected.sum();
+    }
+}
@@ -69,7 +69,8 @@ public class CompletionControlOperation extends OperationControlCallback {
         final List<String> controlPluginNameList = paymentStateControlContext.getPaymentControlPluginNames();
         final String controlPluginNames = JOINER.join(controlPluginNameList);
 
-        return dispatchWithAccountLockAndTimeout(controlPluginNames, new DispatcherCallback<PluginDispatcherReturnType<OperationResult>, OperationException>() {
+        // The payment plugin call is dispatched (to its own executor, in BULKHEAD mode) from within this task
+        return dispatchWithAccountLockAndTimeout(controlPluginNames, null, new DispatcherCallback<PluginDispatcherReturnType<OperationResult>, OperationException>() {
 
             @Override
             public PluginDispatcherReturnType<OperationResult> doOperation() throws OperationException {
@@ -82,7 +82,8 @@ public abstract class OperationControlCallback extends OperationCallbackBase<Pay
         final List<String> pluginNameList = paymentStateControlContext.getPaymentControlPluginNames();
         final String pluginNames = JOINER.join(pluginNameList);
 
-        return dispatchWithAccountLockAndTimeout(pluginNames, new DispatcherCallback<PluginDispatcherReturnType<OperationResult>, OperationException>() {
+        // The payment plugin call is dispatched (to its own executor, in BULKHEAD mode) from within this task
+        return dispatchWithAccountLockAndTimeout(pluginNames, null, new DispatcherCallback<PluginDispatcherReturnType<OperationResult>, OperationException>() {
 
             @Override
             public PluginDispatcherReturnType<OperationResult> doOperation() throws OperationException {
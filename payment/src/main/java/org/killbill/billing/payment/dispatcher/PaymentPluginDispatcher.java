@@ -21,6 +21,7 @@ import java.util.Objects;
 import java.util.UUID;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeoutException;
 
 import javax.annotation.Nullable;
@@ -37,19 +38,35 @@ public class PaymentPluginDispatcher {
 
     private static final Logger log = LoggerFactory.getLogger(PaymentPluginDispatcher.class);
 
-    public static <ReturnType> ReturnType dispatchWithExceptionHandling(@Nullable final Account account, final String pluginNames, final Callable<PluginDispatcherReturnType<ReturnType>> callable, final PluginDispatcher<ReturnType> pluginDispatcher) throws PaymentApiException {
+    // Dispatch a call to a single payment plugin
+    public static <ReturnType> ReturnType dispatchWithExceptionHandling(@Nullable final Account account, final String paymentPluginName, final Callable<PluginDispatcherReturnType<ReturnType>> callable, final PluginDispatcher<ReturnType> pluginDispatcher) throws PaymentApiException {
+        return dispatchWithExceptionHandling(account, paymentPluginName, paymentPluginName, callable, pluginDispatcher);
+    }
+
+    // pluginNames is only used for logging (e.g. control plugins), paymentPluginName selects the plugin executor (BULKHEAD mode).
+    // Tasks which dispatch the payment plugin call themselves (control plugins) must pass null: waiting on a nested task queued
+    // on the same bounded executor would exhaust it as soon as threads.nb of them run at once
+    public static <ReturnType> ReturnType dispatchWithExceptionHandling(@Nullable final Account account,
+                                                                        final String pluginNames,
+                                                                        @Nullable final String paymentPluginName,
+                                                                        final Callable<PluginDispatcherReturnType<ReturnType>> callable,
+                                                                        final PluginDispatcher<ReturnType> pluginDispatcher) throws PaymentApiException {
         final UUID accountId = account != null ? account.getId() : null;
         final String accountExternalKey = account != null ? account.getExternalKey() : "";
 
         try {
             log.debug("Calling plugin(s) {}", pluginNames);
-            final ReturnType result = pluginDispatcher.dispatchWithTimeout(callable);
+            final ReturnType result = pluginDispatcher.dispatchWithTimeout(callable, paymentPluginName);
             log.debug("Successful plugin(s) call of {} for account {} with result {}", pluginNames, accountExternalKey, result);
             return result;
         } catch (final TimeoutException e) {
             final String errorMessage = String.format("Call TIMEOUT for accountId='%s' accountExternalKey='%s' plugin='%s'", accountId, accountExternalKey, pluginNames);
             log.warn(errorMessage);
             throw new PaymentApiException(ErrorCode.PAYMENT_PLUGIN_TIMEOUT, accountId, errorMessage);
+        } catch (final RejectedExecutionException e) {
+            final String errorMessage = String.format("Call REJECTED for accountId='%s' accountExternalKey='%s' plugin='%s': plugin executor is full", accountId, accountExternalKey, pluginNames);
+            log.warn(errorMessage);
+            throw new PaymentApiException(ErrorCode.PAYMENT_INTERNAL_ERROR, errorMessage);
         } catch (final InterruptedException e) {
             Thread.currentThread().interrupt();
             final String errorMessage = String.format("Call was interrupted for accountId='%s' accountExternalKey='%s' plugin='%s'", accountId, accountExternalKey, pluginNames);
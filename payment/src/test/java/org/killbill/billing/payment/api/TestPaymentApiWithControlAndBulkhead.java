@@ -0,0 +1,154 @@
+/*
+ * Copyright 2020-2026 Equinix, Inc
+ * Copyright 2014-2026 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.payment.api;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.killbill.billing.account.api.Account;
+import org.killbill.billing.catalog.api.Currency;
+import org.killbill.billing.osgi.api.OSGIServiceDescriptor;
+import org.killbill.billing.payment.PaymentTestSuiteWithEmbeddedDB;
+import org.killbill.billing.payment.provider.MockPaymentControlProviderPlugin;
+import org.killbill.billing.payment.provider.MockPaymentProviderPlugin;
+import org.killbill.billing.platform.api.KillbillConfigSource;
+import org.killbill.commons.concurrent.Executors;
+import org.testng.Assert;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class TestPaymentApiWithControlAndBulkhead extends PaymentTestSuiteWithEmbeddedDB {
+
+    private static final int BULKHEAD_THREAD_NB = 2;
+
+    private static final PaymentOptions PAYMENT_OPTIONS = new PaymentOptions() {
+        @Override
+        public boolean isExternalPayment() {
+            return false;
+        }
+
+        @Override
+        public List<String> getPaymentControlPluginNames() {
+            return List.of(MockPaymentControlProviderPlugin.PLUGIN_NAME);
+        }
+    };
+
+    private MockPaymentProviderPlugin mockPaymentProviderPlugin;
+
+    @Override
+    protected KillbillConfigSource getConfigSource(final Map<String, String> extraProperties) {
+        final Map<String, String> allExtraProperties = new HashMap<String, String>(extraProperties);
+        allExtraProperties.put("org.killbill.payment.provider.default", MockPaymentProviderPlugin.PLUGIN_NAME);
+        allExtraProperties.put("killbill.payment.engine.events.off", "false");
+        allExtraProperties.put("org.killbill.payment.plugin.timeout", "2s");
+        allExtraProperties.put("org.killbill.payment.plugin.dispatch.mode", "BULKHEAD");
+        allExtraProperties.put("org.killbill.payment.plugin.bulkhead.threads.nb", String.valueOf(BULKHEAD_THREAD_NB));
+        allExtraProperties.put("org.killbill.payment.plugin.bulkhead.queue.size", "20");
+        return getConfigSource(null, allExtraProperties);
+    }
+
+    @BeforeClass(groups = "slow")
+    protected void beforeClass() throws Exception {
+        if (hasFailed()) {
+            return;
+        }
+
+        super.beforeClass();
+        mockPaymentProviderPlugin = (MockPaymentProviderPlugin) registry.getServiceForName(MockPaymentProviderPlugin.PLUGIN_NAME);
+    }
+
+    @BeforeMethod(groups = "slow")
+    public void beforeMethod() throws Exception {
+        if (hasFailed()) {
+            return;
+        }
+
+        super.beforeMethod();
+        mockPaymentProviderPlugin.clear();
+
+        controlPluginRegistry.registerService(new OSGIServiceDescriptor() {
+                                                  @Override
+                                                  public String getPluginSymbolicName() {
+                                                      return null;
+                                                  }
+
+                                                  @Override
+                                                  public String getPluginName() {
+                                                      return MockPaymentControlProviderPlugin.PLUGIN_NAME;
+                                                  }
+
+                                                  @Override
+                                                  public String getRegistrationName() {
+                                                      return MockPaymentControlProviderPlugin.PLUGIN_NAME;
+                                                  }
+                                              },
+                                              new MockPaymentControlProviderPlugin());
+    }
+
+    // Control plugin tasks must not hold the payment plugin bulkhead threads while waiting for the payment plugin call
+    @Test(groups = "slow")
+    public void testConcurrentControlledPaymentsAboveBulkheadSize() throws Exception {
+        final int nbPayments = 3 * BULKHEAD_THREAD_NB;
+        final List<Account> accounts = new ArrayList<Account>();
+        for (int i = 0; i < nbPayments; i++) {
+            // One account per payment, so that the payments don't serialize on the account lock
+            accounts.add(testHelper.createTestAccount(UUID.randomUUID().toString().substring(0, 8) + "@gmail.com", true));
+        }
+        // Make sure all payments are in flight at the same time
+        mockPaymentProviderPlugin.makePluginWaitSomeMilliseconds(200);
+
+        final ExecutorService executor = Executors.newFixedThreadPool(nbPayments, TestPaymentApiWithControlAndBulkhead.class.getName());
+        try {
+            final List<Callable<Payment>> tasks = new ArrayList<Callable<Payment>>();
+            for (final Account account : accounts) {
+                tasks.add(() -> paymentApi.createPurchaseWithPaymentControl(account,
+                                                                            account.getPaymentMethodId(),
+                                                                            null,
+                                                                            BigDecimal.TEN,
+                                                                            Currency.USD,
+                                                                            null,
+                                                                            UUID.randomUUID().toString(),
+                                                                            UUID.randomUUID().toString(),
+                                                                            Collections.emptyList(),
+                                                                            PAYMENT_OPTIONS,
+                                                                            callContext));
+            }
+
+            for (final Future<Payment> future : executor.invokeAll(tasks, 30, TimeUnit.SECONDS)) {
+                final Payment payment = future.get();
+                Assert.assertEquals(payment.getTransactions().size(), 1);
+                Assert.assertEquals(payment.getTransactions().get(0).getTransactionStatus(), TransactionStatus.SUCCESS);
+                Assert.assertEquals(payment.getPurchasedAmount().compareTo(BigDecimal.TEN), 0);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Assert.assertEquals(paymentExecutors.getPluginStatistics(MockPaymentProviderPlugin.PLUGIN_NAME).getRejected(), 0);
+    }
+}
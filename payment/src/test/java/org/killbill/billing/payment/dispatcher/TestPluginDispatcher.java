@@ -19,17 +19,26 @@
 package org.killbill.billing.payment.dispatcher;
 
 import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
+import org.awaitility.Awaitility;
 import org.killbill.billing.ErrorCode;
 import org.killbill.billing.payment.PaymentTestSuiteNoDB;
 import org.killbill.billing.payment.api.PaymentApiException;
+import org.killbill.billing.payment.core.PaymentExecutors;
+import org.killbill.billing.payment.core.PluginExecutorStatistics;
 import org.killbill.billing.payment.dispatcher.PluginDispatcher.PluginDispatcherReturnType;
 import org.killbill.billing.util.UUIDs;
+import org.killbill.billing.util.config.definition.PaymentConfig;
+import org.killbill.billing.util.config.definition.PaymentConfig.PluginDispatchMode;
+import org.killbill.commons.metrics.impl.NoOpMetricRegistry;
 import org.killbill.commons.request.Request;
 import org.killbill.commons.request.RequestData;
+import org.mockito.Mockito;
 import org.slf4j.MDC;
 import org.testng.Assert;
 import org.testng.annotations.BeforeMethod;
@@ -151,4 +160,150 @@ public class TestPluginDispatcher extends PaymentTestSuiteNoDB {
         Assert.assertEquals(actualRequestId, requestId);
     }
 
+    @Test(groups = "fast")
+    public void testDispatchWithBulkhead() throws Exception {
+        final PaymentConfig bulkheadPaymentConfig = Mockito.mock(PaymentConfig.class);
+        Mockito.when(bulkheadPaymentConfig.getPaymentPluginThreadNb()).thenReturn(2);
+        Mockito.when(bulkheadPaymentConfig.getPaymentPluginDispatchMode()).thenReturn(PluginDispatchMode.BULKHEAD);
+        Mockito.when(bulkheadPaymentConfig.getPaymentPluginBulkheadThreadNb()).thenReturn(1);
+        Mockito.when(bulkheadPaymentConfig.getPaymentPluginBulkheadQueueSize()).thenReturn(1);
+
+        final PaymentExecutors bulkheadPaymentExecutors = new PaymentExecutors(bulkheadPaymentConfig, new NoOpMetricRegistry());
+        bulkheadPaymentExecutors.initialize();
+        final CountDownLatch hungPlugin = new CountDownLatch(1);
+        try {
+            final PluginDispatcher<String> dispatcher = new PluginDispatcher<String>(10, bulkheadPaymentExecutors);
+            final Callable<PluginDispatcherReturnType<String>> hungCall = new Callable<PluginDispatcherReturnType<String>>() {
+                @Override
+                public PluginDispatcherReturnType<String> call() throws Exception {
+                    hungPlugin.await();
+                    return PluginDispatcher.<String>createPluginDispatcherReturnType("hung");
+                }
+            };
+
+            // Fill the executor of the hung plugin: one active call, one queued call
+            bulkheadPaymentExecutors.submitPluginTask("hung-plugin", hungCall);
+            bulkheadPaymentExecutors.submitPluginTask("hung-plugin", hungCall);
+            Awaitility.await().atMost(5, TimeUnit.SECONDS).until(() -> bulkheadPaymentExecutors.getPluginStatistics("hung-plugin").getActive() == 1);
+
+            // Next call is rejected right away
+            try {
+                PaymentPluginDispatcher.dispatchWithExceptionHandling(null, "hung-plugin", hungCall, dispatcher);
+                Assert.fail("Call should have been rejected");
+            } catch (final PaymentApiException e) {
+                Assert.assertEquals(e.getCode(), ErrorCode.PAYMENT_INTERNAL_ERROR.getCode());
+            }
+
+            final PluginExecutorStatistics hungStatistics = bulkheadPaymentExecutors.getPluginStatistics("hung-plugin");
+            Assert.assertEquals(hungStatistics.getActive(), 1);
+            Assert.assertEquals(hungStatistics.getQueued(), 1);
+            Assert.assertEquals(hungStatistics.getRejected(), 1);
+
+            // Other plugins are not impacted
+            final String result = dispatcher.dispatchWithTimeout(new Callable<PluginDispatcherReturnType<String>>() {
+                @Override
+                public PluginDispatcherReturnType<String> call() throws Exception {
+                    return PluginDispatcher.<String>createPluginDispatcherReturnType("healthy");
+                }
+            }, "healthy-plugin", 1, TimeUnit.SECONDS);
+            Assert.assertEquals(result, "healthy");
+            Assert.assertEquals(bulkheadPaymentExecutors.getPluginStatistics("healthy-plugin").getActive(), 0);
+            Assert.assertEquals(bulkheadPaymentExecutors.getPluginStatistics("healthy-plugin").getRejected(), 0);
+
+            hungPlugin.countDown();
+            Awaitility.await().atMost(5, TimeUnit.SECONDS).until(() -> hungStatistics.getActive() == 0 && hungStatistics.getQueued() == 0);
+        } finally {
+            hungPlugin.countDown();
+            bulkheadPaymentExecutors.stop();
+        }
+    }
+
+    @Test(groups = "fast")
+    public void testBulkheadIsSelectedByPaymentPlugin() throws Exception {
+        final PaymentExecutors bulkheadPaymentExecutors = createBulkheadPaymentExecutors();
+        final CountDownLatch hungPlugin = new CountDownLatch(1);
+        try {
+            final PluginDispatcher<String> dispatcher = new PluginDispatcher<String>(10, bulkheadPaymentExecutors);
+            final Callable<PluginDispatcherReturnType<String>> hungCall = createHungCall(hungPlugin);
+            bulkheadPaymentExecutors.submitPluginTask("hung-plugin", hungCall);
+            bulkheadPaymentExecutors.submitPluginTask("hung-plugin", hungCall);
+            Awaitility.await().atMost(5, TimeUnit.SECONDS).until(() -> bulkheadPaymentExecutors.getPluginStatistics("hung-plugin").getActive() == 1);
+
+            // Control plugin calls are isolated by the payment plugin they end up calling, not by the control plugin names
+            try {
+                PaymentPluginDispatcher.dispatchWithExceptionHandling(null, "control-plugin", "hung-plugin", hungCall, dispatcher);
+                Assert.fail("Call should have been rejected");
+            } catch (final PaymentApiException e) {
+                Assert.assertEquals(e.getCode(), ErrorCode.PAYMENT_INTERNAL_ERROR.getCode());
+            }
+            Assert.assertEquals(PaymentPluginDispatcher.dispatchWithExceptionHandling(null,
+                                                                                      "control-plugin",
+                                                                                      "healthy-plugin",
+                                                                                      () -> PluginDispatcher.<String>createPluginDispatcherReturnType("healthy"),
+                                                                                      dispatcher),
+                                "healthy");
+            // Unknown payment plugin: the shared executor is used
+            Assert.assertEquals(PaymentPluginDispatcher.dispatchWithExceptionHandling(null,
+                                                                                      "control-plugin",
+                                                                                      null,
+                                                                                      () -> PluginDispatcher.<String>createPluginDispatcherReturnType("shared"),
+                                                                                      dispatcher),
+                                "shared");
+            Assert.assertEquals(bulkheadPaymentExecutors.getPluginStatistics("control-plugin").getRejected(), 0);
+        } finally {
+            hungPlugin.countDown();
+            bulkheadPaymentExecutors.stop();
+        }
+    }
+
+    @Test(groups = "fast")
+    public void testQueuedTasksCancelledOrDropped() throws Exception {
+        final PaymentExecutors bulkheadPaymentExecutors = createBulkheadPaymentExecutors();
+        final CountDownLatch hungPlugin = new CountDownLatch(1);
+        try {
+            final Callable<PluginDispatcherReturnType<String>> hungCall = createHungCall(hungPlugin);
+            bulkheadPaymentExecutors.submitPluginTask("hung-plugin", hungCall);
+            final Future<PluginDispatcherReturnType<String>> queuedCall = bulkheadPaymentExecutors.submitPluginTask("hung-plugin", hungCall);
+            Awaitility.await().atMost(5, TimeUnit.SECONDS).until(() -> bulkheadPaymentExecutors.getPluginStatistics("hung-plugin").getActive() == 1);
+
+            final PluginExecutorStatistics hungStatistics = bulkheadPaymentExecutors.getPluginStatistics("hung-plugin");
+            Assert.assertEquals(hungStatistics.getQueued(), 1);
+            Assert.assertTrue(queuedCall.cancel(false));
+            Assert.assertEquals(hungStatistics.getQueued(), 0);
+            // Cancelling twice doesn't decrement the counter twice
+            queuedCall.cancel(false);
+            Assert.assertEquals(hungStatistics.getQueued(), 0);
+
+            // Queued tasks are dropped on shutdown (the cancelled one, still in the executor queue, isn't accounted for twice)
+            bulkheadPaymentExecutors.submitPluginTask("other-hung-plugin", hungCall);
+            bulkheadPaymentExecutors.submitPluginTask("other-hung-plugin", hungCall);
+            final PluginExecutorStatistics otherHungStatistics = bulkheadPaymentExecutors.getPluginStatistics("other-hung-plugin");
+            Awaitility.await().atMost(5, TimeUnit.SECONDS).until(() -> otherHungStatistics.getActive() == 1);
+            Assert.assertEquals(otherHungStatistics.getQueued(), 1);
+            bulkheadPaymentExecutors.stop();
+            Assert.assertEquals(hungStatistics.getQueued(), 0);
+            Assert.assertEquals(otherHungStatistics.getQueued(), 0);
+        } finally {
+            hungPlugin.countDown();
+        }
+    }
+
+    private PaymentExecutors createBulkheadPaymentExecutors() {
+        final PaymentConfig bulkheadPaymentConfig = Mockito.mock(PaymentConfig.class);
+        Mockito.when(bulkheadPaymentConfig.getPaymentPluginThreadNb()).thenReturn(2);
+        Mockito.when(bulkheadPaymentConfig.getPaymentPluginDispatchMode()).thenReturn(PluginDispatchMode.BULKHEAD);
+        Mockito.when(bulkheadPaymentConfig.getPaymentPluginBulkheadThreadNb()).thenReturn(1);
+        Mockito.when(bulkheadPaymentConfig.getPaymentPluginBulkheadQueueSize()).thenReturn(1);
+
+        final PaymentExecutors bulkheadPaymentExecutors = new PaymentExecutors(bulkheadPaymentConfig, new NoOpMetricRegistry());
+        bulkheadPaymentExecutors.initialize();
+        return bulkheadPaymentExecutors;
+    }
+
+    private Callable<PluginDispatcherReturnType<String>> createHungCall(final CountDownLatch hungPlugin) {
+        return () -> {
+            hungPlugin.await();
+            return PluginDispatcher.<String>createPluginDispatcherReturnType("hung");
+        };
+    }
 }
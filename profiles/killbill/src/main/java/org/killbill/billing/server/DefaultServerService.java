@@ -63,6 +63,7 @@ public class DefaultServerService implements ServerService {
 
     @LifecycleHandlerType(LifecycleLevel.INIT_SERVICE)
     public void registerForNotifications() throws NotificationQueueAlreadyExists {
+        pushNotificationListener.start();
         try {
             bus.register(pushNotificationListener);
         } catch (final EventBusException e) {
@@ -83,6 +84,7 @@ public class DefaultServerService implements ServerService {
         } catch (final EventBusException e) {
             log.warn("Failed to unregister PushNotificationListener", e);
         }
+        pushNotificationListener.stop();
         pushNotificationRetryService.stop();
     }
 }
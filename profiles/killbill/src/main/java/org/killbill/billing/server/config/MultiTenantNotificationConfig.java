@@ -59,6 +59,31 @@ public class MultiTenantNotificationConfig extends MultiTenantConfigBase impleme
         return getPushNotificationsRetries();
     }
 
+    @Override
+    public boolean isPushNotificationsAsyncDelivery() {
+        return staticConfig.isPushNotificationsAsyncDelivery();
+    }
+
+    @Override
+    public int getPushNotificationsQueueCapacity() {
+        return staticConfig.getPushNotificationsQueueCapacity();
+    }
+
+    @Override
+    public int getPushNotificationsMaxConcurrency() {
+        return staticConfig.getPushNotificationsMaxConcurrency();
+    }
+
+    @Override
+    public int getPushNotificationsBatchSize() {
+        return staticConfig.getPushNotificationsBatchSize();
+    }
+
+    @Override
+    public int getPushNotificationsNbThreads() {
+        return staticConfig.getPushNotificationsNbThreads();
+    }
+
     @Override
     protected Class<? extends KillbillConfig> getConfigClass() {
         return NotificationConfig.class;
@@ -31,6 +31,7 @@ import org.glassfish.jersey.server.ContainerResponse;
 import org.glassfish.jersey.server.spi.ContainerResponseWriter;
 import org.killbill.commons.request.Request;
 import org.killbill.commons.request.RequestData;
+import org.killbill.commons.utils.annotation.VisibleForTesting;
 import org.slf4j.MDC;
 
 import com.google.inject.Singleton;
@@ -42,7 +43,8 @@ import static org.killbill.billing.util.callcontext.InternalCallContextFactory.M
 @Singleton
 public class KillbillMDCInsertingServletFilter implements ContainerRequestFilter, ContainerResponseFilter {
 
-    private static final String MDC_REQUEST_ID = "req.requestId";
+    @VisibleForTesting
+    static final String MDC_REQUEST_ID = "req.requestId";
 
     @Override
     public void filter(final ContainerRequestContext requestContext) {
@@ -58,6 +60,17 @@ public class KillbillMDCInsertingServletFilter implements ContainerRequestFilter
         containerRequest.setWriter(new Adapter(containerRequest.getResponseWriter()));
     }
 
+    // Also used by RequestThreadCleanupFilter, as the response of a suspended request is committed on another thread
+    static void removeMDCKeys() {
+        // Removing possibly inexistent item is OK
+        MDC.remove(MDC_REQUEST_ID);
+
+        // Cleanup (this needs to be kept in sync with InternalCallContextFactory)
+        MDC.remove(MDC_KB_ACCOUNT_RECORD_ID);
+        MDC.remove(MDC_KB_TENANT_RECORD_ID);
+        MDC.remove(MDC_KB_USER_TOKEN);
+    }
+
     private static final class Adapter implements ContainerResponseWriter {
 
         private final ContainerResponseWriter crw;
@@ -85,13 +98,7 @@ public class KillbillMDCInsertingServletFilter implements ContainerRequestFilter
         public void commit() {
             crw.commit();
 
-            // Removing possibly inexistent item is OK
-            MDC.remove(MDC_REQUEST_ID);
-
-            // Cleanup (this needs to be kept in sync with InternalCallContextFactory)
-            MDC.remove(MDC_KB_ACCOUNT_RECORD_ID);
-            MDC.remove(MDC_KB_TENANT_RECORD_ID);
-            MDC.remove(MDC_KB_USER_TOKEN);
+            removeMDCKeys();
         }
 
         @Override
@@ -43,6 +43,7 @@ public class ProfilingContainerResponseFilter implements ContainerRequestFilter,
 
     private static final String PROFILING_HEADER_REQ = "X-Killbill-Profiling-Req";
     private static final String PROFILING_HEADER_RESP = "X-Killbill-Profiling-Resp";
+    private static final String PROFILING_DATA_PROPERTY = ProfilingContainerResponseFilter.class.getName() + ".profilingData";
 
     private static final ObjectMapper mapper = new ObjectMapper();
 
@@ -54,6 +55,8 @@ public class ProfilingContainerResponseFilter implements ContainerRequestFilter,
     public void filter(final ContainerRequestContext requestContext) {
         final List<String> profilingHeaderRequests = requestContext.getHeaders().get(PROFILING_HEADER_REQ);
         final String profilingHeaderRequest = (profilingHeaderRequests == null || profilingHeaderRequests.isEmpty()) ? null : profilingHeaderRequests.get(0);
+        // The thread may have served a suspended request, whose response filter ran on another thread
+        Profiling.resetPerThreadProfilingData();
         if (profilingHeaderRequest != null) {
             try {
                 Profiling.setPerThreadProfilingData(profilingHeaderRequest);
@@ -62,6 +65,8 @@ public class ProfilingContainerResponseFilter implements ContainerRequestFilter,
                 if (profilingData.getProfileFeature().isProfilingJAXRS()) {
                     profilingData.addStart(ProfilingFeatureType.JAXRS, requestContext.getUriInfo().getPath());
                 }
+                // Suspended requests are resumed (and their response filtered) on a different thread
+                requestContext.setProperty(PROFILING_DATA_PROPERTY, profilingData);
             } catch (final IllegalArgumentException e) {
                 log.info("Profiling data output {} is not supported, profiling NOT enabled", profilingHeaderRequest);
             }
@@ -71,7 +76,7 @@ public class ProfilingContainerResponseFilter implements ContainerRequestFilter,
     @Override
     public void filter(final ContainerRequestContext requestContext, final ContainerResponseContext responseContext) {
         try {
-            final ProfilingData rawData = Profiling.getPerThreadProfilingData();
+            final ProfilingData rawData = (ProfilingData) requestContext.getProperty(PROFILING_DATA_PROPERTY);
             if (rawData != null) {
                 if (rawData.getProfileFeature().isProfilingJAXRS()) {
                     rawData.addEnd(ProfilingFeatureType.JAXRS, requestContext.getUriInfo().getPath());
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2020-2026 Equinix, Inc
+ * Copyright 2014-2026 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.server.filters;
+
+import java.io.IOException;
+
+import javax.inject.Singleton;
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+
+import org.killbill.commons.request.Request;
+
+/**
+ * Cleans up the per-thread state set by {@link RequestDataFilter} and {@link KillbillMDCInsertingServletFilter} once
+ * the request thread is done with the request.
+ * <p/>
+ * Those filters reset it when the response is committed, which happens on the thread resuming a suspended request
+ * (e.g. the account timeline): the request thread would otherwise go back to the pool with stale values.
+ */
+@Singleton
+public class RequestThreadCleanupFilter implements Filter {
+
+    @Override
+    public void init(final FilterConfig filterConfig) throws ServletException {
+    }
+
+    @Override
+    public void doFilter(final ServletRequest request, final ServletResponse response, final FilterChain chain) throws IOException, ServletException {
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            KillbillMDCInsertingServletFilter.removeMDCKeys();
+            Request.resetPerThreadRequestData();
+        }
+    }
+
+    @Override
+    public void destroy() {
+    }
+}
@@ -34,6 +34,7 @@ import org.killbill.billing.server.filters.Jersey1BackwardCompatibleFilter;
 import org.killbill.billing.server.filters.KillbillMDCInsertingServletFilter;
 import org.killbill.billing.server.filters.ProfilingContainerResponseFilter;
 import org.killbill.billing.server.filters.RequestDataFilter;
+import org.killbill.billing.server.filters.RequestThreadCleanupFilter;
 import org.killbill.billing.server.filters.ResponseCorsFilter;
 import org.killbill.billing.server.modules.KillbillServerModule;
 import org.killbill.billing.server.notifications.PushNotificationListener;
@@ -79,6 +80,9 @@ public class KillbillGuiceListener extends KillbillPlatformGuiceListener {
         // Logback default MDC
         builder.addFilter("/*", MDCInsertingServletFilter.class);
 
+        // Clean up the per-thread RequestData and Kill Bill specific MDC on the request thread (needed for suspended requests)
+        builder.addFilter("/*", RequestThreadCleanupFilter.class);
+
         // Kill Bill specific MDC
         builder.addJerseyResourceClass(KillbillMDCInsertingServletFilter.class.getName());
 
@@ -0,0 +1,395 @@
+/*
+ * Copyright 2020-2026 Equinix, Inc
+ * Copyright 2014-2026 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.server.notifications;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.killbill.billing.jaxrs.json.NotificationJson;
+import org.killbill.commons.concurrent.Executors;
+import org.killbill.commons.metrics.api.MetricRegistry;
+import org.killbill.commons.metrics.api.Timer;
+import org.killbill.commons.utils.annotation.VisibleForTesting;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Asynchronous delivery of push notifications.
+ * <p>
+ * Each destination (tenant and callback URL) has its own bounded queue and its own limit of in-flight requests,
+ * so that a slow endpoint only delays its own notifications. Requests are sent with {@link HttpClient#sendAsync},
+ * the caller (i.e. the external bus thread) never waits on the network.
+ * <p>
+ * Queued notifications are only kept in memory: on a graceful stop, the ones which couldn't be sent go through the
+ * failure handler (i.e. the persistent retry queue), but they are lost if the node crashes before delivering them.
+ * This is why asynchronous delivery is opt-in (see NotificationConfig#isPushNotificationsAsyncDelivery).
+ * <p>
+ * Destinations are removed once idle (nothing queued nor in-flight), so that the map doesn't grow with every
+ * tenant and callback URL ever seen.
+ */
+public class PushNotificationDispatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(PushNotificationDispatcher.class);
+
+    private static final String METRIC_PREFIX = "killbill.push-notifications.";
+
+    public interface DeliveryFailureHandler {
+
+        void onFailure(UUID tenantId, String url, NotificationJson notification, int attemptRetryNumber, String reason);
+    }
+
+    private final ObjectMapper mapper;
+    private final MetricRegistry metricRegistry;
+    private final DeliveryFailureHandler failureHandler;
+    private final String userAgent;
+    private final int timeoutSec;
+    private final int queueCapacity;
+    private final int maxConcurrency;
+    private final int batchSize;
+    private final ExecutorService executor;
+    private final HttpClient httpClient;
+
+    private final ConcurrentMap<String, Destination> destinations = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, CallbackMetrics> callbackMetrics = new ConcurrentHashMap<>();
+
+    private volatile boolean isStopped = false;
+
+    public PushNotificationDispatcher(final ObjectMapper mapper,
+                                      final MetricRegistry metricRegistry,
+                                      final DeliveryFailureHandler failureHandler,
+                                      final String userAgent,
+                                      final int timeoutSec,
+                                      final int queueCapacity,
+                                      final int maxConcurrency,
+                                      final int batchSize,
+                                      final int nbThreads) {
+        this.mapper = mapper;
+        this.metricRegistry = metricRegistry;
+        this.failureHandler = failureHandler;
+        this.userAgent = userAgent;
+        this.timeoutSec = timeoutSec;
+        this.queueCapacity = queueCapacity;
+        this.maxConcurrency = Math.max(1, maxConcurrency);
+        this.batchSize = Math.max(1, batchSize);
+        this.executor = Executors.newFixedThreadPool(Math.max(1, nbThreads), "PushNotificationDispatcher");
+        this.httpClient = HttpClient.newBuilder()
+                                    .connectTimeout(Duration.of(timeoutSec, ChronoUnit.SECONDS))
+                                    .executor(executor)
+                                    .build();
+    }
+
+    /**
+     * Queue the notification for the given destination. This never blocks: if the destination queue is full,
+     * the notification goes through the failure handler (i.e. the retry queue).
+     */
+    public void dispatch(final UUID tenantId, final String url, final NotificationJson notification) {
+        if (isStopped) {
+            failureHandler.onFailure(tenantId, url, notification, 0, "dispatcher is stopped");
+            return;
+        }
+
+        // Queue under the map lock, so that the destination can't be evicted in between (see evictIfIdle)
+        final boolean[] isQueued = new boolean[1];
+        final Destination destination = destinations.compute(tenantId + "|" + url, (key, existing) -> {
+            final Destination result = existing != null ? existing : new Destination(key, tenantId, url, getCallbackMetrics(url));
+            isQueued[0] = result.queue.offer(notification);
+            return result;
+        });
+        if (!isQueued[0]) {
+            log.warn("Push notification queue is full for url='{}', tenantId='{}'", url, tenantId);
+            failureHandler.onFailure(tenantId, url, notification, 0, "queue is full");
+            return;
+        }
+        destination.metrics.queued.incrementAndGet();
+        drain(destination);
+    }
+
+    public void start() {
+        isStopped = false;
+    }
+
+    /**
+     * Wait for the queued and in-flight notifications to be sent. Notifications still queued after the timeout
+     * go through the failure handler.
+     */
+    public void stop(final long timeoutMillis) {
+        isStopped = true;
+
+        final long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (System.currentTimeMillis() < deadline && !isIdle()) {
+            try {
+                Thread.sleep(50);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+
+        for (final Destination destination : destinations.values()) {
+            final List<NotificationJson> leftovers = new ArrayList<>();
+            destination.queue.drainTo(leftovers);
+            destination.metrics.queued.addAndGet(-leftovers.size());
+            for (final NotificationJson notification : leftovers) {
+                defer(destination, notification, "dispatcher is stopped");
+            }
+        }
+    }
+
+    public void shutdown() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(timeoutSec, TimeUnit.SECONDS)) {
+                log.warn("PushNotificationDispatcher failed to complete termination within {} sec", timeoutSec);
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("PushNotificationDispatcher stop sequence got interrupted");
+        }
+    }
+
+    @VisibleForTesting
+    int getQueueDepth(final String url) {
+        final CallbackMetrics metrics = callbackMetrics.get(url);
+        return metrics == null ? 0 : metrics.queued.get();
+    }
+
+    @VisibleForTesting
+    int getInFlight(final String url) {
+        final CallbackMetrics metrics = callbackMetrics.get(url);
+        return metrics == null ? 0 : metrics.inFlight.get();
+    }
+
+    @VisibleForTesting
+    int getNbDestinations() {
+        return destinations.size();
+    }
+
+    private boolean isIdle() {
+        for (final Destination destination : destinations.values()) {
+            if (!destination.queue.isEmpty() || destination.inFlight.get() > 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void drain(final Destination destination) {
+        // Requests failing synchronously complete (and drain again) on the calling thread: only one thread drains
+        // a destination at a time, the other invocations just make it loop once more
+        if (destination.drainRequests.getAndIncrement() > 0) {
+            return;
+        }
+
+        int drainRequests = 1;
+        do {
+            drainOnce(destination);
+            drainRequests = destination.drainRequests.addAndGet(-drainRequests);
+        } while (drainRequests > 0);
+
+        evictIfIdle(destination);
+    }
+
+    private void evictIfIdle(final Destination destination) {
+        // Notifications are only queued under the map lock, and requests are only sent (i.e. inFlight incremented) while
+        // something is queued: an idle destination can't become active again while we hold the lock
+        destinations.computeIfPresent(destination.key, (key, existing) -> {
+            if (existing == destination && destination.queue.isEmpty() && destination.inFlight.get() == 0) {
+                return null;
+            }
+            return existing;
+        });
+    }
+
+    private void drainOnce(final Destination destination) {
+        while (true) {
+            final int inFlight = destination.inFlight.get();
+            if (inFlight >= maxConcurrency || destination.queue.isEmpty()) {
+                return;
+            }
+            if (!destination.inFlight.compareAndSet(inFlight, inFlight + 1)) {
+                continue;
+            }
+
+            final List<NotificationJson> batch = new ArrayList<>(batchSize);
+            destination.queue.drainTo(batch, batchSize);
+            if (batch.isEmpty()) {
+                // Another thread got there first
+                destination.inFlight.decrementAndGet();
+                continue;
+            }
+            destination.metrics.queued.addAndGet(-batch.size());
+            destination.metrics.inFlight.incrementAndGet();
+            send(destination, batch);
+        }
+    }
+
+    private void send(final Destination destination, final List<NotificationJson> batch) {
+        final HttpRequest request;
+        try {
+            final String body = batch.size() == 1 ? mapper.writeValueAsString(batch.get(0)) : mapper.writeValueAsString(batch);
+            log.info("Sending push notification url='{}', body='{}', attemptRetryNumber='{}'", destination.url, body, 0);
+            request = buildRequest(destination.url, body, userAgent, timeoutSec);
+        } catch (final JsonProcessingException | IllegalArgumentException e) {
+            log.warn("Failed to push notification url='{}', tenantId='{}'", destination.url, destination.tenantId, e);
+            onRequestCompleted(destination, batch, e.getMessage());
+            return;
+        }
+
+        final long startNanos = System.nanoTime();
+        final CompletableFuture<HttpResponse<Void>> responseFuture;
+        try {
+            responseFuture = httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding());
+        } catch (final RuntimeException e) {
+            // e.g. executor already shut down: the batch goes through the failure handler instead of being lost
+            log.warn("Failed to push notification url='{}', tenantId='{}'", destination.url, destination.tenantId, e);
+            onRequestCompleted(destination, batch, e.getMessage());
+            return;
+        }
+        responseFuture.whenComplete((response, throwable) -> {
+            destination.metrics.latency.update(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+            if (throwable != null) {
+                final Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null ? throwable.getCause() : throwable;
+                log.warn("Failed to push notification url='{}', tenantId='{}'", destination.url, destination.tenantId, cause);
+                onRequestCompleted(destination, batch, cause.getMessage());
+            } else if (response.statusCode() >= 200 && response.statusCode() < 300) {
+                onRequestCompleted(destination, batch, null);
+            } else {
+                onRequestCompleted(destination, batch, "statusCode=" + response.statusCode());
+            }
+        });
+    }
+
+    private void onRequestCompleted(final Destination destination, final List<NotificationJson> batch, final String failureReason) {
+        try {
+            if (failureReason != null) {
+                for (final NotificationJson notification : batch) {
+                    defer(destination, notification, failureReason);
+                }
+            }
+        } finally {
+            destination.metrics.inFlight.decrementAndGet();
+            destination.inFlight.decrementAndGet();
+            drain(destination);
+        }
+    }
+
+    // One notification failing to be deferred doesn't prevent the other ones from being deferred
+    private void defer(final Destination destination, final NotificationJson notification, final String reason) {
+        try {
+            failureHandler.onFailure(destination.tenantId, destination.url, notification, 0, reason);
+        } catch (final RuntimeException e) {
+            log.warn("Failed to handle push notification failure url='{}', tenantId='{}'", destination.url, destination.tenantId, e);
+        }
+    }
+
+    private CallbackMetrics getCallbackMetrics(final String url) {
+        return callbackMetrics.computeIfAbsent(url, u -> {
+            final String metricName = METRIC_PREFIX + toMetricTag(u);
+            final CallbackMetrics metrics = new CallbackMetrics(metricRegistry.timer(metricName + ".latency"));
+            metricRegistry.gauge(metricName + ".queue-depth", metrics.queued::get);
+            metricRegistry.gauge(metricName + ".in-flight", metrics.inFlight::get);
+            return metrics;
+        });
+    }
+
+    // Callback URLs can embed credentials (user info, query string): metrics only expose the host and a hash of the URL
+    @VisibleForTesting
+    static String toMetricTag(final String url) {
+        String host;
+        try {
+            host = URI.create(url).getHost();
+        } catch (final IllegalArgumentException e) {
+            host = null;
+        }
+
+        final StringBuilder tag = new StringBuilder(host == null ? "unknown" : host).append('-');
+        try {
+            final byte[] digest = MessageDigest.getInstance("SHA-256").digest(url.getBytes(StandardCharsets.UTF_8));
+            for (int i = 0; i < 4; i++) {
+                tag.append(String.format("%02x", digest[i]));
+            }
+        } catch (final NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        return tag.toString();
+    }
+
+    static HttpRequest buildRequest(final String url, final String body, final String userAgent, final int timeoutSec) {
+        return HttpRequest.newBuilder()
+              .uri(URI.create(url))
+              .header("User-Agent", userAgent)
+              .header(PushNotificationListener.HTTP_HEADER_CONTENT_TYPE, PushNotificationListener.CONTENT_TYPE_JSON)
+              .timeout(Duration.of(timeoutSec, ChronoUnit.SECONDS))
+              .POST(HttpRequest.BodyPublishers.ofString(body == null ? "{}" : body))
+              .build();
+    }
+
+    // Metrics are aggregated per callback URL, across tenants
+    private static final class CallbackMetrics {
+
+        private final AtomicInteger queued = new AtomicInteger();
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final Timer latency;
+
+        private CallbackMetrics(final Timer latency) {
+            this.latency = latency;
+        }
+    }
+
+    private final class Destination {
+
+        private final String key;
+        private final UUID tenantId;
+        private final String url;
+        private final CallbackMetrics metrics;
+        private final BlockingQueue<NotificationJson> queue;
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final AtomicInteger drainRequests = new AtomicInteger();
+
+        private Destination(final String key, final UUID tenantId, final String url, final CallbackMetrics metrics) {
+            this.key = key;
+            this.tenantId = tenantId;
+            this.url = url;
+            this.metrics = metrics;
+            // Unlike ArrayBlockingQueue, nothing is allocated upfront: destinations are short lived when idle
+            this.queue = new LinkedBlockingQueue<>(Math.max(1, queueCapacity));
+        }
+    }
+}
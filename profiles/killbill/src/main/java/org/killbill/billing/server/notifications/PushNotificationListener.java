@@ -21,7 +21,6 @@ package org.killbill.billing.server.notifications;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
@@ -30,6 +29,7 @@ import java.time.temporal.ChronoUnit;
 import java.util.List;
 import java.util.Objects;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 import javax.inject.Inject;
 
@@ -50,6 +50,7 @@ import org.killbill.billing.util.config.definition.NotificationConfig;
 import org.killbill.clock.Clock;
 import org.killbill.commons.eventbus.AllowConcurrentEvents;
 import org.killbill.commons.eventbus.Subscribe;
+import org.killbill.commons.metrics.api.MetricRegistry;
 import org.killbill.notificationq.api.NotificationQueue;
 import org.killbill.notificationq.api.NotificationQueueService;
 import org.killbill.notificationq.api.NotificationQueueService.NoSuchNotificationQueue;
@@ -81,11 +82,12 @@ public class PushNotificationListener {
     private final InternalCallContextFactory internalCallContextFactory;
     private final Clock clock;
     private final NotificationConfig notificationConfig;
+    private final PushNotificationDispatcher dispatcher;
 
     @Inject
     public PushNotificationListener(final ObjectMapper mapper, final TenantUserApi tenantApi, final CallContextFactory contextFactory,
                                     final NotificationQueueService notificationQueueService, final InternalCallContextFactory internalCallContextFactory,
-                                    final Clock clock, final NotificationConfig notificationConfig) {
+                                    final Clock clock, final NotificationConfig notificationConfig, final MetricRegistry metricRegistry) {
         this.httpClient = HttpClient.newBuilder()
                                     .connectTimeout(Duration.of(TIMEOUT_NOTIFICATION, ChronoUnit.SECONDS)).build();
         this.tenantApi = tenantApi;
@@ -95,6 +97,20 @@ public class PushNotificationListener {
         this.internalCallContextFactory = internalCallContextFactory;
         this.clock = clock;
         this.notificationConfig = notificationConfig;
+        // Opt-in: notifications are sent synchronously from the bus thread by default
+        if (notificationConfig.isPushNotificationsAsyncDelivery()) {
+            this.dispatcher = new PushNotificationDispatcher(mapper,
+                                                             metricRegistry,
+                                                             this::saveRetryPushNotificationInQueue,
+                                                             USER_AGENT,
+                                                             TIMEOUT_NOTIFICATION,
+                                                             notificationConfig.getPushNotificationsQueueCapacity(),
+                                                             notificationConfig.getPushNotificationsMaxConcurrency(),
+                                                             notificationConfig.getPushNotificationsBatchSize(),
+                                                             notificationConfig.getPushNotificationsNbThreads());
+        } else {
+            this.dispatcher = null;
+        }
     }
 
     @AllowConcurrentEvents
@@ -115,11 +131,34 @@ public class PushNotificationListener {
         }
     }
 
+    public void start() {
+        if (dispatcher != null) {
+            dispatcher.start();
+        }
+    }
+
+    // Flush the notifications which haven't been sent yet, while the retry queue is still available
+    public void stop() {
+        if (dispatcher != null) {
+            dispatcher.stop(TimeUnit.SECONDS.toMillis(TIMEOUT_NOTIFICATION));
+        }
+    }
+
     public void shutdown() throws IOException {
+        if (dispatcher != null) {
+            dispatcher.shutdown();
+        }
     }
 
     private void dispatchCallback(final UUID tenantId, final ExtBusEvent event, final Iterable<String> callbacks) throws IOException {
         final NotificationJson notification = new NotificationJson(event);
+        if (dispatcher != null) {
+            for (final String cur : callbacks) {
+                dispatcher.dispatch(tenantId, cur, notification);
+            }
+            return;
+        }
+
         final String body = mapper.writeValueAsString(notification);
         for (final String cur : callbacks) {
             doPost(tenantId, cur, body, notification, TIMEOUT_NOTIFICATION, 0);
@@ -129,16 +168,9 @@ public class PushNotificationListener {
     private boolean doPost(final UUID tenantId, final String url, final String body, final NotificationJson notification,
                            final int timeoutSec, final int attemptRetryNumber) {
         log.info("Sending push notification url='{}', body='{}', attemptRetryNumber='{}'", url, body, attemptRetryNumber);
-        final HttpRequest request = HttpRequest.newBuilder()
-                                               .uri(URI.create(url))
-                                               .header("User-Agent", USER_AGENT)
-                                               .header(HTTP_HEADER_CONTENT_TYPE, CONTENT_TYPE_JSON)
-                                               .timeout(Duration.of(TIMEOUT_NOTIFICATION, ChronoUnit.SECONDS))
-                                               .POST(HttpRequest.BodyPublishers.ofString(body == null ? "{}" : body))
-                                               .build();
-
         final HttpResponse<InputStream> response;
         try {
+            final HttpRequest request = PushNotificationDispatcher.buildRequest(url, body, USER_AGENT, timeoutSec);
             response = httpClient.send(request, HttpResponse.BodyHandlers.ofInputStream());
         } catch (final Exception e) {
             log.warn("Failed to push notification url='{}', tenantId='{}'", url, tenantId, e);
@@ -27,6 +27,7 @@ import org.killbill.billing.catalog.api.BillingPeriod;
 import org.killbill.billing.catalog.api.PriceListSet;
 import org.killbill.billing.catalog.api.ProductCategory;
 import org.killbill.billing.client.KillBillClientException;
+import org.killbill.billing.client.RequestOptions;
 import org.killbill.billing.client.model.Invoices;
 import org.killbill.billing.client.model.Subscriptions;
 import org.killbill.billing.client.model.gen.Account;
@@ -38,6 +39,7 @@ import org.killbill.billing.client.model.gen.SubscriptionUsageRecord;
 import org.killbill.billing.client.model.gen.UnitUsageRecord;
 import org.killbill.billing.client.model.gen.UsageRecord;
 import org.killbill.billing.invoice.api.InvoiceItemType;
+import org.killbill.billing.jaxrs.resources.JaxrsResource;
 import org.killbill.billing.notification.plugin.api.ExtBusEventType;
 import org.killbill.billing.util.api.AuditLevel;
 import org.testng.Assert;
@@ -179,6 +181,71 @@ public class TestUsage extends TestJaxrsBase {
         }
     }
 
+    private UUID createAccountWithAddOn() throws Exception {
+        final Account accountJson = createAccountWithDefaultPaymentMethod();
+        callbackServlet.pushExpectedEvents(ExtBusEventType.ACCOUNT_CHANGE,
+                                           ExtBusEventType.ENTITLEMENT_CREATION,
+                                           ExtBusEventType.ENTITLEMENT_CREATION,
+                                           ExtBusEventType.SUBSCRIPTION_CREATION,
+                                           ExtBusEventType.SUBSCRIPTION_CREATION,
+                                           ExtBusEventType.SUBSCRIPTION_CREATION,
+                                           ExtBusEventType.SUBSCRIPTION_CREATION,
+                                           ExtBusEventType.INVOICE_CREATION);
+        final Bundle bundle = subscriptionApi.createSubscriptionWithAddOns(createSubscriptions(accountJson), (LocalDate) null, (LocalDate) null, NULL_PLUGIN_PROPERTIES, requestOptions);
+        callbackServlet.assertListenerStatus();
+        return findSubscriptionIdByProductCategory(bundle.getSubscriptions(), ProductCategory.ADD_ON);
+    }
+
+    @Test(groups = "slow", description = "Can record usage data for several accounts at once")
+    public void testRecordUsagesInBulk() throws Exception {
+        final UUID addOnSubscriptionId1 = createAccountWithAddOn();
+        final UUID addOnSubscriptionId2 = createAccountWithAddOn();
+
+        final RequestOptions bulkRequestOptions = requestOptions.extend()
+                                                                .withHeader("Accept", "application/json")
+                                                                .withHeader("Content-Type", "application/json")
+                                                                .build();
+
+        final String trackingId = UUID.randomUUID().toString();
+        final SubscriptionUsageRecord usage1 = new SubscriptionUsageRecord(addOnSubscriptionId1, trackingId, List.of(new UnitUsageRecord("bullets", List.of(new UsageRecord(clock.getUTCNow(), BigDecimal.TEN)))));
+        final SubscriptionUsageRecord usage2 = new SubscriptionUsageRecord(addOnSubscriptionId1, null, List.of(new UnitUsageRecord("bullets", List.of(new UsageRecord(clock.getUTCNow(), new BigDecimal("5"))))));
+        final SubscriptionUsageRecord usage3 = new SubscriptionUsageRecord(addOnSubscriptionId2, trackingId, List.of(new UnitUsageRecord("bullets", List.of(new UsageRecord(clock.getUTCNow(), new BigDecimal("7"))))));
+        killBillHttpClient.doPost(JaxrsResource.USAGES_PATH + "/bulk", List.of(usage1, usage2, usage3), bulkRequestOptions);
+
+        final RolledUpUsage retrievedUsage1 = usageApi.getAllUsage(addOnSubscriptionId1, clock.getUTCToday(), clock.getUTCToday().plusDays(1), NULL_PLUGIN_PROPERTIES, requestOptions);
+        Assert.assertEquals(new BigDecimal("15").compareTo(retrievedUsage1.getRolledUpUnits().get(0).getAmount()), 0);
+        final RolledUpUsage retrievedUsage2 = usageApi.getAllUsage(addOnSubscriptionId2, clock.getUTCToday(), clock.getUTCToday().plusDays(1), NULL_PLUGIN_PROPERTIES, requestOptions);
+        Assert.assertEquals(new BigDecimal("7").compareTo(retrievedUsage2.getRolledUpUnits().get(0).getAmount()), 0);
+
+        // One of the tracking ids was already used: nothing from that batch is recorded
+        final SubscriptionUsageRecord usage4 = new SubscriptionUsageRecord(addOnSubscriptionId2, null, List.of(new UnitUsageRecord("bullets", List.of(new UsageRecord(clock.getUTCNow(), BigDecimal.ONE)))));
+        try {
+            killBillHttpClient.doPost(JaxrsResource.USAGES_PATH + "/bulk", List.of(usage4, usage1), bulkRequestOptions);
+            Assert.fail();
+        } catch (final KillBillClientException e) {
+            Assert.assertEquals(e.getBillingException().getCode(), (Integer) ErrorCode.USAGE_RECORD_TRACKING_ID_ALREADY_EXISTS.getCode());
+        }
+        final RolledUpUsage retrievedUsage3 = usageApi.getAllUsage(addOnSubscriptionId2, clock.getUTCToday(), clock.getUTCToday().plusDays(1), NULL_PLUGIN_PROPERTIES, requestOptions);
+        Assert.assertEquals(new BigDecimal("7").compareTo(retrievedUsage3.getRolledUpUnits().get(0).getAmount()), 0);
+
+        callbackServlet.pushExpectedEvents(ExtBusEventType.SUBSCRIPTION_CANCEL,
+                                           ExtBusEventType.SUBSCRIPTION_CANCEL,
+                                           ExtBusEventType.ENTITLEMENT_CANCEL);
+        subscriptionApi.cancelSubscriptionPlan(addOnSubscriptionId2, (LocalDate) null, null, null, NULL_PLUGIN_PROPERTIES, requestOptions);
+        callbackServlet.assertListenerStatus();
+
+        // Usage past the end date of one of the subscriptions: nothing from that batch is recorded
+        final SubscriptionUsageRecord usage5 = new SubscriptionUsageRecord(addOnSubscriptionId2, null, List.of(new UnitUsageRecord("bullets", List.of(new UsageRecord(clock.getUTCNow().plusDays(1), BigDecimal.ONE)))));
+        try {
+            killBillHttpClient.doPost(JaxrsResource.USAGES_PATH + "/bulk", List.of(usage2, usage5), bulkRequestOptions);
+            Assert.fail();
+        } catch (final KillBillClientException e) {
+            Assert.assertEquals(e.getBillingException().getCode(), (Integer) ErrorCode.ENT_INVALID_REQUESTED_DATE.getCode());
+        }
+        final RolledUpUsage retrievedUsage4 = usageApi.getAllUsage(addOnSubscriptionId1, clock.getUTCToday(), clock.getUTCToday().plusDays(1), NULL_PLUGIN_PROPERTIES, requestOptions);
+        Assert.assertEquals(new BigDecimal("15").compareTo(retrievedUsage4.getRolledUpUnits().get(0).getAmount()), 0);
+    }
+
     @Test(groups = "slow")
     public void testRecordUsageWithDecimal() throws Exception {
         final Account accountJson = createAccountWithDefaultPaymentMethod();
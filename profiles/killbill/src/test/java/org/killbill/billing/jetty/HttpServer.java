@@ -201,16 +201,20 @@ public class HttpServer {
             context.addEventListener(eventListener);
         }
 
+        // Like in web.xml, the filter chain must support async requests (e.g. suspended JAX-RS resources)
         for (final FilterHolder filterHolder : filterHolders.keySet()) {
+            filterHolder.setAsyncSupported(true);
             context.addFilter(filterHolder, filterHolders.get(filterHolder), EnumSet.of(DispatcherType.REQUEST, DispatcherType.ASYNC));
         }
 
         // Make sure Guice filter all requests
         final FilterHolder filterHolder = new FilterHolder(GuiceFilter.class);
+        filterHolder.setAsyncSupported(true);
         context.addFilter(filterHolder, "/*", EnumSet.of(DispatcherType.REQUEST, DispatcherType.ASYNC));
 
         // Backend servlet for Guice - never used
         final ServletHolder sh = new ServletHolder(DefaultServlet.class);
+        sh.setAsyncSupported(true);
         context.addServlet(sh, "/*");
 
         return context;
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2020-2026 Equinix, Inc
+ * Copyright 2014-2026 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.server.filters;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.core.MultivaluedHashMap;
+
+import org.killbill.billing.GuicyKillbillTestSuiteNoDB;
+import org.killbill.commons.request.Request;
+import org.mockito.Mockito;
+import org.slf4j.MDC;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import static org.killbill.billing.server.filters.KillbillMDCInsertingServletFilter.MDC_REQUEST_ID;
+import static org.killbill.billing.util.callcontext.InternalCallContextFactory.MDC_KB_ACCOUNT_RECORD_ID;
+import static org.killbill.billing.util.callcontext.InternalCallContextFactory.MDC_KB_TENANT_RECORD_ID;
+import static org.killbill.billing.util.callcontext.InternalCallContextFactory.MDC_KB_USER_TOKEN;
+
+public class TestRequestThreadCleanupFilter extends GuicyKillbillTestSuiteNoDB {
+
+    // What the request thread goes through for a suspended request: the Jersey request filters and the resource method
+    // run, but the response is committed (and the Jersey response filters run) on the thread resuming the request
+    private final FilterChain suspendedRequestChain = (request, response) -> {
+        final ContainerRequestContext requestContext = Mockito.mock(ContainerRequestContext.class);
+        Mockito.when(requestContext.getHeaders()).thenReturn(new MultivaluedHashMap<>());
+        new RequestDataFilter().filter(requestContext);
+        new KillbillMDCInsertingServletFilter().filter(requestContext);
+
+        // See InternalCallContextFactory
+        MDC.put(MDC_KB_ACCOUNT_RECORD_ID, "1");
+        MDC.put(MDC_KB_TENANT_RECORD_ID, "2");
+        MDC.put(MDC_KB_USER_TOKEN, "3");
+    };
+
+    @Test(groups = "fast")
+    public void testRequestThreadIsCleanAfterSuspendedRequest() throws Exception {
+        new RequestThreadCleanupFilter().doFilter(Mockito.mock(ServletRequest.class), Mockito.mock(ServletResponse.class), (request, response) -> {
+            suspendedRequestChain.doFilter(request, response);
+            Assert.assertNotNull(Request.getPerThreadRequestData());
+            Assert.assertNotNull(MDC.get(MDC_REQUEST_ID));
+        });
+
+        assertRequestThreadIsClean();
+    }
+
+    @Test(groups = "fast")
+    public void testRequestThreadIsCleanAfterFailure() throws Exception {
+        try {
+            new RequestThreadCleanupFilter().doFilter(Mockito.mock(ServletRequest.class), Mockito.mock(ServletResponse.class), (request, response) -> {
+                suspendedRequestChain.doFilter(request, response);
+                throw new IllegalStateException("Resource failure");
+            });
+            Assert.fail("Failure should have been propagated");
+        } catch (final IllegalStateException ignored) {
+        }
+
+        assertRequestThreadIsClean();
+    }
+
+    private void assertRequestThreadIsClean() {
+        Assert.assertNull(Request.getPerThreadRequestData());
+        Assert.assertNull(MDC.get(MDC_REQUEST_ID));
+        Assert.assertNull(MDC.get(MDC_KB_ACCOUNT_RECORD_ID));
+        Assert.assertNull(MDC.get(MDC_KB_TENANT_RECORD_ID));
+        Assert.assertNull(MDC.get(MDC_KB_USER_TOKEN));
+    }
+}
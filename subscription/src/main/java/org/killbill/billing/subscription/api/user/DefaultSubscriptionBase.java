@@ -23,11 +23,11 @@ import java.util.Collections;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Objects;
 import java.util.PriorityQueue;
 import java.util.SortedMap;
 import java.util.TreeMap;
 import java.util.UUID;
-import java.util.stream.Collectors;
 
 import javax.annotation.Nullable;
 
@@ -927,54 +927,95 @@ public class DefaultSubscriptionBase extends EntityBase implements SubscriptionB
         transitions = new LinkedList<SubscriptionBaseTransition>();
         transitionsWithDeletedEvents = new LinkedList<SubscriptionBaseTransition>();
 
-        if (!includeDeletedEvents) {
-            rebuildTransitionsInternal(inputEvents, catalog, transitions, id, bundleId, bundleExternalKey);
-        } else {
-            rebuildTransitionsInternal(inputEvents.stream().filter(event -> event.isActive()).collect(Collectors.toList()), catalog, transitions, id, bundleId, bundleExternalKey); //use only active events to build transitions
-            rebuildTransitionsInternal(inputEvents, catalog, transitionsWithDeletedEvents, id, bundleId, bundleExternalKey); //use all events to build transitionsWithDeletedEvents
+        // Both lists are built in a single pass: only active events are used to build transitions,
+        // all events are used to build transitionsWithDeletedEvents (when requested)
+        final NextBillingCycleDayLocal nextBillingCycleDayLocal = new NextBillingCycleDayLocal(inputEvents);
+        final PlanLookup planLookup = new PlanLookup(catalog);
+        final TransitionsBuilder transitionsBuilder = new TransitionsBuilder(transitions, id, bundleId, bundleExternalKey);
+        final TransitionsBuilder transitionsWithDeletedEventsBuilder = includeDeletedEvents ? new TransitionsBuilder(transitionsWithDeletedEvents, id, bundleId, bundleExternalKey) : null;
+        for (final SubscriptionBaseEvent cur : inputEvents) {
+            final Integer nextBcdLocal = nextBillingCycleDayLocal.getNextBillingCycleDayLocal(cur.getEffectiveDate());
+            final Integer nextQuantity = nextBillingCycleDayLocal.getNextQuantity(cur.getEffectiveDate());
+            if (transitionsWithDeletedEventsBuilder == null || cur.isActive()) {
+                transitionsBuilder.addEvent(cur, nextBcdLocal, nextQuantity, planLookup);
+            }
+            if (transitionsWithDeletedEventsBuilder != null) {
+                transitionsWithDeletedEventsBuilder.addEvent(cur, nextBcdLocal, nextQuantity, planLookup);
+            }
         }
-
     }
 
-    private static void rebuildTransitionsInternal(final List<SubscriptionBaseEvent> inputEvents, final SubscriptionCatalog catalog, final LinkedList<SubscriptionBaseTransition> transitions, final UUID id, final UUID bundleId, final String bundleExternalKey) throws CatalogApiException {
+    //
+    // Remember the last Plan looked up, as both lists of transitions require the same lookups for active events
+    //
+    private static final class PlanLookup {
 
-        if (inputEvents == null || inputEvents.size() == 0) {
-            return;
+        private final SubscriptionCatalog catalog;
+
+        private String lastPlanName;
+        private DateTime lastEffectiveDate;
+        private DateTime lastPlanChangeTime;
+        private Plan lastPlan;
+
+        private PlanLookup(final SubscriptionCatalog catalog) {
+            this.catalog = catalog;
         }
-        final UUID nextUserToken = null;
-
-        UUID nextEventId;
-        DateTime nextCreatedDate;
-        EntitlementState nextState = null;
-        String nextPlanName = null;
-        String nextPhaseName = null;
-        Integer nextBcdLocal = null;
-        Integer nextQuantity = null;
-
-        UUID prevEventId = null;
-        DateTime prevCreatedDate = null;
-        EntitlementState previousState = null;
-        PriceList previousPriceList = null;
-        Plan previousPlan = null;
-        PlanPhase previousPhase = null;
-        Integer prevBcdLocal = null;
-        Integer prevQuantity = null;
 
-        // Track each time we change Plan to fetch the Plan from the right catalog version
-        DateTime lastPlanChangeTime = null;
+        private Plan findPlan(final String planName, final DateTime effectiveDate, final DateTime planChangeTime) throws CatalogApiException {
+            if (lastPlan == null ||
+                !planName.equals(lastPlanName) ||
+                !effectiveDate.equals(lastEffectiveDate) ||
+                !Objects.equals(planChangeTime, lastPlanChangeTime)) {
+                lastPlan = catalog.findPlan(planName, effectiveDate, planChangeTime);
+                lastPlanName = planName;
+                lastEffectiveDate = effectiveDate;
+                lastPlanChangeTime = planChangeTime;
+            }
+            return lastPlan;
+        }
+    }
 
-        final NextBillingCycleDayLocal nextBillingCycleDayLocal = new NextBillingCycleDayLocal(inputEvents);
+    //
+    // Build the transitions incrementally, one event at a time
+    //
+    private static final class TransitionsBuilder {
+
+        private final LinkedList<SubscriptionBaseTransition> transitions;
+        private final UUID id;
+        private final UUID bundleId;
+        private final String bundleExternalKey;
+
+        private EntitlementState nextState = null;
+        private String nextPlanName = null;
+        private String nextPhaseName = null;
+
+        private UUID prevEventId = null;
+        private DateTime prevCreatedDate = null;
+        private EntitlementState previousState = null;
+        private PriceList previousPriceList = null;
+        private Plan previousPlan = null;
+        private PlanPhase previousPhase = null;
+        private Integer prevBcdLocal = null;
+        private Integer prevQuantity = null;
 
-        for (final SubscriptionBaseEvent cur : inputEvents) {
+        // Track each time we change Plan to fetch the Plan from the right catalog version
+        private DateTime lastPlanChangeTime = null;
+
+        private TransitionsBuilder(final LinkedList<SubscriptionBaseTransition> transitions, final UUID id, final UUID bundleId, final String bundleExternalKey) {
+            this.transitions = transitions;
+            this.id = id;
+            this.bundleId = bundleId;
+            this.bundleExternalKey = bundleExternalKey;
+        }
 
-            nextBcdLocal = nextBillingCycleDayLocal.getNextBillingCycleDayLocal(cur.getEffectiveDate());
-            nextQuantity = nextBillingCycleDayLocal.getNextQuantity(cur.getEffectiveDate());
+        private void addEvent(final SubscriptionBaseEvent cur, final Integer nextBcdLocal, final Integer nextQuantity, final PlanLookup planLookup) throws CatalogApiException {
+            final UUID nextUserToken = null;
 
             ApiEventType apiEventType = null;
             boolean isFromDisk = true;
 
-            nextEventId = cur.getId();
-            nextCreatedDate = cur.getCreatedDate();
+            final UUID nextEventId = cur.getId();
+            final DateTime nextCreatedDate = cur.getCreatedDate();
 
             switch (cur.getType()) {
 
@@ -1037,7 +1078,7 @@ public class DefaultSubscriptionBase extends EntityBase implements SubscriptionB
                             "Unexpected Event type = %s", cur.getType()));
             }
 
-            final Plan nextPlan = (nextPlanName != null && cur.isActive()) ? catalog.findPlan(nextPlanName, cur.getEffectiveDate(), lastPlanChangeTime) : null;
+            final Plan nextPlan = (nextPlanName != null && cur.isActive()) ? planLookup.findPlan(nextPlanName, cur.getEffectiveDate(), lastPlanChangeTime) : null;
             final PlanPhase nextPhase = (nextPlan != null && nextPhaseName != null && cur.isActive()) ? nextPlan.findPhase(nextPhaseName) : null;
             final PriceList nextPriceList = (nextPlan != null && cur.isActive()) ? nextPlan.getPriceList() : null;
 
@@ -1069,9 +1110,7 @@ public class DefaultSubscriptionBase extends EntityBase implements SubscriptionB
             prevCreatedDate = nextCreatedDate;
             prevBcdLocal = nextBcdLocal;
             prevQuantity = nextQuantity;
-
         }
-
     }
 
     // Skip any event after a CANCEL event:
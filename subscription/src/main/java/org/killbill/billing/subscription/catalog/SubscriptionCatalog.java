@@ -17,7 +17,6 @@
 
 package org.killbill.billing.subscription.catalog;
 
-import java.util.ArrayList;
 import java.util.List;
 
 import org.joda.time.DateTime;
@@ -222,18 +221,21 @@ public class SubscriptionCatalog {
     }
 
     private List<StaticCatalog> versionsBeforeDate(final DateTime date) {
-
-        final List<StaticCatalog> result = new ArrayList<StaticCatalog>();
-
         // Fetch latest version allowed -- to benefit from custom logic implemented in VersionedCatalog
         final StaticCatalog latestVersion = versionForDate(date);
-        for (StaticCatalog v : versions) {
-            // Add all versions prior or equal to the one returned.
-            if (v.getEffectiveDate().compareTo(latestVersion.getEffectiveDate()) <= 0) {
-                result.add(v);
+
+        // Versions are sorted by effective date: return a view of all versions prior or equal to the one returned
+        int low = 0;
+        int high = versions.size();
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (versions.get(mid).getEffectiveDate().compareTo(latestVersion.getEffectiveDate()) <= 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
             }
         }
-        return result;
+        return versions.subList(0, low);
     }
 
     public StaticCatalog versionForDate(final DateTime date) {
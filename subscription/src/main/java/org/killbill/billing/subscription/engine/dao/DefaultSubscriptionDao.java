@@ -430,7 +430,7 @@ public class DefaultSubscriptionDao extends EntityDaoBase<SubscriptionBundleMode
     }
 
     public Map<UUID, List<DefaultSubscriptionBase>> getSubscriptionsFromAccountId(@Nullable final LocalDate cutoffDt, final InternalTenantContext context) {
-        final List<DefaultSubscriptionBase> allSubscriptions = transactionalSqlDao.execute(true, entitySqlDaoWrapperFactory -> {
+        return transactionalSqlDao.execute(true, entitySqlDaoWrapperFactory -> {
             final SubscriptionSqlDao subscriptionSqlDao = entitySqlDaoWrapperFactory.become(SubscriptionSqlDao.class);
             final List<SubscriptionModelDao> subscriptionModels = cutoffDt == null ?
                                                                   subscriptionSqlDao.getByAccountRecordId(context) :
@@ -440,25 +440,20 @@ public class DefaultSubscriptionDao extends EntityDaoBase<SubscriptionBundleMode
             final List<SubscriptionBundleModelDao> bundleModels = cutoffDt == null ?
                                                                   entitySqlDaoWrapperFactory.become(BundleSqlDao.class).getByAccountRecordId(context) :
                                                                   Collections.emptyList();
-            return subscriptionModels.stream()
-                                     .map(input -> {
-                                         final SubscriptionBundleModelDao bundleModel = bundleModels.stream()
-                                                                                                    .filter(bundleInput -> bundleInput.getId().equals(input.getBundleId()))
-                                                                                                    .findFirst().orElse(null);
-                                         final String bundleExternalKey = bundleModel != null ? bundleModel.getExternalKey() : null;
-
-                                         return SubscriptionModelDao.toSubscription(input, bundleExternalKey);
-                                     }).collect(Collectors.toUnmodifiableList());
-        });
 
-        final Map<UUID, List<DefaultSubscriptionBase>> result = new HashMap<>();
-        for (final DefaultSubscriptionBase subscriptionBase : allSubscriptions) {
-            if (result.get(subscriptionBase.getBundleId()) == null) {
-                result.put(subscriptionBase.getBundleId(), new LinkedList<>());
+            // Index the bundles by id instead of scanning them for each subscription
+            final Map<UUID, String> bundleExternalKeys = new HashMap<>(bundleModels.size());
+            for (final SubscriptionBundleModelDao bundleModel : bundleModels) {
+                bundleExternalKeys.putIfAbsent(bundleModel.getId(), bundleModel.getExternalKey());
             }
-            result.get(subscriptionBase.getBundleId()).add(subscriptionBase);
-        }
-        return result;
+
+            final Map<UUID, List<DefaultSubscriptionBase>> subscriptionsByBundleId = new HashMap<>();
+            for (final SubscriptionModelDao subscriptionModel : subscriptionModels) {
+                final DefaultSubscriptionBase subscriptionBase = SubscriptionModelDao.toSubscription(subscriptionModel, bundleExternalKeys.get(subscriptionModel.getBundleId()));
+                subscriptionsByBundleId.computeIfAbsent(subscriptionBase.getBundleId(), k -> new LinkedList<>()).add(subscriptionBase);
+            }
+            return subscriptionsByBundleId;
+        });
     }
 
 
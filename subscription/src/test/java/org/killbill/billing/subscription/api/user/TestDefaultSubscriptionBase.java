@@ -140,6 +140,70 @@ public class TestDefaultSubscriptionBase extends SubscriptionTestSuiteNoDB {
         Assert.assertEquals(subscriptionBase.getAllTransitions(false).get(1).getEffectiveTransitionTime(), new DateTime(2012, 6, 1, 0, 0, DateTimeZone.UTC));
     }
 
+    @Test(groups = "fast")
+    public void testTransitionsWithDeletedEvents() throws Exception {
+        final DateTime startDate = new DateTime(2012, 5, 1, 0, 0, DateTimeZone.UTC);
+        final DateTime changeDate = new DateTime(2012, 5, 15, 0, 0, DateTimeZone.UTC);
+        final DateTime cancelDate = new DateTime(2012, 7, 1, 0, 0, DateTimeZone.UTC);
+        final DefaultSubscriptionBase subscriptionBase = new DefaultSubscriptionBase(new SubscriptionBuilder().setAlignStartDate(startDate)
+                                                                                                              .setIncludeDeletedEvents(true));
+
+        final UUID subscriptionId = UUID.randomUUID();
+        final List<SubscriptionBaseEvent> inputEvents = new LinkedList<SubscriptionBaseEvent>();
+        inputEvents.add(new ApiEventCreate(new ApiEventBuilder().setApiEventType(CREATE)
+                                                                .setEventPlan("laser-scope-monthly")
+                                                                .setEventPlanPhase("laser-scope-monthly-discount")
+                                                                .setEventPriceList("DEFAULT")
+                                                                .setFromDisk(true)
+                                                                .setUuid(UUID.randomUUID())
+                                                                .setSubscriptionId(subscriptionId)
+                                                                .setCreatedDate(startDate)
+                                                                .setUpdatedDate(startDate)
+                                                                .setEffectiveDate(startDate)
+                                                                .setTotalOrdering(1)
+                                                                .setActive(true)));
+        // Deleted change
+        inputEvents.add(new ApiEventChange(new ApiEventBuilder().setApiEventType(CHANGE)
+                                                                .setEventPlan("shotgun-monthly")
+                                                                .setEventPlanPhase("shotgun-monthly-trial")
+                                                                .setEventPriceList("DEFAULT")
+                                                                .setFromDisk(true)
+                                                                .setUuid(UUID.randomUUID())
+                                                                .setSubscriptionId(subscriptionId)
+                                                                .setCreatedDate(startDate)
+                                                                .setUpdatedDate(startDate)
+                                                                .setEffectiveDate(changeDate)
+                                                                .setTotalOrdering(2)
+                                                                .setActive(false)));
+        inputEvents.add(new ApiEventCancel(new ApiEventBuilder().setApiEventType(ApiEventType.CANCEL)
+                                                                .setFromDisk(true)
+                                                                .setUuid(UUID.randomUUID())
+                                                                .setSubscriptionId(subscriptionId)
+                                                                .setCreatedDate(startDate)
+                                                                .setUpdatedDate(startDate)
+                                                                .setEffectiveDate(cancelDate)
+                                                                .setTotalOrdering(3)
+                                                                .setActive(true)));
+        subscriptionBase.rebuildTransitions(inputEvents, catalog);
+
+        final List<SubscriptionBaseTransition> transitions = subscriptionBase.getAllTransitions(false);
+        Assert.assertEquals(transitions.size(), 2);
+        Assert.assertEquals(transitions.get(0).getNextPlan().getName(), "laser-scope-monthly");
+        Assert.assertEquals(transitions.get(1).getEffectiveTransitionTime(), cancelDate);
+        Assert.assertEquals(transitions.get(1).getPreviousPlan().getName(), "laser-scope-monthly");
+        Assert.assertEquals(transitions.get(1).getNextState(), EntitlementState.CANCELLED);
+
+        final List<SubscriptionBaseTransition> transitionsWithDeletedEvents = subscriptionBase.getAllTransitions(true);
+        Assert.assertEquals(transitionsWithDeletedEvents.size(), 3);
+        Assert.assertEquals(transitionsWithDeletedEvents.get(0).getNextPlan().getName(), "laser-scope-monthly");
+        Assert.assertEquals(transitionsWithDeletedEvents.get(1).getEffectiveTransitionTime(), changeDate);
+        Assert.assertEquals(transitionsWithDeletedEvents.get(1).getPreviousPlan().getName(), "laser-scope-monthly");
+        Assert.assertNull(transitionsWithDeletedEvents.get(1).getNextPlan());
+        Assert.assertEquals(transitionsWithDeletedEvents.get(2).getEffectiveTransitionTime(), cancelDate);
+        Assert.assertNull(transitionsWithDeletedEvents.get(2).getPreviousPlan());
+        Assert.assertEquals(transitionsWithDeletedEvents.get(2).getNextState(), EntitlementState.CANCELLED);
+    }
+
     @Test(groups = "fast")
     public void testNextBillingCycleDayLocal1() {
 
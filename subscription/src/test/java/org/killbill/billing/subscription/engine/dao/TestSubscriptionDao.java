@@ -17,9 +17,12 @@
 
 package org.killbill.billing.subscription.engine.dao;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 import org.joda.time.DateTime;
 import org.killbill.billing.ErrorCode;
@@ -428,6 +431,60 @@ public class TestSubscriptionDao extends SubscriptionTestSuiteWithEmbeddedDB {
     }
 
 
+    @Test(groups = "slow", enabled = false, description = "Benchmark: getSubscriptionsForAccount on a 10,000-subscription account")
+    public void testGetSubscriptionsForLargeAccount() throws CatalogApiException {
+        final int nbBundles = 1000;
+        final int nbSubscriptionsPerBundle = 10;
+        final DateTime startDate = clock.getUTCNow();
+
+        // Bypass the DAO to avoid generating bus events and notifications
+        final List<SubscriptionBundleModelDao> bundles = new ArrayList<>(nbBundles);
+        final List<SubscriptionModelDao> subscriptions = new ArrayList<>(nbBundles * nbSubscriptionsPerBundle);
+        final List<SubscriptionEventModelDao> events = new ArrayList<>(nbBundles * nbSubscriptionsPerBundle);
+        for (int i = 0; i < nbBundles; i++) {
+            final DefaultSubscriptionBaseBundle bundle = new DefaultSubscriptionBaseBundle(UUID.randomUUID().toString(), accountId, startDate, startDate, startDate, startDate);
+            bundles.add(new SubscriptionBundleModelDao(bundle));
+            for (int j = 0; j < nbSubscriptionsPerBundle; j++) {
+                final SubscriptionBuilder builder = new SubscriptionBuilder()
+                        .setId(UUIDs.randomUUID())
+                        .setBundleId(bundle.getId())
+                        .setBundleExternalKey(bundle.getExternalKey())
+                        .setCategory(ProductCategory.BASE)
+                        .setBundleStartDate(startDate)
+                        .setAlignStartDate(startDate)
+                        .setMigrated(false);
+                final ApiEventBuilder createBuilder = new ApiEventBuilder()
+                        .setSubscriptionId(builder.getId())
+                        .setEventPlan("shotgun-monthly")
+                        .setEventPlanPhase("shotgun-monthly-trial")
+                        .setEventPriceList(DefaultPriceListSet.DEFAULT_PRICELIST_NAME)
+                        .setEffectiveDate(startDate)
+                        .setApiEventType(ApiEventType.CREATE)
+                        .setFromDisk(true);
+                subscriptions.add(new SubscriptionModelDao(new DefaultSubscriptionBase(builder)));
+                events.add(new SubscriptionEventModelDao(new ApiEventCreate(createBuilder)));
+            }
+        }
+        transactionalSqlDao.execute(false, entitySqlDaoWrapperFactory -> {
+            entitySqlDaoWrapperFactory.become(BundleSqlDao.class).create(bundles, internalCallContext);
+            entitySqlDaoWrapperFactory.become(SubscriptionSqlDao.class).create(subscriptions, internalCallContext);
+            entitySqlDaoWrapperFactory.become(SubscriptionEventSqlDao.class).create(events, internalCallContext);
+            return null;
+        });
+
+        for (int i = 0; i < 5; i++) {
+            final long startNanos = System.nanoTime();
+            final Map<UUID, List<DefaultSubscriptionBase>> subscriptionsForAccount = dao.getSubscriptionsForAccount(catalog, null, internalCallContext);
+            log.info("getSubscriptionsForAccount: {} bundles in {} ms", subscriptionsForAccount.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+
+            assertEquals(subscriptionsForAccount.size(), nbBundles);
+            for (final List<DefaultSubscriptionBase> bundleSubscriptions : subscriptionsForAccount.values()) {
+                assertEquals(bundleSubscriptions.size(), nbSubscriptionsPerBundle);
+                Assert.assertNotNull(bundleSubscriptions.get(0).getBundleExternalKey());
+            }
+        }
+    }
+
     private List<SubscriptionBaseEvent> createTestCanceledSubscription(final SubscriptionBaseBundle bundle, final String externalKey, final DateTime startDate, final DateTime cancelDate) {
 
         final SubscriptionBuilder builder = new SubscriptionBuilder()
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2020-2026 Equinix, Inc
+ * Copyright 2014-2026 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.tenant.api;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Only notifies the current node: other nodes discover the changes on their next poll.
+ */
+public class LocalTenantBroadcastTransport implements TenantBroadcastTransport {
+
+    private static final Logger logger = LoggerFactory.getLogger(LocalTenantBroadcastTransport.class);
+
+    private final List<Runnable> listeners = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void publish() {
+        for (final Runnable listener : listeners) {
+            try {
+                listener.run();
+            } catch (final RuntimeException e) {
+                logger.warn("Failed to notify tenant broadcast listener {}", listener, e);
+            }
+        }
+    }
+
+    @Override
+    public void subscribe(final Runnable listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public void unsubscribe(final Runnable listener) {
+        listeners.remove(listener);
+    }
+}
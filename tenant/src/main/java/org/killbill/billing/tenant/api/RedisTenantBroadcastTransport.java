@@ -0,0 +1,69 @@
+/*
+ * Copyright 2020-2026 Equinix, Inc
+ * Copyright 2014-2026 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.tenant.api;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.redisson.api.RTopic;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.LongCodec;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Notifies all the nodes sharing the Redis cache server, using a pub/sub topic. Redis pub/sub is fire-and-forget:
+ * nodes which are disconnected when the notification is published rely on their next poll.
+ */
+public class RedisTenantBroadcastTransport implements TenantBroadcastTransport {
+
+    public static final String TOPIC_NAME = "killbill-tenant-broadcasts";
+
+    private static final Logger logger = LoggerFactory.getLogger(RedisTenantBroadcastTransport.class);
+
+    private final RTopic topic;
+    private final Map<Runnable, Integer> listenerIds = new ConcurrentHashMap<>();
+
+    public RedisTenantBroadcastTransport(final RedissonClient redissonClient) {
+        this.topic = redissonClient.getTopic(TOPIC_NAME, LongCodec.INSTANCE);
+    }
+
+    @Override
+    public void publish() {
+        try {
+            topic.publish(System.currentTimeMillis());
+        } catch (final RuntimeException e) {
+            // The change has already been committed, nodes will pick it up on their next poll
+            logger.warn("Failed to publish tenant broadcast notification", e);
+        }
+    }
+
+    @Override
+    public void subscribe(final Runnable listener) {
+        final int listenerId = topic.addListener(Long.class, (channel, publishedTime) -> listener.run());
+        listenerIds.put(listener, listenerId);
+    }
+
+    @Override
+    public void unsubscribe(final Runnable listener) {
+        final Integer listenerId = listenerIds.remove(listener);
+        if (listenerId != null) {
+            topic.removeListener(listenerId);
+        }
+    }
+}
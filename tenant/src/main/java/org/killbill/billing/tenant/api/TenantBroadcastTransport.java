@@ -0,0 +1,37 @@
+/*
+ * Copyright 2020-2026 Equinix, Inc
+ * Copyright 2014-2026 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.tenant.api;
+
+/**
+ * Transport used to notify the nodes that new entries have been committed in the tenant_broadcasts table, so that
+ * {@link TenantCacheInvalidation} can process them right away instead of waiting for its next poll.
+ * <p/>
+ * Notifications are only a wake-up signal: the tenant_broadcasts table remains the source of truth (ordering, gap detection)
+ * and the periodic poll recovers the notifications which were lost.
+ */
+public interface TenantBroadcastTransport {
+
+    /**
+     * Notify the subscribed nodes that new tenant broadcasts are available. Must be invoked after the transaction has been committed.
+     */
+    public void publish();
+
+    public void subscribe(Runnable listener);
+
+    public void unsubscribe(Runnable listener);
+}
@@ -20,13 +20,17 @@ package org.killbill.billing.tenant.api;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 
 import javax.inject.Inject;
 import javax.inject.Named;
 
+import org.killbill.CreatorName;
 import org.killbill.billing.callcontext.InternalTenantContext;
 import org.killbill.billing.events.BusInternalEvent;
 import org.killbill.billing.tenant.api.TenantInternalApi.CacheInvalidationCallback;
@@ -41,9 +45,16 @@ import org.killbill.billing.tenant.glue.DefaultTenantModule;
 import org.killbill.commons.utils.collect.MultiValueHashMap;
 import org.killbill.commons.utils.collect.MultiValueMap;
 import org.killbill.billing.util.config.definition.TenantConfig;
+import org.killbill.billing.util.config.definition.TenantConfig.TenantBroadcastTransportType;
+import org.killbill.billing.util.nodes.dao.NodeInfoDao;
+import org.killbill.billing.util.nodes.dao.NodeInfoModelDao;
 import org.killbill.bus.api.PersistentBus;
 import org.killbill.bus.api.PersistentBus.EventBusException;
 import org.killbill.commons.concurrent.Executors;
+import org.killbill.commons.metrics.api.Meter;
+import org.killbill.commons.metrics.api.MetricRegistry;
+import org.killbill.commons.metrics.api.Timer;
+import org.killbill.commons.metrics.impl.NoOpMetricRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -56,6 +67,9 @@ import org.slf4j.LoggerFactory;
  * <p/>
  * When this class initializes, it reads the current entry in the tenant_broadcasts table and from then on, keeps polling for new entries; when new
  * entries are found, it invokes the callback to invalidate the current caching and force the TenantCacheLoader to be invoked again.
+ * <p/>
+ * When push is enabled, a notification on the {@link TenantBroadcastTransport} triggers an immediate poll: entries are still read from the
+ * tenant_broadcasts table (in record id order), and the periodic poll recovers the entries whose notification was missed.
  */
 public class TenantCacheInvalidation {
 
@@ -68,22 +82,56 @@ public class TenantCacheInvalidation {
     private final TenantConfig tenantConfig;
     private final PersistentBus eventBus;
     private final TenantDao tenantDao;
+    private final TenantBroadcastTransport broadcastTransport;
+    private final Optional<NodeInfoDao> nodeInfoDao;
+    private final Runnable broadcastListener;
+    // Coalesce the notifications received while a push triggered poll is already pending
+    private final AtomicBoolean isPushPollPending;
+    private final Timer propagationTime;
+    private final Meter recoveredEntries;
     private AtomicLong latestRecordIdProcessed;
     private volatile boolean isStopped;
+    private volatile boolean isPushEnabled;
 
     private ScheduledExecutorService tenantExecutor;
 
+    public TenantCacheInvalidation(final TenantBroadcastDao broadcastDao,
+                                   final TenantDao tenantDao,
+                                   final PersistentBus eventBus,
+                                   final TenantConfig tenantConfig) {
+        this(broadcastDao, tenantDao, eventBus, tenantConfig, null, new NoOpMetricRegistry());
+    }
+
+    public TenantCacheInvalidation(final TenantBroadcastDao broadcastDao,
+                                   final TenantDao tenantDao,
+                                   final PersistentBus eventBus,
+                                   final TenantConfig tenantConfig,
+                                   final TenantBroadcastTransport broadcastTransport,
+                                   final MetricRegistry metricRegistry) {
+        this(broadcastDao, tenantDao, eventBus, tenantConfig, broadcastTransport, metricRegistry, Optional.empty());
+    }
+
     @Inject
     public TenantCacheInvalidation(@Named(DefaultTenantModule.NO_CACHING_TENANT) final TenantBroadcastDao broadcastDao,
                                    @Named(DefaultTenantModule.NO_CACHING_TENANT) final TenantDao tenantDao,
                                    final PersistentBus eventBus,
-                                   final TenantConfig tenantConfig) {
+                                   final TenantConfig tenantConfig,
+                                   final TenantBroadcastTransport broadcastTransport,
+                                   final MetricRegistry metricRegistry,
+                                   final Optional<NodeInfoDao> nodeInfoDao) {
         this.cache = new MultiValueHashMap<>();
         this.broadcastDao = broadcastDao;
         this.tenantConfig = tenantConfig;
         this.tenantDao = tenantDao;
         this.eventBus = eventBus;
+        this.broadcastTransport = broadcastTransport;
+        this.nodeInfoDao = nodeInfoDao;
+        this.broadcastListener = this::onBroadcastNotification;
+        this.isPushPollPending = new AtomicBoolean(false);
+        this.propagationTime = metricRegistry.timer("killbill.tenant.broadcast.propagation");
+        this.recoveredEntries = metricRegistry.meter("killbill.tenant.broadcast.recovered");
         this.isStopped = false;
+        this.isPushEnabled = false;
     }
 
     public void initialize() {
@@ -98,6 +146,34 @@ public class TenantCacheInvalidation {
         final long pendingPeriod = tenantConfig.getTenantBroadcastServiceRunningRate().getPeriod();
         tenantExecutor.scheduleAtFixedRate(new TenantCacheInvalidationRunnable(this, broadcastDao, tenantDao), pendingPeriod, pendingPeriod, pendingRateUnit);
 
+        isPushEnabled = broadcastTransport != null && tenantConfig.getTenantBroadcastTransport() != TenantBroadcastTransportType.NONE;
+        if (isPushEnabled) {
+            broadcastTransport.subscribe(broadcastListener);
+            if (broadcastTransport instanceof LocalTenantBroadcastTransport) {
+                warnIfOtherNodesAreRunning();
+            }
+        }
+    }
+
+    // LOCAL push only reaches the node which made the change: make it visible when other nodes share the database
+    private void warnIfOtherNodesAreRunning() {
+        if (!nodeInfoDao.isPresent()) {
+            return;
+        }
+        try {
+            final String currentNodeName = CreatorName.get();
+            final long otherNodes = nodeInfoDao.get().getAll()
+                                               .stream()
+                                               .map(NodeInfoModelDao::getNodeName)
+                                               .filter(nodeName -> !currentNodeName.equals(nodeName))
+                                               .count();
+            if (otherNodes > 0) {
+                logger.warn("Tenant broadcasts are only pushed to the current node (LOCAL transport) but {} other node(s) are running: " +
+                            "these will only see tenant changes on their next poll, enable Redis caching and the REDIS transport to push to all the nodes", otherNodes);
+            }
+        } catch (final RuntimeException e) {
+            logger.debug("Unable to retrieve the nodes info", e);
+        }
     }
 
     public void stop() {
@@ -105,6 +181,9 @@ public class TenantCacheInvalidation {
             logger.warn("TenantExecutor is already in a stopped state");
             return;
         }
+        if (isPushEnabled) {
+            broadcastTransport.unsubscribe(broadcastListener);
+        }
         try {
             tenantExecutor.shutdown();
             final boolean success = tenantExecutor.awaitTermination(TERMINATION_TIMEOUT_SEC, TimeUnit.SECONDS);
@@ -143,22 +222,62 @@ public class TenantCacheInvalidation {
         return eventBus;
     }
 
+    private void onBroadcastNotification() {
+        if (isStopped || !isPushPollPending.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            // Same (single-threaded) executor as the periodic poll, so entries are never processed concurrently
+            tenantExecutor.execute(new TenantCacheInvalidationRunnable(this, broadcastDao, tenantDao, true));
+        } catch (final RejectedExecutionException e) {
+            isPushPollPending.set(false);
+            logger.debug("TenantExecutor is shutting down, ignoring tenant broadcast notification");
+        }
+    }
+
+    private void onEntryProcessed(final TenantBroadcastModelDao entry, final boolean isPushTriggered) {
+        if (entry.getCreatedDate() != null) {
+            final long propagationMillis = System.currentTimeMillis() - entry.getCreatedDate().getMillis();
+            // Skip entries created with a clock which isn't the wall clock (e.g. tests)
+            if (propagationMillis >= 0) {
+                propagationTime.update(propagationMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+        if (isPushEnabled && !isPushTriggered) {
+            // The notification was lost (or the entry was inserted by a node which doesn't push)
+            recoveredEntries.mark(1);
+        }
+    }
+
     public static class TenantCacheInvalidationRunnable implements Runnable {
 
         private final TenantCacheInvalidation parent;
         private final TenantBroadcastDao broadcastDao;
         private final TenantDao tenantDao;
+        private final boolean isPushTriggered;
 
         public TenantCacheInvalidationRunnable(final TenantCacheInvalidation parent,
                                                final TenantBroadcastDao broadcastDao,
                                                final TenantDao tenantDao) {
+            this(parent, broadcastDao, tenantDao, false);
+        }
+
+        public TenantCacheInvalidationRunnable(final TenantCacheInvalidation parent,
+                                               final TenantBroadcastDao broadcastDao,
+                                               final TenantDao tenantDao,
+                                               final boolean isPushTriggered) {
             this.parent = parent;
             this.broadcastDao = broadcastDao;
             this.tenantDao = tenantDao;
+            this.isPushTriggered = isPushTriggered;
         }
 
         @Override
         public void run() {
+            if (isPushTriggered) {
+                // Notifications received from now on trigger another poll
+                parent.isPushPollPending.set(false);
+            }
             if (parent.isStopped) {
                 return;
             }
@@ -209,6 +328,7 @@ public class TenantCacheInvalidation {
                     }
                 } finally {
                     parent.setLatestRecordIdProcessed(cur.getRecordId());
+                    parent.onEntryProcessed(cur, isPushTriggered);
                 }
             }
         }
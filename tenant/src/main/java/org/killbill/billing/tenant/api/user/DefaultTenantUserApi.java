@@ -35,6 +35,7 @@ import org.killbill.billing.callcontext.InternalTenantContext;
 import org.killbill.billing.tenant.api.DefaultTenant;
 import org.killbill.billing.tenant.api.Tenant;
 import org.killbill.billing.tenant.api.TenantApiException;
+import org.killbill.billing.tenant.api.TenantBroadcastTransport;
 import org.killbill.billing.tenant.api.TenantData;
 import org.killbill.billing.tenant.api.TenantKV.TenantKey;
 import org.killbill.billing.tenant.api.TenantUserApi;
@@ -72,14 +73,17 @@ public class DefaultTenantUserApi implements TenantUserApi {
     private final InternalCallContextFactory internalCallContextFactory;
     private final CacheController<String, String> tenantKVCache;
     private final CacheController<String, Tenant> tenantCache;
+    private final TenantBroadcastTransport broadcastTransport;
 
 
     @Inject
-    public DefaultTenantUserApi(final TenantDao tenantDao, final InternalCallContextFactory internalCallContextFactory, final CacheControllerDispatcher cacheControllerDispatcher) {
+    public DefaultTenantUserApi(final TenantDao tenantDao, final InternalCallContextFactory internalCallContextFactory, final CacheControllerDispatcher cacheControllerDispatcher,
+                                final TenantBroadcastTransport broadcastTransport) {
         this.tenantDao = tenantDao;
         this.internalCallContextFactory = internalCallContextFactory;
         this.tenantKVCache = cacheControllerDispatcher.getCacheController(CacheType.TENANT_KV);
         this.tenantCache = cacheControllerDispatcher.getCacheController(CacheType.TENANT);
+        this.broadcastTransport = broadcastTransport;
     }
 
     @Override
@@ -146,6 +150,7 @@ public class DefaultTenantUserApi implements TenantUserApi {
         final String tenantKey = getCacheKeyName(key, internalContext);
         tenantDao.addTenantKeyValue(key, value, isSingleValueKey(key), internalContext);
         tenantKVCache.remove(tenantKey);
+        publishBroadcast(key);
     }
 
     @Override
@@ -155,6 +160,7 @@ public class DefaultTenantUserApi implements TenantUserApi {
         final String tenantKey = getCacheKeyName(key, internalContext);
         tenantDao.updateTenantLastKeyValue(key, value, internalContext);
         tenantKVCache.remove(tenantKey);
+        publishBroadcast(key);
     }
 
     @Override
@@ -164,6 +170,7 @@ public class DefaultTenantUserApi implements TenantUserApi {
         final String tenantKey = getCacheKeyName(key, internalContext);
         tenantDao.deleteTenantKey(key, internalContext);
         tenantKVCache.remove(tenantKey);
+        publishBroadcast(key);
     }
 
     @Override
@@ -199,6 +206,13 @@ public class DefaultTenantUserApi implements TenantUserApi {
         return tenantKey.toString();
     }
 
+    // Only (system) TenantKey keys are broadcast, see DefaultTenantDao
+    private void publishBroadcast(final String key) {
+        if (Arrays.stream(TenantKey.values()).anyMatch(input -> key.startsWith(input.toString()))) {
+            broadcastTransport.publish();
+        }
+    }
+
     private boolean isSingleValueKey(final String key) {
         return Arrays.stream(TenantKey.values()).anyMatch(input -> input.isSingleValue() && key.startsWith(input.toString()));
     }
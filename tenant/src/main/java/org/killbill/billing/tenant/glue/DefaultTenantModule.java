@@ -22,6 +22,7 @@ import org.killbill.billing.glue.TenantModule;
 import org.killbill.billing.platform.api.KillbillConfigSource;
 import org.killbill.billing.tenant.api.DefaultTenantInternalApi;
 import org.killbill.billing.tenant.api.DefaultTenantService;
+import org.killbill.billing.tenant.api.TenantBroadcastTransport;
 import org.killbill.billing.tenant.api.TenantCacheInvalidation;
 import org.killbill.billing.tenant.api.TenantCacheInvalidationCallback;
 import org.killbill.billing.tenant.api.TenantInternalApi;
@@ -38,8 +39,10 @@ import org.killbill.billing.util.callcontext.InternalCallContextFactory;
 import org.killbill.billing.util.config.definition.TenantConfig;
 import org.killbill.billing.util.glue.KillBillModule;
 import org.killbill.billing.util.glue.NoCachingInternalCallContextFactoryProvider;
+import org.killbill.billing.util.nodes.dao.NodeInfoDao;
 import org.skife.config.ConfigurationObjectFactory;
 
+import com.google.inject.multibindings.OptionalBinder;
 import com.google.inject.name.Names;
 
 public class DefaultTenantModule extends KillBillModule implements TenantModule {
@@ -75,7 +78,10 @@ public class DefaultTenantModule extends KillBillModule implements TenantModule
     }
 
     public void installTenantCacheInvalidation() {
+        bind(TenantBroadcastTransport.class).toProvider(TenantBroadcastTransportProvider.class).asEagerSingleton();
         bind(TenantCacheInvalidation.class).asEagerSingleton();
+        // Only used to warn about LOCAL push in a cluster, when the nodes module is installed
+        OptionalBinder.newOptionalBinder(binder(), NodeInfoDao.class);
     }
 
     @Override
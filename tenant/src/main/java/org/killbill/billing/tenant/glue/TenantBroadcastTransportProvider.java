@@ -0,0 +1,61 @@
+/*
+ * Copyright 2020-2026 Equinix, Inc
+ * Copyright 2014-2026 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.tenant.glue;
+
+import javax.annotation.Nullable;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Provider;
+
+import org.killbill.billing.tenant.api.LocalTenantBroadcastTransport;
+import org.killbill.billing.tenant.api.RedisTenantBroadcastTransport;
+import org.killbill.billing.tenant.api.TenantBroadcastTransport;
+import org.killbill.billing.util.config.definition.TenantConfig;
+import org.killbill.billing.util.config.definition.TenantConfig.TenantBroadcastTransportType;
+import org.redisson.api.RedissonClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static org.killbill.billing.util.glue.CacheModule.REDIS_CACHE_CLIENT;
+
+public class TenantBroadcastTransportProvider implements Provider<TenantBroadcastTransport> {
+
+    private static final Logger logger = LoggerFactory.getLogger(TenantBroadcastTransportProvider.class);
+
+    private final TenantConfig tenantConfig;
+    private final RedissonClient redissonClient;
+
+    @Inject
+    public TenantBroadcastTransportProvider(final TenantConfig tenantConfig,
+                                            @Nullable @Named(REDIS_CACHE_CLIENT) final RedissonClient redissonClient) {
+        this.tenantConfig = tenantConfig;
+        this.redissonClient = redissonClient;
+    }
+
+    @Override
+    public TenantBroadcastTransport get() {
+        if (tenantConfig.getTenantBroadcastTransport() == TenantBroadcastTransportType.REDIS) {
+            if (redissonClient != null) {
+                return new RedisTenantBroadcastTransport(redissonClient);
+            }
+            logger.warn("Tenant broadcast transport is REDIS but Redis caching isn't enabled: falling back to LOCAL, tenant broadcasts will only be pushed to the current node (other nodes rely on polling)");
+        }
+        // Also used when push is disabled: TenantCacheInvalidation doesn't subscribe in that case
+        return new LocalTenantBroadcastTransport();
+    }
+}
@@ -17,9 +17,20 @@
 
 package org.killbill.billing.tenant.api;
 
+import java.util.List;
+import java.util.Optional;
+
 import org.killbill.billing.tenant.TenantTestSuiteNoDB;
 import org.killbill.billing.tenant.api.TenantInternalApi.CacheInvalidationCallback;
 import org.killbill.billing.tenant.api.TenantKV.TenantKey;
+import org.killbill.billing.tenant.dao.TenantBroadcastDao;
+import org.killbill.billing.tenant.dao.TenantBroadcastModelDao;
+import org.killbill.billing.util.config.definition.TenantConfig;
+import org.killbill.billing.util.config.definition.TenantConfig.TenantBroadcastTransportType;
+import org.killbill.billing.util.nodes.dao.NodeInfoDao;
+import org.killbill.commons.metrics.impl.NoOpMetricRegistry;
+import org.mockito.Mockito;
+import org.skife.config.TimeSpan;
 import org.testng.annotations.Test;
 
 import static org.mockito.Mockito.mock;
@@ -57,4 +68,85 @@ public class TestTenantCacheInvalidation extends TenantTestSuiteNoDB {
         assertEquals(tenantCache.getCacheInvalidations(KEY2).size(), 1);
         assertEquals(tenantCache.getCacheInvalidations(KEY3).size(), 2);
     }
+
+    @Test(groups = "fast")
+    public void testPushTriggersImmediatePoll() throws Exception {
+        final TenantBroadcastDao broadcastDao = mockBroadcastDao();
+        final TenantBroadcastTransport transport = new LocalTenantBroadcastTransport();
+        final TenantCacheInvalidation tenantCache = newStartedTenantCacheInvalidation(broadcastDao, transport, TenantBroadcastTransportType.LOCAL);
+        try {
+            assertEquals(tenantCache.getLatestRecordIdProcessed().get(), 0L);
+
+            transport.publish();
+            awaitLatestRecordIdProcessed(tenantCache, 1L);
+        } finally {
+            tenantCache.stop();
+        }
+    }
+
+    @Test(groups = "fast")
+    public void testPushDisabled() throws Exception {
+        final TenantBroadcastDao broadcastDao = mockBroadcastDao();
+        final TenantBroadcastTransport transport = new LocalTenantBroadcastTransport();
+        final TenantCacheInvalidation tenantCache = newStartedTenantCacheInvalidation(broadcastDao, transport, TenantBroadcastTransportType.NONE);
+        try {
+            transport.publish();
+            Thread.sleep(200);
+            // Entries are only picked up by the (hourly) poll
+            assertEquals(tenantCache.getLatestRecordIdProcessed().get(), 0L);
+            Mockito.verify(broadcastDao, Mockito.never()).getLatestEntriesFrom(Mockito.anyLong());
+        } finally {
+            tenantCache.stop();
+        }
+    }
+
+    @Test(groups = "fast")
+    public void testOtherNodesOnlyLookedUpWithLocalPush() throws Exception {
+        final NodeInfoDao nodeInfoDao = mock(NodeInfoDao.class);
+        Mockito.when(nodeInfoDao.getAll()).thenReturn(List.of());
+
+        final TenantCacheInvalidation localPush = newStartedTenantCacheInvalidation(mockBroadcastDao(), new LocalTenantBroadcastTransport(), TenantBroadcastTransportType.LOCAL, nodeInfoDao);
+        localPush.stop();
+        Mockito.verify(nodeInfoDao, Mockito.times(1)).getAll();
+
+        final TenantCacheInvalidation noPush = newStartedTenantCacheInvalidation(mockBroadcastDao(), new LocalTenantBroadcastTransport(), TenantBroadcastTransportType.NONE, nodeInfoDao);
+        noPush.stop();
+        Mockito.verify(nodeInfoDao, Mockito.times(1)).getAll();
+    }
+
+    private TenantBroadcastDao mockBroadcastDao() {
+        final TenantBroadcastModelDao entry = new TenantBroadcastModelDao(null, TenantKey.PUSH_NOTIFICATION_CB.toString(), null);
+        entry.setRecordId(1L);
+        final TenantBroadcastDao broadcastDao = mock(TenantBroadcastDao.class);
+        Mockito.when(broadcastDao.getLatestEntriesFrom(0L)).thenReturn(List.of(entry));
+        return broadcastDao;
+    }
+
+    private TenantCacheInvalidation newStartedTenantCacheInvalidation(final TenantBroadcastDao broadcastDao,
+                                                                      final TenantBroadcastTransport transport,
+                                                                      final TenantBroadcastTransportType transportType) {
+        return newStartedTenantCacheInvalidation(broadcastDao, transport, transportType, null);
+    }
+
+    private TenantCacheInvalidation newStartedTenantCacheInvalidation(final TenantBroadcastDao broadcastDao,
+                                                                      final TenantBroadcastTransport transport,
+                                                                      final TenantBroadcastTransportType transportType,
+                                                                      final NodeInfoDao nodeInfoDao) {
+        final TenantConfig tenantConfig = mock(TenantConfig.class);
+        Mockito.when(tenantConfig.getTenantBroadcastServiceRunningRate()).thenReturn(new TimeSpan("1h"));
+        Mockito.when(tenantConfig.getTenantBroadcastTransport()).thenReturn(transportType);
+
+        final TenantCacheInvalidation tenantCache = new TenantCacheInvalidation(broadcastDao, null, null, tenantConfig, transport, new NoOpMetricRegistry(), Optional.ofNullable(nodeInfoDao));
+        tenantCache.initialize();
+        tenantCache.start();
+        return tenantCache;
+    }
+
+    private void awaitLatestRecordIdProcessed(final TenantCacheInvalidation tenantCache, final long expectedRecordId) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + 5000;
+        while (tenantCache.getLatestRecordIdProcessed().get() != expectedRecordId && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(tenantCache.getLatestRecordIdProcessed().get(), expectedRecordId);
+    }
 }
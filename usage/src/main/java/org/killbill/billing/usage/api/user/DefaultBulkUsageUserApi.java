@@ -0,0 +1,146 @@
+/*
+ * Copyright 2020-2026 Equinix, Inc
+ * Copyright 2014-2026 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.usage.api.user;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import javax.inject.Inject;
+
+import org.joda.time.DateTime;
+import org.killbill.billing.ErrorCode;
+import org.killbill.billing.ObjectType;
+import org.killbill.billing.callcontext.InternalCallContext;
+import org.killbill.billing.entitlement.EntitlementInternalApi;
+import org.killbill.billing.entitlement.api.Entitlement;
+import org.killbill.billing.entitlement.api.EntitlementApiException;
+import org.killbill.billing.usage.BulkUsageUserApi;
+import org.killbill.billing.usage.api.SubscriptionUsageRecord;
+import org.killbill.billing.usage.api.UsageApiException;
+import org.killbill.billing.usage.dao.RolledUpUsageDao;
+import org.killbill.billing.usage.dao.RolledUpUsageModelDao;
+import org.killbill.billing.usage.dao.SubscriptionTrackingId;
+import org.killbill.billing.util.UUIDs;
+import org.killbill.billing.util.callcontext.CallContext;
+import org.killbill.billing.util.callcontext.InternalCallContextFactory;
+
+public class DefaultBulkUsageUserApi implements BulkUsageUserApi {
+
+    private final RolledUpUsageDao rolledUpUsageDao;
+    private final EntitlementInternalApi entitlementInternalApi;
+    private final InternalCallContextFactory internalCallContextFactory;
+
+    @Inject
+    public DefaultBulkUsageUserApi(final RolledUpUsageDao rolledUpUsageDao, final EntitlementInternalApi entitlementInternalApi, final InternalCallContextFactory internalCallContextFactory) {
+        this.rolledUpUsageDao = rolledUpUsageDao;
+        this.entitlementInternalApi = entitlementInternalApi;
+        this.internalCallContextFactory = internalCallContextFactory;
+    }
+
+    @Override
+    public void recordRolledUpUsage(final List<SubscriptionUsageRecord> records, final CallContext callContext) throws UsageApiException {
+        if (records.isEmpty()) {
+            return;
+        }
+
+        // Resolve the account record ids of all subscriptions at once, instead of one internal context per record
+        final Set<UUID> subscriptionIds = records.stream()
+                                                 .map(SubscriptionUsageRecord::getSubscriptionId)
+                                                 .collect(Collectors.toSet());
+        final Map<UUID, Long> accountRecordIds = internalCallContextFactory.getAccountRecordIdsFromObjects(subscriptionIds, ObjectType.SUBSCRIPTION, callContext);
+        for (final UUID subscriptionId : subscriptionIds) {
+            if (accountRecordIds.get(subscriptionId) == null) {
+                throw new UsageApiException(ErrorCode.SUB_INVALID_SUBSCRIPTION_ID, subscriptionId);
+            }
+        }
+        final InternalCallContext contextWithoutAccountRecordId = internalCallContextFactory.createInternalCallContextWithoutAccountRecordId(callContext);
+
+        final List<String> trackingIds = new ArrayList<>(records.size());
+        final Set<SubscriptionTrackingId> suppliedTrackingIds = new HashSet<>();
+        for (final SubscriptionUsageRecord record : records) {
+            if (record.getTrackingId() == null || record.getTrackingId().isEmpty()) {
+                trackingIds.add(UUIDs.randomUUID().toString());
+            } else if (!suppliedTrackingIds.add(new SubscriptionTrackingId(record.getSubscriptionId(), record.getTrackingId()))) {
+                // Same tracking id specified twice for a subscription in that batch
+                throw new UsageApiException(ErrorCode.USAGE_RECORD_TRACKING_ID_ALREADY_EXISTS, record.getTrackingId());
+            } else {
+                trackingIds.add(record.getTrackingId());
+            }
+        }
+        // Single (set based) query for all supplied tracking ids
+        if (!suppliedTrackingIds.isEmpty()) {
+            final Set<SubscriptionTrackingId> existingTrackingIds = rolledUpUsageDao.getExistingTrackingIds(suppliedTrackingIds, contextWithoutAccountRecordId);
+            if (!existingTrackingIds.isEmpty()) {
+                throw new UsageApiException(ErrorCode.USAGE_RECORD_TRACKING_ID_ALREADY_EXISTS, existingTrackingIds.iterator().next().getTrackingId());
+            }
+        }
+
+        final Map<Long, List<RolledUpUsageModelDao>> usagesPerAccountRecordId = new LinkedHashMap<>();
+        for (int i = 0; i < records.size(); i++) {
+            final SubscriptionUsageRecord record = records.get(i);
+            usagesPerAccountRecordId.computeIfAbsent(accountRecordIds.get(record.getSubscriptionId()), k -> new ArrayList<>())
+                                    .addAll(DefaultUsageUserApi.toRolledUpUsageModelDaos(record, trackingIds.get(i)));
+        }
+
+        final Map<InternalCallContext, List<RolledUpUsageModelDao>> usagesPerAccount = new LinkedHashMap<>();
+        for (final Entry<Long, List<RolledUpUsageModelDao>> entry : usagesPerAccountRecordId.entrySet()) {
+            final InternalCallContext context = internalCallContextFactory.createInternalCallContext(entry.getKey(), contextWithoutAccountRecordId);
+            verifyEntitlements(entry.getValue(), context);
+            usagesPerAccount.put(context, entry.getValue());
+        }
+        rolledUpUsageDao.record(usagesPerAccount);
+    }
+
+    // Load the entitlements once per account (instead of once per subscription) and reject usage past their effective end date
+    private void verifyEntitlements(final Iterable<RolledUpUsageModelDao> usages, final InternalCallContext context) throws UsageApiException {
+        final Map<UUID, DateTime> highestRecordDatePerSubscription = new HashMap<>();
+        for (final RolledUpUsageModelDao usage : usages) {
+            highestRecordDatePerSubscription.merge(usage.getSubscriptionId(), usage.getRecordDate(), (a, b) -> a.compareTo(b) >= 0 ? a : b);
+        }
+
+        final Map<UUID, Entitlement> entitlements = new HashMap<>();
+        try {
+            for (final Collection<Entitlement> bundleEntitlements : entitlementInternalApi.getAllEntitlementsForAccount(context).getEntitlements().values()) {
+                for (final Entitlement entitlement : bundleEntitlements) {
+                    entitlements.put(entitlement.getId(), entitlement);
+                }
+            }
+        } catch (final EntitlementApiException e) {
+            throw new UsageApiException(e, e.getCode(), e.getMessage());
+        }
+
+        for (final Entry<UUID, DateTime> entry : highestRecordDatePerSubscription.entrySet()) {
+            final Entitlement entitlement = entitlements.get(entry.getKey());
+            if (entitlement == null) {
+                throw new UsageApiException(ErrorCode.SUB_INVALID_SUBSCRIPTION_ID, entry.getKey());
+            }
+            if (entitlement.getEffectiveEndDate() != null && entitlement.getEffectiveEndDate().compareTo(entry.getValue()) < 0) {
+                throw new UsageApiException(ErrorCode.ENT_INVALID_REQUESTED_DATE, entry.getValue());
+            }
+        }
+    }
+}
@@ -28,6 +28,7 @@ import javax.annotation.Nullable;
 import javax.inject.Inject;
 
 import org.joda.time.DateTime;
+import org.joda.time.DateTimeConstants;
 import org.killbill.billing.ErrorCode;
 import org.killbill.billing.ObjectType;
 import org.killbill.billing.callcontext.InternalCallContext;
@@ -44,6 +45,7 @@ import org.killbill.billing.usage.api.UnitUsageRecord;
 import org.killbill.billing.usage.api.UsageApiException;
 import org.killbill.billing.usage.api.UsageRecord;
 import org.killbill.billing.usage.api.UsageUserApi;
+import org.killbill.billing.usage.dao.RolledUpDailyUsageModelDao;
 import org.killbill.billing.usage.dao.RolledUpUsageDao;
 import org.killbill.billing.usage.dao.RolledUpUsageModelDao;
 import org.killbill.billing.usage.plugin.api.UsageContext;
@@ -52,19 +54,23 @@ import org.killbill.billing.util.UUIDs;
 import org.killbill.billing.util.callcontext.CallContext;
 import org.killbill.billing.util.callcontext.InternalCallContextFactory;
 import org.killbill.billing.util.callcontext.TenantContext;
+import org.killbill.billing.util.config.definition.UsageConfig;
 
 public class DefaultUsageUserApi extends BaseUserApi implements UsageUserApi {
 
     private final RolledUpUsageDao rolledUpUsageDao;
     private final InternalCallContextFactory internalCallContextFactory;
+    private final UsageConfig usageConfig;
 
     @Inject
     public DefaultUsageUserApi(final RolledUpUsageDao rolledUpUsageDao,
                                final InternalCallContextFactory internalCallContextFactory,
-                               final OSGIServiceRegistration<UsagePluginApi> pluginRegistry) {
+                               final OSGIServiceRegistration<UsagePluginApi> pluginRegistry,
+                               final UsageConfig usageConfig) {
         super(pluginRegistry);
         this.rolledUpUsageDao = rolledUpUsageDao;
         this.internalCallContextFactory = internalCallContextFactory;
+        this.usageConfig = usageConfig;
     }
 
     @Override
@@ -81,14 +87,17 @@ public class DefaultUsageUserApi extends BaseUserApi implements UsageUserApi {
             trackingIds = record.getTrackingId();
         }
 
+        rolledUpUsageDao.record(toRolledUpUsageModelDaos(record, trackingIds), internalCallContext);
+    }
 
+    static List<RolledUpUsageModelDao> toRolledUpUsageModelDaos(final SubscriptionUsageRecord record, final String trackingId) {
         final List<RolledUpUsageModelDao> usages = new ArrayList<>();
         for (final UnitUsageRecord unitUsageRecord : record.getUnitUsageRecord()) {
             for (final UsageRecord usageRecord : unitUsageRecord.getDailyAmount()) {
-                usages.add(new RolledUpUsageModelDao(record.getSubscriptionId(), unitUsageRecord.getUnitType(), usageRecord.getDate(), usageRecord.getAmount(), trackingIds));
+                usages.add(new RolledUpUsageModelDao(record.getSubscriptionId(), unitUsageRecord.getUnitType(), usageRecord.getDate(), usageRecord.getAmount(), trackingId));
             }
         }
-        rolledUpUsageDao.record(usages, internalCallContext);
+        return usages;
     }
 
     @Override
@@ -102,8 +111,13 @@ public class DefaultUsageUserApi extends BaseUserApi implements UsageUserApi {
             return new DefaultRolledUpUsage(subscriptionId, startDate, endDate, rolledUpAmount);
         }
 
-        final List<RolledUpUsageModelDao> usageForSubscription = rolledUpUsageDao.getUsageForSubscription(subscriptionId, startDate, endDate, unitType, internalCallContextFactory.createInternalTenantContext(subscriptionId, ObjectType.SUBSCRIPTION, tenantContext));
-        final List<RolledUpUnit> rolledUpAmount = getRolledUpUnits(usageForSubscription);
+        final InternalTenantContext internalTenantContext = internalCallContextFactory.createInternalTenantContext(subscriptionId, ObjectType.SUBSCRIPTION, tenantContext);
+        final List<RolledUpUnit> rolledUpAmount;
+        if (isDailyRollupReadable(startDate, endDate)) {
+            rolledUpAmount = getRolledUpUnitsForDailyUsage(rolledUpUsageDao.getDailyUsageForSubscription(subscriptionId, startDate, endDate, unitType, internalTenantContext));
+        } else {
+            rolledUpAmount = getRolledUpUnits(rolledUpUsageDao.getUsageForSubscription(subscriptionId, startDate, endDate, unitType, internalTenantContext));
+        }
         return new DefaultRolledUpUsage(subscriptionId, startDate, endDate, rolledUpAmount);
     }
 
@@ -123,8 +137,12 @@ public class DefaultUsageUserApi extends BaseUserApi implements UsageUserApi {
                     final List<RolledUpUnit> rolledUpAmount = getRolledUpUnitsForRawPluginUsage(subscriptionId, null, rawUsage);
                     result.add(new DefaultRolledUpUsage(subscriptionId, prevDate, curDate, rolledUpAmount));
                 } else {
-                    final List<RolledUpUsageModelDao> usageForSubscription = rolledUpUsageDao.getAllUsageForSubscription(subscriptionId, prevDate, curDate, internalCallContext);
-                    final List<RolledUpUnit> rolledUpAmount = getRolledUpUnits(usageForSubscription);
+                    final List<RolledUpUnit> rolledUpAmount;
+                    if (isDailyRollupReadable(prevDate, curDate)) {
+                        rolledUpAmount = getRolledUpUnitsForDailyUsage(rolledUpUsageDao.getAllDailyUsageForSubscription(subscriptionId, prevDate, curDate, internalCallContext));
+                    } else {
+                        rolledUpAmount = getRolledUpUnits(rolledUpUsageDao.getAllUsageForSubscription(subscriptionId, prevDate, curDate, internalCallContext));
+                    }
                     result.add(new DefaultRolledUpUsage(subscriptionId, prevDate, curDate, rolledUpAmount));
                 }
             }
@@ -133,6 +151,15 @@ public class DefaultUsageUserApi extends BaseUserApi implements UsageUserApi {
         return result;
     }
 
+    // The daily rollup only gives the same result as the raw usage for ranges made of whole UTC days
+    private boolean isDailyRollupReadable(final DateTime startDate, final DateTime endDate) {
+        return usageConfig.isDailyRollupReadEnabled() && isStartOfUTCDay(startDate) && isStartOfUTCDay(endDate);
+    }
+
+    private static boolean isStartOfUTCDay(final DateTime dateTime) {
+        return Math.floorMod(dateTime.getMillis(), (long) DateTimeConstants.MILLIS_PER_DAY) == 0;
+    }
+
     private List<RolledUpUnit> getRolledUpUnitsForRawPluginUsage(final UUID subscriptionId, @Nullable final String unitType, final List<RawUsageRecord> rawAccountUsage) {
         final Map<String, BigDecimal> tmp = new HashMap<>();
         for (final RawUsageRecord cur : rawAccountUsage) {
@@ -167,6 +194,13 @@ public class DefaultUsageUserApi extends BaseUserApi implements UsageUserApi {
                   .collect(Collectors.toUnmodifiableList());
     }
 
+    // Amounts are already summed per unit type by the query
+    private List<RolledUpUnit> getRolledUpUnitsForDailyUsage(final List<RolledUpDailyUsageModelDao> dailyUsageForSubscription) {
+        return dailyUsageForSubscription.stream()
+                                        .map(e -> new DefaultRolledUpUnit(e.getUnitType(), e.getAmount()))
+                                        .collect(Collectors.toUnmodifiableList());
+    }
+
     private boolean recordsWithTrackingIdExist(final SubscriptionUsageRecord record, final InternalCallContext context) {
         return rolledUpUsageDao.recordsWithTrackingIdExist(record.getSubscriptionId(), record.getTrackingId(), context);
     }
@@ -18,33 +18,159 @@
 
 package org.killbill.billing.usage.dao;
 
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Objects;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 import javax.inject.Inject;
 import javax.inject.Named;
 
 import org.joda.time.DateTime;
-import org.joda.time.LocalDate;
+import org.joda.time.DateTimeZone;
 import org.killbill.billing.callcontext.InternalCallContext;
 import org.killbill.billing.callcontext.InternalTenantContext;
 import org.killbill.billing.util.entity.dao.DBRouter;
+import org.killbill.commons.jdbi.mapper.LowerToCamelBeanMapperFactory;
+import org.killbill.commons.metrics.api.Meter;
+import org.killbill.commons.metrics.api.MetricRegistry;
+import org.killbill.commons.metrics.api.Timer;
+import org.skife.jdbi.v2.DBI;
+import org.skife.jdbi.v2.Handle;
 import org.skife.jdbi.v2.IDBI;
+import org.skife.jdbi.v2.exceptions.UnableToExecuteStatementException;
 
 import static org.killbill.billing.util.glue.IDBISetup.MAIN_RO_IDBI_NAMED;
 
 public class DefaultRolledUpUsageDao implements RolledUpUsageDao {
 
+    private static final int MAX_IDS_PER_QUERY = 1000;
+
+    private static final String POSTGRESQL = "PostgreSQL";
+    private static final String H2 = "H2";
+
+    private static final String H2_MERGE_CHECKPOINT = "daily_usage_merge";
+    private static final int MAX_H2_MERGE_ATTEMPTS = 10;
+    private static final String UNIQUE_KEY_VIOLATION_SQL_STATE = "23505";
+
+    private static final Comparator<RolledUpDailyUsageModelDao> DAILY_USAGE_ORDERING = Comparator.comparing(RolledUpDailyUsageModelDao::getSubscriptionId)
+                                                                                                  .thenComparing(RolledUpDailyUsageModelDao::getUnitType)
+                                                                                                  .thenComparing(RolledUpDailyUsageModelDao::getRecordDate);
+
+    private final IDBI dbi;
     private final DBRouter<RolledUpUsageSqlDao> dbRouter;
+    private final DBRouter<RolledUpDailyUsageSqlDao> dailyDbRouter;
+    private final Timer recordBatchTimer;
+    private final Meter recordedRowsMeter;
 
     @Inject
-    public DefaultRolledUpUsageDao(final IDBI dbi, @Named(MAIN_RO_IDBI_NAMED) final IDBI roDbi) {
+    public DefaultRolledUpUsageDao(final IDBI dbi, @Named(MAIN_RO_IDBI_NAMED) final IDBI roDbi, final MetricRegistry metricRegistry) {
+        this.dbi = dbi;
+        this.recordBatchTimer = metricRegistry.timer("killbill.usage.record.batch");
+        this.recordedRowsMeter = metricRegistry.meter("killbill.usage.record.rows");
         this.dbRouter = new DBRouter<RolledUpUsageSqlDao>(dbi, roDbi, RolledUpUsageSqlDao.class);
+        this.dailyDbRouter = new DBRouter<RolledUpDailyUsageSqlDao>(dbi, roDbi, RolledUpDailyUsageSqlDao.class);
+        ((DBI) dbi).registerMapper(new LowerToCamelBeanMapperFactory(RolledUpDailyUsageModelDao.class));
+        if (roDbi != dbi) {
+            ((DBI) roDbi).registerMapper(new LowerToCamelBeanMapperFactory(RolledUpDailyUsageModelDao.class));
+        }
     }
 
     @Override
     public void record(final Iterable<RolledUpUsageModelDao> usages, final InternalCallContext context) {
-        dbRouter.onDemand(false).create(usages, context);
+        record(Map.of(context, usages));
+    }
+
+    @Override
+    public void record(final Map<InternalCallContext, ? extends Iterable<RolledUpUsageModelDao>> usagesPerAccount) {
+        if (usagesPerAccount.isEmpty()) {
+            return;
+        }
+
+        final List<RolledUpUsageModelDao> allUsages = new ArrayList<>();
+        final List<RolledUpDailyUsageModelDao> allDailyUsages = new ArrayList<>();
+        for (final Entry<InternalCallContext, ? extends Iterable<RolledUpUsageModelDao>> entry : usagesPerAccount.entrySet()) {
+            final InternalCallContext context = entry.getKey();
+            for (final RolledUpUsageModelDao usage : entry.getValue()) {
+                usage.setAccountRecordId(context.getAccountRecordId());
+                usage.setTenantRecordId(context.getTenantRecordId());
+                usage.setCreatedDate(context.getCreatedDate());
+                allUsages.add(usage);
+            }
+            allDailyUsages.addAll(aggregatePerDay(entry.getValue(), context));
+        }
+        // Upsert the rows in a consistent order, to avoid deadlocks between concurrent batches
+        allDailyUsages.sort(DAILY_USAGE_ORDERING);
+        // All contexts belong to the same call, hence the same tenant
+        final InternalCallContext context = usagesPerAccount.keySet().iterator().next();
+
+        final long startNanos = System.nanoTime();
+        // The daily rollup is maintained in the same transaction as the raw usage
+        // (handle opened explicitly so that failures surface as is, and not wrapped in a CallbackFailedException)
+        try (final Handle handle = dbi.open()) {
+            handle.inTransaction((h, status) -> {
+                record(h, allUsages, allDailyUsages, context);
+                return null;
+            });
+        }
+        recordBatchTimer.update(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        recordedRowsMeter.mark(allUsages.size());
+    }
+
+    private void record(final Handle handle, final List<RolledUpUsageModelDao> usages, final List<RolledUpDailyUsageModelDao> dailyUsages, final InternalCallContext context) throws SQLException {
+        handle.attach(RolledUpUsageSqlDao.class).createAll(usages, context.getCreatedBy());
+
+        if (dailyUsages.isEmpty()) {
+            return;
+        }
+        final RolledUpDailyUsageSqlDao dailySqlDao = handle.attach(RolledUpDailyUsageSqlDao.class);
+        final String databaseProductName = handle.getConnection().getMetaData().getDatabaseProductName();
+        if (POSTGRESQL.equalsIgnoreCase(databaseProductName)) {
+            dailySqlDao.upsertPostgreSQL(dailyUsages);
+        } else if (H2.equalsIgnoreCase(databaseProductName)) {
+            upsertH2(handle, dailySqlDao, dailyUsages);
+        } else {
+            dailySqlDao.upsert(dailyUsages);
+        }
+    }
+
+    // Unlike the MySQL and PostgreSQL upserts, the H2 merge isn't atomic: a concurrent writer can create the day
+    // after the merge looked for it. The merge is then replayed, the conflicting row being committed by then.
+    private static void upsertH2(final Handle handle, final RolledUpDailyUsageSqlDao dailySqlDao, final List<RolledUpDailyUsageModelDao> dailyUsages) {
+        for (int attempt = 1; ; attempt++) {
+            handle.checkpoint(H2_MERGE_CHECKPOINT);
+            try {
+                dailySqlDao.upsertH2(dailyUsages);
+                handle.release(H2_MERGE_CHECKPOINT);
+                return;
+            } catch (final UnableToExecuteStatementException e) {
+                if (attempt >= MAX_H2_MERGE_ATTEMPTS || !isUniqueKeyViolation(e)) {
+                    throw e;
+                }
+                handle.rollback(H2_MERGE_CHECKPOINT);
+            }
+        }
+    }
+
+    private static boolean isUniqueKeyViolation(final Throwable t) {
+        for (Throwable cur = t; cur != null; cur = cur.getCause()) {
+            for (SQLException sqlException = cur instanceof SQLException ? (SQLException) cur : null; sqlException != null; sqlException = sqlException.getNextException()) {
+                if (UNIQUE_KEY_VIOLATION_SQL_STATE.equals(sqlException.getSQLState())) {
+                    return true;
+                }
+            }
+        }
+        return false;
     }
 
     @Override
@@ -52,6 +178,28 @@ public class DefaultRolledUpUsageDao implements RolledUpUsageDao {
         return dbRouter.onDemand(false).recordsWithTrackingIdExist(subscriptionId, trackingId, context) != null;
     }
 
+    @Override
+    public Set<SubscriptionTrackingId> getExistingTrackingIds(final Set<SubscriptionTrackingId> subscriptionTrackingIds, final InternalTenantContext context) {
+        final List<String> trackingIds = subscriptionTrackingIds.stream()
+                                                                .map(SubscriptionTrackingId::getTrackingId)
+                                                                .distinct()
+                                                                .collect(Collectors.toUnmodifiableList());
+
+        final Set<SubscriptionTrackingId> result = new HashSet<>();
+        final RolledUpUsageSqlDao sqlDao = dbRouter.onDemand(false);
+        for (int i = 0; i < trackingIds.size(); i += MAX_IDS_PER_QUERY) {
+            final List<String> chunk = trackingIds.subList(i, Math.min(i + MAX_IDS_PER_QUERY, trackingIds.size()));
+            for (final RolledUpUsageModelDao cur : sqlDao.getSubscriptionTrackingIds(chunk, context)) {
+                final SubscriptionTrackingId existing = new SubscriptionTrackingId(cur.getSubscriptionId(), cur.getTrackingId());
+                // The same tracking id may have been used by other subscriptions
+                if (subscriptionTrackingIds.contains(existing)) {
+                    result.add(existing);
+                }
+            }
+        }
+        return result;
+    }
+
     @Override
     public List<RolledUpUsageModelDao> getUsageForSubscription(final UUID subscriptionId, final DateTime startDate, final DateTime endDate, final String unitType, final InternalTenantContext context) {
         return dbRouter.onDemand(true).getUsageForSubscription(subscriptionId, startDate.toDate(), endDate.toDate(), unitType, context);
@@ -67,4 +215,66 @@ public class DefaultRolledUpUsageDao implements RolledUpUsageDao {
     public List<RolledUpUsageModelDao> getRawUsageForAccount(final DateTime startDate, final DateTime endDate, final InternalTenantContext context) {
         return dbRouter.onDemand(true).getRawUsageForAccount(startDate.toDate(), endDate.toDate(), context);
     }
+
+    @Override
+    public List<RolledUpDailyUsageModelDao> getDailyUsageForSubscription(final UUID subscriptionId, final DateTime startDate, final DateTime endDate, final String unitType, final InternalTenantContext context) {
+        return dailyDbRouter.onDemand(true).getUsageForSubscription(subscriptionId, startDate.toDate(), endDate.toDate(), unitType, context);
+    }
+
+    @Override
+    public List<RolledUpDailyUsageModelDao> getAllDailyUsageForSubscription(final UUID subscriptionId, final DateTime startDate, final DateTime endDate, final InternalTenantContext context) {
+        return dailyDbRouter.onDemand(true).getAllUsageForSubscription(subscriptionId, startDate.toDate(), endDate.toDate(), context);
+    }
+
+    // Days are UTC days, record dates being stored in UTC
+    private static List<RolledUpDailyUsageModelDao> aggregatePerDay(final Iterable<RolledUpUsageModelDao> usages, final InternalCallContext context) {
+        final Map<DailyUsageKey, BigDecimal> perDayAmount = new LinkedHashMap<>();
+        for (final RolledUpUsageModelDao usage : usages) {
+            final DateTime day = usage.getRecordDate().withZone(DateTimeZone.UTC).withTimeAtStartOfDay();
+            perDayAmount.merge(new DailyUsageKey(usage.getSubscriptionId(), usage.getUnitType(), day), usage.getAmount(), BigDecimal::add);
+        }
+
+        final List<RolledUpDailyUsageModelDao> result = new ArrayList<>(perDayAmount.size());
+        for (final Entry<DailyUsageKey, BigDecimal> entry : perDayAmount.entrySet()) {
+            final RolledUpDailyUsageModelDao dailyUsage = new RolledUpDailyUsageModelDao(entry.getKey().subscriptionId, entry.getKey().unitType, entry.getKey().recordDate, entry.getValue());
+            dailyUsage.setCreatedDate(context.getCreatedDate());
+            dailyUsage.setUpdatedDate(context.getUpdatedDate());
+            dailyUsage.setAccountRecordId(context.getAccountRecordId());
+            dailyUsage.setTenantRecordId(context.getTenantRecordId());
+            result.add(dailyUsage);
+        }
+        return result;
+    }
+
+    private static final class DailyUsageKey {
+
+        private final UUID subscriptionId;
+        private final String unitType;
+        private final DateTime recordDate;
+
+        private DailyUsageKey(final UUID subscriptionId, final String unitType, final DateTime recordDate) {
+            this.subscriptionId = subscriptionId;
+            this.unitType = unitType;
+            this.recordDate = recordDate;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            final DailyUsageKey that = (DailyUsageKey) o;
+            return subscriptionId.equals(that.subscriptionId) &&
+                   unitType.equals(that.unitType) &&
+                   recordDate.getMillis() == that.recordDate.getMillis();
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(subscriptionId, unitType, recordDate.getMillis());
+        }
+    }
 }
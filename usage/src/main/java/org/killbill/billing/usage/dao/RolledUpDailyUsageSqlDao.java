@@ -0,0 +1,66 @@
+/*
+ * Copyright 2020-2026 Equinix, Inc
+ * Copyright 2014-2026 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.usage.dao;
+
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+import org.killbill.billing.callcontext.InternalTenantContext;
+import org.killbill.commons.jdbi.binder.SmartBindBean;
+import org.killbill.commons.jdbi.template.KillBillSqlDaoStringTemplate;
+import org.skife.jdbi.v2.sqlobject.Bind;
+import org.skife.jdbi.v2.sqlobject.SqlBatch;
+import org.skife.jdbi.v2.sqlobject.SqlQuery;
+import org.skife.jdbi.v2.sqlobject.customizers.BatchChunkSize;
+import org.skife.jdbi.v2.sqlobject.mixins.CloseMe;
+import org.skife.jdbi.v2.sqlobject.mixins.Transactional;
+
+@KillBillSqlDaoStringTemplate
+public interface RolledUpDailyUsageSqlDao extends Transactional<RolledUpDailyUsageSqlDao>, CloseMe {
+
+    // Entities carry their own account and tenant record ids, so that a batch can span several accounts.
+    // The amount is added to the existing row, if any, for the same (subscription, unit type, day): the upsert
+    // relies on the unique index, so concurrent writers don't need to see each other's rows.
+    @SqlBatch
+    @BatchChunkSize(1000) // Arbitrary value, just a safety mechanism in case of very large datasets
+    public void upsert(@SmartBindBean final Iterable<RolledUpDailyUsageModelDao> entities);
+
+    @SqlBatch
+    @BatchChunkSize(1000) // Arbitrary value, just a safety mechanism in case of very large datasets
+    public void upsertPostgreSQL(@SmartBindBean final Iterable<RolledUpDailyUsageModelDao> entities);
+
+    @SqlBatch
+    @BatchChunkSize(1000) // Arbitrary value, just a safety mechanism in case of very large datasets
+    public void upsertH2(@SmartBindBean final Iterable<RolledUpDailyUsageModelDao> entities);
+
+    // Returns one row per unit type, with the summed amount
+    @SqlQuery
+    public List<RolledUpDailyUsageModelDao> getUsageForSubscription(@Bind("subscriptionId") final UUID subscriptionId,
+                                                                    @Bind("startDate") final Date startDate,
+                                                                    @Bind("endDate") final Date endDate,
+                                                                    @Bind("unitType") final String unitType,
+                                                                    @SmartBindBean final InternalTenantContext context);
+
+    // Returns one row per unit type, with the summed amount
+    @SqlQuery
+    public List<RolledUpDailyUsageModelDao> getAllUsageForSubscription(@Bind("subscriptionId") final UUID subscriptionId,
+                                                                       @Bind("startDate") final Date startDate,
+                                                                       @Bind("endDate") final Date endDate,
+                                                                       @SmartBindBean final InternalTenantContext context);
+}
@@ -17,6 +17,8 @@
 package org.killbill.billing.usage.dao;
 
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 import org.joda.time.DateTime;
@@ -27,11 +29,23 @@ public interface RolledUpUsageDao {
 
     void record(Iterable<RolledUpUsageModelDao> usages, InternalCallContext context);
 
+    // Records usage for several accounts (one context per account) in a single transaction
+    void record(Map<InternalCallContext, ? extends Iterable<RolledUpUsageModelDao>> usagesPerAccount);
+
     Boolean recordsWithTrackingIdExist(UUID subscriptionId, String trackingId, InternalTenantContext context);
 
+    // Returns the subset of the specified (subscription id, tracking id) pairs which have already been recorded
+    Set<SubscriptionTrackingId> getExistingTrackingIds(Set<SubscriptionTrackingId> subscriptionTrackingIds, InternalTenantContext context);
+
     List<RolledUpUsageModelDao> getUsageForSubscription(UUID subscriptionId, DateTime startDate, DateTime endDate, String unitType, InternalTenantContext context);
 
     List<RolledUpUsageModelDao> getAllUsageForSubscription(UUID subscriptionId, DateTime startDate, DateTime endDate, InternalTenantContext context);
 
     List<RolledUpUsageModelDao> getRawUsageForAccount(DateTime startDate, DateTime endDate, InternalTenantContext context);
+
+    // Per unit type totals, read from the daily rollup table (no tracking id information)
+    List<RolledUpDailyUsageModelDao> getDailyUsageForSubscription(UUID subscriptionId, DateTime startDate, DateTime endDate, String unitType, InternalTenantContext context);
+
+    // Per unit type totals, read from the daily rollup table (no tracking id information)
+    List<RolledUpDailyUsageModelDao> getAllDailyUsageForSubscription(UUID subscriptionId, DateTime startDate, DateTime endDate, InternalTenantContext context);
 }
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2020-2026 Equinix, Inc
+ * Copyright 2014-2026 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.usage.dao;
+
+import java.util.Objects;
+import java.util.UUID;
+
+public class SubscriptionTrackingId {
+
+    private final UUID subscriptionId;
+    private final String trackingId;
+
+    public SubscriptionTrackingId(final UUID subscriptionId, final String trackingId) {
+        this.subscriptionId = subscriptionId;
+        this.trackingId = trackingId;
+    }
+
+    public UUID getSubscriptionId() {
+        return subscriptionId;
+    }
+
+    public String getTrackingId() {
+        return trackingId;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        final SubscriptionTrackingId that = (SubscriptionTrackingId) o;
+        return Objects.equals(subscriptionId, that.subscriptionId) &&
+               Objects.equals(trackingId, that.trackingId);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(subscriptionId, trackingId);
+    }
+
+    @Override
+    public String toString() {
+        return "SubscriptionTrackingId{" +
+               "subscriptionId=" + subscriptionId +
+               ", trackingId='" + trackingId + '\'' +
+               '}';
+    }
+}
@@ -20,14 +20,18 @@ package org.killbill.billing.usage.glue;
 
 import org.killbill.billing.osgi.api.OSGIServiceRegistration;
 import org.killbill.billing.platform.api.KillbillConfigSource;
+import org.killbill.billing.usage.BulkUsageUserApi;
 import org.killbill.billing.usage.InternalUserApi;
 import org.killbill.billing.usage.api.UsageUserApi;
 import org.killbill.billing.usage.api.svcs.DefaultInternalUserApi;
+import org.killbill.billing.usage.api.user.DefaultBulkUsageUserApi;
 import org.killbill.billing.usage.api.user.DefaultUsageUserApi;
 import org.killbill.billing.usage.dao.DefaultRolledUpUsageDao;
 import org.killbill.billing.usage.dao.RolledUpUsageDao;
 import org.killbill.billing.usage.plugin.api.UsagePluginApi;
+import org.killbill.billing.util.config.definition.UsageConfig;
 import org.killbill.billing.util.glue.KillBillModule;
+import org.skife.config.ConfigurationObjectFactory;
 
 import com.google.inject.TypeLiteral;
 
@@ -37,6 +41,11 @@ public class UsageModule extends KillBillModule {
         super(configSource);
     }
 
+    protected void installConfig() {
+        final UsageConfig usageConfig = new ConfigurationObjectFactory(skifeConfigSource).build(UsageConfig.class);
+        bind(UsageConfig.class).toInstance(usageConfig);
+    }
+
     protected void installRolledUpUsageDao() {
         bind(RolledUpUsageDao.class).to(DefaultRolledUpUsageDao.class).asEagerSingleton();
     }
@@ -45,6 +54,10 @@ public class UsageModule extends KillBillModule {
         bind(UsageUserApi.class).to(DefaultUsageUserApi.class).asEagerSingleton();
     }
 
+    protected void installBulkUsageUserApi() {
+        bind(BulkUsageUserApi.class).to(DefaultBulkUsageUserApi.class).asEagerSingleton();
+    }
+
     protected void installInternalUserApi() {
         bind(InternalUserApi.class).to(DefaultInternalUserApi.class).asEagerSingleton();
     }
@@ -57,8 +70,10 @@ public class UsageModule extends KillBillModule {
 
     @Override
     protected void configure() {
+        installConfig();
         installRolledUpUsageDao();
         installUsageUserApi();
+        installBulkUsageUserApi();
         installInternalUserApi();
         installUsagePluginApi();
     }
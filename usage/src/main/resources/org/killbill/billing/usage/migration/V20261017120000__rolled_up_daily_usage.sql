@@ -0,0 +1,49 @@
+-- record_date is the UTC day (truncated to midnight UTC) of the rolled_up_usage record_date
+CREATE TABLE rolled_up_daily_usage (
+    record_id serial unique,
+    subscription_id varchar(36) NOT NULL,
+    unit_type varchar(255) NOT NULL,
+    record_date datetime NOT NULL,
+    amount decimal(30, 9) NOT NULL,
+    created_date datetime NOT NULL,
+    updated_date datetime NOT NULL,
+    account_record_id bigint /*! unsigned */ not null,
+    tenant_record_id bigint /*! unsigned */ not null default 0,
+    PRIMARY KEY(record_id)
+) /*! CHARACTER SET utf8 COLLATE utf8_bin */;
+CREATE UNIQUE INDEX rolled_up_daily_usage_subscription_id_unit_type_record_date ON rolled_up_daily_usage(subscription_id, unit_type, record_date, tenant_record_id);
+CREATE INDEX rolled_up_daily_usage_tenant_account_record_id ON rolled_up_daily_usage(tenant_record_id, account_record_id);
+
+-- Backfill from the existing raw usage, in record_id ranges committed one at a time (a day can span several ranges)
+drop procedure if exists backfill_rolled_up_daily_usage;
+DELIMITER //
+CREATE PROCEDURE backfill_rolled_up_daily_usage()
+BEGIN
+
+    DECLARE v_batch_size bigint /*! unsigned */ DEFAULT 10000;
+    DECLARE v_min_record_id bigint /*! unsigned */;
+    DECLARE v_max_record_id bigint /*! unsigned */;
+
+    select coalesce(min(record_id), 1), coalesce(max(record_id), 0) from rolled_up_usage into v_min_record_id, v_max_record_id;
+
+    WHILE v_min_record_id <= v_max_record_id DO
+        insert into rolled_up_daily_usage (subscription_id, unit_type, record_date, amount, created_date, updated_date, account_record_id, tenant_record_id)
+        select * from (
+            select subscription_id, unit_type, cast(record_date as date) as record_day, sum(amount) as daily_amount, min(created_date) as first_created_date, max(created_date) as last_created_date, account_record_id, tenant_record_id
+            from rolled_up_usage
+            where record_id >= v_min_record_id
+            and record_id < v_min_record_id + v_batch_size
+            group by subscription_id, unit_type, cast(record_date as date), account_record_id, tenant_record_id
+        ) t
+        on duplicate key update
+          amount = amount + daily_amount
+        , updated_date = greatest(updated_date, last_created_date);
+        COMMIT;
+        SET v_min_record_id = v_min_record_id + v_batch_size;
+    END WHILE;
+
+END;
+//
+DELIMITER ;
+call backfill_rolled_up_daily_usage();
+drop procedure if exists backfill_rolled_up_daily_usage;
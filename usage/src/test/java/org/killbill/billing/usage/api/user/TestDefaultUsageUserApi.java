@@ -0,0 +1,99 @@
+/*
+ * Copyright 2020-2026 Equinix, Inc
+ * Copyright 2014-2026 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.usage.api.user;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.killbill.billing.ObjectType;
+import org.killbill.billing.osgi.api.OSGIServiceRegistration;
+import org.killbill.billing.usage.UsageTestSuiteWithEmbeddedDB;
+import org.killbill.billing.usage.api.RolledUpUsage;
+import org.killbill.billing.usage.dao.RolledUpUsageDao;
+import org.killbill.billing.usage.dao.RolledUpUsageModelDao;
+import org.killbill.billing.usage.plugin.api.UsagePluginApi;
+import org.killbill.billing.util.UUIDs;
+import org.killbill.billing.util.callcontext.InternalCallContextFactory;
+import org.killbill.billing.util.callcontext.TenantContext;
+import org.killbill.billing.util.config.definition.UsageConfig;
+import org.mockito.Mockito;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+
+public class TestDefaultUsageUserApi extends UsageTestSuiteWithEmbeddedDB {
+
+    private RolledUpUsageDao spiedRolledUpUsageDao;
+    private DefaultUsageUserApi usageUserApi;
+
+    @BeforeMethod(groups = "slow")
+    public void beforeMethod() throws Exception {
+        if (hasFailed()) {
+            return;
+        }
+        super.beforeMethod();
+
+        final TenantContext tenantContext = Mockito.mock(TenantContext.class);
+        Mockito.when(tenantContext.getAccountId()).thenReturn(UUIDs.randomUUID());
+        final InternalCallContextFactory internalCallContextFactory = Mockito.mock(InternalCallContextFactory.class);
+        Mockito.when(internalCallContextFactory.createInternalTenantContext(Mockito.any(), Mockito.eq(ObjectType.SUBSCRIPTION), Mockito.any())).thenReturn(internalCallContext);
+        Mockito.when(internalCallContextFactory.createTenantContext(Mockito.any())).thenReturn(tenantContext);
+
+        final OSGIServiceRegistration<UsagePluginApi> pluginRegistry = Mockito.mock(OSGIServiceRegistration.class);
+        Mockito.when(pluginRegistry.getAllServices()).thenReturn(Collections.emptySet());
+
+        final UsageConfig usageConfig = Mockito.mock(UsageConfig.class);
+        Mockito.when(usageConfig.isDailyRollupReadEnabled()).thenReturn(true);
+
+        spiedRolledUpUsageDao = Mockito.spy(rolledUpUsageDao);
+        usageUserApi = new DefaultUsageUserApi(spiedRolledUpUsageDao, internalCallContextFactory, pluginRegistry, usageConfig);
+    }
+
+    @Test(groups = "slow")
+    public void testDailyRollupOnlyReadForWholeUTCDays() {
+        final UUID subscriptionId = UUIDs.randomUUID();
+        final DateTime day = new DateTime(2013, 1, 1, 0, 0, DateTimeZone.UTC);
+        rolledUpUsageDao.record(List.of(new RolledUpUsageModelDao(subscriptionId, "foo", day.plusHours(10), BigDecimal.TEN, UUIDs.randomUUID().toString()),
+                                        new RolledUpUsageModelDao(subscriptionId, "foo", day.plusHours(20), BigDecimal.valueOf(5L), UUIDs.randomUUID().toString())),
+                                internalCallContext);
+
+        // Whole UTC day: served from the rollup
+        final RolledUpUsage wholeDay = usageUserApi.getUsageForSubscription(subscriptionId, "foo", day, day.plusDays(1), Collections.emptyList(), callContext);
+        assertEquals(wholeDay.getRolledUpUnits().size(), 1);
+        assertEquals(wholeDay.getRolledUpUnits().get(0).getAmount().compareTo(BigDecimal.valueOf(15L)), 0);
+        Mockito.verify(spiedRolledUpUsageDao, Mockito.times(1)).getDailyUsageForSubscription(Mockito.eq(subscriptionId), Mockito.any(), Mockito.any(), Mockito.eq("foo"), Mockito.any());
+
+        // Start in the middle of the day: the rollup would drop the whole day, the raw usage is used instead
+        final RolledUpUsage partialDay = usageUserApi.getUsageForSubscription(subscriptionId, "foo", day.plusHours(12), day.plusDays(1), Collections.emptyList(), callContext);
+        assertEquals(partialDay.getRolledUpUnits().size(), 1);
+        assertEquals(partialDay.getRolledUpUnits().get(0).getAmount().compareTo(BigDecimal.valueOf(5L)), 0);
+        Mockito.verify(spiedRolledUpUsageDao, Mockito.times(1)).getUsageForSubscription(Mockito.eq(subscriptionId), Mockito.any(), Mockito.any(), Mockito.eq("foo"), Mockito.any());
+
+        // Same for transition times which aren't at midnight UTC
+        final List<RolledUpUsage> allUsage = usageUserApi.getAllUsageForSubscription(subscriptionId, List.of(day, day.plusHours(15), day.plusDays(1)), Collections.emptyList(), callContext);
+        assertEquals(allUsage.size(), 2);
+        assertEquals(allUsage.get(0).getRolledUpUnits().get(0).getAmount().compareTo(BigDecimal.TEN), 0);
+        assertEquals(allUsage.get(1).getRolledUpUnits().get(0).getAmount().compareTo(BigDecimal.valueOf(5L)), 0);
+        Mockito.verify(spiedRolledUpUsageDao, Mockito.never()).getAllDailyUsageForSubscription(Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any());
+    }
+}
@@ -19,12 +19,23 @@ package org.killbill.billing.usage.dao;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import org.joda.time.DateTime;
 import org.joda.time.DateTimeZone;
 import org.joda.time.LocalDate;
+import org.killbill.billing.callcontext.InternalCallContext;
 import org.killbill.billing.usage.UsageTestSuiteWithEmbeddedDB;
 import org.killbill.billing.util.UUIDs;
 import org.skife.jdbi.v2.exceptions.UnableToExecuteStatementException;
@@ -194,4 +205,186 @@ public class TestDefaultRolledUpUsageDao extends UsageTestSuiteWithEmbeddedDB {
         assertEquals(rolledUpUsageDao.recordsWithTrackingIdExist(subscriptionId, trackingId, internalCallContext),
                      Boolean.TRUE);
     }
-}
\ No newline at end of file
+
+    @Test(groups = "slow")
+    public void testDailyUsageMatchesRawUsage() {
+        final UUID subscriptionId = UUIDs.randomUUID();
+        final String unitType1 = "foo";
+        final String unitType2 = "bar";
+        final DateTime startDate = new DateTime(2013, 1, 1, 0, 0, DateTimeZone.UTC);
+        final DateTime endDate = new DateTime(2013, 2, 1, 0, 0, DateTimeZone.UTC);
+
+        // Same day and unit reported twice within one batch (at different times), and again in a later batch (different tracking id)
+        final List<RolledUpUsageModelDao> usages = new ArrayList<RolledUpUsageModelDao>();
+        final String trackingId1 = UUIDs.randomUUID().toString();
+        usages.add(new RolledUpUsageModelDao(subscriptionId, unitType1, startDate.plusHours(1), BigDecimal.valueOf(10L), trackingId1));
+        usages.add(new RolledUpUsageModelDao(subscriptionId, unitType1, startDate.plusHours(13).plusMinutes(27), BigDecimal.valueOf(5L), trackingId1));
+        usages.add(new RolledUpUsageModelDao(subscriptionId, unitType1, startDate.plusDays(1), BigDecimal.valueOf(7L), trackingId1));
+        usages.add(new RolledUpUsageModelDao(subscriptionId, unitType2, startDate.plusDays(1).plusHours(6), BigDecimal.valueOf(3L), trackingId1));
+        // Outside of the range
+        usages.add(new RolledUpUsageModelDao(subscriptionId, unitType2, endDate.plusHours(2), BigDecimal.valueOf(100L), trackingId1));
+        rolledUpUsageDao.record(usages, internalCallContext);
+
+        final List<RolledUpUsageModelDao> moreUsages = new ArrayList<RolledUpUsageModelDao>();
+        final String trackingId2 = UUIDs.randomUUID().toString();
+        moreUsages.add(new RolledUpUsageModelDao(subscriptionId, unitType1, startDate.plusHours(23).plusMinutes(59), BigDecimal.valueOf(2L), trackingId2));
+        moreUsages.add(new RolledUpUsageModelDao(subscriptionId, unitType2, startDate.plusDays(2).plusHours(12), BigDecimal.valueOf(4L), trackingId2));
+        rolledUpUsageDao.record(moreUsages, internalCallContext);
+
+        // One row per (subscription, unit type, UTC day), regardless of the time of day
+        assertEquals(countDailyUsageRows(subscriptionId), 5);
+
+        final List<RolledUpDailyUsageModelDao> dailyUsage = rolledUpUsageDao.getAllDailyUsageForSubscription(subscriptionId, startDate, endDate, internalCallContext);
+        assertEquals(dailyUsage.size(), 2);
+        for (final RolledUpDailyUsageModelDao cur : dailyUsage) {
+            BigDecimal expected = BigDecimal.ZERO;
+            for (final RolledUpUsageModelDao raw : rolledUpUsageDao.getUsageForSubscription(subscriptionId, startDate, endDate, cur.getUnitType(), internalCallContext)) {
+                expected = expected.add(raw.getAmount());
+            }
+            assertEquals(cur.getAmount().compareTo(expected), 0, "Unexpected amount for " + cur.getUnitType());
+            assertEquals(cur.getAmount().compareTo(BigDecimal.valueOf(unitType1.equals(cur.getUnitType()) ? 24L : 7L)), 0);
+        }
+
+        final List<RolledUpDailyUsageModelDao> dailyUsageForUnit = rolledUpUsageDao.getDailyUsageForSubscription(subscriptionId, startDate, startDate.plusDays(1), unitType1, internalCallContext);
+        assertEquals(dailyUsageForUnit.size(), 1);
+        assertEquals(dailyUsageForUnit.get(0).getUnitType(), unitType1);
+        assertEquals(dailyUsageForUnit.get(0).getAmount().compareTo(BigDecimal.valueOf(17L)), 0);
+    }
+
+    @Test(groups = "slow")
+    public void testDailyUsageKeyedByUTCDay() {
+        final UUID subscriptionId = UUIDs.randomUUID();
+        final DateTime day = new DateTime(2013, 1, 1, 0, 0, DateTimeZone.UTC);
+
+        // Same UTC day, reported in a non UTC zone, in separate transactions
+        final DateTimeZone zone = DateTimeZone.forOffsetHours(-8);
+        for (final DateTime recordDate : List.of(day.plusMinutes(1).withZone(zone), day.plusHours(12).withZone(zone), day.plusDays(1).minusSeconds(1).withZone(zone))) {
+            rolledUpUsageDao.record(List.of(new RolledUpUsageModelDao(subscriptionId, "foo", recordDate, BigDecimal.ONE, UUIDs.randomUUID().toString())), internalCallContext);
+        }
+        // Next UTC day
+        rolledUpUsageDao.record(List.of(new RolledUpUsageModelDao(subscriptionId, "foo", day.plusDays(1), BigDecimal.TEN, UUIDs.randomUUID().toString())), internalCallContext);
+
+        assertEquals(countDailyUsageRows(subscriptionId), 2);
+
+        final List<RolledUpDailyUsageModelDao> dailyUsage = rolledUpUsageDao.getAllDailyUsageForSubscription(subscriptionId, day, day.plusDays(1), internalCallContext);
+        assertEquals(dailyUsage.size(), 1);
+        assertEquals(dailyUsage.get(0).getAmount().compareTo(BigDecimal.valueOf(3L)), 0);
+    }
+
+    @Test(groups = "slow")
+    public void testConcurrentWritersForSameDay() throws Exception {
+        final UUID subscriptionId = UUIDs.randomUUID();
+        final DateTime day = new DateTime(2013, 1, 1, 0, 0, DateTimeZone.UTC);
+        final int nbWriters = 8;
+        final int nbRecordsPerWriter = 10;
+
+        // All writers race to create (then add to) the same (subscription, unit type, day) row
+        final CyclicBarrier barrier = new CyclicBarrier(nbWriters);
+        final ExecutorService executor = Executors.newFixedThreadPool(nbWriters);
+        try {
+            final List<Callable<Void>> writers = new ArrayList<Callable<Void>>();
+            for (int i = 0; i < nbWriters; i++) {
+                writers.add(() -> {
+                    barrier.await(10, TimeUnit.SECONDS);
+                    for (int j = 0; j < nbRecordsPerWriter; j++) {
+                        rolledUpUsageDao.record(List.of(new RolledUpUsageModelDao(subscriptionId, "foo", day.plusMinutes(j), BigDecimal.ONE, UUIDs.randomUUID().toString())), internalCallContext);
+                    }
+                    return null;
+                });
+            }
+            for (final Future<Void> future : executor.invokeAll(writers, 60, TimeUnit.SECONDS)) {
+                // Throws if any write failed
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(countDailyUsageRows(subscriptionId), 1);
+        final List<RolledUpDailyUsageModelDao> dailyUsage = rolledUpUsageDao.getDailyUsageForSubscription(subscriptionId, day, day.plusDays(1), "foo", internalCallContext);
+        assertEquals(dailyUsage.size(), 1);
+        assertEquals(dailyUsage.get(0).getAmount().compareTo(BigDecimal.valueOf(nbWriters * nbRecordsPerWriter)), 0);
+        assertEquals(rolledUpUsageDao.getUsageForSubscription(subscriptionId, day, day.plusDays(1), "foo", internalCallContext).size(), nbWriters * nbRecordsPerWriter);
+    }
+
+    @Test(groups = "slow")
+    public void testDailyUsageNotUpdatedOnFailedRecord() {
+        final UUID subscriptionId = UUIDs.randomUUID();
+        final DateTime startDate = new LocalDate(2013, 1, 1).toDateTimeAtStartOfDay();
+
+        final List<RolledUpUsageModelDao> usages = new ArrayList<RolledUpUsageModelDao>();
+        usages.add(new RolledUpUsageModelDao(subscriptionId, "foo", startDate, BigDecimal.valueOf(10L), UUIDs.randomUUID().toString()));
+        rolledUpUsageDao.record(usages, internalCallContext);
+
+        try {
+            // Same ids: the raw insert fails and the whole transaction is rolled back
+            rolledUpUsageDao.record(usages, internalCallContext);
+            fail("duplicate records accepted");
+        } catch (final UnableToExecuteStatementException e) {
+            final List<RolledUpDailyUsageModelDao> dailyUsage = rolledUpUsageDao.getAllDailyUsageForSubscription(subscriptionId, startDate, startDate.plusDays(1), internalCallContext);
+            assertEquals(dailyUsage.size(), 1);
+            assertEquals(dailyUsage.get(0).getAmount().compareTo(BigDecimal.valueOf(10L)), 0);
+        }
+    }
+
+    @Test(groups = "slow")
+    public void testGetExistingTrackingIds() {
+        final UUID subscriptionId1 = UUIDs.randomUUID();
+        final UUID subscriptionId2 = UUIDs.randomUUID();
+        final String trackingId1 = UUIDs.randomUUID().toString();
+        final String trackingId2 = UUIDs.randomUUID().toString();
+        final DateTime startDate = new LocalDate(2013, 1, 1).toDateTimeAtStartOfDay();
+
+        final List<RolledUpUsageModelDao> usages = new ArrayList<RolledUpUsageModelDao>();
+        usages.add(new RolledUpUsageModelDao(subscriptionId1, "foo", startDate, BigDecimal.valueOf(10L), trackingId1));
+        usages.add(new RolledUpUsageModelDao(subscriptionId1, "foo", startDate.plusDays(1), BigDecimal.valueOf(5L), trackingId1));
+        usages.add(new RolledUpUsageModelDao(subscriptionId2, "foo", startDate, BigDecimal.valueOf(3L), trackingId2));
+        rolledUpUsageDao.record(usages, internalCallContext);
+
+        final Set<SubscriptionTrackingId> requested = new HashSet<>();
+        requested.add(new SubscriptionTrackingId(subscriptionId1, trackingId1));
+        // Tracking id exists, but for another subscription
+        requested.add(new SubscriptionTrackingId(subscriptionId2, trackingId1));
+        requested.add(new SubscriptionTrackingId(subscriptionId1, UUIDs.randomUUID().toString()));
+
+        final Set<SubscriptionTrackingId> existing = rolledUpUsageDao.getExistingTrackingIds(requested, internalCallContext);
+        assertEquals(existing, Set.of(new SubscriptionTrackingId(subscriptionId1, trackingId1)));
+    }
+
+    @Test(groups = "slow")
+    public void testRecordForMultipleAccounts() {
+        final UUID subscriptionId1 = UUIDs.randomUUID();
+        final UUID subscriptionId2 = UUIDs.randomUUID();
+        final DateTime startDate = new LocalDate(2013, 1, 1).toDateTimeAtStartOfDay();
+        final InternalCallContext otherAccountContext = new InternalCallContext(internalCallContext, internalCallContext.getAccountRecordId() + 1,
+                                                                                internalCallContext.getAccountTimeZone(), internalCallContext.getFixedOffsetTimeZone(),
+                                                                                null, internalCallContext.getCreatedDate());
+
+        final Map<InternalCallContext, List<RolledUpUsageModelDao>> usagesPerAccount = new LinkedHashMap<>();
+        usagesPerAccount.put(internalCallContext, List.of(new RolledUpUsageModelDao(subscriptionId1, "foo", startDate, BigDecimal.valueOf(10L), UUIDs.randomUUID().toString()),
+                                                          new RolledUpUsageModelDao(subscriptionId1, "foo", startDate, BigDecimal.valueOf(5L), UUIDs.randomUUID().toString())));
+        usagesPerAccount.put(otherAccountContext, List.of(new RolledUpUsageModelDao(subscriptionId2, "foo", startDate, BigDecimal.valueOf(7L), UUIDs.randomUUID().toString())));
+        rolledUpUsageDao.record(usagesPerAccount);
+
+        final List<RolledUpUsageModelDao> rawUsage1 = rolledUpUsageDao.getRawUsageForAccount(startDate, startDate.plusDays(1), internalCallContext);
+        assertEquals(rawUsage1.stream().filter(u -> u.getSubscriptionId().equals(subscriptionId1)).count(), 2);
+        assertEquals(rawUsage1.stream().filter(u -> u.getSubscriptionId().equals(subscriptionId2)).count(), 0);
+        final List<RolledUpUsageModelDao> rawUsage2 = rolledUpUsageDao.getRawUsageForAccount(startDate, startDate.plusDays(1), otherAccountContext);
+        assertEquals(rawUsage2.size(), 1);
+        assertEquals(rawUsage2.get(0).getSubscriptionId(), subscriptionId2);
+
+        final List<RolledUpDailyUsageModelDao> dailyUsage1 = rolledUpUsageDao.getAllDailyUsageForSubscription(subscriptionId1, startDate, startDate.plusDays(1), internalCallContext);
+        assertEquals(dailyUsage1.size(), 1);
+        assertEquals(dailyUsage1.get(0).getAmount().compareTo(BigDecimal.valueOf(15L)), 0);
+        final List<RolledUpDailyUsageModelDao> dailyUsage2 = rolledUpUsageDao.getAllDailyUsageForSubscription(subscriptionId2, startDate, startDate.plusDays(1), otherAccountContext);
+        assertEquals(dailyUsage2.size(), 1);
+        assertEquals(dailyUsage2.get(0).getAmount().compareTo(BigDecimal.valueOf(7L)), 0);
+    }
+
+    private int countDailyUsageRows(final UUID subscriptionId) {
+        return dbi.withHandle(handle -> handle.createQuery("select count(*) from rolled_up_daily_usage where subscription_id = :subscriptionId")
+                                              .bind("subscriptionId", subscriptionId.toString())
+                                              .mapTo(Integer.class)
+                                              .first());
+    }
+}
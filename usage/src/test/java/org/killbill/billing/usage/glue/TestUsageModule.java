@@ -18,12 +18,14 @@
 
 package org.killbill.billing.usage.glue;
 
+import org.killbill.billing.entitlement.EntitlementInternalApi;
 import org.killbill.billing.mock.glue.MockTenantModule;
 import org.killbill.billing.platform.api.KillbillConfigSource;
 import org.killbill.billing.usage.api.UsageUserApi;
 import org.killbill.billing.usage.api.user.MockUsageUserApi;
 import org.killbill.commons.metrics.api.MetricRegistry;
 import org.killbill.commons.metrics.impl.NoOpMetricRegistry;
+import org.mockito.Mockito;
 
 public class TestUsageModule extends UsageModule {
 
@@ -36,6 +38,7 @@ public class TestUsageModule extends UsageModule {
         super.configure();
 
         bind(MetricRegistry.class).to(NoOpMetricRegistry.class).asEagerSingleton();
+        bind(EntitlementInternalApi.class).toInstance(Mockito.mock(EntitlementInternalApi.class));
     }
 
     protected void installUsageUserApi() {
@@ -39,6 +39,8 @@ import org.killbill.billing.util.audit.DefaultAccountAuditLogs;
 import org.killbill.billing.util.audit.DefaultAccountAuditLogsForObjectType;
 import org.killbill.billing.util.audit.DefaultAuditLog;
 import org.killbill.billing.util.audit.DefaultAuditLogWithHistory;
+import org.killbill.billing.util.cache.Cachable.CacheType;
+import org.killbill.billing.util.cache.CacheController;
 import org.killbill.billing.util.cache.CacheControllerDispatcher;
 import org.killbill.billing.util.callcontext.InternalCallContextFactory;
 import org.killbill.commons.utils.collect.Iterators;
@@ -60,11 +62,15 @@ public class DefaultAuditDao implements AuditDao {
 
     private final DBRouter<NonEntitySqlDao> dbRouter;
     private final EntitySqlDaoTransactionalJdbiWrapper transactionalSqlDao;
+    private final NonEntityDao nonEntityDao;
+    private final CacheController<String, Long> recordIdCacheController;
 
     @Inject
     public DefaultAuditDao(final IDBI dbi, @Named(MAIN_RO_IDBI_NAMED) final IDBI roDbi, final Clock clock, final CacheControllerDispatcher cacheControllerDispatcher, final NonEntityDao nonEntityDao, final InternalCallContextFactory internalCallContextFactory) {
         this.dbRouter = new DBRouter<NonEntitySqlDao>(dbi, roDbi, NonEntitySqlDao.class);
         this.transactionalSqlDao = new EntitySqlDaoTransactionalJdbiWrapper(dbi, roDbi, clock, cacheControllerDispatcher, nonEntityDao, internalCallContextFactory);
+        this.nonEntityDao = nonEntityDao;
+        this.recordIdCacheController = cacheControllerDispatcher == null ? null : cacheControllerDispatcher.getCacheController(CacheType.RECORD_ID);
     }
 
     @Override
@@ -172,7 +178,7 @@ public class DefaultAuditDao implements AuditDao {
         }
 
         return transactionalSqlDao.execute(true, entitySqlDaoWrapperFactory -> {
-            final Long targetRecordId = dbRouter.onDemand(true).getRecordIdFromObject(objectId.toString(), tableName.getTableName());
+            final Long targetRecordId = getRecordIdFromObject(tableName, objectId);
             final List<EntityHistoryModelDao> objectHistory = transactional.getHistoryForTargetRecordId(true, targetRecordId, context);
             final List<AuditLogModelDao> result = entitySqlDaoWrapperFactory
                     .become(EntitySqlDao.class)
@@ -192,7 +198,7 @@ public class DefaultAuditDao implements AuditDao {
     }
 
     private List<AuditLog> doGetAuditLogsForId(final TableName tableName, final UUID objectId, final AuditLevel auditLevel, final InternalTenantContext context) {
-        final Long recordId = dbRouter.onDemand(true).getRecordIdFromObject(objectId.toString(), tableName.getTableName());
+        final Long recordId = getRecordIdFromObject(tableName, objectId);
         if (recordId == null) {
             return List.of();
         } else {
@@ -206,7 +212,7 @@ public class DefaultAuditDao implements AuditDao {
             throw new IllegalStateException("History table shouldn't be null for " + tableName);
         }
 
-        final Long targetRecordId = dbRouter.onDemand(true).getRecordIdFromObject(objectId.toString(), tableName.getTableName());
+        final Long targetRecordId = getRecordIdFromObject(tableName, objectId);
         final List<AuditLog> allAuditLogs = transactionalSqlDao.execute(true, entitySqlDaoWrapperFactory -> {
             final List<AuditLogModelDao> auditLogsViaHistoryForTargetRecordId = entitySqlDaoWrapperFactory
                     .become(EntitySqlDao.class)
@@ -216,6 +222,15 @@ public class DefaultAuditDao implements AuditDao {
         return filterAuditLogs(auditLevel, allAuditLogs);
     }
 
+    private Long getRecordIdFromObject(final TableName tableName, final UUID objectId) {
+        // Go through the RECORD_ID cache when the table is the canonical one for its object type (the cache key is derived from it)
+        if (tableName.getObjectType() != null && tableName == TableName.fromObjectType(tableName.getObjectType())) {
+            return nonEntityDao.retrieveRecordIdFromObject(objectId, tableName.getObjectType(), recordIdCacheController);
+        } else {
+            return dbRouter.onDemand(true).getRecordIdFromObject(objectId.toString(), tableName.getTableName());
+        }
+    }
+
     private List<AuditLog> getAuditLogsForRecordId(final TableName tableName, final UUID auditedEntityId, final Long targetRecordId, final AuditLevel auditLevel, final InternalTenantContext context) {
         final List<AuditLog> allAuditLogs = transactionalSqlDao.execute(true, entitySqlDaoWrapperFactory -> {
             final List<AuditLogModelDao> auditLogsForTargetRecordId = entitySqlDaoWrapperFactory
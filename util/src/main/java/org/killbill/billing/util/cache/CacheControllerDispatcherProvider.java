@@ -31,6 +31,9 @@ import javax.inject.Provider;
 import org.killbill.commons.utils.Preconditions;
 import org.killbill.billing.util.cache.Cachable.CacheType;
 import org.killbill.billing.util.config.definition.CacheConfig;
+import org.killbill.billing.util.metrics.CacheControllerGaugeFactory;
+import org.killbill.commons.metrics.api.Gauge;
+import org.killbill.commons.metrics.api.MetricRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -42,14 +45,17 @@ public class CacheControllerDispatcherProvider implements Provider<CacheControll
     private final CacheManager cacheManager;
     private final Set<BaseCacheLoader> cacheLoaders;
     private final CacheConfig cacheConfig;
+    private final MetricRegistry metricRegistry;
 
     @Inject
     public CacheControllerDispatcherProvider(final CacheManager cacheManager,
                                              final Set<BaseCacheLoader> cacheLoaders,
-                                             final CacheConfig cacheConfig) {
+                                             final CacheConfig cacheConfig,
+                                             final MetricRegistry metricRegistry) {
         this.cacheManager = cacheManager;
         this.cacheLoaders = cacheLoaders;
         this.cacheConfig = cacheConfig;
+        this.metricRegistry = metricRegistry;
     }
 
     @SuppressWarnings({"rawtypes", "unchecked"})
@@ -71,7 +77,13 @@ public class CacheControllerDispatcherProvider implements Provider<CacheControll
                 }
                 Preconditions.checkState(!cache.isClosed(), "Cache '%s' should not be closed", cacheType.getCacheName());
 
-                cacheController = new KillBillCacheController<Object, Object>(cache, cacheLoader);
+                final KillBillCacheController<Object, Object> killBillCacheController = new KillBillCacheController<Object, Object>(cache, cacheLoader, cacheConfig.getCacheLoadingMode());
+
+                // Create the loader metrics for this cache
+                final Map<String, Gauge<Object>> metrics = CacheControllerGaugeFactory.forCacheController(killBillCacheController.getStatistics());
+                metrics.keySet().forEach(metricName -> metricRegistry.gauge(metricName, metrics.get(metricName)));
+
+                cacheController = killBillCacheController;
             }
 
             cacheControllers.put(cacheType, cacheController);
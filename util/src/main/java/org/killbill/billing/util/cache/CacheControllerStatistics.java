@@ -0,0 +1,86 @@
+/*
+ * Copyright 2020-2026 Equinix, Inc
+ * Copyright 2014-2026 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.cache;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import org.killbill.billing.util.cache.Cachable.CacheType;
+
+// Lock-free counters maintained by KillBillCacheController, one instance per CacheType
+public class CacheControllerStatistics {
+
+    private final CacheType cacheType;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder loadTimeNanos = new LongAdder();
+    private final LongAdder waits = new LongAdder();
+    private final LongAdder waitTimeNanos = new LongAdder();
+
+    public CacheControllerStatistics(final CacheType cacheType) {
+        this.cacheType = cacheType;
+    }
+
+    public CacheType getCacheType() {
+        return cacheType;
+    }
+
+    void recordHit() {
+        hits.increment();
+    }
+
+    void recordMiss() {
+        misses.increment();
+    }
+
+    void recordLoad(final long durationNanos) {
+        loads.increment();
+        loadTimeNanos.add(durationNanos);
+    }
+
+    void recordWait(final long durationNanos) {
+        waits.increment();
+        waitTimeNanos.add(durationNanos);
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getLoads() {
+        return loads.sum();
+    }
+
+    public long getLoadTimeNanos() {
+        return loadTimeNanos.sum();
+    }
+
+    // Number of misses which waited, either on the cache monitor (GLOBAL_LOCK) or on a concurrent load of the same key (PER_KEY)
+    public long getWaits() {
+        return waits.sum();
+    }
+
+    public long getWaitTimeNanos() {
+        return waitTimeNanos.sum();
+    }
+}
@@ -21,6 +21,10 @@ package org.killbill.billing.util.cache;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -29,6 +33,7 @@ import javax.cache.Cache.Entry;
 import javax.cache.CacheException;
 
 import org.killbill.billing.util.cache.Cachable.CacheType;
+import org.killbill.billing.util.config.definition.CacheConfig.CacheLoadingMode;
 import org.killbill.commons.utils.collect.Iterables;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -39,10 +44,20 @@ public class KillBillCacheController<K, V> implements CacheController<K, V> {
 
     private final Cache<K, V> cache;
     private final BaseCacheLoader<K, V> baseCacheLoader;
+    private final CacheLoadingMode cacheLoadingMode;
+    private final CacheControllerStatistics statistics;
+    // Loads currently in progress in PER_KEY mode, used to coalesce concurrent misses on the same key
+    private final ConcurrentMap<K, InFlightLoad<V>> inFlightLoads = new ConcurrentHashMap<K, InFlightLoad<V>>();
 
     public KillBillCacheController(final Cache<K, V> cache, final BaseCacheLoader<K, V> baseCacheLoader) {
+        this(cache, baseCacheLoader, CacheLoadingMode.GLOBAL_LOCK);
+    }
+
+    public KillBillCacheController(final Cache<K, V> cache, final BaseCacheLoader<K, V> baseCacheLoader, final CacheLoadingMode cacheLoadingMode) {
         this.cache = cache;
         this.baseCacheLoader = baseCacheLoader;
+        this.cacheLoadingMode = cacheLoadingMode;
+        this.statistics = new CacheControllerStatistics(baseCacheLoader.getCacheType());
     }
 
     @Override
@@ -66,14 +81,14 @@ public class KillBillCacheController<K, V> implements CacheController<K, V> {
         V value;
         try {
             if (!isKeyInCache(key)) {
-                synchronized (this) {
-                    if (!isKeyInCache(key)) {
-                        value = computeAndCacheValue(key, cacheLoaderArgument);
-                    } else {
-                        value = cache.get(key);
-                    }
+                statistics.recordMiss();
+                if (cacheLoadingMode == CacheLoadingMode.PER_KEY) {
+                    value = getWithPerKeyLoading(key, cacheLoaderArgument);
+                } else {
+                    value = getWithGlobalLock(key, cacheLoaderArgument);
                 }
             } else {
+                statistics.recordHit();
                 value = cache.get(key);
             }
         } catch (final CacheException e) {
@@ -129,6 +144,65 @@ public class KillBillCacheController<K, V> implements CacheController<K, V> {
         return baseCacheLoader.getCacheType();
     }
 
+    public CacheControllerStatistics getStatistics() {
+        return statistics;
+    }
+
+    private V getWithGlobalLock(final K key, final CacheLoaderArgument cacheLoaderArgument) {
+        final long startNanos = System.nanoTime();
+        synchronized (this) {
+            statistics.recordWait(System.nanoTime() - startNanos);
+            if (!isKeyInCache(key)) {
+                return computeAndCacheValue(key, cacheLoaderArgument);
+            } else {
+                return cache.get(key);
+            }
+        }
+    }
+
+    // Single-flight loading: the first thread to miss on a key loads it, concurrent threads missing on the same key wait for that result
+    private V getWithPerKeyLoading(final K key, final CacheLoaderArgument cacheLoaderArgument) {
+        final InFlightLoad<V> load = new InFlightLoad<V>(Thread.currentThread());
+        final InFlightLoad<V> inFlightLoad = inFlightLoads.putIfAbsent(key, load);
+        if (inFlightLoad != null) {
+            if (inFlightLoad.loadingThread == Thread.currentThread()) {
+                // Re-entrant load of the same key (the loader needs its own key): waiting for ourselves would never complete,
+                // so load it directly and let the outer load cache the value
+                return computeValue(key, cacheLoaderArgument);
+            }
+            return waitForInFlightLoad(inFlightLoad);
+        }
+
+        try {
+            // The value may have been cached by a load which completed between our lookup and the registration above
+            final V value = isKeyInCache(key) ? cache.get(key) : computeAndCacheValue(key, cacheLoaderArgument);
+            load.result.complete(value);
+            return value;
+        } catch (final Throwable e) {
+            load.result.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlightLoads.remove(key, load);
+        }
+    }
+
+    private V waitForInFlightLoad(final InFlightLoad<V> inFlightLoad) {
+        final long startNanos = System.nanoTime();
+        try {
+            return inFlightLoad.result.join();
+        } catch (final CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            } else if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            } else {
+                throw e;
+            }
+        } finally {
+            statistics.recordWait(System.nanoTime() - startNanos);
+        }
+    }
+
     private V computeAndCacheValue(final K key, final CacheLoaderArgument cacheLoaderArgument) {
         final V value = computeValue(key, cacheLoaderArgument);
         if (value == null) {
@@ -142,13 +216,27 @@ public class KillBillCacheController<K, V> implements CacheController<K, V> {
 
     private V computeValue(final K key, final CacheLoaderArgument cacheLoaderArgument) {
         final V value;
+        final long startNanos = System.nanoTime();
         try {
             value = baseCacheLoader.compute(key, cacheLoaderArgument);
         } catch (final Exception e) {
             // Remove noisy log (might be expected, see https://github.com/killbill/killbill/issues/842)
             //logger.warn("Unable to compute cached value for key='{}' and cacheLoaderArgument='{}'", key, cacheLoaderArgument, e);
             throw new RuntimeException(e);
+        } finally {
+            statistics.recordLoad(System.nanoTime() - startNanos);
         }
         return value;
     }
+
+    private static final class InFlightLoad<V> {
+
+        private final Thread loadingThread;
+        private final CompletableFuture<V> result;
+
+        private InFlightLoad(final Thread loadingThread) {
+            this.loadingThread = loadingThread;
+            this.result = new CompletableFuture<V>();
+        }
+    }
 }
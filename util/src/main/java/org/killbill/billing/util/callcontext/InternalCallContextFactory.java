@@ -18,6 +18,11 @@
 
 package org.killbill.billing.util.callcontext;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Objects;
 import java.util.UUID;
 
@@ -374,6 +379,18 @@ public class InternalCallContextFactory {
         }
     }
 
+    // Batch version of getRecordIdFromObject: objects which don't exist or don't belong to the tenant are absent from the returned map
+    public Map<UUID, Long> getRecordIdsFromObjects(final Collection<UUID> objectIds, final ObjectType objectType, final TenantContext context) {
+        final Collection<UUID> objectIdsForTenant = objectsBelongingToTheRightTenant(objectIds, objectType, context);
+        return nonEntityDao.retrieveRecordIdsFromObjects(objectIdsForTenant, objectType, recordIdCacheController);
+    }
+
+    // Batch version of getAccountId, returning the account record ids: objects which don't exist or don't belong to the tenant are absent from the returned map
+    public Map<UUID, Long> getAccountRecordIdsFromObjects(final Collection<UUID> objectIds, final ObjectType objectType, final TenantContext context) {
+        final Collection<UUID> objectIdsForTenant = objectsBelongingToTheRightTenant(objectIds, objectType, context);
+        return nonEntityDao.retrieveAccountRecordIdsFromObjects(objectIdsForTenant, objectType, accountRecordIdCacheController);
+    }
+
     //
     // Safe NonEntityDao private wrappers
     //
@@ -431,6 +448,25 @@ public class InternalCallContextFactory {
         return objectTenantRecordId.equals(realTenantRecordId);
     }
 
+    // Batch version of objectBelongsToTheRightTenant: objects which don't exist are filtered out as well
+    private Collection<UUID> objectsBelongingToTheRightTenant(final Collection<UUID> objectIds, final ObjectType objectType, final TenantContext context) {
+        final Long realTenantRecordId;
+        try {
+            realTenantRecordId = getTenantRecordIdSafe(context);
+        } catch (final ObjectDoesNotExist e) {
+            return Collections.emptyList();
+        }
+
+        final Map<UUID, Long> tenantRecordIds = nonEntityDao.retrieveTenantRecordIdsFromObjects(objectIds, objectType, tenantRecordIdCacheController);
+        final Collection<UUID> objectIdsForTenant = new ArrayList<UUID>();
+        for (final Entry<UUID, Long> entry : tenantRecordIds.entrySet()) {
+            if (entry.getValue().equals(realTenantRecordId)) {
+                objectIdsForTenant.add(entry.getKey());
+            }
+        }
+        return objectIdsForTenant;
+    }
+
     //
     // Unsafe methods - no context is validated
     //
@@ -20,13 +20,36 @@ package org.killbill.billing.util.config.definition;
 import java.util.Set;
 
 import org.skife.config.Config;
+import org.skife.config.Default;
 import org.skife.config.DefaultNull;
 import org.skife.config.Description;
 
 public interface CacheConfig extends KillbillConfig {
 
+    enum CacheLoadingMode {
+        /* A single monitor per cache serializes all misses (historical behavior) */
+        GLOBAL_LOCK,
+        /* Concurrent misses on the same key are coalesced, misses on different keys load in parallel */
+        PER_KEY
+    }
+
     @Config("org.killbill.cache.disabled")
     @DefaultNull
     @Description("Caches to be disabled")
     public Set<String> getDisabledCaches();
+
+    @Config("org.killbill.cache.loading.mode")
+    @Default("GLOBAL_LOCK")
+    @Description("How cache misses are loaded (GLOBAL_LOCK or PER_KEY)")
+    public CacheLoadingMode getCacheLoadingMode();
+
+    @Config("org.killbill.cache.billingEvents.memoization.enabled")
+    @Default("false")
+    @Description("Whether per-subscription billing events are memoized across invoice runs (only subscriptions whose events or blocking states changed are recomputed)")
+    public boolean isBillingEventsMemoizationEnabled();
+
+    @Config("org.killbill.cache.billingEvents.memoization.maxAccounts")
+    @Default("1000")
+    @Description("Maximum number of accounts whose billing events are memoized (least recently used accounts are evicted first)")
+    public int getBillingEventsMemoizationMaxAccounts();
 }
@@ -25,6 +25,7 @@ import org.skife.config.Config;
 import org.skife.config.Default;
 import org.skife.config.Description;
 import org.skife.config.Param;
+import org.skife.config.TimeSpan;
 
 public interface EventConfig extends KillbillConfig {
 
@@ -60,4 +61,14 @@ public interface EventConfig extends KillbillConfig {
     @Description("List of event types to be skipped (not dispatched internally)")
     boolean isAggregateBulkSubscriptionEvents(@Param("dummy") final InternalTenantContext tenantContext);
 
+    @Config("org.killbill.billing.server.event.post.batch.size")
+    @Default("0")
+    @Description("Maximum number of external events posted in a single transaction (0 to post each event in its own transaction)")
+    int getExternalEventPostBatchSize();
+
+    @Config("org.killbill.billing.server.event.post.batch.maxWait")
+    @Default("20ms")
+    @Description("Maximum time to wait for other external events to join a batch")
+    TimeSpan getExternalEventPostBatchMaxWait();
+
 }
\ No newline at end of file
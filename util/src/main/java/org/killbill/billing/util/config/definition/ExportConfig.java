@@ -0,0 +1,35 @@
+/*
+ * Copyright 2020-2026 Equinix, Inc
+ * Copyright 2014-2026 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.config.definition;
+
+import org.skife.config.Config;
+import org.skife.config.Default;
+import org.skife.config.Description;
+
+public interface ExportConfig extends KillbillConfig {
+
+    @Config("org.killbill.export.fetchSize")
+    @Default("1000")
+    @Description("JDBC fetch size hint used when streaming rows out of each table (0 to use the driver default, ignored on MySQL which always streams row by row)")
+    int getFetchSize();
+
+    @Config("org.killbill.export.threads.pool.nb")
+    @Default("1")
+    @Description("Number of tables exported concurrently for a given account (1 to export tables serially)")
+    int getExportThreadNb();
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright 2020-2026 Equinix, Inc
+ * Copyright 2014-2026 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.killbill.billing.util.config.definition;
+
+import org.skife.config.Config;
+import org.skife.config.Default;
+import org.skife.config.Description;
+import org.skife.config.TimeSpan;
+
+public interface GlobalLockerConfig extends KillbillConfig {
+
+    @Config("org.killbill.globalLock.local.enabled")
+    @Default("true")
+    @Description("Whether contenders from the same node are first serialized in memory, so that only one of them goes to the database (or Redis) locker")
+    boolean isLocalLockingEnabled();
+
+    @Config("org.killbill.globalLock.local.maxWait")
+    @Default("10s")
+    @Description("Maximum time to wait for the in-memory lock before going to the database (or Redis) locker anyway (never more than the retry budget of the caller)")
+    TimeSpan getLocalLockMaxWait();
+}
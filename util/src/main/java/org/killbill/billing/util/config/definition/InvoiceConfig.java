@@ -131,6 +131,26 @@ public interface InvoiceConfig extends LockAwareConfig {
     @Description("Maximum number of past billing periods we use to fetch raw usage data (usage optimization)")
     int getMaxRawUsagePreviousPeriod(@Param("dummy") final InternalTenantContext tenantContext);
 
+    @Config("org.killbill.invoice.parallelItemGeneration.threshold")
+    @Default("0")
+    @Description("Minimum number of subscriptions for fixed and recurring items to be generated in parallel (ignored if set to 0)")
+    int getParallelItemGenerationThreshold();
+
+    @Config("org.killbill.invoice.parallelItemGeneration.threshold")
+    @Default("0")
+    @Description("Minimum number of subscriptions for fixed and recurring items to be generated in parallel (ignored if set to 0)")
+    int getParallelItemGenerationThreshold(@Param("dummy") final InternalTenantContext tenantContext);
+
+    @Config("org.killbill.invoice.parallelItemGeneration.threads")
+    @Default("4")
+    @Description("Number of threads used to generate fixed and recurring items in parallel")
+    int getParallelItemGenerationThreads();
+
+    @Config("org.killbill.invoice.accountBalance.verify")
+    @Default("false")
+    @Description("Troubleshooting only: whether each account balance read should also recompute the balance from the full invoices, log any difference with the aggregated amounts and return the recomputed value")
+    boolean isAccountBalanceVerificationEnabled();
+
     @Config("org.killbill.invoice.globalLock.retries")
     @Default("50")
     @Description("Maximum number of times the system will retry to grab global lock (with a 100ms wait each time)")
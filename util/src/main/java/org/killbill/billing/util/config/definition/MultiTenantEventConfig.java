@@ -27,6 +27,7 @@ import org.killbill.billing.events.BusInternalEvent.BusInternalEventType;
 import org.killbill.billing.util.config.tenant.CacheConfig;
 import org.killbill.billing.util.config.tenant.MultiTenantConfigBase;
 import org.killbill.billing.util.glue.KillBillModule;
+import org.skife.config.TimeSpan;
 
 public class MultiTenantEventConfig extends MultiTenantConfigBase implements EventConfig {
 
@@ -80,6 +81,16 @@ public class MultiTenantEventConfig extends MultiTenantConfigBase implements Eve
         return isAggregateBulkSubscriptionEvents();
     }
 
+    @Override
+    public int getExternalEventPostBatchSize() {
+        return staticConfig.getExternalEventPostBatchSize();
+    }
+
+    @Override
+    public TimeSpan getExternalEventPostBatchMaxWait() {
+        return staticConfig.getExternalEventPostBatchMaxWait();
+    }
+
     @Override
     protected Class<? extends KillbillConfig> getConfigClass() {
         return EventConfig.class;
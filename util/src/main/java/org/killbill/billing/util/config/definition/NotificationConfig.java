@@ -38,4 +38,28 @@ public interface NotificationConfig extends KillbillConfig {
     @Description("Delay before which unresolved push notifications should be retried")
     List<TimeSpan> getPushNotificationsRetries(@Param("dummy") final InternalTenantContext tenantContext);
 
+    @Config("org.killbill.billing.server.notifications.delivery.async")
+    @Default("false")
+    @Description("Whether push notifications are sent asynchronously, through in-memory queues per callback URL (lost if the node crashes before sending them), instead of from the bus thread")
+    boolean isPushNotificationsAsyncDelivery();
+
+    @Config("org.killbill.billing.server.notifications.delivery.queueCapacity")
+    @Default("1000")
+    @Description("Maximum number of push notifications waiting to be sent to a given callback URL, before they are deferred to the retry queue")
+    int getPushNotificationsQueueCapacity();
+
+    @Config("org.killbill.billing.server.notifications.delivery.maxConcurrency")
+    @Default("1")
+    @Description("Maximum number of in-flight requests to a given callback URL")
+    int getPushNotificationsMaxConcurrency();
+
+    @Config("org.killbill.billing.server.notifications.delivery.batchSize")
+    @Default("1")
+    @Description("Maximum number of push notifications sent in a single request to a given callback URL (if greater than 1, the body is a JSON array)")
+    int getPushNotificationsBatchSize();
+
+    @Config("org.killbill.billing.server.notifications.delivery.nbThreads")
+    @Default("8")
+    @Description("Number of threads handling push notifications responses")
+    int getPushNotificationsNbThreads();
 }
\ No newline at end of file
@@ -125,6 +125,28 @@ public interface PaymentConfig extends LockAwareConfig {
     @Description("Number of threads for plugin executor dispatcher")
     int getPaymentPluginThreadNb();
 
+    enum PluginDispatchMode {
+        /* All plugin calls go through a single executor */
+        SHARED,
+        /* Each plugin gets its own bounded executor, calls are rejected when it is full */
+        BULKHEAD
+    }
+
+    @Config("org.killbill.payment.plugin.dispatch.mode")
+    @Default("SHARED")
+    @Description("How plugin calls are dispatched: SHARED (single executor) or BULKHEAD (one bounded executor per plugin)")
+    PluginDispatchMode getPaymentPluginDispatchMode();
+
+    @Config("org.killbill.payment.plugin.bulkhead.threads.nb")
+    @Default("10")
+    @Description("Number of threads for each plugin executor, in BULKHEAD dispatch mode")
+    int getPaymentPluginBulkheadThreadNb();
+
+    @Config("org.killbill.payment.plugin.bulkhead.queue.size")
+    @Default("50")
+    @Description("Maximum number of calls waiting for a thread for each plugin executor, in BULKHEAD dispatch mode")
+    int getPaymentPluginBulkheadQueueSize();
+
     @Config("org.killbill.payment.globalLock.retries")
     @Default("50")
     @Description("Maximum number of times the system will retry to grab global lock (with a 100ms wait each time)")
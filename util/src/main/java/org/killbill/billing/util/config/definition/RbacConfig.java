@@ -28,4 +28,10 @@ public interface RbacConfig extends KillbillConfig {
     @Default("1h")
     @Description("System-wide default time that any session may remain idle before expiring")
     public TimeSpan getGlobalSessionTimeout();
+
+    @Config("org.killbill.rbac.sessionUpdatesFlushInterval")
+    @Default("0s")
+    @Description("When greater than 0, session touches (last access time only) are coalesced in memory and written in batches at that interval " +
+                 "instead of on each request. Other session changes are always written right away")
+    public TimeSpan getSessionUpdatesFlushInterval();
 }
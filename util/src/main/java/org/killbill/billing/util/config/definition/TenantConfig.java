@@ -24,9 +24,24 @@ import org.skife.config.TimeSpan;
 
 public interface TenantConfig extends KillbillConfig {
 
+    enum TenantBroadcastTransportType {
+        /* Tenant broadcasts are only discovered by polling (historical behavior) */
+        NONE,
+        /* Tenant broadcasts are pushed to the node which made the change, other nodes rely on polling */
+        LOCAL,
+        /* Tenant broadcasts are pushed to all the nodes through the Redis cache server (pub/sub) */
+        REDIS
+    }
+
     @Config("org.killbill.tenant.broadcast.rate")
     @Default("5s")
     @Description("Rate at which tenant broadcast task is scheduled")
     public TimeSpan getTenantBroadcastServiceRunningRate();
 
+    @Config("org.killbill.tenant.broadcast.push.transport")
+    @Default("LOCAL")
+    @Description("How tenant broadcasts are pushed to the nodes (NONE, LOCAL or REDIS): with LOCAL, only the node which made the change gets the push and the other nodes rely on polling; " +
+                 "pushing to all the nodes requires REDIS and Redis caching to be enabled (it falls back to LOCAL otherwise). Polling remains the fallback to recover missed notifications")
+    public TenantBroadcastTransportType getTenantBroadcastTransport();
+
 }
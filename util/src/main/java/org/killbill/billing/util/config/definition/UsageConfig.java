@@ -0,0 +1,30 @@
+/*
+ * Copyright 2020-2026 Equinix, Inc
+ * Copyright 2014-2026 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.config.definition;
+
+import org.skife.config.Config;
+import org.skife.config.Default;
+import org.skife.config.Description;
+
+public interface UsageConfig extends KillbillConfig {
+
+    @Config("org.killbill.usage.readDailyRollup")
+    @Default("false")
+    @Description("Whether usage queries which don't need tracking ids are served from the per day rollup table instead of summing raw usage (only for ranges starting and ending at midnight UTC, other ranges are still served from the raw usage)")
+    boolean isDailyRollupReadEnabled();
+}
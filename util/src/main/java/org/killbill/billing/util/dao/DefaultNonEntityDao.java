@@ -18,7 +18,15 @@
 
 package org.killbill.billing.util.dao;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.function.Function;
 
 import javax.annotation.Nullable;
 import javax.inject.Inject;
@@ -42,6 +50,9 @@ import static org.killbill.billing.util.glue.IDBISetup.MAIN_RO_IDBI_NAMED;
 
 public class DefaultNonEntityDao implements NonEntityDao {
 
+    // Keep the IN (...) lists reasonably small, some databases (and their query planners) don't like huge lists
+    private static final int MAX_IDS_PER_QUERY = 1000;
+
     private final DBRouter<NonEntitySqlDao> dbRouter;
     private final WithCaching<String, Long> withCachingObjectId;
     private final WithCaching<String, UUID> withCachingRecordId;
@@ -136,6 +147,50 @@ public class DefaultNonEntityDao implements NonEntityDao {
         }, objectIdOrNull, objectType, tableName, cache);
     }
 
+    @Override
+    public Map<UUID, Long> retrieveRecordIdsFromObjects(final Collection<UUID> objectIds, final ObjectType objectType, @Nullable final CacheController<String, Long> cache) {
+        final TableName tableName = TableName.fromObjectType(objectType);
+        Preconditions.checkNotNull(tableName, "%s is not a valid ObjectType", objectType);
+
+        return withBatchCaching(ids -> dbRouter.onDemand(true).getRecordIdsFromObjects(ids, tableName.getTableName()),
+                                objectIds, objectType, tableName, cache);
+    }
+
+    @Override
+    public Map<UUID, Long> retrieveAccountRecordIdsFromObjects(final Collection<UUID> objectIds, final ObjectType objectType, @Nullable final CacheController<String, Long> cache) {
+        final TableName tableName = TableName.fromObjectType(objectType);
+        Preconditions.checkNotNull(tableName, "%s is not a valid ObjectType", objectType);
+
+        switch (tableName) {
+            case TENANT:
+            case TAG_DEFINITIONS:
+            case TAG_DEFINITION_HISTORY:
+                return Collections.emptyMap();
+
+            case ACCOUNT:
+                return withBatchCaching(ids -> dbRouter.onDemand(true).getAccountRecordIdsFromAccounts(ids),
+                                        objectIds, objectType, tableName, cache);
+
+            default:
+                return withBatchCaching(ids -> dbRouter.onDemand(true).getAccountRecordIdsFromObjectsOtherThanAccount(ids, tableName.getTableName()),
+                                        objectIds, objectType, tableName, cache);
+        }
+    }
+
+    @Override
+    public Map<UUID, Long> retrieveTenantRecordIdsFromObjects(final Collection<UUID> objectIds, final ObjectType objectType, @Nullable final CacheController<String, Long> cache) {
+        final TableName tableName = TableName.fromObjectType(objectType);
+        Preconditions.checkNotNull(tableName, "%s is not a valid ObjectType", objectType);
+
+        if (tableName == TableName.TENANT) {
+            return withBatchCaching(ids -> dbRouter.onDemand(true).getTenantRecordIdsFromTenants(ids),
+                                    objectIds, objectType, tableName, cache);
+        } else {
+            return withBatchCaching(ids -> dbRouter.onDemand(true).getTenantRecordIdsFromObjectsOtherThanTenant(ids, tableName.getTableName()),
+                                    objectIds, objectType, tableName, cache);
+        }
+    }
+
     @Override
     public UUID retrieveIdFromObject(final Long recordId, final ObjectType objectType, @Nullable final CacheController<String, UUID> cache) {
         return retrieveIdFromObjectInTransaction(recordId, objectType, cache, null);
@@ -170,6 +225,60 @@ public class DefaultNonEntityDao implements NonEntityDao {
         return dbRouter.onDemand(true).getHistoryTargetRecordId(recordId, tableName.getTableName());
     }
 
+    private static Map<UUID, Long> withBatchCaching(final Function<Collection<String>, Iterable<RecordIdIdMappings>> op,
+                                                    final Collection<UUID> objectIds,
+                                                    final ObjectType objectType,
+                                                    final TableName tableName,
+                                                    @Nullable final CacheController<String, Long> cache) {
+        final Map<UUID, Long> result = new HashMap<UUID, Long>();
+        final List<String> misses = new ArrayList<String>();
+        for (final UUID objectId : new LinkedHashSet<UUID>(objectIds)) {
+            if (objectId == null) {
+                continue;
+            }
+
+            if (cache != null) {
+                final String key = cacheKey(objectId, tableName, cache);
+                if (cache.isKeyInCache(key)) {
+                    final Long value = cache.get(key, new CacheLoaderArgument(objectType));
+                    if (value != null) {
+                        result.put(objectId, value);
+                        continue;
+                    }
+                }
+            }
+            misses.add(objectId.toString());
+        }
+
+        if (misses.isEmpty()) {
+            return result;
+        }
+
+        final Profiling<Void, RuntimeException> prof = new Profiling<Void, RuntimeException>();
+        prof.executeWithProfiling(ProfilingFeatureType.DAO_DETAILS, "NonEntityDao (type = " + objectType + ") batch cache miss", new WithProfilingCallback<Void, RuntimeException>() {
+            @Override
+            public Void execute() throws RuntimeException {
+                for (int i = 0; i < misses.size(); i += MAX_IDS_PER_QUERY) {
+                    final List<String> chunk = misses.subList(i, Math.min(i + MAX_IDS_PER_QUERY, misses.size()));
+                    for (final RecordIdIdMappings mapping : op.apply(chunk)) {
+                        result.put(mapping.getId(), mapping.getRecordId());
+                        if (cache != null) {
+                            cache.putIfAbsent(cacheKey(mapping.getId(), tableName, cache), mapping.getRecordId());
+                        }
+                    }
+                }
+                return null;
+            }
+        });
+        return result;
+    }
+
+    private static String cacheKey(final UUID objectId, final TableName tableName, final CacheController<String, Long> cache) {
+        return cache.getCacheType().isKeyPrefixedWithTableName() ?
+               tableName + CacheControllerDispatcher.CACHE_KEY_SEPARATOR + objectId :
+               objectId.toString();
+    }
+
     private interface OperationRetrieval<TypeOut> {
 
         public TypeOut doRetrieve(final ObjectType objectType);
@@ -35,6 +35,8 @@ public class DefaultPagination<T> implements Pagination<T>, Closeable {
     private final Long limit;
     private final Long totalNbRecords;
     private final Long maxNbRecords;
+    // Only used for keyset pagination (see PaginationCursor)
+    private final Long nextCursor;
     private final Iterator<T> delegateIterator;
 
     // Builders when the streaming API can't be used (should only be used for tests)
@@ -57,9 +59,15 @@ public class DefaultPagination<T> implements Pagination<T>, Closeable {
         return new DefaultPagination<T>(offset, limit, (long) results.size(), (long) maxNbRecords, results.iterator());
     }
 
+    // Builder for keyset pagination (see PaginationCursor): totals aren't computed in that mode
+    public static <T> DefaultPagination<T> withCursor(final Long currentCursor, final Long limit, @Nullable final Long nextCursor, final Iterator<T> results) {
+        return new DefaultPagination<T>(currentCursor, limit, null, null, nextCursor, results);
+    }
+
     // Constructor for DAO -> API bridge
     public DefaultPagination(final Pagination original, final Long limit, final Iterator<T> delegate) {
-        this(original.getCurrentOffset(), limit, original.getTotalNbRecords(), original.getMaxNbRecords(), delegate);
+        this(original.getCurrentOffset(), limit, original.getTotalNbRecords(), original.getMaxNbRecords(),
+             PaginationCursor.isCursor(original.getCurrentOffset()) ? original.getNextOffset() : null, delegate);
     }
 
     // Constructor for DAO getAll calls
@@ -70,11 +78,19 @@ public class DefaultPagination<T> implements Pagination<T>, Closeable {
     public DefaultPagination(final Long currentOffset, final Long limit,
                              @Nullable final Long totalNbRecords, @Nullable final Long maxNbRecords,
                              final Iterator<T> delegateIterator) {
+        this(currentOffset, limit, totalNbRecords, maxNbRecords, null, delegateIterator);
+    }
+
+    private DefaultPagination(final Long currentOffset, final Long limit,
+                              @Nullable final Long totalNbRecords, @Nullable final Long maxNbRecords,
+                              @Nullable final Long nextCursor,
+                              final Iterator<T> delegateIterator) {
         this.currentOffset = currentOffset;
         // See DefaultPaginationSqlDaoHelper
         this.limit = Math.abs(limit);
         this.totalNbRecords = totalNbRecords;
         this.maxNbRecords = maxNbRecords;
+        this.nextCursor = PaginationCursor.isCursor(currentOffset) ? nextCursor : null;
         this.delegateIterator = delegateIterator;
     }
 
@@ -102,6 +118,11 @@ public class DefaultPagination<T> implements Pagination<T>, Closeable {
 
     @Override
     public Long getNextOffset() {
+        if (PaginationCursor.isCursor(currentOffset)) {
+            // Null when there are no more results
+            return nextCursor;
+        }
+
         final long candidate = currentOffset + limit;
         if (totalNbRecords != null && candidate >= totalNbRecords) {
             // No more results
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2020-2026 Equinix, Inc
+ * Copyright 2014-2026 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.entity;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import javax.annotation.Nullable;
+
+// Keyset (seek) pagination: instead of an offset, a page is identified by the record_id of its first entry.
+//
+// The Pagination APIs only carry a Long offset, so cursors travel through them as negative offsets (which
+// are never valid offsets): a cursor on record_id N is encoded as Long.MIN_VALUE + N. Externally (e.g. JAX-RS),
+// cursors are exposed as opaque tokens.
+public abstract class PaginationCursor {
+
+    // Cursor for the first page (record ids start at 1)
+    public static final Long FIRST_PAGE = Long.MIN_VALUE;
+
+    private static final String TOKEN_PREFIX = "rid:";
+
+    public static boolean isCursor(@Nullable final Long offset) {
+        return offset != null && offset < 0;
+    }
+
+    public static Long fromRecordId(final Long recordId) {
+        if (recordId == null || recordId < 0) {
+            throw new IllegalArgumentException("Invalid pagination cursor recordId " + recordId);
+        }
+        return Long.MIN_VALUE + recordId;
+    }
+
+    // Returns 0 for the first page
+    public static Long toRecordId(final Long offset) {
+        if (!isCursor(offset)) {
+            throw new IllegalArgumentException("Offset " + offset + " isn't a pagination cursor");
+        }
+        return offset - Long.MIN_VALUE;
+    }
+
+    public static String encode(final Long offset) {
+        final String token = TOKEN_PREFIX + toRecordId(offset);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(token.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // An empty token requests the first page
+    public static Long decode(@Nullable final String token) {
+        if (token == null || token.isEmpty()) {
+            return FIRST_PAGE;
+        }
+
+        final String decoded;
+        try {
+            decoded = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+        } catch (final IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid pagination cursor " + token, e);
+        }
+        if (!decoded.startsWith(TOKEN_PREFIX)) {
+            throw new IllegalArgumentException("Invalid pagination cursor " + token);
+        }
+
+        try {
+            return fromRecordId(Long.valueOf(decoded.substring(TOKEN_PREFIX.length())));
+        } catch (final NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid pagination cursor " + token, e);
+        }
+    }
+}
@@ -26,6 +26,7 @@ import org.killbill.billing.callcontext.InternalTenantContext;
 import org.killbill.billing.util.entity.DefaultPagination;
 import org.killbill.billing.util.entity.Entity;
 import org.killbill.billing.util.entity.Pagination;
+import org.killbill.billing.util.entity.PaginationCursor;
 import org.killbill.commons.utils.annotation.VisibleForTesting;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -83,6 +84,10 @@ public class DefaultPaginationSqlDaoHelper {
         final Ordering ordering = limitMaybeNegative >= 0 ? Ordering.ASC : Ordering.DESC;
         final Long limit = Math.abs(limitMaybeNegative);
 
+        if (PaginationCursor.isCursor(offset)) {
+            return getCursorPaginationInternal(sqlDaoClazz, paginationIteratorBuilder, offset, limit, ordering, context);
+        }
+
         // Note: the connection will be busy as we stream the results out: hence we cannot use
         // SQL_CALC_FOUND_ROWS / FOUND_ROWS on the actual query.
         // We still need to know the actual number of results, mainly for the UI so that it knows if it needs to fetch
@@ -123,6 +128,34 @@ public class DefaultPaginationSqlDaoHelper {
         return new DefaultPagination<M>(offset, limit, totalNbRecords, maxNbRecords, results);
     }
 
+    // Keyset pagination: the page is located through the (record_id) index instead of scanning and discarding offset rows.
+    // Counts aren't computed either, the end of the pagination is reached when there is no next cursor.
+    private <E extends Entity, M extends EntityModelDao<E>, S extends EntitySqlDao<M, E>> Pagination<M> getCursorPaginationInternal(final Class<? extends EntitySqlDao<M, E>> sqlDaoClazz,
+                                                                                                                                    final PaginationIteratorBuilder<M, E, S> paginationIteratorBuilder,
+                                                                                                                                    final Long cursor,
+                                                                                                                                    final Long limit,
+                                                                                                                                    final Ordering ordering,
+                                                                                                                                    @Nullable final InternalTenantContext context) {
+        final Long cursorRecordId = PaginationCursor.toRecordId(cursor);
+        // When going backwards, the first page starts from the most recent record
+        final Long recordIdCursor = cursorRecordId == 0 && ordering == Ordering.DESC ? Long.MAX_VALUE : cursorRecordId;
+
+        // The first record of the next page, if any, becomes the next cursor
+        final Long nextRecordId = transactionalSqlDao.execute(true, new EntitySqlDaoTransactionWrapper<Long>() {
+            @Override
+            public Long inTransaction(final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory) throws Exception {
+                final EntitySqlDao<M, E> sqlDao = entitySqlDaoWrapperFactory.become(sqlDaoClazz);
+                return paginationIteratorBuilder.getRecordIdFromCursorAtOffset((S) sqlDao, recordIdCursor, limit, ordering, context);
+            }
+        });
+
+        // Since we want to stream the results out, we don't want to auto-commit when this method returns.
+        final EntitySqlDao<M, E> sqlDao = transactionalSqlDao.onDemandForStreamingResults(sqlDaoClazz);
+        final Iterator<M> results = paginationIteratorBuilder.buildFromCursor((S) sqlDao, recordIdCursor, limit, ordering, context);
+
+        return DefaultPagination.<M>withCursor(cursor, limit, nextRecordId == null ? null : PaginationCursor.fromRecordId(nextRecordId), results);
+    }
+
     public abstract static class PaginationIteratorBuilder<M extends EntityModelDao<E>, E extends Entity, S extends EntitySqlDao<M, E>> {
 
         // Determine the totalNbRecords:
@@ -131,10 +164,29 @@ public class DefaultPaginationSqlDaoHelper {
         public abstract Long getCount(final S sqlDao, final InternalTenantContext context);
 
         public abstract Iterator<M> build(final S sqlDao, final Long offset, final Long limit, final Ordering ordering, final InternalTenantContext context);
+
+        // Keyset pagination (see PaginationCursor) is only available for queries without search filter
+        public Iterator<M> buildFromCursor(final S sqlDao, final Long recordIdCursor, final Long limit, final Ordering ordering, final InternalTenantContext context) {
+            throw new IllegalArgumentException("Cursor pagination isn't supported for this query");
+        }
+
+        public Long getRecordIdFromCursorAtOffset(final S sqlDao, final Long recordIdCursor, final Long offset, final Ordering ordering, final InternalTenantContext context) {
+            throw new IllegalArgumentException("Cursor pagination isn't supported for this query");
+        }
     }
 
     public enum Ordering {
-        ASC,
-        DESC
+        ASC(">="),
+        DESC("<=");
+
+        private final String recordIdCursorComparator;
+
+        Ordering(final String recordIdCursorComparator) {
+            this.recordIdCursorComparator = recordIdCursorComparator;
+        }
+
+        public String getRecordIdCursorComparator() {
+            return recordIdCursorComparator;
+        }
     }
 }
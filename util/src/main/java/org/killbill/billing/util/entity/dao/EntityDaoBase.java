@@ -215,6 +215,16 @@ public abstract class EntityDaoBase<M extends EntityModelDao<E>, E extends Entit
                                                   public Iterator<M> build(final EntitySqlDao<M, E> sqlDao, final Long offset, final Long limit, final Ordering ordering, final InternalTenantContext context) {
                                                       return sqlDao.get(offset, limit, getNaturalOrderingColumns(), ordering.toString(), context);
                                                   }
+
+                                                  @Override
+                                                  public Iterator<M> buildFromCursor(final EntitySqlDao<M, E> sqlDao, final Long recordIdCursor, final Long limit, final Ordering ordering, final InternalTenantContext context) {
+                                                      return sqlDao.getFromRecordIdCursor(recordIdCursor, limit, ordering.getRecordIdCursorComparator(), ordering.toString(), context);
+                                                  }
+
+                                                  @Override
+                                                  public Long getRecordIdFromCursorAtOffset(final EntitySqlDao<M, E> sqlDao, final Long recordIdCursor, final Long offset, final Ordering ordering, final InternalTenantContext context) {
+                                                      return sqlDao.getRecordIdFromRecordIdCursorAtOffset(recordIdCursor, offset, ordering.getRecordIdCursorComparator(), ordering.toString(), context);
+                                                  }
                                               },
                                               offset,
                                               limit,
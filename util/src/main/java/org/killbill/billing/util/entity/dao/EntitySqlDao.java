@@ -125,6 +125,23 @@ public interface EntitySqlDao<M extends EntityModelDao<E>, E extends Entity> ext
                            @Define("ordering") final String ordering,
                            @SmartBindBean final InternalTenantContext context);
 
+    // Keyset pagination (see PaginationCursor): rows starting at recordIdCursor (inclusive), recordIdComparator
+    // being >= for ASC and <= for DESC ordering
+    @SqlQuery
+    @SmartFetchSize(shouldStream = true)
+    public Iterator<M> getFromRecordIdCursor(@Bind("recordIdCursor") final Long recordIdCursor,
+                                             @Bind("rowCount") final Long rowCount,
+                                             @Define("recordIdComparator") final String recordIdComparator,
+                                             @Define("ordering") final String ordering,
+                                             @SmartBindBean final InternalTenantContext context);
+
+    @SqlQuery
+    public Long getRecordIdFromRecordIdCursorAtOffset(@Bind("recordIdCursor") final Long recordIdCursor,
+                                                      @Bind("offset") final Long offset,
+                                                      @Define("recordIdComparator") final String recordIdComparator,
+                                                      @Define("ordering") final String ordering,
+                                                      @SmartBindBean final InternalTenantContext context);
+
     @SqlQuery
     public Long getRecordIdAtOffset(@Bind("offset") final Long offset);
     
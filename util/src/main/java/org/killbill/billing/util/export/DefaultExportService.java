@@ -0,0 +1,63 @@
+/*
+ * Copyright 2020-2026 Equinix, Inc
+ * Copyright 2014-2026 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.export;
+
+import javax.inject.Inject;
+
+import org.killbill.billing.platform.api.LifecycleHandlerType;
+import org.killbill.billing.platform.api.LifecycleHandlerType.LifecycleLevel;
+import org.killbill.billing.util.export.dao.DatabaseExportDao;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class DefaultExportService implements ExportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(DefaultExportService.class);
+
+    private final DatabaseExportDao databaseExportDao;
+
+    @Inject
+    public DefaultExportService(final DatabaseExportDao databaseExportDao) {
+        this.databaseExportDao = databaseExportDao;
+    }
+
+    @Override
+    public String getName() {
+        return EXPORT_SERVICE_NAME;
+    }
+
+    @Override
+    public int getRegistrationOrdering() {
+        return EXPORT_SERVICE_REGISTRATION_ORDERING;
+    }
+
+    @LifecycleHandlerType(LifecycleLevel.INIT_SERVICE)
+    public void initialize() {
+        databaseExportDao.initialize();
+    }
+
+    @LifecycleHandlerType(LifecycleLevel.STOP_SERVICE)
+    public void stop() {
+        try {
+            databaseExportDao.stop();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.error("ExportService got interrupted", e);
+        }
+    }
+}
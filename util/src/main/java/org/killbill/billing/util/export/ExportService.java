@@ -0,0 +1,28 @@
+/*
+ * Copyright 2020-2026 Equinix, Inc
+ * Copyright 2014-2026 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.export;
+
+import org.killbill.billing.platform.api.KillbillService;
+
+public interface ExportService extends KillbillService {
+
+    String EXPORT_SERVICE_NAME = "export-service";
+
+    // Not part of KILLBILL_SERVICES: registration orderings must be unique, slot it between the broadcast and the bus handler services
+    int EXPORT_SERVICE_REGISTRATION_ORDERING = KILLBILL_SERVICES.BROADCAST_SERVICE.getRegistrationOrdering() + 5;
+}
@@ -58,6 +58,17 @@ public class CSVExportOutputStream extends OutputStream implements DatabaseExpor
         delegate.write(b);
     }
 
+    @Override
+    public void write(final byte[] b, final int off, final int len) throws IOException {
+        // Don't go through write(int) byte by byte
+        delegate.write(b, off, len);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        delegate.flush();
+    }
+
     @Override
     public String toString() {
         return delegate.toString();
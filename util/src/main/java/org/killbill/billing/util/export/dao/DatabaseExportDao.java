@@ -19,11 +19,21 @@ package org.killbill.billing.util.export.dao;
 import java.io.IOException;
 import java.sql.Blob;
 import java.sql.Clob;
+import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
@@ -31,13 +41,16 @@ import javax.inject.Singleton;
 import org.killbill.billing.callcontext.InternalTenantContext;
 import org.killbill.billing.util.api.ColumnInfo;
 import org.killbill.billing.util.api.DatabaseExportOutputStream;
+import org.killbill.billing.util.config.definition.ExportConfig;
 import org.killbill.billing.util.dao.TableName;
 import org.killbill.billing.util.validation.DefaultColumnInfo;
 import org.killbill.billing.util.validation.dao.DatabaseSchemaDao;
+import org.killbill.commons.concurrent.Executors;
+import org.killbill.commons.jdbi.statement.SmartFetchSize.SmartFetchSizeCustomizer;
 import org.skife.jdbi.v2.Handle;
 import org.skife.jdbi.v2.IDBI;
+import org.skife.jdbi.v2.Query;
 import org.skife.jdbi.v2.ResultIterator;
-import org.skife.jdbi.v2.tweak.HandleCallback;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -46,14 +59,49 @@ public class DatabaseExportDao {
 
     private static final Logger logger = LoggerFactory.getLogger(DatabaseExportDao.class);
 
+    private static final String MYSQL = "MySQL";
+    // Maximum number of rows a parallel reader can get ahead of the writer, per table
+    private static final int MAX_BUFFERED_ROWS_PER_TABLE = 1000;
+    // How often a reader blocked on a full queue checks whether the export was aborted
+    private static final long HAND_OFF_POLL_MILLIS = 100;
+    private static final Object END_OF_TABLE = new Object();
+
     private final DatabaseSchemaDao databaseSchemaDao;
     private final IDBI dbi;
+    private final int fetchSize;
+    private final int exportThreadNb;
+    private final AtomicInteger activeReaders = new AtomicInteger();
+
+    // Only set (by the ExportService) when tables should be exported concurrently
+    private volatile ExecutorService executorService;
 
     @Inject
     public DatabaseExportDao(final DatabaseSchemaDao databaseSchemaDao,
-                             final IDBI dbi) {
+                             final IDBI dbi,
+                             final ExportConfig exportConfig) {
         this.databaseSchemaDao = databaseSchemaDao;
         this.dbi = dbi;
+        this.fetchSize = exportConfig.getFetchSize();
+        this.exportThreadNb = exportConfig.getExportThreadNb();
+    }
+
+    public synchronized void initialize() {
+        if (exportThreadNb > 1 && executorService == null) {
+            executorService = Executors.newFixedThreadPool(exportThreadNb, DatabaseExportDao.class.getName());
+        }
+    }
+
+    public synchronized void stop() throws InterruptedException {
+        if (executorService == null) {
+            return;
+        }
+
+        // In-flight exports are aborted: readers are blocked on the JDBC cursor or on the hand-off queue
+        executorService.shutdownNow();
+        if (!executorService.awaitTermination(5, TimeUnit.SECONDS)) {
+            logger.warn("Export executor failed to terminate within 5 seconds");
+        }
+        executorService = null;
     }
 
     private enum TableType {
@@ -85,45 +133,78 @@ public class DatabaseExportDao {
         }
     }
 
+    // Per-table export unit: the columns (in schema order) and the account-filtered query
+    private static final class TableExport {
+
+        private final String tableName;
+        private final List<ColumnInfo> columnsForTable;
+        private final Map<String, Integer> columnsLookup;
+        private final String query;
+
+        private TableExport(final String tableName, final List<ColumnInfo> columnsForTable, final Map<String, Integer> columnsLookup, final String query) {
+            this.tableName = tableName;
+            this.columnsForTable = columnsForTable;
+            this.columnsLookup = columnsLookup;
+            this.query = query;
+        }
+    }
+
+    private interface RowHandler {
+
+        void handle(Map<String, Object> row) throws Exception;
+    }
+
     public void exportDataForAccount(final DatabaseExportOutputStream out, final InternalTenantContext context) {
         if (context.getAccountRecordId() == null || context.getTenantRecordId() == null) {
             return;
         }
 
+        final List<TableExport> tableExports = getTableExports();
+        final ExecutorService executor = executorService;
+        if (executor == null || tableExports.size() < 2) {
+            for (final TableExport tableExport : tableExports) {
+                exportDataForAccountAndTable(out, tableExport, context);
+            }
+        } else {
+            exportDataForAccountInParallel(executor, out, tableExports, context);
+        }
+    }
+
+    private List<TableExport> getTableExports() {
+        final List<TableExport> tableExports = new ArrayList<TableExport>();
+
         final List<DefaultColumnInfo> columns = databaseSchemaDao.getColumnInfoList();
         if (columns.size() == 0) {
-            return;
+            return tableExports;
         }
 
-        final List<ColumnInfo> columnsForTable = new ArrayList<ColumnInfo>();
+        List<ColumnInfo> columnsForTable = new ArrayList<ColumnInfo>();
         // Separate lookup table, to keep the ordering of the columns
-        final Map<String, Integer> columnsLookup = new TreeMap<>(String.CASE_INSENSITIVE_ORDER); // Ignore casing (for H2)
+        Map<String, Integer> columnsLookup = new TreeMap<>(String.CASE_INSENSITIVE_ORDER); // Ignore casing (for H2)
 
         // The list of columns is ordered by table name first
         String lastSeenTableName = columns.get(0).getTableName();
         int j = 0;
         for (final ColumnInfo column : columns) {
             if (!column.getTableName().equals(lastSeenTableName)) {
-                exportDataForAccountAndTable(out, columnsForTable, columnsLookup, context);
+                addTableExport(tableExports, columnsForTable, columnsLookup);
                 lastSeenTableName = column.getTableName();
-                columnsForTable.clear();
-                columnsLookup.clear();
+                columnsForTable = new ArrayList<ColumnInfo>();
+                columnsLookup = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
                 j = 0;
             }
             columnsForTable.add(column);
             columnsLookup.put(column.getColumnName(), j);
             j++;
         }
-        exportDataForAccountAndTable(out, columnsForTable, columnsLookup, context);
-    }
-
-
-    private void exportDataForAccountAndTable(final DatabaseExportOutputStream out,
-                                              final List<ColumnInfo> columnsForTable,
-                                              final Map<String, Integer> columnsLookup,
-                                              final InternalTenantContext context) {
+        addTableExport(tableExports, columnsForTable, columnsLookup);
 
+        return tableExports;
+    }
 
+    private void addTableExport(final List<TableExport> tableExports,
+                                final List<ColumnInfo> columnsForTable,
+                                final Map<String, Integer> columnsLookup) {
         TableType tableType = TableType.OTHER;
         final String tableName = columnsForTable.get(0).getTableName();
 
@@ -169,52 +250,173 @@ public class DatabaseExportDao {
                     .append(tableType.getTenantRecordIdColumnName())
                     .append("  = :tenantRecordId");
 
+        tableExports.add(new TableExport(tableName, columnsForTable, columnsLookup, queryBuilder.toString()));
+    }
+
+    private void exportDataForAccountAndTable(final DatabaseExportOutputStream out,
+                                              final TableExport tableExport,
+                                              final InternalTenantContext context) {
         // Notify the stream that we're about to write data for a different table
-        out.newTable(tableName, columnsForTable);
-
-        dbi.withHandle(new HandleCallback<Void>() {
-            @Override
-            public Void withHandle(final Handle handle) throws Exception {
-                final ResultIterator<Map<String, Object>> iterator = handle.createQuery(queryBuilder.toString())
-                                                                           .bind("accountRecordId", context.getAccountRecordId())
-                                                                           .bind("tenantRecordId", context.getTenantRecordId())
-                                                                           .iterator();
-                try {
-                    while (iterator.hasNext()) {
-                        final Map<String, Object> row = iterator.next();
-
-                        for (final Entry<String, Object> entry : row.entrySet()) {
-                            final String k = entry.getKey();
-                            final Object value = entry.getValue();
-                            // For h2, transform a JdbcBlob and a JdbcClob into a byte[]
-                            // See also LowerToCamelBeanMapper
-                            if (value instanceof Blob) {
-                                final Blob blob = (Blob) value;
-                                row.put(k, blob.getBytes(1, (int) blob.length()));
-                            } else if (value instanceof Clob) {
-                                // TODO Update LowerToCamelBeanMapper?
-                                final Clob clob = (Clob) value;
-                                row.put(k, clob.getSubString(1, (int) clob.length()));
-                            } else if (value != null &&
-                                       columnsLookup.get(k) != null &&
-                                       columnsForTable.get(columnsLookup.get(k)) != null &&
-                                       "boolean".equals(columnsForTable.get(columnsLookup.get(k)).getDataType())) {
-                                row.put(k, value instanceof Boolean ? value : "1".equals(value.toString())); // Most likely Byte
-                            }
-                        }
+        out.newTable(tableExport.tableName, tableExport.columnsForTable);
 
+        // Rows are written as they come off the cursor, nothing is buffered
+        readTable(tableExport, context, row -> writeRow(out, row));
+    }
+
+    // Each table is read on its own connection and its rows are handed off to the caller through a bounded queue.
+    // The caller drains the queues in schema order, so the output is identical to the serial export, and at most
+    // MAX_BUFFERED_ROWS_PER_TABLE rows per reader thread are held in memory.
+    // Readers are started in schema order (FIFO pool), so the table being drained is always being read or done.
+    // If the caller bails out early, readers notice the aborted flag instead of blocking on their (full) queue.
+    @SuppressWarnings("unchecked")
+    private void exportDataForAccountInParallel(final ExecutorService executor,
+                                                final DatabaseExportOutputStream out,
+                                                final List<TableExport> tableExports,
+                                                final InternalTenantContext context) {
+        final AtomicBoolean aborted = new AtomicBoolean(false);
+        final List<BlockingQueue<Object>> queues = new ArrayList<BlockingQueue<Object>>(tableExports.size());
+        final List<Future<Void>> readers = new ArrayList<Future<Void>>(tableExports.size());
+        boolean completed = false;
+        try {
+            for (final TableExport tableExport : tableExports) {
+                final BlockingQueue<Object> queue = new ArrayBlockingQueue<Object>(MAX_BUFFERED_ROWS_PER_TABLE);
+                queues.add(queue);
+                readers.add(executor.submit(() -> {
+                    activeReaders.incrementAndGet();
+                    try {
+                        readTable(tableExport, context, row -> handOff(queue, row, aborted));
+                    } finally {
                         try {
-                            out.write(row);
-                        } catch (final IOException e) {
-                            logger.warn("Unable to write row: {}", row, e);
-                            throw e;
+                            if (!aborted.get()) {
+                                handOff(queue, END_OF_TABLE, aborted);
+                            }
+                        } finally {
+                            activeReaders.decrementAndGet();
                         }
                     }
-                } finally {
-                    iterator.close();
+                    return null;
+                }));
+            }
+
+            for (int i = 0; i < tableExports.size(); i++) {
+                final TableExport tableExport = tableExports.get(i);
+                out.newTable(tableExport.tableName, tableExport.columnsForTable);
+
+                final BlockingQueue<Object> queue = queues.get(i);
+                Object next = queue.take();
+                while (next != END_OF_TABLE) {
+                    writeRow(out, (Map<String, Object>) next);
+                    next = queue.take();
+                }
+                // Surface any read failure
+                readers.get(i).get();
+            }
+            completed = true;
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (final ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (final IOException e) {
+            throw new IllegalStateException(e);
+        } finally {
+            if (!completed) {
+                // Release the readers (and their connections): pending ones never start, running ones stop at their
+                // next row (or as soon as the JDBC driver honors the interrupt)
+                aborted.set(true);
+                for (final Future<Void> reader : readers) {
+                    reader.cancel(true);
+                }
+                for (final BlockingQueue<Object> queue : queues) {
+                    queue.clear();
                 }
-                return null;
             }
+        }
+    }
+
+    // Never blocks indefinitely: a full queue is re-checked every HAND_OFF_POLL_MILLIS until the export is aborted
+    private static void handOff(final BlockingQueue<Object> queue, final Object element, final AtomicBoolean aborted) throws InterruptedException {
+        do {
+            if (aborted.get()) {
+                throw new CancellationException("Export aborted");
+            }
+        } while (!queue.offer(element, HAND_OFF_POLL_MILLIS, TimeUnit.MILLISECONDS));
+    }
+
+    // Package scope for testing
+    int getActiveReaders() {
+        return activeReaders.get();
+    }
+
+    private void readTable(final TableExport tableExport,
+                           final InternalTenantContext context,
+                           final RowHandler rowHandler) {
+        // PostgreSQL only streams (i.e. honors the fetch size) when auto-commit is off
+        dbi.inTransaction((handle, status) -> {
+            streamRows(handle, tableExport, context, rowHandler);
+            return null;
         });
     }
+
+    private void streamRows(final Handle handle,
+                            final TableExport tableExport,
+                            final InternalTenantContext context,
+                            final RowHandler rowHandler) throws Exception {
+        final Query<Map<String, Object>> query = handle.createQuery(tableExport.query)
+                                                       .bind("accountRecordId", context.getAccountRecordId())
+                                                       .bind("tenantRecordId", context.getTenantRecordId());
+        if (isMySQL(handle)) {
+            // MySQL only streams with a fetch size of Integer.MIN_VALUE (1 for MariaDB)
+            query.addStatementCustomizer(new SmartFetchSizeCustomizer(fetchSize, true));
+        } else if (fetchSize > 0) {
+            query.setFetchSize(fetchSize);
+        }
+
+        final ResultIterator<Map<String, Object>> iterator = query.iterator();
+        try {
+            while (iterator.hasNext()) {
+                final Map<String, Object> row = iterator.next();
+
+                for (final Entry<String, Object> entry : row.entrySet()) {
+                    final String k = entry.getKey();
+                    final Object value = entry.getValue();
+                    // For h2, transform a JdbcBlob and a JdbcClob into a byte[]
+                    // See also LowerToCamelBeanMapper
+                    if (value instanceof Blob) {
+                        final Blob blob = (Blob) value;
+                        row.put(k, blob.getBytes(1, (int) blob.length()));
+                    } else if (value instanceof Clob) {
+                        // TODO Update LowerToCamelBeanMapper?
+                        final Clob clob = (Clob) value;
+                        row.put(k, clob.getSubString(1, (int) clob.length()));
+                    } else if (value != null &&
+                               tableExport.columnsLookup.get(k) != null &&
+                               tableExport.columnsForTable.get(tableExport.columnsLookup.get(k)) != null &&
+                               "boolean".equals(tableExport.columnsForTable.get(tableExport.columnsLookup.get(k)).getDataType())) {
+                        row.put(k, value instanceof Boolean ? value : "1".equals(value.toString())); // Most likely Byte
+                    }
+                }
+
+                rowHandler.handle(row);
+            }
+        } finally {
+            iterator.close();
+        }
+    }
+
+    private boolean isMySQL(final Handle handle) throws SQLException {
+        return MYSQL.equalsIgnoreCase(handle.getConnection().getMetaData().getDatabaseProductName());
+    }
+
+    private void writeRow(final DatabaseExportOutputStream out, final Map<String, Object> row) throws IOException {
+        try {
+            out.write(row);
+        } catch (final IOException e) {
+            logger.warn("Unable to write row: {}", row, e);
+            throw e;
+        }
+    }
 }
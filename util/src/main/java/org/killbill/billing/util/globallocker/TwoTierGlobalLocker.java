@@ -0,0 +1,251 @@
+/*
+ * Copyright 2020-2026 Equinix, Inc
+ * Copyright 2014-2026 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.killbill.billing.util.globallocker;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.killbill.commons.locker.GlobalLock;
+import org.killbill.commons.locker.GlobalLocker;
+import org.killbill.commons.locker.LockFailedException;
+import org.killbill.commons.metrics.api.Meter;
+import org.killbill.commons.metrics.api.MetricRegistry;
+import org.killbill.commons.metrics.api.Timer;
+import org.killbill.commons.request.Request;
+import org.killbill.commons.request.RequestData;
+
+/**
+ * GlobalLocker which first serializes the contenders of this node in memory, so that only one of them at a time
+ * goes to the distributed (database or Redis) locker.
+ * <p/>
+ * The distributed locker remains the source of truth: the in-memory lock is only an optimization and never makes
+ * a lock acquisition fail. In particular:
+ * <ul>
+ * <li>a contender which waited more than maxLocalWait, or more than its own retry budget (retry x 100ms), goes to
+ * the distributed locker anyway, with whatever remains of that budget,
+ * <li>a contender for a lock held by another thread of the same request (e.g. a payment plugin call dispatched on
+ * another thread) goes directly to the distributed locker, which treats it as a reentrant acquisition.
+ * </ul>
+ */
+public class TwoTierGlobalLocker implements GlobalLocker {
+
+    private static final String METRIC_PREFIX = "killbill.globalLock.";
+
+    // GlobalLockerBase retries every 100ms: a slower distributed acquisition means at least one attempt failed
+    private static final long RETRY_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final GlobalLocker delegate;
+    private final long maxLocalWaitNanos;
+    private final MetricRegistry metricRegistry;
+    private final Map<String, LocalLock> localLocks = new ConcurrentHashMap<>();
+    private final Map<String, LockTypeMetrics> lockTypeMetrics = new ConcurrentHashMap<>();
+
+    public TwoTierGlobalLocker(final GlobalLocker delegate, final long maxLocalWaitMillis, final MetricRegistry metricRegistry) {
+        this.delegate = delegate;
+        this.maxLocalWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxLocalWaitMillis);
+        this.metricRegistry = metricRegistry;
+    }
+
+    @Override
+    public GlobalLock lockWithNumberOfTries(final String service, final String lockKey, final int retry) throws LockFailedException {
+        final LockTypeMetrics metrics = lockTypeMetrics.computeIfAbsent(service, LockTypeMetrics::new);
+        final String lockName = service + "-" + lockKey;
+
+        // The caller budgeted retry attempts of the distributed locker: the local wait is part of that budget
+        final long budgetNanos = retry * RETRY_INTERVAL_NANOS;
+
+        final long startNanos = System.nanoTime();
+        final LocalLock localLock = acquireLocalLock(lockName, Math.min(maxLocalWaitNanos, budgetNanos), metrics);
+
+        final long remoteStartNanos = System.nanoTime();
+        final int remainingRetry = remainingRetry(budgetNanos - (remoteStartNanos - startNanos));
+        final GlobalLock remoteLock;
+        try {
+            remoteLock = delegate.lockWithNumberOfTries(service, lockKey, remainingRetry);
+        } catch (final LockFailedException | RuntimeException e) {
+            releaseLocalLock(localLock);
+            throw e;
+        }
+        final long acquiredNanos = System.nanoTime();
+
+        if (acquiredNanos - remoteStartNanos >= RETRY_INTERVAL_NANOS) {
+            metrics.remoteContention.mark(1);
+        }
+        metrics.acquisitionTime.update(acquiredNanos - startNanos, TimeUnit.NANOSECONDS);
+
+        return new TwoTierGlobalLock(remoteLock, localLock, metrics, acquiredNanos);
+    }
+
+    @Override
+    public boolean isFree(final String service, final String lockKey) {
+        return delegate.isFree(service, lockKey);
+    }
+
+    // At least one attempt, so that a contender which timed out locally still gets the distributed locker's answer
+    private static int remainingRetry(final long remainingNanos) {
+        return (int) Math.max(1, (remainingNanos + RETRY_INTERVAL_NANOS - 1) / RETRY_INTERVAL_NANOS);
+    }
+
+    // Return the local lock held, or null if the caller should go to the distributed locker without it
+    private LocalLock acquireLocalLock(final String lockName, final long maxWaitNanos, final LockTypeMetrics metrics) {
+        // The number of users is only modified within compute calls, which are atomic for a given key
+        final LocalLock localLock = localLocks.compute(lockName, (k, v) -> {
+            final LocalLock result = v == null ? new LocalLock(k) : v;
+            result.users++;
+            return result;
+        });
+
+        if (localLock.acquire(getRequestId(), maxWaitNanos, metrics)) {
+            return localLock;
+        } else {
+            releaseUser(localLock);
+            return null;
+        }
+    }
+
+    private void releaseLocalLock(final LocalLock localLock) {
+        if (localLock != null) {
+            localLock.release();
+            releaseUser(localLock);
+        }
+    }
+
+    private void releaseUser(final LocalLock localLock) {
+        localLocks.computeIfPresent(localLock.name, (k, v) -> --v.users == 0 ? null : v);
+    }
+
+    private static String getRequestId() {
+        final RequestData requestData = Request.getPerThreadRequestData();
+        return requestData != null ? requestData.getRequestId() : null;
+    }
+
+    private final class TwoTierGlobalLock implements GlobalLock {
+
+        private final GlobalLock remoteLock;
+        private final LocalLock localLock;
+        private final LockTypeMetrics metrics;
+        private final long acquiredNanos;
+
+        private boolean released = false;
+
+        private TwoTierGlobalLock(final GlobalLock remoteLock, final LocalLock localLock, final LockTypeMetrics metrics, final long acquiredNanos) {
+            this.remoteLock = remoteLock;
+            this.localLock = localLock;
+            this.metrics = metrics;
+            this.acquiredNanos = acquiredNanos;
+        }
+
+        @Override
+        public synchronized void release() {
+            if (released) {
+                return;
+            }
+            released = true;
+
+            try {
+                remoteLock.release();
+            } finally {
+                releaseLocalLock(localLock);
+                metrics.holdTime.update(System.nanoTime() - acquiredNanos, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+
+    private static final class LocalLock {
+
+        private final String name;
+
+        // Guarded by the localLocks compute calls
+        private int users = 0;
+
+        // Guarded by the LocalLock monitor
+        private Thread owner;
+        private String ownerRequestId;
+        private int holds = 0;
+
+        private LocalLock(final String name) {
+            this.name = name;
+        }
+
+        private synchronized boolean acquire(final String requestId, final long maxWaitNanos, final LockTypeMetrics metrics) {
+            final Thread currentThread = Thread.currentThread();
+            if (owner == currentThread) {
+                holds++;
+                return true;
+            } else if (owner != null && requestId != null && requestId.equals(ownerRequestId)) {
+                // Same request on another thread: the distributed locker grants it as a reentrant acquisition
+                return false;
+            }
+
+            if (owner != null) {
+                metrics.localContention.mark(1);
+                metrics.waiting.incrementAndGet();
+                try {
+                    final long deadline = System.nanoTime() + maxWaitNanos;
+                    long remainingNanos = maxWaitNanos;
+                    while (owner != null && remainingNanos > 0) {
+                        TimeUnit.NANOSECONDS.timedWait(this, remainingNanos);
+                        remainingNanos = deadline - System.nanoTime();
+                    }
+                } catch (final InterruptedException e) {
+                    // Let the distributed locker deal with it
+                    Thread.currentThread().interrupt();
+                } finally {
+                    metrics.waiting.decrementAndGet();
+                }
+                if (owner != null) {
+                    return false;
+                }
+            }
+
+            owner = currentThread;
+            ownerRequestId = requestId;
+            holds = 1;
+            return true;
+        }
+
+        private synchronized void release() {
+            if (--holds == 0) {
+                owner = null;
+                ownerRequestId = null;
+                notify();
+            }
+        }
+    }
+
+    private final class LockTypeMetrics {
+
+        private final Timer acquisitionTime;
+        private final Timer holdTime;
+        private final Meter localContention;
+        private final Meter remoteContention;
+        private final AtomicInteger waiting = new AtomicInteger();
+
+        private LockTypeMetrics(final String service) {
+            final String prefix = METRIC_PREFIX + service + ".";
+            this.acquisitionTime = metricRegistry.timer(prefix + "acquisition");
+            this.holdTime = metricRegistry.timer(prefix + "hold");
+            this.localContention = metricRegistry.meter(prefix + "contention.local");
+            this.remoteContention = metricRegistry.meter(prefix + "contention.remote");
+            metricRegistry.gauge(prefix + "waiting", waiting::get);
+        }
+    }
+}
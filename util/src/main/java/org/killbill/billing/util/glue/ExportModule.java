@@ -20,7 +20,11 @@ package org.killbill.billing.util.glue;
 
 import org.killbill.billing.platform.api.KillbillConfigSource;
 import org.killbill.billing.util.api.ExportUserApi;
+import org.killbill.billing.util.config.definition.ExportConfig;
+import org.killbill.billing.util.export.DefaultExportService;
+import org.killbill.billing.util.export.ExportService;
 import org.killbill.billing.util.export.api.DefaultExportUserApi;
+import org.skife.config.ConfigurationObjectFactory;
 
 public class ExportModule extends KillBillModule {
 
@@ -34,6 +38,11 @@ public class ExportModule extends KillBillModule {
 
     @Override
     protected void configure() {
+        final ConfigurationObjectFactory factory = new ConfigurationObjectFactory(skifeConfigSource);
+        final ExportConfig exportConfig = factory.build(ExportConfig.class);
+        bind(ExportConfig.class).toInstance(exportConfig);
+
+        bind(ExportService.class).to(DefaultExportService.class).asEagerSingleton();
         installUserApi();
     }
 }
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2020-2026 Equinix, Inc
+ * Copyright 2014-2026 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.metrics;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.killbill.billing.util.cache.CacheControllerStatistics;
+import org.killbill.commons.metrics.api.Gauge;
+
+// Gauges on top of the Kill Bill cache controller statistics (loader side), complementary to the JCache statistics
+public class CacheControllerGaugeFactory {
+
+    private static final String PROP_METRIC_REG_CACHE_CONTROLLER_STATISTICS = "killbill.cache.statistics.";
+
+    public static Map<String, Gauge<Object>> forCacheController(final CacheControllerStatistics statistics) {
+        final String prefix = PROP_METRIC_REG_CACHE_CONTROLLER_STATISTICS + statistics.getCacheType().getCacheName() + ".";
+
+        final Map<String, Gauge<Object>> gauges = new HashMap<>();
+        gauges.put(prefix + "hits", statistics::getHits);
+        gauges.put(prefix + "misses", statistics::getMisses);
+        gauges.put(prefix + "loads", statistics::getLoads);
+        gauges.put(prefix + "load-time-ms", () -> TimeUnit.NANOSECONDS.toMillis(statistics.getLoadTimeNanos()));
+        gauges.put(prefix + "waits", statistics::getWaits);
+        gauges.put(prefix + "wait-time-ms", () -> TimeUnit.NANOSECONDS.toMillis(statistics.getWaitTimeNanos()));
+
+        return Collections.unmodifiableMap(gauges);
+    }
+}
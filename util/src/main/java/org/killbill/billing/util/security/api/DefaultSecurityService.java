@@ -22,6 +22,9 @@ import javax.inject.Inject;
 
 import org.apache.shiro.SecurityUtils;
 import org.apache.shiro.mgt.SecurityManager;
+import org.apache.shiro.mgt.SessionsSecurityManager;
+import org.apache.shiro.session.mgt.DefaultSessionManager;
+import org.apache.shiro.util.LifecycleUtils;
 import org.killbill.billing.platform.api.LifecycleHandlerType;
 import org.killbill.billing.platform.api.LifecycleHandlerType.LifecycleLevel;
 
@@ -52,6 +55,12 @@ public class DefaultSecurityService implements SecurityService {
 
     @LifecycleHandlerType(LifecycleLevel.STOP_SERVICE)
     public void stop() {
+        // Shiro doesn't destroy the session DAO: make sure the pending session touches are written (see JDBCSessionDao#destroy)
+        if (securityManager instanceof SessionsSecurityManager &&
+            ((SessionsSecurityManager) securityManager).getSessionManager() instanceof DefaultSessionManager) {
+            final DefaultSessionManager sessionManager = (DefaultSessionManager) ((SessionsSecurityManager) securityManager).getSessionManager();
+            LifecycleUtils.destroy(sessionManager.getSessionDAO());
+        }
         SecurityUtils.setSecurityManager(null);
     }
 }
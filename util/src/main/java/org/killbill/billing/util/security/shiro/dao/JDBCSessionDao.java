@@ -20,32 +20,51 @@ package org.killbill.billing.util.security.shiro.dao;
 
 import java.io.IOException;
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
+import javax.annotation.Nullable;
 import javax.inject.Inject;
 import javax.inject.Named;
 
 import org.apache.shiro.session.Session;
+import org.apache.shiro.session.mgt.ValidatingSession;
 import org.apache.shiro.session.mgt.eis.CachingSessionDAO;
+import org.apache.shiro.util.Destroyable;
 import org.killbill.billing.util.UUIDs;
 import org.killbill.billing.util.entity.dao.DBRouter;
+import org.killbill.commons.concurrent.Executors;
+import org.killbill.commons.concurrent.NamedThreadFactory;
+import org.killbill.commons.metrics.api.MetricRegistry;
 import org.killbill.commons.utils.annotation.VisibleForTesting;
 import org.killbill.commons.utils.cache.Cache;
 import org.killbill.commons.utils.cache.DefaultCache;
+import org.skife.config.TimeSpan;
 import org.skife.jdbi.v2.IDBI;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import static org.killbill.billing.util.glue.IDBISetup.MAIN_RO_IDBI_NAMED;
 
-public class JDBCSessionDao extends CachingSessionDAO {
+public class JDBCSessionDao extends CachingSessionDAO implements Destroyable {
 
     private static final int CACHE_MAX_SIZE = 20;
     private static final int CACHE_TIMEOUT_IN_SECONDS = 5;
 
+    // Last state written for each session, to detect touches (only used in write-behind mode)
+    private static final int WRITTEN_SESSIONS_CACHE_MAX_SIZE = 10000;
+    private static final int WRITTEN_SESSIONS_CACHE_TIMEOUT_IN_SECONDS = 3600;
+
+    private static final String METRIC_PREFIX = "killbill.security.sessions.updates.";
+
     private static final Logger log = LoggerFactory.getLogger(JDBCSessionDao.class);
 
     private final DBRouter<JDBCSessionSqlDao> dbRouter;
@@ -53,21 +72,79 @@ public class JDBCSessionDao extends CachingSessionDAO {
     @VisibleForTesting
     final Cache<Serializable, Boolean> noUpdateSessionsCache = new DefaultCache<>(CACHE_MAX_SIZE, CACHE_TIMEOUT_IN_SECONDS, DefaultCache.noCacheLoader());
 
+    private final Cache<String, SessionModelDao> writtenSessionsCache = new DefaultCache<>(WRITTEN_SESSIONS_CACHE_MAX_SIZE, WRITTEN_SESSIONS_CACHE_TIMEOUT_IN_SECONDS, DefaultCache.noCacheLoader());
+    private final Map<String, SessionModelDao> pendingTouches = new ConcurrentHashMap<String, SessionModelDao>();
+    private final ScheduledExecutorService touchesFlusher;
+
+    // Number of session rows written (right away or in batches) and number of touches which didn't require a write
+    private final AtomicLong writtenUpdates = new AtomicLong();
+    private final AtomicLong coalescedUpdates = new AtomicLong();
+
     @Inject
     public JDBCSessionDao(final IDBI dbi, @Named(MAIN_RO_IDBI_NAMED) final IDBI roDbi) {
+        this(dbi, roDbi, null, null);
+    }
+
+    public JDBCSessionDao(final IDBI dbi,
+                          final IDBI roDbi,
+                          @Nullable final TimeSpan sessionUpdatesFlushInterval,
+                          @Nullable final MetricRegistry metricRegistry) {
         this.dbRouter = new DBRouter<JDBCSessionSqlDao>(dbi, roDbi, JDBCSessionSqlDao.class);
+
+        if (sessionUpdatesFlushInterval != null && sessionUpdatesFlushInterval.getMillis() > 0) {
+            this.touchesFlusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                final Thread thread = new NamedThreadFactory("SessionTouchesFlusher").newThread(runnable);
+                // Only last access times are at stake, don't prevent the JVM from shutting down
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.touchesFlusher.scheduleWithFixedDelay(this::flushSessionTouches,
+                                                       sessionUpdatesFlushInterval.getMillis(),
+                                                       sessionUpdatesFlushInterval.getMillis(),
+                                                       TimeUnit.MILLISECONDS);
+        } else {
+            this.touchesFlusher = null;
+        }
+
+        if (metricRegistry != null) {
+            metricRegistry.gauge(METRIC_PREFIX + "written", writtenUpdates::get);
+            metricRegistry.gauge(METRIC_PREFIX + "coalesced", coalescedUpdates::get);
+            metricRegistry.gauge(METRIC_PREFIX + "pending", pendingTouches::size);
+        }
     }
 
     @Override
     protected void doUpdate(final Session session) {
-        if (shouldUpdateSession(session)) {
-            dbRouter.onDemand(false).update(new SessionModelDao(session));
+        if (!shouldUpdateSession(session)) {
+            return;
         }
+
+        final SessionModelDao sessionModelDao = new SessionModelDao(session);
+        if (touchesFlusher != null && isTouch(session, sessionModelDao)) {
+            // Write-behind: only the latest last access time will be written by the next flush
+            if (pendingTouches.put(sessionModelDao.getId(), sessionModelDao) != null) {
+                coalescedUpdates.incrementAndGet();
+            }
+            return;
+        }
+
+        // Attribute changes, expirations, etc. are written right away (and include the latest last access time)
+        if (sessionModelDao.getId() != null && pendingTouches.remove(sessionModelDao.getId()) != null) {
+            coalescedUpdates.incrementAndGet();
+        }
+        dbRouter.onDemand(false).update(sessionModelDao);
+        writtenUpdates.incrementAndGet();
+        rememberWrittenSession(sessionModelDao);
     }
 
     @Override
     protected void doDelete(final Session session) {
-        dbRouter.onDemand(false).delete(new SessionModelDao(session));
+        final SessionModelDao sessionModelDao = new SessionModelDao(session);
+        if (touchesFlusher != null && sessionModelDao.getId() != null) {
+            pendingTouches.remove(sessionModelDao.getId());
+            writtenSessionsCache.invalidate(sessionModelDao.getId());
+        }
+        dbRouter.onDemand(false).delete(sessionModelDao);
     }
 
     @Override
@@ -76,7 +153,9 @@ public class JDBCSessionDao extends CachingSessionDAO {
         // See SessionModelDao#toSimpleSession for why we use toString()
         final String sessionIdAsString = sessionId.toString();
         assignSessionId(session, sessionIdAsString);
-        dbRouter.onDemand(false).create(new SessionModelDao(session));
+        final SessionModelDao sessionModelDao = new SessionModelDao(session);
+        dbRouter.onDemand(false).create(sessionModelDao);
+        rememberWrittenSession(sessionModelDao);
         // Make sure to return a String here as well, or Shiro will cache the Session with a UUID key
         // while it is expecting String
         return sessionIdAsString;
@@ -96,6 +175,7 @@ public class JDBCSessionDao extends CachingSessionDAO {
             return null;
         }
 
+        rememberWrittenSession(sessionModelDao);
         return toSession(sessionModelDao);
     }
 
@@ -126,6 +206,63 @@ public class JDBCSessionDao extends CachingSessionDAO {
         return Boolean.TRUE.equals(noUpdateSessionsCache.get(session.getId())) ? Boolean.FALSE : Boolean.TRUE;
     }
 
+    @VisibleForTesting
+    void flushSessionTouches() {
+        if (pendingTouches.isEmpty()) {
+            return;
+        }
+
+        final List<SessionModelDao> sessionModelDaos = new ArrayList<SessionModelDao>(pendingTouches.size());
+        for (final String sessionId : pendingTouches.keySet()) {
+            final SessionModelDao sessionModelDao = pendingTouches.remove(sessionId);
+            if (sessionModelDao != null) {
+                sessionModelDaos.add(sessionModelDao);
+            }
+        }
+
+        try {
+            dbRouter.onDemand(false).updateLastAccessTimes(sessionModelDaos);
+            writtenUpdates.addAndGet(sessionModelDaos.size());
+        } catch (final RuntimeException e) {
+            // Don't kill the flusher: these touches are lost, but the next ones will be written
+            log.warn("Failed to write last access time for {} sessions", sessionModelDaos.size(), e);
+        }
+    }
+
+    @VisibleForTesting
+    long getWrittenUpdates() {
+        return writtenUpdates.get();
+    }
+
+    @VisibleForTesting
+    long getCoalescedUpdates() {
+        return coalescedUpdates.get();
+    }
+
+    @Override
+    public void destroy() {
+        if (touchesFlusher != null) {
+            touchesFlusher.shutdown();
+            flushSessionTouches();
+        }
+    }
+
+    // A touch only updates the last access time of a valid session which was already written
+    private boolean isTouch(final Session session, final SessionModelDao sessionModelDao) {
+        if (sessionModelDao.getId() == null ||
+            (session instanceof ValidatingSession && !((ValidatingSession) session).isValid())) {
+            return false;
+        }
+        final SessionModelDao writtenSession = writtenSessionsCache.get(sessionModelDao.getId());
+        return writtenSession != null && sessionModelDao.isTouchOf(writtenSession);
+    }
+
+    private void rememberWrittenSession(final SessionModelDao sessionModelDao) {
+        if (touchesFlusher != null && sessionModelDao.getId() != null) {
+            writtenSessionsCache.put(sessionModelDao.getId(), sessionModelDao);
+        }
+    }
+
     private Session toSession(final SessionModelDao sessionModelDao) {
         try {
             return sessionModelDao.toSimpleSession();
@@ -20,6 +20,7 @@ import java.io.IOException;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Objects;
 
 import org.apache.shiro.io.DefaultSerializer;
 import org.apache.shiro.io.Serializer;
@@ -103,6 +104,15 @@ public class SessionModelDao {
         return sessionData;
     }
 
+    // Whether both sessions only differ by their last access time
+    public boolean isTouchOf(final SessionModelDao that) {
+        return timeout == that.timeout &&
+               Objects.equals(id, that.id) &&
+               Objects.equals(startTimestamp, that.startTimestamp) &&
+               Objects.equals(host, that.host) &&
+               Arrays.equals(sessionData, that.sessionData);
+    }
+
     @Override
     public String toString() {
         final StringBuilder sb = new StringBuilder("SessionModelDao{");
@@ -117,8 +117,17 @@ public class DefaultTagUserApi implements TagUserApi {
 
     @Override
     public void addTags(final UUID objectId, final ObjectType objectType, final Collection<UUID> tagDefinitionIds, final CallContext context) throws TagApiException {
+        if (tagDefinitionIds.isEmpty()) {
+            return;
+        }
+
+        // Resolve the record ids once for all tags (same object)
+        final InternalCallContext internalContext = internalCallContextFactory.createInternalCallContext(objectId, objectType, context);
         for (final UUID tagDefinitionId : tagDefinitionIds) {
-            addTag(objectId, objectType, tagDefinitionId, context);
+            if (SystemTags.isSystemTag(tagDefinitionId)) {
+                throw new TagApiException(ErrorCode.TAG_IS_SYSTEM, tagDefinitionId);
+            }
+            addTag(objectId, objectType, tagDefinitionId, internalContext, context);
         }
     }
 
@@ -129,7 +138,10 @@ public class DefaultTagUserApi implements TagUserApi {
             throw new TagApiException(ErrorCode.TAG_IS_SYSTEM, tagDefinitionId);
         }
 
-        final InternalCallContext internalContext = internalCallContextFactory.createInternalCallContext(objectId, objectType, context);
+        addTag(objectId, objectType, tagDefinitionId, internalCallContextFactory.createInternalCallContext(objectId, objectType, context), context);
+    }
+
+    private void addTag(final UUID objectId, final ObjectType objectType, final UUID tagDefinitionId, final InternalCallContext internalContext, final CallContext context) throws TagApiException {
         final TagModelDao tag = new TagModelDao(context.getCreatedDate(), tagDefinitionId, objectId, objectType);
         try {
             tagDao.create(tag, internalContext);
@@ -172,9 +184,9 @@ public class DefaultTagUserApi implements TagUserApi {
 
     @Override
     public void removeTags(final UUID objectId, final ObjectType objectType, final Collection<UUID> tagDefinitionIds, final CallContext context) throws TagApiException {
-        // TODO: consider making this batch
+        final InternalCallContext internalContext = internalCallContextFactory.createInternalCallContext(objectId, objectType, context);
         for (final UUID tagDefinitionId : tagDefinitionIds) {
-            tagDao.deleteTag(objectId, objectType, tagDefinitionId, internalCallContextFactory.createInternalCallContext(objectId, objectType, context));
+            tagDao.deleteTag(objectId, objectType, tagDefinitionId, internalContext);
         }
     }
 
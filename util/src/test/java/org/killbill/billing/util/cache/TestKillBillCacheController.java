@@ -17,19 +17,37 @@
 
 package org.killbill.billing.util.cache;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
 import javax.cache.Cache;
 import javax.cache.CacheException;
 
 import org.killbill.billing.util.UtilTestSuiteNoDB;
 import org.killbill.billing.util.cache.Cachable.CacheType;
+import org.killbill.billing.util.config.definition.CacheConfig.CacheLoadingMode;
 import org.mockito.Mockito;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
 import org.testng.Assert;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.testng.annotations.Test;
 
 public class TestKillBillCacheController extends UtilTestSuiteNoDB {
 
+    private static final Logger logger = LoggerFactory.getLogger(TestKillBillCacheController.class);
+
     @Test(groups = "fast")
     public void testWithBrokenCache() {
         final Cache cache = Mockito.mock(Cache.class, new Answer() {
@@ -64,4 +82,213 @@ public class TestKillBillCacheController extends UtilTestSuiteNoDB {
         // This will go back to the cache loader
         Assert.assertEquals(killBillCacheController.get("12", null), new Long(12));
     }
+
+    @Test(groups = "fast")
+    public void testPerKeyLoadingCoalescesConcurrentMisses() throws Exception {
+        final AtomicInteger nbLoads = new AtomicInteger();
+        final CountDownLatch loadStarted = new CountDownLatch(1);
+        final CountDownLatch releaseLoad = new CountDownLatch(1);
+        final BaseCacheLoader<String, Long> baseCacheLoader = new BaseCacheLoader<String, Long>() {
+            @Override
+            public CacheType getCacheType() {
+                return CacheType.RECORD_ID;
+            }
+
+            @Override
+            public Long compute(final String key, final CacheLoaderArgument cacheLoaderArgument) {
+                nbLoads.incrementAndGet();
+                if ("12".equals(key)) {
+                    loadStarted.countDown();
+                    try {
+                        releaseLoad.await();
+                    } catch (final InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new RuntimeException(e);
+                    }
+                }
+                return Long.valueOf(key);
+            }
+        };
+
+        final KillBillCacheController<String, Long> killBillCacheController = new KillBillCacheController<String, Long>(createInMemoryCache(), baseCacheLoader, CacheLoadingMode.PER_KEY);
+
+        final ExecutorService executor = Executors.newFixedThreadPool(5);
+        try {
+            final List<Future<Long>> futures = new ArrayList<Future<Long>>();
+            futures.add(executor.submit(() -> killBillCacheController.get("12", null)));
+            Assert.assertTrue(loadStarted.await(5, TimeUnit.SECONDS));
+            for (int i = 0; i < 4; i++) {
+                futures.add(executor.submit(() -> killBillCacheController.get("12", null)));
+            }
+
+            // The load of key 12 is still in progress, but other keys aren't blocked by it
+            Assert.assertEquals(killBillCacheController.get("13", null), Long.valueOf(13));
+
+            releaseLoad.countDown();
+            for (final Future<Long> future : futures) {
+                Assert.assertEquals(future.get(5, TimeUnit.SECONDS), Long.valueOf(12));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Assert.assertEquals(killBillCacheController.get("12", null), Long.valueOf(12));
+
+        Assert.assertEquals(nbLoads.get(), 2);
+        final CacheControllerStatistics statistics = killBillCacheController.getStatistics();
+        Assert.assertEquals(statistics.getLoads(), 2);
+        Assert.assertEquals(statistics.getHits() + statistics.getMisses(), 7);
+    }
+
+    @Test(groups = "fast")
+    public void testPerKeyLoadingPropagatesLoaderFailures() {
+        final BaseCacheLoader<String, Long> baseCacheLoader = new BaseCacheLoader<String, Long>() {
+            @Override
+            public CacheType getCacheType() {
+                return CacheType.RECORD_ID;
+            }
+
+            @Override
+            public Long compute(final String key, final CacheLoaderArgument cacheLoaderArgument) {
+                throw new IllegalStateException("Exception for testing");
+            }
+        };
+
+        final KillBillCacheController<String, Long> killBillCacheController = new KillBillCacheController<String, Long>(createInMemoryCache(), baseCacheLoader, CacheLoadingMode.PER_KEY);
+        try {
+            killBillCacheController.get("12", null);
+            Assert.fail();
+        } catch (final RuntimeException e) {
+            Assert.assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+
+        // Failed loads aren't remembered
+        try {
+            killBillCacheController.get("12", null);
+            Assert.fail();
+        } catch (final RuntimeException e) {
+            Assert.assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+        Assert.assertEquals(killBillCacheController.getStatistics().getLoads(), 2);
+    }
+
+    @Test(groups = "fast")
+    public void testPerKeyLoadingWithReentrantLoader() throws Exception {
+        final AtomicReference<KillBillCacheController<String, Long>> killBillCacheControllerRef = new AtomicReference<KillBillCacheController<String, Long>>();
+        final AtomicInteger nbLoads = new AtomicInteger();
+        final BaseCacheLoader<String, Long> baseCacheLoader = new BaseCacheLoader<String, Long>() {
+            @Override
+            public CacheType getCacheType() {
+                return CacheType.RECORD_ID;
+            }
+
+            @Override
+            public Long compute(final String key, final CacheLoaderArgument cacheLoaderArgument) {
+                // The outer load of the key goes back to the cache for the same key
+                if (nbLoads.incrementAndGet() == 1) {
+                    return killBillCacheControllerRef.get().get(key, cacheLoaderArgument) + 1;
+                }
+                return Long.valueOf(key);
+            }
+        };
+        final KillBillCacheController<String, Long> killBillCacheController = new KillBillCacheController<String, Long>(createInMemoryCache(), baseCacheLoader, CacheLoadingMode.PER_KEY);
+        killBillCacheControllerRef.set(killBillCacheController);
+
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            // Would never complete if the nested lookup waited for the outer load
+            final Future<Long> future = executor.submit(() -> killBillCacheController.get("12", null));
+            Assert.assertEquals(future.get(5, TimeUnit.SECONDS), Long.valueOf(13));
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // The value of the outer load is the one cached
+        Assert.assertEquals(killBillCacheController.get("12", null), Long.valueOf(13));
+        Assert.assertEquals(nbLoads.get(), 2);
+    }
+
+    // Cold-start benchmark: many threads hitting an empty cache, with a loader simulating a database round trip
+    @Test(groups = "stress")
+    public void testColdStartThroughput() throws Exception {
+        final int nbThreads = 32;
+        final int nbKeys = 500;
+        final long loadLatencyMs = 2;
+
+        for (final CacheLoadingMode cacheLoadingMode : CacheLoadingMode.values()) {
+            final BaseCacheLoader<String, Long> baseCacheLoader = new BaseCacheLoader<String, Long>() {
+                @Override
+                public CacheType getCacheType() {
+                    return CacheType.RECORD_ID;
+                }
+
+                @Override
+                public Long compute(final String key, final CacheLoaderArgument cacheLoaderArgument) {
+                    try {
+                        Thread.sleep(loadLatencyMs);
+                    } catch (final InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new RuntimeException(e);
+                    }
+                    return Long.valueOf(key);
+                }
+            };
+            final KillBillCacheController<String, Long> killBillCacheController = new KillBillCacheController<String, Long>(createInMemoryCache(), baseCacheLoader, cacheLoadingMode);
+
+            final ExecutorService executor = Executors.newFixedThreadPool(nbThreads);
+            final CountDownLatch start = new CountDownLatch(1);
+            final List<Future<?>> futures = new ArrayList<Future<?>>();
+            for (int t = 0; t < nbThreads; t++) {
+                final List<String> keys = new ArrayList<String>();
+                for (int k = 0; k < nbKeys; k++) {
+                    keys.add(String.valueOf(k));
+                }
+                Collections.shuffle(keys);
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (final String key : keys) {
+                        Assert.assertEquals(killBillCacheController.get(key, null), Long.valueOf(key));
+                    }
+                    return null;
+                }));
+            }
+
+            final long startNanos = System.nanoTime();
+            start.countDown();
+            for (final Future<?> future : futures) {
+                future.get();
+            }
+            final long durationMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+            executor.shutdownNow();
+
+            final CacheControllerStatistics statistics = killBillCacheController.getStatistics();
+            logger.info("cacheLoadingMode={}: {} lookups in {} ms ({} lookups/s), loads={}, waits={}, waitTimeMs={}",
+                        cacheLoadingMode, nbThreads * nbKeys, durationMs, (nbThreads * nbKeys * 1000L) / Math.max(durationMs, 1),
+                        statistics.getLoads(), statistics.getWaits(), TimeUnit.NANOSECONDS.toMillis(statistics.getWaitTimeNanos()));
+            Assert.assertEquals(statistics.getLoads(), nbKeys);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Cache<String, Long> createInMemoryCache() {
+        final ConcurrentMap<Object, Object> entries = new ConcurrentHashMap<Object, Object>();
+        return Mockito.mock(Cache.class, new Answer() {
+            @Override
+            public Object answer(final InvocationOnMock invocation) throws Throwable {
+                switch (invocation.getMethod().getName()) {
+                    case "containsKey":
+                        return entries.containsKey(invocation.getArgument(0));
+                    case "get":
+                        return entries.get(invocation.getArgument(0));
+                    case "put":
+                        entries.put(invocation.getArgument(0), invocation.getArgument(1));
+                        return null;
+                    case "putIfAbsent":
+                        return entries.putIfAbsent(invocation.getArgument(0), invocation.getArgument(1)) == null;
+                    default:
+                        throw new UnsupportedOperationException(invocation.getMethod().getName());
+                }
+            }
+        });
+    }
 }
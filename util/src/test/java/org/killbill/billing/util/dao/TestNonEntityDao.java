@@ -20,10 +20,14 @@ package org.killbill.billing.util.dao;
 
 import java.io.IOException;
 import java.util.Date;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 import org.killbill.billing.ObjectType;
 import org.killbill.billing.util.UtilTestSuiteWithEmbeddedDB;
+import org.killbill.billing.util.cache.Cachable.CacheType;
+import org.killbill.billing.util.cache.CacheController;
 import org.skife.jdbi.v2.Handle;
 import org.skife.jdbi.v2.Update;
 import org.skife.jdbi.v2.tweak.HandleCallback;
@@ -102,6 +106,46 @@ public class TestNonEntityDao extends UtilTestSuiteWithEmbeddedDB {
         Assert.assertEquals(resultTenantRecordId, tenantRecordId);
     }
 
+    @Test(groups = "slow")
+    public void testRetrieveRecordIdsFromObjects() throws IOException {
+        final UUID otherAccountId = UUID.randomUUID();
+        accountRecordId = generateAccountRecordId(accountId);
+        final Long otherAccountRecordId = generateAccountRecordId(otherAccountId);
+        final UUID unknownAccountId = UUID.randomUUID();
+
+        final CacheController<String, Long> cache = cacheControllerDispatcher.getCacheController(CacheType.RECORD_ID);
+        cache.removeAll();
+        // Warm-up one entry: it should be served from the cache, the other one from the database
+        Assert.assertEquals(nonEntityDao.retrieveRecordIdFromObject(accountId, ObjectType.ACCOUNT, cache), accountRecordId);
+
+        final Map<UUID, Long> recordIds = nonEntityDao.retrieveRecordIdsFromObjects(List.of(accountId, otherAccountId, unknownAccountId), ObjectType.ACCOUNT, cache);
+        Assert.assertEquals(recordIds.size(), 2);
+        Assert.assertEquals(recordIds.get(accountId), accountRecordId);
+        Assert.assertEquals(recordIds.get(otherAccountId), otherAccountRecordId);
+        Assert.assertFalse(recordIds.containsKey(unknownAccountId));
+
+        // The misses have been pushed back into the cache
+        Assert.assertTrue(cache.isKeyInCache(otherAccountId.toString()));
+        Assert.assertFalse(cache.isKeyInCache(unknownAccountId.toString()));
+    }
+
+    @Test(groups = "slow")
+    public void testRetrieveAccountAndTenantRecordIdsFromObjects() throws IOException {
+        accountRecordId = generateAccountRecordId(accountId);
+        insertTagDefinition();
+        insertTag();
+
+        final Map<UUID, Long> accountRecordIds = nonEntityDao.retrieveAccountRecordIdsFromObjects(List.of(tagId), ObjectType.TAG, null);
+        Assert.assertEquals(accountRecordIds.size(), 1);
+        Assert.assertEquals(accountRecordIds.get(tagId), accountRecordId);
+
+        Assert.assertTrue(nonEntityDao.retrieveAccountRecordIdsFromObjects(List.of(tagDefinitionId), ObjectType.TAG_DEFINITION, null).isEmpty());
+
+        final Map<UUID, Long> tenantRecordIds = nonEntityDao.retrieveTenantRecordIdsFromObjects(List.of(accountId, tagId), ObjectType.ACCOUNT, null);
+        Assert.assertEquals(tenantRecordIds.size(), 1);
+        Assert.assertEquals(tenantRecordIds.get(accountId), tenantRecordId);
+    }
+
     private void insertTagDefinition() throws IOException {
         dbi.withHandle(new HandleCallback<Long>() {
             @Override
@@ -16,21 +16,28 @@
 
 package org.killbill.billing.util.dao;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import org.killbill.billing.ObjectType;
 import org.killbill.commons.utils.collect.Iterables;
 import org.killbill.commons.utils.collect.Iterators;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
 import org.killbill.billing.api.TestApiListener.NextEvent;
 import org.killbill.billing.util.UtilTestSuiteWithEmbeddedDB;
+import org.killbill.billing.util.entity.Pagination;
+import org.killbill.billing.util.entity.PaginationCursor;
 import org.killbill.billing.util.tag.dao.TagDefinitionModelDao;
 import org.killbill.billing.util.tag.dao.TagDefinitionSqlDao;
 
 public class TestPagination extends UtilTestSuiteWithEmbeddedDB {
 
+    private static final Logger logger = LoggerFactory.getLogger(TestPagination.class);
+
     @Test(groups = "slow", description = "Test Pagination: basic SqlDAO and DAO calls")
     public void testTagDefinitionsPagination() throws Exception {
         final TagDefinitionSqlDao tagDefinitionSqlDao = dbi.onDemand(TagDefinitionSqlDao.class);
@@ -75,4 +82,77 @@ public class TestPagination extends UtilTestSuiteWithEmbeddedDB {
             }
         }
     }
+
+    @Test(groups = "slow", description = "Test Pagination: keyset (cursor) pagination")
+    public void testTagDefinitionsCursorPagination() throws Exception {
+        for (int i = 0; i < 10; i++) {
+            eventsListener.pushExpectedEvent(NextEvent.TAG_DEFINITION);
+            tagDefinitionDao.create("name-" + i, "description-" + i, ObjectType.ACCOUNT.name(), internalCallContext);
+            assertListenerStatus();
+        }
+
+        // Forward
+        final List<String> names = new ArrayList<String>();
+        Long cursor = PaginationCursor.FIRST_PAGE;
+        int nbPages = 0;
+        while (cursor != null) {
+            final Pagination<TagDefinitionModelDao> page = tagDefinitionDao.get(cursor, 3L, internalCallContext);
+            Assert.assertEquals(page.getCurrentOffset(), cursor);
+            Assert.assertNull(page.getTotalNbRecords());
+            page.forEach(tagDefinition -> names.add(tagDefinition.getName()));
+            cursor = page.getNextOffset();
+            nbPages++;
+        }
+        Assert.assertEquals(nbPages, 4);
+        Assert.assertEquals(names.size(), 10);
+        for (int i = 0; i < 10; i++) {
+            Assert.assertEquals(names.get(i), "name-" + i);
+        }
+
+        // Backward (negative limit)
+        names.clear();
+        cursor = PaginationCursor.FIRST_PAGE;
+        while (cursor != null) {
+            final Pagination<TagDefinitionModelDao> page = tagDefinitionDao.get(cursor, -4L, internalCallContext);
+            page.forEach(tagDefinition -> names.add(tagDefinition.getName()));
+            cursor = page.getNextOffset();
+        }
+        Assert.assertEquals(names.size(), 10);
+        for (int i = 0; i < 10; i++) {
+            Assert.assertEquals(names.get(i), "name-" + (9 - i));
+        }
+
+        // Exact page boundary: no empty trailing page
+        final Pagination<TagDefinitionModelDao> lastPage = tagDefinitionDao.get(PaginationCursor.FIRST_PAGE, 10L, internalCallContext);
+        Assert.assertEquals(Iterables.toUnmodifiableList(lastPage).size(), 10);
+        Assert.assertNull(lastPage.getNextOffset());
+    }
+
+    @Test(groups = "slow", enabled = false, description = "Benchmark: offset vs keyset pagination, page 1 and page 10,000")
+    public void testOffsetVersusCursorPaginationLatency() throws Exception {
+        final int nbRecords = 200000;
+        final long pageSize = 20L;
+        final TagDefinitionSqlDao tagDefinitionSqlDao = dbi.onDemand(TagDefinitionSqlDao.class);
+        for (int i = 0; i < nbRecords; i++) {
+            tagDefinitionSqlDao.create(new TagDefinitionModelDao(clock.getUTCNow(), "name-" + i, "description-" + i, ObjectType.ACCOUNT.name()), internalCallContext);
+        }
+
+        for (final long pageNumber : new long[]{1L, 10000L}) {
+            final long offset = (pageNumber - 1) * pageSize;
+            final Long cursor = PaginationCursor.fromRecordId(Iterators.toUnmodifiableList(tagDefinitionSqlDao.get(offset, 1L, "record_id", "asc", internalCallContext)).get(0).getRecordId());
+
+            final long offsetNanos = timePage(offset, pageSize);
+            final long cursorNanos = timePage(cursor, pageSize);
+            logger.info("page={}: offset pagination {} us, cursor pagination {} us", pageNumber, offsetNanos / 1000, cursorNanos / 1000);
+        }
+    }
+
+    private long timePage(final Long offsetOrCursor, final Long limit) {
+        final int nbRuns = 20;
+        final long startNanos = System.nanoTime();
+        for (int i = 0; i < nbRuns; i++) {
+            Assert.assertEquals(Iterables.toUnmodifiableList(tagDefinitionDao.get(offsetOrCursor, limit, internalCallContext)).size(), limit.intValue());
+        }
+        return (System.nanoTime() - startNanos) / nbRuns;
+    }
 }
@@ -45,6 +45,34 @@ public class TestDefaultPagination extends UtilTestSuiteNoDB {
         Assert.assertEquals(DefaultPagination.<Integer>build(5L, 3L, List.of(1, 2, 3, 4, 5)), expectedOf(5L, 0L, 5L, Collections.emptyList()));
     }
 
+    @Test(groups = "fast", description = "Test Util: keyset pagination cursors")
+    public void testPaginationCursor() throws Exception {
+        Assert.assertFalse(PaginationCursor.isCursor(0L));
+        Assert.assertFalse(PaginationCursor.isCursor(null));
+        Assert.assertTrue(PaginationCursor.isCursor(PaginationCursor.FIRST_PAGE));
+        Assert.assertEquals(PaginationCursor.toRecordId(PaginationCursor.FIRST_PAGE), (Long) 0L);
+        Assert.assertEquals(PaginationCursor.decode(""), PaginationCursor.FIRST_PAGE);
+
+        final Long cursor = PaginationCursor.fromRecordId(12345L);
+        Assert.assertTrue(PaginationCursor.isCursor(cursor));
+        Assert.assertEquals(PaginationCursor.toRecordId(cursor), (Long) 12345L);
+        Assert.assertEquals(PaginationCursor.decode(PaginationCursor.encode(cursor)), cursor);
+
+        try {
+            PaginationCursor.decode("12345");
+            Assert.fail();
+        } catch (final IllegalArgumentException ignored) {
+        }
+
+        // Next offset is the provided cursor, regardless of the limit
+        final Pagination<Integer> pagination = DefaultPagination.<Integer>withCursor(cursor, 3L, PaginationCursor.fromRecordId(20000L), List.of(1, 2, 3).iterator());
+        Assert.assertEquals(pagination.getCurrentOffset(), cursor);
+        Assert.assertEquals(pagination.getNextOffset(), PaginationCursor.fromRecordId(20000L));
+        Assert.assertNull(pagination.getTotalNbRecords());
+        Assert.assertEquals(new DefaultPagination<Integer>(pagination, 3L, List.of(1, 2, 3).iterator()).getNextOffset(), PaginationCursor.fromRecordId(20000L));
+        Assert.assertNull(DefaultPagination.<Integer>withCursor(cursor, 3L, null, List.of(1, 2).iterator()).getNextOffset());
+    }
+
     private Pagination<Integer> expectedOf(final Long currentOffset, final Long totalNbRecords,
                                            final Long maxNbRecords, final List<Integer> delegate) {
         return new DefaultPagination<Integer>(currentOffset, Long.MAX_VALUE, totalNbRecords, maxNbRecords, delegate.iterator());
@@ -18,13 +18,17 @@
 
 package org.killbill.billing.util.export.dao;
 
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 import org.killbill.billing.util.UtilTestSuiteNoDB;
+import org.killbill.billing.util.api.ColumnInfo;
 import org.killbill.billing.util.validation.DefaultColumnInfo;
 import org.testng.Assert;
 import org.testng.annotations.Test;
@@ -81,4 +85,30 @@ public class TestCSVExportOutputStream extends UtilTestSuiteNoDB {
                                                                        "a\\N{VERTICAL LINE}B|c\\N{VERTICAL LINE}\\N{VERTICAL LINE}5|44\n" +
                                                                        "q\\N{LINE FEED}w|e\\N{LINE FEED}\\N{LINE FEED}.|1\n");
     }
+
+    @Test(groups = "fast")
+    public void testGzipGenerator() throws Exception {
+        final ByteArrayOutputStream plainDelegate = new ByteArrayOutputStream();
+        final CSVExportOutputStream plainOut = new CSVExportOutputStream(plainDelegate);
+        final ByteArrayOutputStream gzipDelegate = new ByteArrayOutputStream();
+        final GZIPOutputStream gzipStream = new GZIPOutputStream(gzipDelegate);
+        final CSVExportOutputStream gzipOut = new CSVExportOutputStream(gzipStream);
+
+        final String tableName = UUID.randomUUID().toString();
+        final List<ColumnInfo> columns = List.of(new DefaultColumnInfo(tableName, "first_name", 0L, 0L, true, 0L, "varchar"),
+                                                        new DefaultColumnInfo(tableName, "age", 0L, 0L, true, 0L, "tinyint"));
+        plainOut.newTable(tableName, columns);
+        gzipOut.newTable(tableName, columns);
+        for (int i = 0; i < 100; i++) {
+            final Map<String, Object> row = Map.of("first_name", "a|B" + i, "age", i);
+            plainOut.write(row);
+            gzipOut.write(row);
+        }
+        gzipStream.finish();
+
+        // Same content, once uncompressed
+        final byte[] uncompressed = new GZIPInputStream(new ByteArrayInputStream(gzipDelegate.toByteArray())).readAllBytes();
+        Assert.assertEquals(new String(uncompressed, StandardCharsets.UTF_8), plainDelegate.toString(StandardCharsets.UTF_8));
+        Assert.assertTrue(gzipDelegate.size() < plainDelegate.size());
+    }
 }
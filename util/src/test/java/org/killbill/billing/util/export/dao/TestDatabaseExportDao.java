@@ -19,13 +19,27 @@
 package org.killbill.billing.util.export.dao;
 
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
 
+import javax.inject.Inject;
+
+import org.killbill.billing.callcontext.InternalTenantContext;
 import org.killbill.billing.util.UtilTestSuiteWithEmbeddedDB;
 import org.killbill.billing.util.api.DatabaseExportOutputStream;
+import org.killbill.billing.util.config.definition.ExportConfig;
+import org.killbill.billing.util.validation.dao.DatabaseSchemaDao;
 import org.skife.jdbi.v2.Handle;
+import org.skife.jdbi.v2.PreparedBatch;
 import org.skife.jdbi.v2.tweak.HandleCallback;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
@@ -33,6 +47,10 @@ import com.ning.compress.lzf.LZFEncoder;
 
 public class TestDatabaseExportDao extends UtilTestSuiteWithEmbeddedDB {
 
+    private static final Logger logger = LoggerFactory.getLogger(TestDatabaseExportDao.class);
+
+    @Inject
+    private DatabaseSchemaDao databaseSchemaDao;
 
     @Test(groups = "slow")
     public void testExportSimpleData() throws Exception {
@@ -95,9 +113,210 @@ public class TestDatabaseExportDao extends UtilTestSuiteWithEmbeddedDB {
 
     }
 
+    @Test(groups = "slow")
+    public void testParallelExportMatchesSerialExport() throws Exception {
+        final List<String> tableNames = List.of("test_database_export_dao_c", "test_database_export_dao_d", "test_database_export_dao_e");
+        // More rows than a reader can buffer ahead of the writer
+        createAndPopulateTables(tableNames, 2500);
+
+        final DatabaseExportDao parallelDao = new DatabaseExportDao(databaseSchemaDao, dbi, new TestExportConfig(10, 3));
+        parallelDao.initialize();
+        try {
+            final String serialDump = getDump();
+            for (final String tableName : tableNames) {
+                Assert.assertTrue(serialDump.contains("-- " + tableName + " "));
+            }
+
+            // Segments must be written back in schema order
+            final DatabaseExportOutputStream out = new CSVExportOutputStream(new ByteArrayOutputStream());
+            parallelDao.exportDataForAccount(out, internalCallContext);
+            Assert.assertEquals(out.toString(), serialDump);
+
+            // Unrelated account
+            final DatabaseExportOutputStream otherOut = new CSVExportOutputStream(new ByteArrayOutputStream());
+            parallelDao.exportDataForAccount(otherOut, new InternalTenantContext(internalCallContext.getTenantRecordId(), internalCallContext.getAccountRecordId() + 1, null, null, null));
+            Assert.assertEquals(otherOut.toString(), "");
+        } finally {
+            parallelDao.stop();
+            dropTables(tableNames);
+        }
+    }
+
+    @Test(groups = "slow")
+    public void testAbortedParallelExportReleasesReaders() throws Exception {
+        final List<String> tableNames = List.of("test_database_export_dao_f", "test_database_export_dao_g", "test_database_export_dao_h");
+        // Enough rows for every reader to fill its queue while the writer is stuck on the first table
+        createAndPopulateTables(tableNames, 5000);
+
+        final DatabaseExportDao parallelDao = new DatabaseExportDao(databaseSchemaDao, dbi, new TestExportConfig(10, 3));
+        parallelDao.initialize();
+        try {
+            try {
+                parallelDao.exportDataForAccount(new CSVExportOutputStream(new FailingOutputStream(10 * 1024)), internalCallContext);
+                Assert.fail("Export should have been aborted");
+            } catch (final IllegalStateException e) {
+                Assert.assertTrue(e.getCause() instanceof IOException);
+            }
+
+            // All readers stop (and give their connection back) shortly after the abort
+            final long deadlineNanos = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (parallelDao.getActiveReaders() > 0 && System.nanoTime() < deadlineNanos) {
+                Thread.sleep(50);
+            }
+            Assert.assertEquals(parallelDao.getActiveReaders(), 0);
+
+            // The executor is available for the next export
+            final DatabaseExportOutputStream out = new CSVExportOutputStream(new ByteArrayOutputStream());
+            parallelDao.exportDataForAccount(out, internalCallContext);
+            Assert.assertEquals(out.toString(), getDump());
+        } finally {
+            parallelDao.stop();
+            dropTables(tableNames);
+        }
+    }
+
+    @Test(groups = "slow", enabled = false, description = "Benchmark: serial vs parallel vs gzip'd export throughput on the embedded DB")
+    public void testExportThroughput() throws Exception {
+        final int nbTables = 8;
+        final int nbRowsPerTable = 20000;
+        final int nbIterations = 5;
+
+        final List<String> tableNames = new ArrayList<String>();
+        for (int i = 0; i < nbTables; i++) {
+            tableNames.add("test_database_export_dao_bench_" + i);
+        }
+        createAndPopulateTables(tableNames, nbRowsPerTable);
+
+        final DatabaseExportDao parallelDao = new DatabaseExportDao(databaseSchemaDao, dbi, new TestExportConfig(1000, 4));
+        parallelDao.initialize();
+        try {
+            for (final DatabaseExportDao exportDao : List.of(dao, parallelDao)) {
+                for (final boolean gzip : List.of(false, true)) {
+                    long bytes = 0;
+                    final long startNanos = System.nanoTime();
+                    for (int i = 0; i < nbIterations; i++) {
+                        final CountingOutputStream delegate = new CountingOutputStream();
+                        if (gzip) {
+                            final GZIPOutputStream out = new GZIPOutputStream(delegate, 64 * 1024);
+                            exportDao.exportDataForAccount(new CSVExportOutputStream(out), internalCallContext);
+                            out.finish();
+                        } else {
+                            exportDao.exportDataForAccount(new CSVExportOutputStream(delegate), internalCallContext);
+                        }
+                        bytes += delegate.count;
+                    }
+                    final long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+                    logger.info("{} export (gzip={}): {} rows/s, {} bytes/export",
+                                exportDao == dao ? "Serial" : "Parallel", gzip,
+                                (long) nbTables * nbRowsPerTable * nbIterations * 1000 / Math.max(elapsedMs, 1), bytes / nbIterations);
+                }
+            }
+        } finally {
+            parallelDao.stop();
+            dropTables(tableNames);
+        }
+    }
+
+    private void createAndPopulateTables(final Iterable<String> tableNames, final int nbRowsPerTable) {
+        dbi.withHandle(new HandleCallback<Void>() {
+            @Override
+            public Void withHandle(final Handle handle) throws Exception {
+                for (final String tableName : tableNames) {
+                    handle.execute("drop table if exists " + tableName);
+                    handle.execute("create table " + tableName + "(record_id serial unique," +
+                                   "string_column varchar(64)," +
+                                   "is_active boolean default true," +
+                                   "account_record_id bigint /*! unsigned */ not null," +
+                                   "tenant_record_id bigint /*! unsigned */ not null default 0," +
+                                   "primary key(record_id));");
+                    final PreparedBatch batch = handle.prepareBatch("insert into " + tableName + " (string_column, account_record_id, tenant_record_id) values (:s, :a, :t)");
+                    for (int i = 0; i < nbRowsPerTable; i++) {
+                        batch.add()
+                             .bind("s", tableName + "-" + i)
+                             .bind("a", internalCallContext.getAccountRecordId())
+                             .bind("t", internalCallContext.getTenantRecordId());
+                    }
+                    batch.execute();
+                }
+                return null;
+            }
+        });
+    }
+
+    private void dropTables(final Iterable<String> tableNames) {
+        dbi.withHandle(new HandleCallback<Void>() {
+            @Override
+            public Void withHandle(final Handle handle) throws Exception {
+                for (final String tableName : tableNames) {
+                    handle.execute("drop table if exists " + tableName);
+                }
+                return null;
+            }
+        });
+    }
+
     private String getDump() {
         final DatabaseExportOutputStream out = new CSVExportOutputStream(new ByteArrayOutputStream());
         dao.exportDataForAccount(out, internalCallContext);
         return out.toString();
     }
+
+    private static final class TestExportConfig implements ExportConfig {
+
+        private final int fetchSize;
+        private final int exportThreadNb;
+
+        private TestExportConfig(final int fetchSize, final int exportThreadNb) {
+            this.fetchSize = fetchSize;
+            this.exportThreadNb = exportThreadNb;
+        }
+
+        @Override
+        public int getFetchSize() {
+            return fetchSize;
+        }
+
+        @Override
+        public int getExportThreadNb() {
+            return exportThreadNb;
+        }
+    }
+
+    private static final class FailingOutputStream extends OutputStream {
+
+        private final long maxBytes;
+        private long count = 0;
+
+        private FailingOutputStream(final long maxBytes) {
+            this.maxBytes = maxBytes;
+        }
+
+        @Override
+        public void write(final int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(final byte[] b, final int off, final int len) throws IOException {
+            count += len;
+            if (count > maxBytes) {
+                throw new IOException("Client went away");
+            }
+        }
+    }
+
+    private static final class CountingOutputStream extends OutputStream {
+
+        private long count = 0;
+
+        @Override
+        public void write(final int b) {
+            count++;
+        }
+
+        @Override
+        public void write(final byte[] b, final int off, final int len) {
+            count += len;
+        }
+    }
 }
@@ -0,0 +1,176 @@
+/*
+ * Copyright 2020-2026 Equinix, Inc
+ * Copyright 2014-2026 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.killbill.billing.util.globallocker;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.killbill.commons.concurrent.Executors;
+import org.killbill.commons.locker.GlobalLock;
+import org.killbill.commons.locker.LockFailedException;
+import org.killbill.commons.locker.memory.MemoryGlobalLocker;
+import org.killbill.commons.metrics.impl.NoOpMetricRegistry;
+import org.killbill.commons.request.Request;
+import org.killbill.commons.request.RequestData;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class TestTwoTierGlobalLocker {
+
+    private static final String SERVICE = LockerType.ACCNT_INV_PAY.toString();
+
+    private ExecutorService executor;
+
+    @BeforeMethod(groups = "fast")
+    public void beforeMethod() {
+        executor = Executors.newFixedThreadPool(10, TestTwoTierGlobalLocker.class.getName());
+    }
+
+    @AfterMethod(groups = "fast")
+    public void afterMethod() {
+        executor.shutdownNow();
+        Request.resetPerThreadRequestData();
+    }
+
+    @Test(groups = "fast")
+    public void testLocalContendersAreSerialized() throws Exception {
+        final TwoTierGlobalLocker locker = new TwoTierGlobalLocker(new MemoryGlobalLocker(), 10000, new NoOpMetricRegistry());
+        final String lockKey = UUID.randomUUID().toString();
+
+        final AtomicInteger holders = new AtomicInteger();
+        final AtomicInteger maxHolders = new AtomicInteger();
+        final List<Callable<Void>> tasks = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            tasks.add(() -> {
+                for (int j = 0; j < 20; j++) {
+                    // Only the local winner goes to the distributed locker, which always succeeds on the first attempt
+                    final GlobalLock lock = locker.lockWithNumberOfTries(SERVICE, lockKey, 100);
+                    try {
+                        maxHolders.accumulateAndGet(holders.incrementAndGet(), Math::max);
+                        Thread.sleep(1);
+                        holders.decrementAndGet();
+                    } finally {
+                        lock.release();
+                    }
+                }
+                return null;
+            });
+        }
+        for (final Future<Void> future : executor.invokeAll(tasks)) {
+            future.get();
+        }
+
+        Assert.assertEquals(maxHolders.get(), 1);
+        Assert.assertTrue(locker.isFree(SERVICE, lockKey));
+    }
+
+    @Test(groups = "fast")
+    public void testSameThreadWithoutRequest() throws Exception {
+        final TwoTierGlobalLocker locker = new TwoTierGlobalLocker(new MemoryGlobalLocker(), 10000, new NoOpMetricRegistry());
+        final String lockKey = UUID.randomUUID().toString();
+
+        final GlobalLock lock = locker.lockWithNumberOfTries(SERVICE, lockKey, 1);
+        // Like the distributed locker, the lock isn't reentrant outside of a request
+        try {
+            locker.lockWithNumberOfTries(SERVICE, lockKey, 1);
+            Assert.fail("Lock shouldn't have been acquired");
+        } catch (final LockFailedException ignored) {
+        }
+        lock.release();
+
+        // The local lock was released as well
+        executor.submit(() -> {
+            locker.lockWithNumberOfTries(SERVICE, lockKey, 1).release();
+            return null;
+        }).get(5, TimeUnit.SECONDS);
+        Assert.assertTrue(locker.isFree(SERVICE, lockKey));
+    }
+
+    @Test(groups = "fast")
+    public void testSameRequestOnAnotherThread() throws Exception {
+        final TwoTierGlobalLocker locker = new TwoTierGlobalLocker(new MemoryGlobalLocker(), 10000, new NoOpMetricRegistry());
+        final String lockKey = UUID.randomUUID().toString();
+        final RequestData requestData = new RequestData(UUID.randomUUID().toString());
+
+        Request.setPerThreadRequestData(requestData);
+        final GlobalLock lock = locker.lockWithNumberOfTries(SERVICE, lockKey, 1);
+
+        // E.g. a payment plugin call dispatched on another thread
+        executor.submit(() -> {
+            Request.setPerThreadRequestData(requestData);
+            try {
+                locker.lockWithNumberOfTries(SERVICE, lockKey, 1).release();
+            } finally {
+                Request.resetPerThreadRequestData();
+            }
+            return null;
+        }).get(5, TimeUnit.SECONDS);
+
+        Assert.assertFalse(locker.isFree(SERVICE, lockKey));
+        lock.release();
+        Assert.assertTrue(locker.isFree(SERVICE, lockKey));
+    }
+
+    @Test(groups = "fast")
+    public void testLocalWaitTimeout() throws Exception {
+        final TwoTierGlobalLocker locker = new TwoTierGlobalLocker(new MemoryGlobalLocker(), 50, new NoOpMetricRegistry());
+        final String lockKey = UUID.randomUUID().toString();
+
+        final GlobalLock lock = locker.lockWithNumberOfTries(SERVICE, lockKey, 1);
+        try {
+            // The contender gives up on the local lock and fails on the distributed one, as it would have without the local tier
+            executor.submit(() -> locker.lockWithNumberOfTries(SERVICE, lockKey, 2)).get(5, TimeUnit.SECONDS);
+            Assert.fail("Lock shouldn't have been acquired");
+        } catch (final ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof LockFailedException);
+        } finally {
+            lock.release();
+        }
+        Assert.assertTrue(locker.isFree(SERVICE, lockKey));
+    }
+
+    @Test(groups = "fast")
+    public void testLocalWaitIsBoundedByRetryBudget() throws Exception {
+        final TwoTierGlobalLocker locker = new TwoTierGlobalLocker(new MemoryGlobalLocker(), 10000, new NoOpMetricRegistry());
+        final String lockKey = UUID.randomUUID().toString();
+
+        final GlobalLock lock = locker.lockWithNumberOfTries(SERVICE, lockKey, 1);
+        final long startNanos = System.nanoTime();
+        try {
+            // 3 x 100ms budget for the local wait and the distributed attempts together, regardless of maxLocalWait
+            executor.submit(() -> locker.lockWithNumberOfTries(SERVICE, lockKey, 3)).get(5, TimeUnit.SECONDS);
+            Assert.fail("Lock shouldn't have been acquired");
+        } catch (final ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof LockFailedException);
+        } finally {
+            lock.release();
+        }
+        Assert.assertTrue(System.nanoTime() - startNanos < TimeUnit.SECONDS.toNanos(2));
+        Assert.assertTrue(locker.isFree(SERVICE, lockKey));
+    }
+}
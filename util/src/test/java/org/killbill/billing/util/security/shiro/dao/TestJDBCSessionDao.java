@@ -17,17 +17,33 @@
 package org.killbill.billing.util.security.shiro.dao;
 
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
+import org.apache.shiro.mgt.DefaultSecurityManager;
 import org.apache.shiro.session.Session;
+import org.apache.shiro.session.mgt.DefaultSessionManager;
 import org.apache.shiro.session.mgt.SimpleSession;
+import org.killbill.billing.lifecycle.DefaultLifecycle;
+import org.killbill.billing.lifecycle.api.Lifecycle;
 import org.killbill.billing.util.UtilTestSuiteWithEmbeddedDB;
+import org.killbill.billing.util.security.api.DefaultSecurityService;
+import org.skife.config.TimeSpan;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
 public class TestJDBCSessionDao extends UtilTestSuiteWithEmbeddedDB {
 
+    private static final Logger logger = LoggerFactory.getLogger(TestJDBCSessionDao.class);
+
     @Test(groups = "slow")
     public void testH2AndInvalidSessionId() {
         final JDBCSessionDao jdbcSessionDao = new JDBCSessionDao(dbi, roDbi);
@@ -67,6 +83,142 @@ public class TestJDBCSessionDao extends UtilTestSuiteWithEmbeddedDB {
         Assert.assertNull(jdbcSessionDao.doReadSession(session.getId()));
     }
 
+    @Test(groups = "slow")
+    public void testWriteBehindTouches() throws Exception {
+        // Large interval, flushes are triggered manually
+        final JDBCSessionDao jdbcSessionDao = new JDBCSessionDao(dbi, roDbi, new TimeSpan("1h"), null);
+
+        final SimpleSession session = createSession();
+        final Serializable sessionId = jdbcSessionDao.doCreate(session);
+        final Date initialLastAccessTime = jdbcSessionDao.doReadSession(sessionId).getLastAccessTime();
+
+        // Touches are not written right away
+        for (int i = 1; i <= 10; i++) {
+            session.setLastAccessTime(new Date(initialLastAccessTime.getTime() + i * 1000L));
+            jdbcSessionDao.doUpdate(session);
+        }
+        Assert.assertEquals(jdbcSessionDao.doReadSession(sessionId).getLastAccessTime(), initialLastAccessTime);
+        Assert.assertEquals(jdbcSessionDao.getWrittenUpdates(), 0);
+        Assert.assertEquals(jdbcSessionDao.getCoalescedUpdates(), 9);
+
+        // Only the latest one is written by the flush
+        jdbcSessionDao.flushSessionTouches();
+        Assert.assertEquals(jdbcSessionDao.doReadSession(sessionId).getLastAccessTime(), session.getLastAccessTime());
+        Assert.assertEquals(jdbcSessionDao.getWrittenUpdates(), 1);
+
+        // Attribute changes are written right away, along with the pending touch
+        session.setLastAccessTime(new Date(initialLastAccessTime.getTime() + 20 * 1000L));
+        jdbcSessionDao.doUpdate(session);
+        final String attributeKey = UUID.randomUUID().toString();
+        session.setAttribute(attributeKey, "value");
+        jdbcSessionDao.doUpdate(session);
+        final Session retrievedSession = jdbcSessionDao.doReadSession(sessionId);
+        Assert.assertEquals(retrievedSession.getAttribute(attributeKey), "value");
+        Assert.assertEquals(retrievedSession.getLastAccessTime(), session.getLastAccessTime());
+        Assert.assertEquals(jdbcSessionDao.getWrittenUpdates(), 2);
+        Assert.assertEquals(jdbcSessionDao.getCoalescedUpdates(), 10);
+
+        // Expirations are written right away
+        session.setLastAccessTime(new Date(initialLastAccessTime.getTime() + 30 * 1000L));
+        session.setExpired(true);
+        jdbcSessionDao.doUpdate(session);
+        Assert.assertEquals(jdbcSessionDao.doReadSession(sessionId).getLastAccessTime(), session.getLastAccessTime());
+        Assert.assertEquals(jdbcSessionDao.getWrittenUpdates(), 3);
+
+        // Pending touches are dropped on deletion
+        session.setExpired(false);
+        session.setLastAccessTime(new Date(initialLastAccessTime.getTime() + 40 * 1000L));
+        jdbcSessionDao.doUpdate(session);
+        jdbcSessionDao.doDelete(session);
+        jdbcSessionDao.flushSessionTouches();
+        Assert.assertNull(jdbcSessionDao.doReadSession(sessionId));
+        Assert.assertEquals(jdbcSessionDao.getWrittenUpdates(), 3);
+
+        jdbcSessionDao.destroy();
+    }
+
+    @Test(groups = "slow")
+    public void testPendingTouchesWrittenOnShutdown() throws Exception {
+        final JDBCSessionDao jdbcSessionDao = new JDBCSessionDao(dbi, roDbi, new TimeSpan("1h"), null);
+        final DefaultSessionManager sessionManager = new DefaultSessionManager();
+        sessionManager.setSessionDAO(jdbcSessionDao);
+        final DefaultSecurityManager securityManager = new DefaultSecurityManager();
+        securityManager.setSessionManager(sessionManager);
+        final Lifecycle lifecycle = new DefaultLifecycle(List.of(new DefaultSecurityService(securityManager)));
+
+        final SimpleSession session = createSession();
+        final Serializable sessionId = jdbcSessionDao.doCreate(session);
+        final Date initialLastAccessTime = jdbcSessionDao.doReadSession(sessionId).getLastAccessTime();
+        session.setLastAccessTime(new Date(initialLastAccessTime.getTime() + 1000L));
+        jdbcSessionDao.doUpdate(session);
+        Assert.assertEquals(jdbcSessionDao.doReadSession(sessionId).getLastAccessTime(), initialLastAccessTime);
+
+        // Shiro never destroys the session DAO, the pending touch is written by the security service when Kill Bill stops
+        lifecycle.fireShutdownSequencePriorEventUnRegistration();
+        lifecycle.fireShutdownSequencePostEventUnRegistration();
+        Assert.assertEquals(jdbcSessionDao.doReadSession(sessionId).getLastAccessTime(), session.getLastAccessTime());
+        Assert.assertEquals(jdbcSessionDao.getWrittenUpdates(), 1);
+    }
+
+    @Test(groups = "slow", description = "Load test: DB writes for concurrent session touches, with and without write-behind")
+    public void testWriteBehindTouchesUnderLoad() throws Exception {
+        final int nbSessions = 20;
+        final int nbTouchesPerSession = 100;
+        final int nbFlushes = 10;
+
+        final JDBCSessionDao writeThroughSessionDao = new JDBCSessionDao(dbi, roDbi, null, null);
+        touchSessions(writeThroughSessionDao, nbSessions, nbTouchesPerSession, nbFlushes);
+        Assert.assertEquals(writeThroughSessionDao.getWrittenUpdates(), nbSessions * nbTouchesPerSession);
+
+        final JDBCSessionDao writeBehindSessionDao = new JDBCSessionDao(dbi, roDbi, new TimeSpan("1h"), null);
+        final List<SimpleSession> sessions = touchSessions(writeBehindSessionDao, nbSessions, nbTouchesPerSession, nbFlushes);
+        // At most one write per session and per flush
+        Assert.assertTrue(writeBehindSessionDao.getWrittenUpdates() <= nbSessions * nbFlushes);
+        Assert.assertEquals(writeBehindSessionDao.getWrittenUpdates() + writeBehindSessionDao.getCoalescedUpdates(), nbSessions * nbTouchesPerSession);
+        for (final SimpleSession session : sessions) {
+            Assert.assertEquals(writeBehindSessionDao.doReadSession(session.getId()).getLastAccessTime(), session.getLastAccessTime());
+        }
+
+        logger.info("{} session touches: {} DB writes without write-behind, {} DB writes with write-behind ({} coalesced)",
+                    nbSessions * nbTouchesPerSession, writeThroughSessionDao.getWrittenUpdates(), writeBehindSessionDao.getWrittenUpdates(), writeBehindSessionDao.getCoalescedUpdates());
+        writeBehindSessionDao.destroy();
+    }
+
+    // Each session is touched by its own thread, while the main thread flushes
+    private List<SimpleSession> touchSessions(final JDBCSessionDao jdbcSessionDao, final int nbSessions, final int nbTouchesPerSession, final int nbFlushes) throws Exception {
+        final List<SimpleSession> sessions = new ArrayList<SimpleSession>(nbSessions);
+        for (int i = 0; i < nbSessions; i++) {
+            final SimpleSession session = createSession();
+            jdbcSessionDao.doCreate(session);
+            sessions.add(session);
+        }
+
+        final ExecutorService executorService = Executors.newFixedThreadPool(nbSessions);
+        try {
+            final List<Future<?>> futures = new ArrayList<Future<?>>(nbSessions);
+            for (final SimpleSession session : sessions) {
+                futures.add(executorService.submit(() -> {
+                    final long initialLastAccessTime = session.getLastAccessTime().getTime();
+                    for (int j = 1; j <= nbTouchesPerSession; j++) {
+                        session.setLastAccessTime(new Date(initialLastAccessTime + j * 1000L));
+                        jdbcSessionDao.doUpdate(session);
+                        if (j % (nbTouchesPerSession / nbFlushes) == 0 && session == sessions.get(0)) {
+                            jdbcSessionDao.flushSessionTouches();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (final Future<?> future : futures) {
+                future.get(1, TimeUnit.MINUTES);
+            }
+        } finally {
+            executorService.shutdownNow();
+        }
+        jdbcSessionDao.flushSessionTouches();
+        return sessions;
+    }
+
     private SimpleSession createSession() {
         final SimpleSession simpleSession = new SimpleSession();
         simpleSession.setStartTimestamp(new Date(System.currentTimeMillis() - 5000));